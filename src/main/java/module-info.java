@@ -3,6 +3,9 @@ module uk.ac.soton.comp1206 {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.media;
+    requires jdk.jfr;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
     requires org.apache.logging.log4j;
     requires nv.websocket.client;
     opens uk.ac.soton.comp1206.ui to javafx.fxml;
@@ -13,4 +16,7 @@ module uk.ac.soton.comp1206 {
     exports uk.ac.soton.comp1206.event;
     exports uk.ac.soton.comp1206.component;
     exports uk.ac.soton.comp1206.game;
+    exports uk.ac.soton.comp1206.ai;
+    exports uk.ac.soton.comp1206.diagnostics;
+    exports uk.ac.soton.comp1206.tools;
 }
\ No newline at end of file
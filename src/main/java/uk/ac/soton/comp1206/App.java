@@ -6,6 +6,7 @@ import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import uk.ac.soton.comp1206.diagnostics.FlightRecording;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 /**
@@ -27,12 +28,18 @@ public class App extends Application {
     private static final Logger logger = LogManager.getLogger(App.class);
     private Stage stage;
 
+    /**
+     * The window the game is shown in
+     */
+    private GameWindow gameWindow;
+
     /**
      * Start the game
      * @param args commandline arguments
      */
     public static void main(String[] args) {
         logger.info("Starting client");
+        FlightRecording.startIfRequested();
         launch();
     }
 
@@ -56,7 +63,7 @@ public class App extends Application {
         logger.info("Opening game window");
 
         //Change the width and height in this class to change the base rendering resolution for all game parts
-        var gameWindow = new GameWindow(stage,width,height);
+        gameWindow = new GameWindow(stage,width,height);
 
         //Display the GameWindow
         stage.show();
@@ -67,6 +74,9 @@ public class App extends Application {
      */
     public void shutdown() {
         logger.info("Shutting down");
+        if (gameWindow != null) {
+            gameWindow.shutdown();
+        }
         System.exit(0);
     }
 
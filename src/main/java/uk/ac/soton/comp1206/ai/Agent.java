@@ -0,0 +1,25 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Move;
+
+/**
+ * An Agent plays the game: shown the state of a game, it decides what to do with the current and following pieces.
+ *
+ * The same agent may be asked about many games at once from different threads, so it must not keep anything from one
+ * call to the next that isn't safe to share.
+ */
+public interface Agent {
+
+    /**
+     * Get the name the agent is reported under
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Decide the next move
+     * @param view the game
+     * @return whether to swap the pieces, the rotation to play in and where, or null to let the timer run out
+     */
+    Move decide(AgentView view);
+}
@@ -0,0 +1,179 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.game.GridSnapshot;
+import uk.ac.soton.comp1206.game.PieceSet;
+
+/**
+ * What an Agent is shown of a game when it is asked for a move: the grid, the current and following pieces, the
+ * score, level, lives and multiplier, and the time left to decide. Nothing in it can change, so an agent can keep it or
+ * hand it to other threads.
+ */
+public final class AgentView {
+
+    /**
+     * The state of the game
+     */
+    private final GameState state;
+
+    /**
+     * The pieces the game deals
+     */
+    private final PieceSet set;
+
+    /**
+     * Milliseconds left on the turn
+     */
+    private final int timerRemaining;
+
+    /**
+     * The filled blocks of each row, bit x for column x, or null if the grid is wider than an int
+     */
+    private final int[] board;
+
+    /**
+     * Create a view of a game
+     * @param state the state of the game, as Game.captureState gives it
+     * @param set the pieces the game deals
+     * @param timerRemaining milliseconds left to decide
+     */
+    public AgentView(GameState state, PieceSet set, int timerRemaining) {
+        this.state = state;
+        this.set = set;
+        this.timerRemaining = timerRemaining;
+
+        var grid = state.getGrid();
+        if (grid.getCols() <= GameArena.MAX_COLS) {
+            board = new int[grid.getRows()];
+            for (var y = 0; y < grid.getRows(); y++) {
+                for (var x = 0; x < grid.getCols(); x++) {
+                    if (grid.get(x, y) != 0) board[y] |= 1 << x;
+                }
+            }
+        } else {
+            board = null;
+        }
+    }
+
+    /**
+     * Get the blocks of the grid
+     * @return the grid
+     */
+    public GridSnapshot getGrid() {
+        return state.getGrid();
+    }
+
+    /**
+     * Get the number of columns of the grid
+     * @return columns
+     */
+    public int getCols() {
+        return state.getGrid().getCols();
+    }
+
+    /**
+     * Get the number of rows of the grid
+     * @return rows
+     */
+    public int getRows() {
+        return state.getGrid().getRows();
+    }
+
+    /**
+     * Get the pieces the game deals
+     * @return the piece set
+     */
+    public PieceSet getPieceSet() {
+        return set;
+    }
+
+    /**
+     * Get a copy of the current piece in its current rotation, which can be rotated without changing the game
+     * @return the current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return GamePiece.createPiece(set, state.getCurrentPiece(), state.getCurrentRotation());
+    }
+
+    /**
+     * Get a copy of the following piece in its current rotation, which can be rotated without changing the game
+     * @return the following piece
+     */
+    public GamePiece getFollowingPiece() {
+        return GamePiece.createPiece(set, state.getFollowingPiece(), state.getFollowingRotation());
+    }
+
+    /**
+     * Get the score
+     * @return score
+     */
+    public int getScore() {
+        return state.getScore();
+    }
+
+    /**
+     * Get the level
+     * @return level
+     */
+    public int getLevel() {
+        return state.getLevel();
+    }
+
+    /**
+     * Get the lives left
+     * @return lives
+     */
+    public int getLives() {
+        return state.getLives();
+    }
+
+    /**
+     * Get the multiplier
+     * @return multiplier
+     */
+    public int getMultiplier() {
+        return state.getMultiplier();
+    }
+
+    /**
+     * Get the time left to decide. Once it runs out the game loses a life, as it would for a player.
+     * @return milliseconds left on the turn
+     */
+    public int getTimerRemaining() {
+        return timerRemaining;
+    }
+
+    /**
+     * Check whether a piece fits with its middle at a position, as Grid.canPlayPiece does
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @param placeX column of the middle
+     * @param placeY row of the middle
+     * @return true if every block lands on an empty block inside the grid
+     */
+    public boolean canPlay(int piece, int rotation, int placeX, int placeY) {
+        var grid = state.getGrid();
+        int[][] blocks = set.getBlocks(piece, rotation);
+        var middle = blocks.length / 2;
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks.length; blockY++) {
+                if (blocks[blockX][blockY] == 0) continue;
+                var x = placeX + blockX - middle;
+                var y = placeY + blockY - middle;
+                if (x < 0 || y < 0 || x >= grid.getCols() || y >= grid.getRows() || grid.get(x, y) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the filled blocks of each row, shared with the view and not to be changed
+     * @return bit x of row y set for every filled block, or null if the grid is wider than 32 columns
+     */
+    int[] getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,647 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.SeedableRandom;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static uk.ac.soton.comp1206.ai.GameArena.BOARD;
+import static uk.ac.soton.comp1206.ai.GameArena.CURRENT;
+import static uk.ac.soton.comp1206.ai.GameArena.CURRENT_ROTATION;
+import static uk.ac.soton.comp1206.ai.GameArena.FOLLOWING;
+import static uk.ac.soton.comp1206.ai.GameArena.FOLLOWING_ROTATION;
+import static uk.ac.soton.comp1206.ai.GameArena.LEVEL;
+import static uk.ac.soton.comp1206.ai.GameArena.LIVES;
+import static uk.ac.soton.comp1206.ai.GameArena.MOVES;
+import static uk.ac.soton.comp1206.ai.GameArena.MULTIPLIER;
+import static uk.ac.soton.comp1206.ai.GameArena.OVER;
+import static uk.ac.soton.comp1206.ai.GameArena.RANDOM;
+import static uk.ac.soton.comp1206.ai.GameArena.SCORE;
+
+/**
+ * The ArenaKernel plays the games of a GameArena, a turn at a time, reading and writing their records in place. Apart
+ * from a little scratch space for each slice of games worked on, it allocates nothing, however many games there are.
+ *
+ * The rules are the game's own, with a dead board losing a life as in the standard modes. A game starts as Game.start
+ * does, deals pieces from the same generator as a Game seeded with Game.setSeed, and scores, clears lines, raises the
+ * multiplier and level as Game.afterPiece does. So a game played here ends the same as a Game played the same moves.
+ *
+ * Each turn the kernel plays the move the placement heuristic values most, trying the current piece and the following
+ * piece (by swapping) in every rotation and place. Moves are played straight away, so the turn timer never runs out.
+ */
+public class ArenaKernel {
+
+    /**
+     * Games worked on by one task when advancing in parallel
+     */
+    private static final int SLICE = 4096;
+
+    /**
+     * The bit a shape's middle sits at in its row patterns, leaving room for blocks to its left
+     */
+    private static final int MIDDLE_BIT = PieceSet.MAX_PIECE_SIZE;
+
+    /**
+     * The value of a piece that fits nowhere, below that of any move
+     */
+    private static final double NO_MOVE = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Sizes of the boards played
+     */
+    private final int cols, rows;
+
+    /**
+     * The bits of a full row
+     */
+    private final int full;
+
+    /**
+     * The pieces dealt
+     */
+    private final PieceSet set;
+
+    /**
+     * The weights moves are valued with
+     */
+    private final double linesWeight, holesWeight, contactWeight, multiplierWeight;
+
+    /**
+     * The distinct shapes of each piece run from shapeStart[piece] up to shapeStart[piece + 1]
+     */
+    private final int[] shapeStart;
+
+    /**
+     * The rotation each distinct shape is played in
+     */
+    private final int[] shapeRotation;
+
+    /**
+     * The column offsets of the blocks of each distinct shape from the middle of the piece
+     */
+    private final int[][] blockX;
+
+    /**
+     * The row offsets of the blocks of each distinct shape from the middle of the piece
+     */
+    private final int[][] blockY;
+
+    /**
+     * The row offsets of each row a distinct shape covers
+     */
+    private final int[][] shapeRows;
+
+    /**
+     * The blocks of each row a distinct shape covers, with the middle of the piece at MIDDLE_BIT
+     */
+    private final int[][] shapeBits;
+
+    /**
+     * Scratch space for the games one thread is working on
+     */
+    private static class Scratch {
+
+        /**
+         * The rows of the board being played
+         */
+        final int[] board;
+
+        /**
+         * The rows of the board after the move being valued
+         */
+        final int[] after;
+
+        /**
+         * The state of the random number generator of the game being played
+         */
+        long random;
+
+        /**
+         * The distinct shape, column and row of the move chosen
+         */
+        int shape, x, y;
+
+        Scratch(int rows) {
+            board = new int[rows];
+            after = new int[rows];
+        }
+    }
+
+    /**
+     * Create a kernel for games of a given size, valuing moves with the weights the game uses
+     * @param set the pieces to deal
+     * @param cols columns of the boards, up to 32
+     * @param rows rows of the boards
+     */
+    public ArenaKernel(PieceSet set, int cols, int rows) {
+        this(set, cols, rows, PlacementWeights.getDefault());
+    }
+
+    /**
+     * Create a kernel for games of a given size
+     * @param set the pieces to deal
+     * @param cols columns of the boards, up to 32
+     * @param rows rows of the boards
+     * @param weights the weights to value moves with
+     */
+    public ArenaKernel(PieceSet set, int cols, int rows, PlacementWeights weights) {
+        if (cols < 1 || cols > GameArena.MAX_COLS || rows < 1) {
+            throw new IllegalArgumentException("Boards must be 1 to " + GameArena.MAX_COLS + " columns wide");
+        }
+        this.set = set;
+        this.cols = cols;
+        this.rows = rows;
+        this.full = cols == 32 ? -1 : (1 << cols) - 1;
+        this.linesWeight = weights.getLines();
+        this.holesWeight = weights.getHoles();
+        this.contactWeight = weights.getContact();
+        this.multiplierWeight = weights.getMultiplier();
+
+        // Rotations covering the same blocks are the same move, so only the first is kept
+        shapeStart = new int[set.getCount() + 1];
+        var rotations = new ArrayList<Integer>();
+        var offsetsX = new ArrayList<int[]>();
+        var offsetsY = new ArrayList<int[]>();
+        for (var piece = 0; piece < set.getCount(); piece++) {
+            shapeStart[piece] = rotations.size();
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var repeated = false;
+                for (var earlier = 0; earlier < rotation; earlier++) {
+                    repeated |= set.getMask(piece, earlier) == set.getMask(piece, rotation);
+                }
+                if (repeated) continue;
+
+                int[][] blocks = set.getBlocks(piece, rotation);
+                var middle = blocks.length / 2;
+                var offsetX = new ArrayList<Integer>();
+                var offsetY = new ArrayList<Integer>();
+                for (var x = 0; x < blocks.length; x++) {
+                    for (var y = 0; y < blocks.length; y++) {
+                        if (blocks[x][y] == 0) continue;
+                        offsetX.add(x - middle);
+                        offsetY.add(y - middle);
+                    }
+                }
+                rotations.add(rotation);
+                offsetsX.add(offsetX.stream().mapToInt(Integer::intValue).toArray());
+                offsetsY.add(offsetY.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        shapeStart[set.getCount()] = rotations.size();
+        shapeRotation = rotations.stream().mapToInt(Integer::intValue).toArray();
+        blockX = offsetsX.toArray(new int[0][]);
+        blockY = offsetsY.toArray(new int[0][]);
+
+        // The same blocks again, as a pattern for each row the shape covers
+        shapeRows = new int[blockX.length][];
+        shapeBits = new int[blockX.length][];
+        for (var shape = 0; shape < blockX.length; shape++) {
+            shapeRows[shape] = IntStream.of(blockY[shape]).distinct().sorted().toArray();
+            shapeBits[shape] = new int[shapeRows[shape].length];
+            for (var block = 0; block < blockX[shape].length; block++) {
+                for (var row = 0; row < shapeRows[shape].length; row++) {
+                    if (shapeRows[shape][row] == blockY[shape][block]) {
+                        shapeBits[shape][row] |= 1 << (MIDDLE_BIT + blockX[shape][block]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Start every game of an arena, game i dealt pieces from seed + i
+     * @param arena the arena, which must hold boards of this kernel's size
+     * @param seed the seed of the first game
+     */
+    public void startAll(GameArena arena, long seed) {
+        checkSize(arena);
+        IntStream.range(0, slices(arena)).parallel().forEach(slice -> {
+            for (var game = slice * SLICE; game < Math.min(arena.getCapacity(), (slice + 1) * SLICE); game++) {
+                start(arena, game, seed + game);
+            }
+        });
+    }
+
+    /**
+     * Start one game of an arena on an empty board, as Game.start does with the game seeded by Game.setSeed
+     * @param arena the arena
+     * @param game the game
+     * @param seed the seed of its pieces
+     */
+    public void start(GameArena arena, int game, long seed) {
+        var buffer = arena.chunk(game);
+        var at = arena.offset(game);
+        var scratch = new Scratch(0);
+        scratch.random = seed;
+
+        // Game.start deals a piece as it initialises, then moves it on and deals two more over it
+        var current = pick(scratch);
+        pick(scratch);
+        var following = pick(scratch);
+
+        buffer.putInt(at + SCORE, 0);
+        buffer.putInt(at + LEVEL, 0);
+        buffer.putInt(at + MULTIPLIER, 1);
+        buffer.put(at + LIVES, (byte) 3);
+        buffer.put(at + OVER, (byte) 0);
+        buffer.put(at + CURRENT, (byte) current);
+        buffer.put(at + CURRENT_ROTATION, (byte) 0);
+        buffer.put(at + FOLLOWING, (byte) following);
+        buffer.put(at + FOLLOWING_ROTATION, (byte) 0);
+        buffer.putInt(at + MOVES, 0);
+        for (var row = 0; row < rows; row++) {
+            buffer.putInt(at + BOARD + row * Integer.BYTES, 0);
+        }
+        buffer.putLong(at + RANDOM, scratch.random);
+    }
+
+    /**
+     * Find the move the placement heuristic values most for a game's pieces, for a hint. The grid must be the size of
+     * this kernel's boards.
+     * @param grid the game's grid
+     * @param current the current piece
+     * @param following the following piece
+     * @param multiplier the game's multiplier
+     * @return the first move to make, or null if neither piece can be played
+     */
+    public Move best(Grid grid, GamePiece current, GamePiece following, int multiplier) {
+        if (grid.getCols() != cols || grid.getRows() != rows) {
+            throw new IllegalArgumentException("Grid is " + grid.getCols() + "x" + grid.getRows());
+        }
+        var board = new int[rows];
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                if (grid.get(x, y) != 0) board[y] |= 1 << x;
+            }
+        }
+        return best(board, current.getPiece(), following.getPiece(), multiplier);
+    }
+
+    /**
+     * Find the move the placement heuristic values most on a board
+     * @param board the filled blocks of each row, bit x for column x, which are left unchanged
+     * @param current the current piece number
+     * @param following the following piece number
+     * @param multiplier the game's multiplier
+     * @return the first move to make, or null if neither piece can be played
+     */
+    Move best(int[] board, int current, int following, int multiplier) {
+        var scratch = new Scratch(rows);
+        System.arraycopy(board, 0, scratch.board, 0, rows);
+
+        var currentValue = choose(scratch.board, current, multiplier, scratch);
+        var currentShape = scratch.shape;
+        int currentX = scratch.x, currentY = scratch.y;
+        var followingValue = choose(scratch.board, following, multiplier, scratch);
+        if (currentValue == NO_MOVE && followingValue == NO_MOVE) return null;
+
+        var swap = followingValue > currentValue;
+        if (!swap) {
+            scratch.shape = currentShape;
+            scratch.x = currentX;
+            scratch.y = currentY;
+        }
+        place(scratch.board, scratch.shape, scratch.x, scratch.y);
+        var lines = 0;
+        var fullColumns = full;
+        for (var row = 0; row < rows; row++) {
+            if (scratch.board[row] == full) lines++;
+            fullColumns &= scratch.board[row];
+        }
+        lines += Integer.bitCount(fullColumns);
+        return new Move(swap, shapeRotation[scratch.shape], scratch.x, scratch.y, lines);
+    }
+
+    /**
+     * Play one turn of every game of an arena still running, spread across every core
+     * @param arena the arena
+     * @return the number of games still running
+     */
+    public int advanceAll(GameArena arena) {
+        checkSize(arena);
+        return IntStream.range(0, slices(arena)).parallel()
+            .map(slice -> advance(arena, slice * SLICE, Math.min(arena.getCapacity(), (slice + 1) * SLICE)))
+            .sum();
+    }
+
+    /**
+     * Play one turn of every game in a range still running
+     * @param arena the arena
+     * @param from the first game
+     * @param to the game after the last
+     * @return the number of games in the range still running
+     */
+    public int advance(GameArena arena, int from, int to) {
+        checkSize(arena);
+        var scratch = new Scratch(rows);
+        var running = 0;
+        for (var game = from; game < to; game++) {
+            if (turn(arena.chunk(game), arena.offset(game), scratch)) running++;
+        }
+        return running;
+    }
+
+    /**
+     * Play a turn of one game, as Game.playPiece does for the chosen move
+     * @param buffer the buffer holding the game
+     * @param at where its record starts
+     * @param scratch scratch space
+     * @return true if the game is still running afterwards
+     */
+    private boolean turn(ByteBuffer buffer, int at, Scratch scratch) {
+        if (buffer.get(at + OVER) != 0) return false;
+
+        int[] board = scratch.board;
+        for (var row = 0; row < rows; row++) {
+            board[row] = buffer.getInt(at + BOARD + row * Integer.BYTES);
+        }
+        scratch.random = buffer.getLong(at + RANDOM);
+        int current = buffer.get(at + CURRENT), currentRotation = buffer.get(at + CURRENT_ROTATION);
+        int following = buffer.get(at + FOLLOWING), followingRotation = buffer.get(at + FOLLOWING_ROTATION);
+        int score = buffer.getInt(at + SCORE), level = buffer.getInt(at + LEVEL);
+        int multiplier = buffer.getInt(at + MULTIPLIER), lives = buffer.get(at + LIVES);
+        var over = false;
+
+        var currentValue = choose(board, current, multiplier, scratch);
+        var currentShape = scratch.shape;
+        int currentX = scratch.x, currentY = scratch.y;
+        var followingValue = choose(board, following, multiplier, scratch);
+
+        if (currentValue == NO_MOVE && followingValue == NO_MOVE) {
+            // No move at all, so the timer runs out: lose a life and discard the piece
+            lives--;
+            over = lives < 0;
+            if (!over) {
+                multiplier = 1;
+                current = following;
+                currentRotation = followingRotation;
+                following = pick(scratch);
+                followingRotation = 0;
+            }
+        } else {
+            if (followingValue > currentValue) {
+                // Swap, keeping the rotation of each piece
+                var piece = current;
+                current = following;
+                following = piece;
+                var rotation = currentRotation;
+                currentRotation = followingRotation;
+                followingRotation = rotation;
+            } else {
+                scratch.shape = currentShape;
+                scratch.x = currentX;
+                scratch.y = currentY;
+            }
+            currentRotation = shapeRotation[scratch.shape];
+
+            // Place the piece, then clear every full row and column at once
+            place(board, scratch.shape, scratch.x, scratch.y);
+            var fullRows = 0;
+            var fullColumns = full;
+            for (var row = 0; row < rows; row++) {
+                if (board[row] == full) fullRows++;
+                fullColumns &= board[row];
+            }
+            var columns = Integer.bitCount(fullColumns);
+            var lines = fullRows + columns;
+            if (lines > 0) {
+                for (var row = 0; row < rows; row++) {
+                    board[row] = board[row] == full ? 0 : board[row] & ~fullColumns;
+                }
+            }
+            var cleared = fullRows * cols + columns * rows - fullRows * columns;
+            score += lines * cleared * 10 * multiplier;
+            multiplier = lines > 0 ? multiplier + 1 : 1;
+            if (score / 1000 != level) level++;
+            buffer.putInt(at + MOVES, buffer.getInt(at + MOVES) + 1);
+
+            // The following piece comes up, and a new one is dealt behind it
+            current = following;
+            currentRotation = followingRotation;
+            following = pick(scratch);
+            followingRotation = 0;
+        }
+
+        // A dead board loses lives until a piece fits or the game ends
+        while (!over && !fits(board, current) && !fits(board, following)) {
+            lives--;
+            over = lives < 0;
+            if (over) break;
+            multiplier = 1;
+            current = following;
+            currentRotation = followingRotation;
+            following = pick(scratch);
+            followingRotation = 0;
+        }
+
+        for (var row = 0; row < rows; row++) {
+            buffer.putInt(at + BOARD + row * Integer.BYTES, board[row]);
+        }
+        buffer.putLong(at + RANDOM, scratch.random);
+        buffer.putInt(at + SCORE, score);
+        buffer.putInt(at + LEVEL, level);
+        buffer.putInt(at + MULTIPLIER, multiplier);
+        buffer.put(at + LIVES, (byte) lives);
+        buffer.put(at + OVER, (byte) (over ? 1 : 0));
+        buffer.put(at + CURRENT, (byte) current);
+        buffer.put(at + CURRENT_ROTATION, (byte) currentRotation);
+        buffer.put(at + FOLLOWING, (byte) following);
+        buffer.put(at + FOLLOWING_ROTATION, (byte) followingRotation);
+        return !over;
+    }
+
+    /**
+     * Find the best move for a piece, leaving its shape and place in the scratch space
+     * @param board the rows of the board
+     * @param piece the piece
+     * @param multiplier the game's multiplier
+     * @param scratch scratch space
+     * @return the value of the move, or NO_MOVE if the piece fits nowhere
+     */
+    private double choose(int[] board, int piece, int multiplier, Scratch scratch) {
+        var best = NO_MOVE;
+        for (var shape = shapeStart[piece]; shape < shapeStart[piece + 1]; shape++) {
+            for (var y = 0; y < rows; y++) {
+                var legal = legal(board, shape, y);
+                while (legal != 0) {
+                    var x = Integer.numberOfTrailingZeros(legal);
+                    legal &= legal - 1;
+                    var value = value(board, shape, x, y, multiplier, scratch.after);
+                    if (value > best) {
+                        best = value;
+                        scratch.shape = shape;
+                        scratch.x = x;
+                        scratch.y = y;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Check whether a piece fits anywhere
+     * @param board the rows of the board
+     * @param piece the piece
+     * @return true if it can be played
+     */
+    private boolean fits(int[] board, int piece) {
+        for (var shape = shapeStart[piece]; shape < shapeStart[piece + 1]; shape++) {
+            for (var y = 0; y < rows; y++) {
+                if (legal(board, shape, y) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the columns a shape can be played in on a row
+     * @param board the rows of the board
+     * @param shape the distinct shape
+     * @param y the row of the middle of the piece
+     * @return bit x set if the shape fits with its middle at x, y
+     */
+    private int legal(int[] board, int shape, int y) {
+        int[] offsetX = blockX[shape];
+        int[] offsetY = blockY[shape];
+        var legal = full;
+        for (var block = 0; block < offsetX.length && legal != 0; block++) {
+            var row = y + offsetY[block];
+            legal = row < 0 || row >= rows ? 0 : legal & shiftToMiddle(~board[row] & full, offsetX[block]);
+        }
+        return legal;
+    }
+
+    /**
+     * Value a move that fits with the placement heuristic
+     * @param board the rows of the board
+     * @param shape the distinct shape
+     * @param x column of the middle of the piece
+     * @param y row of the middle of the piece
+     * @param multiplier the game's multiplier
+     * @param after scratch space for the board left by the move
+     * @return the value
+     */
+    private double value(int[] board, int shape, int x, int y, int multiplier, int[] after) {
+        System.arraycopy(board, 0, after, 0, rows);
+        int[] coveredRows = shapeRows[shape];
+        var contact = 0;
+        for (var index = 0; index < coveredRows.length; index++) {
+            var row = y + coveredRows[index];
+            var bits = toColumn(shapeBits[shape][index], x);
+            var filled = board[row];
+            after[row] |= bits;
+            contact += Integer.bitCount(bits & ((filled << 1) | 1));
+            contact += Integer.bitCount(bits & ((filled >>> 1) | (1 << (cols - 1))));
+            contact += Integer.bitCount(bits & (row == 0 ? full : board[row - 1]));
+            contact += Integer.bitCount(bits & (row == rows - 1 ? full : board[row + 1]));
+        }
+
+        // Lines completed, which are cleared before the holes are counted
+        var fullRows = 0;
+        var fullColumns = full;
+        for (var row = 0; row < rows; row++) {
+            if (after[row] == full) fullRows++;
+            fullColumns &= after[row];
+        }
+        var lines = fullRows + Integer.bitCount(fullColumns);
+        if (lines > 0) {
+            for (var row = 0; row < rows; row++) {
+                after[row] = after[row] == full ? 0 : after[row] & ~fullColumns;
+            }
+        }
+
+        // Empty blocks with every side filled or against an edge
+        var holes = 0;
+        for (var row = 0; row < rows; row++) {
+            var filled = after[row];
+            var left = (filled << 1) | 1;
+            var right = (filled >>> 1) | (1 << (cols - 1));
+            var above = row == 0 ? full : after[row - 1];
+            var below = row == rows - 1 ? full : after[row + 1];
+            holes += Integer.bitCount(~filled & full & left & right & above & below);
+        }
+
+        // Clearing lines keeps the multiplier growing, anything else loses what it had built up
+        var kept = lines > 0 ? multiplier : 1 - multiplier;
+        return linesWeight * lines + holesWeight * holes + contactWeight * contact + multiplierWeight * kept;
+    }
+
+    /**
+     * Fill the blocks of a shape
+     * @param board the rows of the board
+     * @param shape the distinct shape
+     * @param x column of the middle of the piece
+     * @param y row of the middle of the piece
+     */
+    private void place(int[] board, int shape, int x, int y) {
+        int[] coveredRows = shapeRows[shape];
+        for (var index = 0; index < coveredRows.length; index++) {
+            board[y + coveredRows[index]] |= toColumn(shapeBits[shape][index], x);
+        }
+    }
+
+    /**
+     * Move a row pattern of a shape so its middle is at a column
+     * @param bits the pattern, with the middle at MIDDLE_BIT
+     * @param x the column
+     * @return the blocks covered in that row of the board
+     */
+    private static int toColumn(int bits, int x) {
+        return x >= MIDDLE_BIT ? bits << (x - MIDDLE_BIT) : bits >>> (MIDDLE_BIT - x);
+    }
+
+    /**
+     * Move the bits of a row so that bit x says whether the block at x + offset is set
+     * @param bits the row
+     * @param offset the column offset of a block from the middle of a piece
+     * @return the moved row, with nothing shifted in from off the board
+     */
+    private int shiftToMiddle(int bits, int offset) {
+        return offset >= 0 ? bits >>> offset : (bits << -offset) & full;
+    }
+
+    /**
+     * Deal the next piece from a game's generator, as PieceSet.pick does with a SeedableRandom
+     * @param scratch holds the state of the generator, which is advanced
+     * @return piece number
+     */
+    private int pick(Scratch scratch) {
+        // Random.nextInt, drawing 31 bits and rejecting the draws that would favour low numbers
+        var bound = set.getTotalWeight();
+        var roll = SeedableRandom.bits(scratch.random += SeedableRandom.STEP, 31);
+        var mask = bound - 1;
+        if ((bound & mask) == 0) {
+            roll = (int) ((bound * (long) roll) >> 31);
+        } else {
+            for (var draw = roll; draw - (roll = draw % bound) + mask < 0; ) {
+                draw = SeedableRandom.bits(scratch.random += SeedableRandom.STEP, 31);
+            }
+        }
+        return set.pick(roll);
+    }
+
+    /**
+     * Get the number of slices an arena is worked on in
+     * @param arena the arena
+     * @return slices
+     */
+    private static int slices(GameArena arena) {
+        return (arena.getCapacity() + SLICE - 1) / SLICE;
+    }
+
+    /**
+     * Check an arena holds boards of this kernel's size
+     * @param arena the arena
+     */
+    private void checkSize(GameArena arena) {
+        if (arena.getCols() != cols || arena.getRows() != rows) {
+            throw new IllegalArgumentException("Arena holds " + arena.getCols() + "x" + arena.getRows() + " boards");
+        }
+    }
+}
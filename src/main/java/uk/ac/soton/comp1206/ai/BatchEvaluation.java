@@ -0,0 +1,118 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The results of evaluating a BoardBatch, one lane per board like the batch itself. Kept and filled again for every
+ * batch, so evaluating allocates nothing.
+ *
+ * Lines and cleared blocks describe the board as given, the way Game.afterPiece scores a move. Everything else
+ * describes the board left once those lines are cleared, which is the board the next piece is played on.
+ */
+public class BatchEvaluation {
+
+    /**
+     * Full rows and columns of each board
+     */
+    final int[] lines;
+
+    /**
+     * Blocks in those rows and columns, counting blocks where a row and column cross once
+     */
+    final int[] clearedBlocks;
+
+    /**
+     * Empty blocks no piece of the set can cover on each board
+     */
+    final int[] holes;
+
+    /**
+     * Empty blocks with every neighbour filled or off the board
+     */
+    final int[] isolated;
+
+    /**
+     * Empty blocks of each board
+     */
+    final int[] empty;
+
+    /**
+     * The places each piece fits on each board, indexed [piece][board]. Rotations covering the same blocks count once.
+     */
+    final int[][] fits;
+
+    /**
+     * Create results for batches of up to the given size
+     * @param capacity the most boards in a batch
+     * @param pieces the number of pieces in the set
+     */
+    public BatchEvaluation(int capacity, int pieces) {
+        lines = new int[capacity];
+        clearedBlocks = new int[capacity];
+        holes = new int[capacity];
+        isolated = new int[capacity];
+        empty = new int[capacity];
+        fits = new int[pieces][capacity];
+    }
+
+    /**
+     * Get the number of boards results can be held for
+     * @return capacity
+     */
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    /**
+     * Get the full rows and columns of a board
+     * @param board the board
+     * @return lines to clear
+     */
+    public int getLines(int board) {
+        return lines[board];
+    }
+
+    /**
+     * Get the blocks in the full rows and columns of a board, as Game.afterPiece counts them
+     * @param board the board
+     * @return blocks to clear
+     */
+    public int getClearedBlocks(int board) {
+        return clearedBlocks[board];
+    }
+
+    /**
+     * Get the empty blocks no piece can cover, once lines are cleared
+     * @param board the board
+     * @return holes
+     */
+    public int getHoles(int board) {
+        return holes[board];
+    }
+
+    /**
+     * Get the empty blocks with every neighbour filled or off the board, once lines are cleared
+     * @param board the board
+     * @return isolated blocks
+     */
+    public int getIsolated(int board) {
+        return isolated[board];
+    }
+
+    /**
+     * Get the empty blocks, once lines are cleared
+     * @param board the board
+     * @return empty blocks
+     */
+    public int getEmpty(int board) {
+        return empty[board];
+    }
+
+    /**
+     * Get the number of places a piece fits, once lines are cleared. Rotations covering the same blocks count once.
+     * @param board the board
+     * @param piece the piece number
+     * @return places the piece fits
+     */
+    public int getFits(int board, int piece) {
+        return fits[piece][board];
+    }
+}
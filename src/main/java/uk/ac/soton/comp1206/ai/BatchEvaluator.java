@@ -0,0 +1,275 @@
+package uk.ac.soton.comp1206.ai;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.PieceSet;
+
+import java.util.ArrayList;
+
+/**
+ * The BatchEvaluator measures every board in a BoardBatch in one pass: the lines a move completes and the blocks
+ * they clear, then, on the board left once they are cleared, the holes no piece can fill, isolated blocks, empty
+ * blocks and the number of places every piece fits.
+ *
+ * The rules are the game's own. A line is a full row or column and clearing removes both at once, as in
+ * Game.afterPiece. A piece fits where every block of it lands on an empty block inside the board, as in
+ * Grid.canPlayPiece, and rotations covering the same blocks count once.
+ *
+ * Every measure is worked out a row at a time with bit operations across the lanes of the batch, so the same steps
+ * run for every board. When the jdk.incubator.vector module is present (run with --add-modules
+ * jdk.incubator.vector), they run on as many boards at once as the processor's vector registers hold. Otherwise, or
+ * with -Dtetrecs.vector=false, they run one board at a time.
+ */
+public class BatchEvaluator {
+
+    private static final Logger logger = LogManager.getLogger(BatchEvaluator.class);
+
+    /**
+     * Whether the vector kernel can be used, decided once
+     */
+    private static final boolean VECTOR_AVAILABLE = vectorAvailable();
+
+    /**
+     * The pieces evaluated
+     */
+    final PieceSet set;
+
+    /**
+     * Size of the boards evaluated
+     */
+    final int cols, rows;
+
+    /**
+     * The bits of a full row
+     */
+    final int full;
+
+    /**
+     * The piece each distinct shape belongs to
+     */
+    final int[] shapePiece;
+
+    /**
+     * The column offsets of the blocks of each distinct shape from the middle of the piece
+     */
+    final int[][] blockX;
+
+    /**
+     * The row offsets of the blocks of each distinct shape from the middle of the piece
+     */
+    final int[][] blockY;
+
+    /**
+     * The vector kernel, or null to work one board at a time
+     */
+    private final VectorKernel vectorKernel;
+
+    /**
+     * Create an evaluator for boards of a given size
+     * @param set the pieces to count fits for
+     * @param cols columns of the boards, up to 32
+     * @param rows rows of the boards
+     */
+    public BatchEvaluator(PieceSet set, int cols, int rows) {
+        this(set, cols, rows, VECTOR_AVAILABLE);
+    }
+
+    /**
+     * Create an evaluator for boards of a given size, choosing whether to use the vector kernel
+     * @param set the pieces to count fits for
+     * @param cols columns of the boards, up to 32
+     * @param rows rows of the boards
+     * @param vector true to use the vector kernel, if it is available
+     */
+    public BatchEvaluator(PieceSet set, int cols, int rows, boolean vector) {
+        if (cols < 1 || cols > BoardBatch.MAX_COLS || rows < 1) {
+            throw new IllegalArgumentException("Boards must be 1 to " + BoardBatch.MAX_COLS + " columns wide");
+        }
+        this.set = set;
+        this.cols = cols;
+        this.rows = rows;
+        this.full = cols == 32 ? -1 : (1 << cols) - 1;
+
+        // Rotations covering the same blocks are the same placement, so only the first is kept
+        var pieces = new ArrayList<Integer>();
+        var offsetsX = new ArrayList<int[]>();
+        var offsetsY = new ArrayList<int[]>();
+        for (var piece = 0; piece < set.getCount(); piece++) {
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var repeated = false;
+                for (var earlier = 0; earlier < rotation; earlier++) {
+                    repeated |= set.getMask(piece, earlier) == set.getMask(piece, rotation);
+                }
+                if (repeated) continue;
+
+                int[][] blocks = set.getBlocks(piece, rotation);
+                var middle = blocks.length / 2;
+                var count = 0;
+                for (int[] column : blocks) {
+                    for (var value : column) {
+                        if (value != 0) count++;
+                    }
+                }
+                var offsetX = new int[count];
+                var offsetY = new int[count];
+                var next = 0;
+                for (var x = 0; x < blocks.length; x++) {
+                    for (var y = 0; y < blocks.length; y++) {
+                        if (blocks[x][y] == 0) continue;
+                        offsetX[next] = x - middle;
+                        offsetY[next] = y - middle;
+                        next++;
+                    }
+                }
+                pieces.add(piece);
+                offsetsX.add(offsetX);
+                offsetsY.add(offsetY);
+            }
+        }
+        shapePiece = pieces.stream().mapToInt(Integer::intValue).toArray();
+        blockX = offsetsX.toArray(new int[0][]);
+        blockY = offsetsY.toArray(new int[0][]);
+
+        vectorKernel = vector && VECTOR_AVAILABLE ? new VectorKernel(this) : null;
+    }
+
+    /**
+     * Check whether the vector module can be loaded, unless turned off with tetrecs.vector
+     * @return true if it can
+     */
+    private static boolean vectorAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("tetrecs.vector", "true"))) return false;
+        try {
+            Class.forName("jdk.incubator.vector.IntVector");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.info("Vector API not available, evaluating boards one at a time");
+            return false;
+        }
+    }
+
+    /**
+     * Whether boards are evaluated with the vector kernel
+     * @return true if several boards are evaluated at once
+     */
+    public boolean isVectorised() {
+        return vectorKernel != null;
+    }
+
+    /**
+     * Evaluate every board in a batch
+     * @param batch the boards, which must be the size this evaluator was made for
+     * @param results where the results go, with room for every board and piece
+     */
+    public void evaluate(BoardBatch batch, BatchEvaluation results) {
+        if (batch.getCols() != cols || batch.getRows() != rows) {
+            throw new IllegalArgumentException("Batch holds " + batch.getCols() + "x" + batch.getRows() + " boards");
+        }
+        if (results.getCapacity() < batch.size() || results.fits.length < set.getCount()) {
+            throw new IllegalArgumentException("Results are too small for the batch");
+        }
+
+        var done = vectorKernel != null ? vectorKernel.evaluate(batch.getLanes(), batch.size(), results) : 0;
+        if (done < batch.size()) {
+            evaluateScalar(batch.getLanes(), done, batch.size(), results);
+        }
+    }
+
+    /**
+     * Evaluate boards one at a time
+     * @param lanes the boards, indexed [row][board]
+     * @param from the first board
+     * @param to the board after the last
+     * @param results where the results go
+     */
+    void evaluateScalar(int[][] lanes, int from, int to, BatchEvaluation results) {
+        var free = new int[rows];
+        var cover = new int[rows];
+        for (var board = from; board < to; board++) {
+            // Full rows, and the columns full in every row
+            var fullRows = 0;
+            var fullColumns = full;
+            for (var row = 0; row < rows; row++) {
+                var bits = lanes[row][board];
+                if (bits == full) fullRows++;
+                fullColumns &= bits;
+            }
+            var columns = Integer.bitCount(fullColumns);
+            results.lines[board] = fullRows + columns;
+            results.clearedBlocks[board] = fullRows * cols + columns * rows - fullRows * columns;
+
+            // The board once the lines are cleared
+            var empty = 0;
+            for (var row = 0; row < rows; row++) {
+                var bits = lanes[row][board];
+                var rest = bits == full ? 0 : bits & ~fullColumns;
+                free[row] = ~rest & full;
+                cover[row] = 0;
+                empty += Integer.bitCount(free[row]);
+            }
+            results.empty[board] = empty;
+
+            // Empty blocks with nothing empty either side, above or below
+            var isolated = 0;
+            for (var row = 0; row < rows; row++) {
+                var filled = ~free[row] & full;
+                var left = (filled << 1) | 1;
+                var right = (filled >>> 1) | (1 << (cols - 1));
+                var above = row == 0 ? full : ~free[row - 1];
+                var below = row == rows - 1 ? full : ~free[row + 1];
+                isolated += Integer.bitCount(free[row] & left & right & above & below);
+            }
+            results.isolated[board] = isolated;
+
+            // Every place each shape fits, marking the blocks it would cover
+            for (var piece = 0; piece < results.fits.length; piece++) {
+                results.fits[piece][board] = 0;
+            }
+            for (var shape = 0; shape < shapePiece.length; shape++) {
+                int[] offsetX = blockX[shape];
+                int[] offsetY = blockY[shape];
+                var fits = 0;
+                for (var y = 0; y < rows; y++) {
+                    // Bit x is set while the shape can still go with its middle at x, y
+                    var legal = full;
+                    for (var block = 0; block < offsetX.length && legal != 0; block++) {
+                        var row = y + offsetY[block];
+                        legal = row < 0 || row >= rows ? 0 : legal & shiftToMiddle(free[row], offsetX[block]);
+                    }
+                    if (legal == 0) continue;
+                    fits += Integer.bitCount(legal);
+                    for (var block = 0; block < offsetX.length; block++) {
+                        cover[y + offsetY[block]] |= shiftToBlock(legal, offsetX[block]);
+                    }
+                }
+                results.fits[shapePiece[shape]][board] += fits;
+            }
+
+            var holes = 0;
+            for (var row = 0; row < rows; row++) {
+                holes += Integer.bitCount(free[row] & ~cover[row]);
+            }
+            results.holes[board] = holes;
+        }
+    }
+
+    /**
+     * Move the bits of a row so that bit x says whether the block at x + offset is set
+     * @param bits the row
+     * @param offset the column offset of a block from the middle of a piece
+     * @return the moved row, with nothing shifted in from off the board
+     */
+    private int shiftToMiddle(int bits, int offset) {
+        return offset >= 0 ? bits >>> offset : (bits << -offset) & full;
+    }
+
+    /**
+     * Move the bits of a row so that bit x + offset says whether bit x was set, the reverse of shiftToMiddle
+     * @param bits the row
+     * @param offset the column offset of a block from the middle of a piece
+     * @return the moved row
+     */
+    private int shiftToBlock(int bits, int offset) {
+        return offset >= 0 ? (bits << offset) & full : bits >>> -offset;
+    }
+}
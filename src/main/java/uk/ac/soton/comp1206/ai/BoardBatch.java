@@ -0,0 +1,201 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A BoardBatch holds many boards of the same size laid out for evaluating together. Only which blocks are filled is
+ * kept, one bit per block.
+ *
+ * The boards are stored as structure of arrays: for every row there is one array of ints with a lane per board, bit x
+ * of a lane set when the block in column x is filled. Working through a row of every board at once then reads one
+ * array from start to end, which is what the BatchEvaluator does.
+ *
+ * Boards can be up to 32 columns wide.
+ */
+public class BoardBatch {
+
+    /**
+     * The widest board a batch can hold, one bit per column of an int
+     */
+    public static final int MAX_COLS = 32;
+
+    /**
+     * Size of every board
+     */
+    private final int cols, rows;
+
+    /**
+     * The most boards the batch can hold
+     */
+    private final int capacity;
+
+    /**
+     * The filled blocks of each row of every board, indexed [row][board]
+     */
+    private final int[][] lanes;
+
+    /**
+     * The number of boards held
+     */
+    private int size;
+
+    /**
+     * Create an empty batch
+     * @param cols columns of every board, up to 32
+     * @param rows rows of every board
+     * @param capacity the most boards it can hold
+     */
+    public BoardBatch(int cols, int rows, int capacity) {
+        if (cols < 1 || cols > MAX_COLS || rows < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Boards must be 1 to " + MAX_COLS + " columns wide with at least one row");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.capacity = capacity;
+        this.lanes = new int[rows][capacity];
+    }
+
+    /**
+     * Add an empty board
+     * @return the index of the board
+     */
+    public int add() {
+        if (size == capacity) {
+            throw new IllegalStateException("Batch is full");
+        }
+        for (var row = 0; row < rows; row++) {
+            lanes[row][size] = 0;
+        }
+        return size++;
+    }
+
+    /**
+     * Add a board with the same blocks filled as a grid
+     * @param grid the grid, which must be the size of the batch's boards
+     * @return the index of the board
+     */
+    public int add(Grid grid) {
+        if (grid.getCols() != cols || grid.getRows() != rows) {
+            throw new IllegalArgumentException("Grid is " + grid.getCols() + "x" + grid.getRows() + ", batch holds "
+                + cols + "x" + rows);
+        }
+        var board = add();
+        for (var y = 0; y < rows; y++) {
+            var bits = 0;
+            for (var x = 0; x < cols; x++) {
+                if (grid.get(x, y) != 0) bits |= 1 << x;
+            }
+            lanes[y][board] = bits;
+        }
+        return board;
+    }
+
+    /**
+     * Add a copy of a board already in the batch
+     * @param board the board to copy
+     * @return the index of the copy
+     */
+    public int copy(int board) {
+        var copy = add();
+        for (var row = 0; row < rows; row++) {
+            lanes[row][copy] = lanes[row][board];
+        }
+        return copy;
+    }
+
+    /**
+     * Fill the blocks a piece would cover, as Grid.playPiece does. Nothing checks the piece fits.
+     * @param board the board
+     * @param piece the piece, in the rotation to play
+     * @param placeX column of the middle of the piece
+     * @param placeY row of the middle of the piece
+     */
+    public void place(int board, GamePiece piece, int placeX, int placeY) {
+        int[][] blocks = piece.getBlocks();
+        var middle = blocks.length / 2;
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks.length; blockY++) {
+                if (blocks[blockX][blockY] == 0) continue;
+                var x = placeX + blockX - middle;
+                var y = placeY + blockY - middle;
+                if (x >= 0 && x < cols && y >= 0 && y < rows) {
+                    lanes[y][board] |= 1 << x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill or empty one block of a board
+     * @param board the board
+     * @param x column
+     * @param y row
+     * @param filled true to fill the block
+     */
+    public void set(int board, int x, int y, boolean filled) {
+        if (filled) {
+            lanes[y][board] |= 1 << x;
+        } else {
+            lanes[y][board] &= ~(1 << x);
+        }
+    }
+
+    /**
+     * Check whether a block of a board is filled
+     * @param board the board
+     * @param x column
+     * @param y row
+     * @return true if filled
+     */
+    public boolean isFilled(int board, int x, int y) {
+        return (lanes[y][board] & (1 << x)) != 0;
+    }
+
+    /**
+     * Remove every board
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the number of boards held
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the most boards the batch can hold
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of columns of every board
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of every board
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the lanes of every row, indexed [row][board]. Shared with the batch, for the evaluator to read.
+     * @return the lanes
+     */
+    int[][] getLanes() {
+        return lanes;
+    }
+}
@@ -0,0 +1,252 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A GameArena holds the state of a large number of games off the heap, for simulations too big for one Game object
+ * each. Every game is a fixed width record in direct memory: its random number generator, score, level, lives,
+ * multiplier, the current and following pieces, and the board packed one bit per block.
+ *
+ * The arena is a handful of direct buffers whatever the number of games, so it adds nothing for the garbage collector
+ * to trace. Records are read and written in place by an ArenaKernel, with absolute reads and writes, so different
+ * threads can work on different games at once.
+ *
+ * Only which blocks are filled is kept, not their colour, and boards can be up to 32 columns wide. The memory is given
+ * back once the arena is no longer reachable.
+ */
+public class GameArena {
+
+    /**
+     * The widest board an arena can hold, one bit per column of an int
+     */
+    public static final int MAX_COLS = 32;
+
+    /**
+     * The most bytes in one buffer, so the records of an arena can add up to more than a single buffer can hold
+     */
+    private static final int CHUNK_BYTES = 1 << 30;
+
+    /**
+     * Where each value sits in a record
+     */
+    static final int RANDOM = 0, SCORE = 8, LEVEL = 12, MULTIPLIER = 16, LIVES = 20, OVER = 21, CURRENT = 22,
+        CURRENT_ROTATION = 23, FOLLOWING = 24, FOLLOWING_ROTATION = 25, MOVES = 28, BOARD = 32;
+
+    /**
+     * Size of every board
+     */
+    private final int cols, rows;
+
+    /**
+     * The number of games held
+     */
+    private final int capacity;
+
+    /**
+     * Bytes in each record, a multiple of 8 so the random state of every record is aligned
+     */
+    private final int recordSize;
+
+    /**
+     * Records held by each buffer
+     */
+    private final int perChunk;
+
+    /**
+     * The buffers holding the records
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Create an arena of games which have not been started
+     * @param cols columns of every board, up to 32
+     * @param rows rows of every board
+     * @param capacity the number of games
+     */
+    public GameArena(int cols, int rows, int capacity) {
+        if (cols < 1 || cols > MAX_COLS || rows < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Boards must be 1 to " + MAX_COLS + " columns wide with at least one row");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.capacity = capacity;
+        this.recordSize = (BOARD + rows * Integer.BYTES + 7) & ~7;
+        this.perChunk = CHUNK_BYTES / recordSize;
+
+        var count = (capacity + perChunk - 1) / perChunk;
+        chunks = new ByteBuffer[count];
+        for (var chunk = 0; chunk < count; chunk++) {
+            var records = Math.min(perChunk, capacity - chunk * perChunk);
+            chunks[chunk] = ByteBuffer.allocateDirect(records * recordSize).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Get the number of games held
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of columns of every board
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of every board
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the bytes used by each game
+     * @return record size
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Get the bytes of direct memory used by the whole arena
+     * @return bytes
+     */
+    public long getBytes() {
+        return (long) capacity * recordSize;
+    }
+
+    /**
+     * Get the buffer holding a game
+     * @param game the game
+     * @return the buffer
+     */
+    ByteBuffer chunk(int game) {
+        return chunks[game / perChunk];
+    }
+
+    /**
+     * Get where a game's record starts in its buffer
+     * @param game the game
+     * @return the offset of the record
+     */
+    int offset(int game) {
+        return (game % perChunk) * recordSize;
+    }
+
+    /**
+     * Get the score of a game
+     * @param game the game
+     * @return score
+     */
+    public int getScore(int game) {
+        return chunk(game).getInt(offset(game) + SCORE);
+    }
+
+    /**
+     * Get the level of a game
+     * @param game the game
+     * @return level
+     */
+    public int getLevel(int game) {
+        return chunk(game).getInt(offset(game) + LEVEL);
+    }
+
+    /**
+     * Get the multiplier of a game
+     * @param game the game
+     * @return multiplier
+     */
+    public int getMultiplier(int game) {
+        return chunk(game).getInt(offset(game) + MULTIPLIER);
+    }
+
+    /**
+     * Get the lives left in a game, which is -1 once it is over
+     * @param game the game
+     * @return lives
+     */
+    public int getLives(int game) {
+        return chunk(game).get(offset(game) + LIVES);
+    }
+
+    /**
+     * Check whether a game has ended
+     * @param game the game
+     * @return true if it is over
+     */
+    public boolean isOver(int game) {
+        return chunk(game).get(offset(game) + OVER) != 0;
+    }
+
+    /**
+     * Get the current piece of a game
+     * @param game the game
+     * @return piece number
+     */
+    public int getCurrentPiece(int game) {
+        return chunk(game).get(offset(game) + CURRENT);
+    }
+
+    /**
+     * Get the rotation of the current piece of a game
+     * @param game the game
+     * @return rotation, from 0 to 3
+     */
+    public int getCurrentRotation(int game) {
+        return chunk(game).get(offset(game) + CURRENT_ROTATION);
+    }
+
+    /**
+     * Get the following piece of a game
+     * @param game the game
+     * @return piece number
+     */
+    public int getFollowingPiece(int game) {
+        return chunk(game).get(offset(game) + FOLLOWING);
+    }
+
+    /**
+     * Get the rotation of the following piece of a game
+     * @param game the game
+     * @return rotation, from 0 to 3
+     */
+    public int getFollowingRotation(int game) {
+        return chunk(game).get(offset(game) + FOLLOWING_ROTATION);
+    }
+
+    /**
+     * Get the number of pieces played in a game
+     * @param game the game
+     * @return moves
+     */
+    public int getMoves(int game) {
+        return chunk(game).getInt(offset(game) + MOVES);
+    }
+
+    /**
+     * Get the state of a game's random number generator, as SeedableRandom.getState gives it
+     * @param game the game
+     * @return random state
+     */
+    public long getRandomState(int game) {
+        return chunk(game).getLong(offset(game) + RANDOM);
+    }
+
+    /**
+     * Check whether a block of a game's board is filled
+     * @param game the game
+     * @param x column
+     * @param y row
+     * @return true if filled
+     */
+    public boolean isFilled(int game, int x, int y) {
+        return (chunk(game).getInt(offset(game) + BOARD + y * Integer.BYTES) & (1 << x)) != 0;
+    }
+}
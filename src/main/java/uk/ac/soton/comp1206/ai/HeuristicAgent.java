@@ -0,0 +1,52 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Move;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plays the move the placement heuristic values most, as the ArenaKernel does, on boards up to 32 columns wide
+ */
+public class HeuristicAgent implements Agent {
+
+    /**
+     * The name of the agent
+     */
+    private final String name;
+
+    /**
+     * The weights moves are valued with
+     */
+    private final PlacementWeights weights;
+
+    /**
+     * A kernel for every board size and piece set seen, made the first time each is needed
+     */
+    private final Map<String, ArenaKernel> kernels = new ConcurrentHashMap<>();
+
+    /**
+     * Create an agent
+     * @param name the name to report it under
+     * @param weights the weights to value moves with
+     */
+    public HeuristicAgent(String name, PlacementWeights weights) {
+        this.name = name;
+        this.weights = weights;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Move decide(AgentView view) {
+        if (view.getBoard() == null) return null;
+        var set = view.getPieceSet();
+        var kernel = kernels.computeIfAbsent(view.getCols() + "x" + view.getRows() + " " + set.getName(),
+            key -> new ArenaKernel(set, view.getCols(), view.getRows(), weights));
+        return kernel.best(view.getBoard(), view.getCurrentPiece().getPiece(), view.getFollowingPiece().getPiece(),
+            view.getMultiplier());
+    }
+}
@@ -0,0 +1,191 @@
+package uk.ac.soton.comp1206.ai;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The weights of the placement heuristic, which values a move as a weighted sum of what it does to the board:
+ * <ul>
+ *     <li>lines - the rows and columns it completes</li>
+ *     <li>holes - the empty blocks left with every side filled or against an edge, once lines are cleared</li>
+ *     <li>contact - the sides of its blocks touching filled blocks or the edges of the board</li>
+ *     <li>multiplier - the multiplier kept going when it clears lines, or lost above 1 when it doesn't</li>
+ * </ul>
+ *
+ * Only the direction of the weights matters, not their size, so the ArenaKernel picks the same moves for any positive
+ * multiple. The weights the game uses are in the placement-weights.properties resource, evolved by the GeneticTuner.
+ */
+public class PlacementWeights {
+
+    private static final Logger logger = LogManager.getLogger(PlacementWeights.class);
+
+    /**
+     * The resource holding the weights the game uses
+     */
+    public static final String RESOURCE = "/ai/placement-weights.properties";
+
+    /**
+     * The names of the weights, in the order of toArray
+     */
+    private static final String[] NAMES = {"lines", "holes", "contact", "multiplier"};
+
+    /**
+     * The weights loaded from the resource, once asked for
+     */
+    private static PlacementWeights loaded;
+
+    /**
+     * The weight of each line completed
+     */
+    private final double lines;
+
+    /**
+     * The weight of each hole left
+     */
+    private final double holes;
+
+    /**
+     * The weight of each side touching a filled block or edge
+     */
+    private final double contact;
+
+    /**
+     * The weight of the multiplier kept or lost
+     */
+    private final double multiplier;
+
+    /**
+     * Create a set of weights
+     * @param lines the weight of each line completed
+     * @param holes the weight of each hole left
+     * @param contact the weight of each side touching a filled block or edge
+     * @param multiplier the weight of the multiplier kept or lost
+     */
+    public PlacementWeights(double lines, double holes, double contact, double multiplier) {
+        this.lines = lines;
+        this.holes = holes;
+        this.contact = contact;
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Create a set of weights from an array in the order of toArray
+     * @param weights lines, holes, contact and multiplier
+     */
+    public PlacementWeights(double[] weights) {
+        this(weights[0], weights[1], weights[2], weights[3]);
+    }
+
+    /**
+     * Get the weights the game uses, loading them the first time
+     * @return the weights
+     */
+    public static synchronized PlacementWeights getDefault() {
+        if (loaded == null) {
+            try (var resource = PlacementWeights.class.getResourceAsStream(RESOURCE)) {
+                if (resource == null) {
+                    throw new IllegalStateException("Missing resource " + RESOURCE);
+                }
+                loaded = load(resource);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read " + RESOURCE, e);
+            }
+            logger.info("Loaded placement weights {}", loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Read weights written by store
+     * @param input where to read from
+     * @return the weights
+     * @throws IOException if they can't be read
+     */
+    public static PlacementWeights load(InputStream input) throws IOException {
+        var properties = new Properties();
+        properties.load(input);
+        var weights = new double[NAMES.length];
+        for (var index = 0; index < NAMES.length; index++) {
+            var value = properties.getProperty(NAMES[index]);
+            if (value == null) {
+                throw new IOException("No weight for " + NAMES[index]);
+            }
+            try {
+                weights[index] = Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad weight for " + NAMES[index] + ": " + value, e);
+            }
+        }
+        return new PlacementWeights(weights);
+    }
+
+    /**
+     * Write the weights in the format of the resource
+     * @param output where to write to
+     * @param comment a comment for the top of the file
+     * @throws IOException if they can't be written
+     */
+    public void store(Writer output, String comment) throws IOException {
+        output.write("# " + comment + System.lineSeparator());
+        double[] weights = toArray();
+        for (var index = 0; index < NAMES.length; index++) {
+            output.write(NAMES[index] + "=" + weights[index] + System.lineSeparator());
+        }
+    }
+
+    /**
+     * Get the weights as an array: lines, holes, contact and multiplier
+     * @return a new array
+     */
+    public double[] toArray() {
+        return new double[] {lines, holes, contact, multiplier};
+    }
+
+    /**
+     * Get the weight of each line completed
+     * @return weight
+     */
+    public double getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the weight of each hole left
+     * @return weight
+     */
+    public double getHoles() {
+        return holes;
+    }
+
+    /**
+     * Get the weight of each side touching a filled block or edge
+     * @return weight
+     */
+    public double getContact() {
+        return contact;
+    }
+
+    /**
+     * Get the weight of the multiplier kept or lost
+     * @return weight
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Describe the weights
+     * @return the weights by name
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "lines=%.4f holes=%.4f contact=%.4f multiplier=%.4f", lines, holes, contact,
+            multiplier);
+    }
+}
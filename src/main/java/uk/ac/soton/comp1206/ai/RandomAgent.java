@@ -0,0 +1,48 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.SeedableRandom;
+
+import java.util.Arrays;
+
+/**
+ * Plays any move that fits, picked at random, as a baseline for other agents to beat. The choice is seeded from the
+ * game itself, so the same game always gets the same moves.
+ */
+public class RandomAgent implements Agent {
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public Move decide(AgentView view) {
+        var seed = 31L * Arrays.hashCode(view.getBoard()) + view.getScore();
+        seed = 31 * seed + view.getCurrentPiece().getPiece() * 64L + view.getFollowingPiece().getPiece();
+        var random = new SeedableRandom(seed);
+
+        // Count the moves that fit, then take the one the draw falls on
+        var moves = 0;
+        var chosen = -1;
+        for (var pass = 0; pass < 2; pass++) {
+            var index = 0;
+            for (var swap = 0; swap < 2; swap++) {
+                var piece = (swap == 0 ? view.getCurrentPiece() : view.getFollowingPiece()).getPiece();
+                for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                    for (var y = 0; y < view.getRows(); y++) {
+                        for (var x = 0; x < view.getCols(); x++) {
+                            if (!view.canPlay(piece, rotation, x, y)) continue;
+                            if (index++ == chosen) return new Move(swap == 1, rotation, x, y);
+                        }
+                    }
+                }
+            }
+            moves = index;
+            if (moves == 0) return null;
+            chosen = random.nextInt(moves);
+        }
+        return null;
+    }
+}
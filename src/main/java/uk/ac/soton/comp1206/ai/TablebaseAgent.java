@@ -0,0 +1,50 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.Tablebase;
+
+/**
+ * Plays the move the tablebase says clears the most lines over the current and following pieces, and leaves boards
+ * the tablebase doesn't cover to another agent
+ */
+public class TablebaseAgent implements Agent {
+
+    /**
+     * The tablebase
+     */
+    private final Tablebase tablebase;
+
+    /**
+     * The agent for boards the tablebase doesn't cover
+     */
+    private final Agent fallback;
+
+    /**
+     * Create an agent
+     * @param tablebase the tablebase
+     * @param fallback the agent for boards the tablebase doesn't cover
+     */
+    public TablebaseAgent(Tablebase tablebase, Agent fallback) {
+        this.tablebase = tablebase;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getName() {
+        return "tablebase";
+    }
+
+    @Override
+    public Move decide(AgentView view) {
+        if (view.getCols() != Tablebase.SIZE || view.getRows() != Tablebase.SIZE
+            || view.getPieceSet() != tablebase.getPieceSet()) {
+            return fallback.decide(view);
+        }
+        var board = 0;
+        int[] rows = view.getBoard();
+        for (var y = 0; y < Tablebase.SIZE; y++) {
+            board |= rows[y] << (y * Tablebase.SIZE);
+        }
+        return tablebase.best(board, view.getCurrentPiece().getPiece(), view.getFollowingPiece().getPiece());
+    }
+}
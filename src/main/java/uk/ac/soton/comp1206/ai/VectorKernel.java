@@ -0,0 +1,160 @@
+package uk.ac.soton.comp1206.ai;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The BatchEvaluator's steps run on a vector of boards at a time with the incubating Vector API. Each step is the
+ * scalar one, applied lane by lane, so both give the same results.
+ *
+ * Only loaded once the evaluator has found the jdk.incubator.vector module, so the game runs without it.
+ */
+final class VectorKernel {
+
+    /**
+     * The widest vector of ints the processor handles well
+     */
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * The evaluator whose board size and shapes are used
+     */
+    private final BatchEvaluator evaluator;
+
+    /**
+     * Create a kernel for an evaluator
+     * @param evaluator the evaluator
+     */
+    VectorKernel(BatchEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Evaluate as many whole vectors of boards as the batch holds, leaving the rest to the scalar steps
+     * @param lanes the boards, indexed [row][board]
+     * @param size the number of boards
+     * @param results where the results go
+     * @return the number of boards evaluated, from the start of the batch
+     */
+    int evaluate(int[][] lanes, int size, BatchEvaluation results) {
+        int cols = evaluator.cols, rows = evaluator.rows, full = evaluator.full;
+        int[] shapePiece = evaluator.shapePiece;
+        int[][] blockX = evaluator.blockX;
+        int[][] blockY = evaluator.blockY;
+
+        var free = new IntVector[rows];
+        var cover = new IntVector[rows];
+        var zero = IntVector.zero(SPECIES);
+        var one = IntVector.broadcast(SPECIES, 1);
+        var fullRow = IntVector.broadcast(SPECIES, full);
+
+        var upper = SPECIES.loopBound(size);
+        for (var board = 0; board < upper; board += SPECIES.length()) {
+            // Full rows, and the columns full in every row
+            var fullRows = zero;
+            var fullColumns = fullRow;
+            for (var row = 0; row < rows; row++) {
+                var bits = IntVector.fromArray(SPECIES, lanes[row], board);
+                fullRows = fullRows.add(one, bits.eq(full));
+                fullColumns = fullColumns.and(bits);
+            }
+            var columns = bitCount(fullColumns);
+            fullRows.add(columns).intoArray(results.lines, board);
+            fullRows.mul(cols).add(columns.mul(rows)).sub(fullRows.mul(columns)).intoArray(results.clearedBlocks, board);
+
+            // The board once the lines are cleared
+            var empty = zero;
+            for (var row = 0; row < rows; row++) {
+                var bits = IntVector.fromArray(SPECIES, lanes[row], board);
+                var rest = bits.and(fullColumns.not()).blend(zero, bits.eq(full));
+                free[row] = rest.not().and(full);
+                cover[row] = zero;
+                empty = empty.add(bitCount(free[row]));
+            }
+            empty.intoArray(results.empty, board);
+
+            // Empty blocks with nothing empty either side, above or below
+            var isolated = zero;
+            for (var row = 0; row < rows; row++) {
+                var filled = free[row].not().and(full);
+                var left = filled.lanewise(VectorOperators.LSHL, 1).or(1);
+                var right = filled.lanewise(VectorOperators.LSHR, 1).or(1 << (cols - 1));
+                var above = row == 0 ? fullRow : free[row - 1].not();
+                var below = row == rows - 1 ? fullRow : free[row + 1].not();
+                isolated = isolated.add(bitCount(free[row].and(left).and(right).and(above).and(below)));
+            }
+            isolated.intoArray(results.isolated, board);
+
+            // Every place each shape fits, marking the blocks it would cover
+            for (var piece = 0; piece < results.fits.length; piece++) {
+                zero.intoArray(results.fits[piece], board);
+            }
+            for (var shape = 0; shape < shapePiece.length; shape++) {
+                int[] offsetX = blockX[shape];
+                int[] offsetY = blockY[shape];
+                var fits = zero;
+                for (var y = 0; y < rows; y++) {
+                    var legal = fullRow;
+                    var inside = true;
+                    for (var block = 0; block < offsetX.length && inside; block++) {
+                        var row = y + offsetY[block];
+                        inside = row >= 0 && row < rows;
+                        if (inside) legal = legal.and(shiftToMiddle(free[row], offsetX[block], full));
+                    }
+                    if (!inside) continue;
+                    fits = fits.add(bitCount(legal));
+                    for (var block = 0; block < offsetX.length; block++) {
+                        var row = y + offsetY[block];
+                        cover[row] = cover[row].or(shiftToBlock(legal, offsetX[block], full));
+                    }
+                }
+                int[] pieceFits = results.fits[shapePiece[shape]];
+                IntVector.fromArray(SPECIES, pieceFits, board).add(fits).intoArray(pieceFits, board);
+            }
+
+            var holes = zero;
+            for (var row = 0; row < rows; row++) {
+                holes = holes.add(bitCount(free[row].and(cover[row].not())));
+            }
+            holes.intoArray(results.holes, board);
+        }
+        return upper;
+    }
+
+    /**
+     * Count the set bits of every lane
+     * @param bits the lanes
+     * @return the count in each lane
+     */
+    private static IntVector bitCount(IntVector bits) {
+        var count = bits.sub(bits.lanewise(VectorOperators.LSHR, 1).and(0x55555555));
+        count = count.and(0x33333333).add(count.lanewise(VectorOperators.LSHR, 2).and(0x33333333));
+        count = count.add(count.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F);
+        return count.mul(0x01010101).lanewise(VectorOperators.LSHR, 24);
+    }
+
+    /**
+     * Move the bits of every lane so that bit x says whether the block at x + offset is set
+     * @param bits the rows
+     * @param offset the column offset of a block from the middle of a piece
+     * @param full the bits of a full row
+     * @return the moved rows
+     */
+    private static IntVector shiftToMiddle(IntVector bits, int offset, int full) {
+        return offset >= 0 ? bits.lanewise(VectorOperators.LSHR, offset)
+            : bits.lanewise(VectorOperators.LSHL, -offset).and(full);
+    }
+
+    /**
+     * Move the bits of every lane so that bit x + offset says whether bit x was set
+     * @param bits the rows
+     * @param offset the column offset of a block from the middle of a piece
+     * @param full the bits of a full row
+     * @return the moved rows
+     */
+    private static IntVector shiftToBlock(IntVector bits, int offset, int full) {
+        return offset >= 0 ? bits.lanewise(VectorOperators.LSHL, offset).and(full)
+            : bits.lanewise(VectorOperators.LSHR, -offset);
+    }
+}
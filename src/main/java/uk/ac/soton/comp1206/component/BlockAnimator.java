@@ -0,0 +1,208 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Arrays;
+
+/**
+ * The BlockAnimator drives every animated effect on the blocks of a single GameBoard from one AnimationTimer.
+ *
+ * The state of each effect is held in flat arrays indexed by block, and the blocks with a running effect are kept in a
+ * compact list. Each pulse advances only those blocks, so clearing many lines still costs one callback per frame. The
+ * timer is stopped whenever nothing is animating.
+ */
+public class BlockAnimator extends AnimationTimer {
+
+    /**
+     * The effects that can be played on a block
+     */
+    public enum Effect {
+        /**
+         * No effect is running
+         */
+        NONE(0),
+
+        /**
+         * The block fades from grey to empty
+         */
+        FADE(1_000_000_000L),
+
+        /**
+         * The block flashes white and returns to its colour
+         */
+        FLASH(300_000_000L),
+
+        /**
+         * The block bursts outwards and leaves an empty tile
+         */
+        EXPLODE(600_000_000L);
+
+        /**
+         * How long the effect runs for, in nanoseconds
+         */
+        private final long duration;
+
+        Effect(long duration) {
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * Cached copy of the effect values, to avoid the array copy made by values()
+     */
+    private static final Effect[] EFFECTS = Effect.values();
+
+    /**
+     * The board whose blocks are animated
+     */
+    private final GameBoard board;
+
+    /**
+     * Number of columns of the board, used to turn an index back into a column and row
+     */
+    private final int cols;
+
+    /**
+     * The effect running on each block, by block index
+     */
+    private final byte[] effects;
+
+    /**
+     * The pulse time each effect started at, or -1 when it starts on the next pulse
+     */
+    private final long[] startTimes;
+
+    /**
+     * Whether each block has been seen empty since its effect started. The board follows the game's frames, so a
+     * cleared block can still show its old colour for a frame after its effect starts.
+     */
+    private final boolean[] emptied;
+
+    /**
+     * The position of each block in the active list, or -1 if it is not animating
+     */
+    private final int[] slots;
+
+    /**
+     * Compact list of the indexes of blocks with a running effect
+     */
+    private final int[] active;
+
+    /**
+     * Number of entries in use in the active list
+     */
+    private int activeCount = 0;
+
+    /**
+     * Whether the timer is currently registered for pulses
+     */
+    private boolean running = false;
+
+    /**
+     * Create an animator for the given board
+     * @param board the board to animate
+     */
+    public BlockAnimator(GameBoard board) {
+        this.board = board;
+        this.cols = board.getCols();
+
+        var size = board.getCols() * board.getRows();
+        effects = new byte[size];
+        startTimes = new long[size];
+        emptied = new boolean[size];
+        slots = new int[size];
+        active = new int[size];
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Start an effect on the given block. An effect already running on the block is restarted with the new one.
+     * @param x column
+     * @param y row
+     * @param effect the effect to play
+     */
+    public void play(int x, int y, Effect effect) {
+        var index = y * cols + x;
+        if (effect == Effect.NONE) {
+            cancel(index);
+            return;
+        }
+
+        effects[index] = (byte) effect.ordinal();
+        startTimes[index] = -1;
+        emptied[index] = false;
+        if (slots[index] < 0) {
+            slots[index] = activeCount;
+            active[activeCount++] = index;
+        }
+
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    /**
+     * Whether any block is currently animating
+     * @return true if an effect is running
+     */
+    public boolean isAnimating() {
+        return activeCount > 0;
+    }
+
+    /**
+     * Advance every running effect. Called once per frame by JavaFX.
+     * @param now the timestamp of the current frame, in nanoseconds
+     */
+    @Override
+    public void handle(long now) {
+        var i = 0;
+        while (i < activeCount) {
+            var index = active[i];
+            if (startTimes[index] < 0) {
+                startTimes[index] = now;
+            }
+
+            var effect = EFFECTS[effects[index]];
+            var x = index % cols;
+            var y = index / cols;
+            var value = board.getValue(x, y);
+            var progress = (double) (now - startTimes[index]) / effect.duration;
+
+            // A piece placed over a clearing block takes priority over the effect
+            emptied[index] |= value == 0;
+            var interrupted = effect != Effect.FLASH && emptied[index] && value != 0;
+
+            if (progress >= 1 || interrupted) {
+                board.paintBlock(x, y);
+                cancel(index);
+                // The last active entry was swapped into this slot, so look at it again
+                continue;
+            }
+
+            board.paintEffect(x, y, effect, progress);
+            i++;
+        }
+
+        if (activeCount == 0) {
+            running = false;
+            stop();
+        }
+    }
+
+    /**
+     * Remove the effect on a block, swapping the last active entry into its place
+     * @param index the block index
+     */
+    private void cancel(int index) {
+        var slot = slots[index];
+        if (slot < 0) return;
+
+        var last = active[--activeCount];
+        active[slot] = last;
+        slots[last] = slot;
+
+        slots[index] = -1;
+        effects[index] = (byte) Effect.NONE.ordinal();
+    }
+}
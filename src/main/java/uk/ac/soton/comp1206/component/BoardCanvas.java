@@ -0,0 +1,128 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * A BoardCanvas draws every block of a large GameBoard onto a single Canvas, in place of a GameBlock node per block.
+ *
+ * A marathon board can have 65,536 blocks, and as nodes each one adds to the layout, CSS and picking work of every
+ * pulse, however few of them change. Painted on one canvas, the scene graph holds a single node whatever the size of
+ * the board, and a frame only costs the blocks repainted in it. Blocks are painted the same way as a GameBlock paints
+ * itself, and only when their value changes or an effect is running on them.
+ */
+public class BoardCanvas extends Canvas {
+
+    /**
+     * Number of columns and rows of the board
+     */
+    private final int cols, rows;
+
+    /**
+     * The size of a single block
+     */
+    private final double blockWidth, blockHeight;
+
+    /**
+     * The value shown for each block, by block index, y * cols + x
+     */
+    private final int[] values;
+
+    /**
+     * Create a canvas for a board, with every block empty
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public BoardCanvas(int cols, int rows, double width, double height) {
+        super(width, height);
+        this.cols = cols;
+        this.rows = rows;
+        this.blockWidth = width / cols;
+        this.blockHeight = height / rows;
+        this.values = new int[cols * rows];
+
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                paint(x, y);
+            }
+        }
+    }
+
+    /**
+     * Get the column under a point on the canvas
+     * @param canvasX x position on the canvas
+     * @return the column, or -1 if the point is off the board
+     */
+    int columnAt(double canvasX) {
+        var x = (int) Math.floor(canvasX / blockWidth);
+        return x < 0 || x >= cols ? -1 : x;
+    }
+
+    /**
+     * Get the row under a point on the canvas
+     * @param canvasY y position on the canvas
+     * @return the row, or -1 if the point is off the board
+     */
+    int rowAt(double canvasY) {
+        var y = (int) Math.floor(canvasY / blockHeight);
+        return y < 0 || y >= rows ? -1 : y;
+    }
+
+    /**
+     * Get the value shown for a block
+     * @param x column
+     * @param y row
+     * @return the value
+     */
+    int getValue(int x, int y) {
+        return values[y * cols + x];
+    }
+
+    /**
+     * Update the value of a block, repainting it only if the value actually changed. Must be called on the JavaFX
+     * thread.
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    void setValue(int x, int y, int value) {
+        var index = y * cols + x;
+        if (values[index] == value) return;
+        values[index] = value;
+        paint(x, y);
+    }
+
+    /**
+     * Paint a block with its value
+     * @param x column
+     * @param y row
+     */
+    void paint(int x, int y) {
+        GameBlock.paintValue(getGraphicsContext2D(), x * blockWidth, y * blockHeight, blockWidth, blockHeight,
+            values[y * cols + x]);
+    }
+
+    /**
+     * Paint one frame of an effect on a block
+     * @param x column
+     * @param y row
+     * @param effect the effect
+     * @param progress how far through the effect we are, from 0 to 1
+     */
+    void paintEffect(int x, int y, BlockAnimator.Effect effect, double progress) {
+        GraphicsContext gc = getGraphicsContext2D();
+        var left = x * blockWidth;
+        var top = y * blockHeight;
+        switch (effect) {
+            case FADE -> GameBlock.paintFade(gc, left, top, blockWidth, blockHeight, progress);
+            case FLASH -> {
+                paint(x, y);
+                GameBlock.paintFlash(gc, left, top, blockWidth, blockHeight, progress);
+            }
+            case EXPLODE -> GameBlock.paintExplode(gc, left, top, blockWidth, blockHeight, progress);
+            default -> paint(x, y);
+        }
+    }
+}
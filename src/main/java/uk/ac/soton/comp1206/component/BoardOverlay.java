@@ -0,0 +1,239 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.Group;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The BoardOverlay is a transparent layer drawn on top of a GameBoard. It holds the aim cursor, the hover highlight and
+ * a ghost preview of the current piece.
+ *
+ * Every element is created once and moved around by changing its translation, so moving the cursor never repaints the
+ * blocks of the board underneath, and never touches the values bound to the Grid.
+ */
+public class BoardOverlay extends Pane {
+
+    /**
+     * Fill used for the aim cursor
+     */
+    private static final Color AIM_COLOUR = Color.rgb(0, 0, 0, 0.5);
+
+    /**
+     * Fill used for the mouse hover highlight
+     */
+    private static final Color HOVER_COLOUR = Color.rgb(255, 255, 255, 0.2);
+
+    /**
+     * Opacity of the ghost preview of the current piece
+     */
+    private static final double GHOST_OPACITY = 0.45;
+
+    /**
+     * Opacity of the ghost preview when the piece does not fit where it is shown
+     */
+    private static final double BLOCKED_GHOST_OPACITY = 0.15;
+
+    /**
+     * The board this overlay is drawn on, used to look up where the ghost piece fits
+     */
+    private final GameBoard board;
+
+    /**
+     * The piece shown as the ghost, or null if there is none
+     */
+    private GamePiece ghostPiece;
+
+    /**
+     * Current position of the ghost
+     */
+    private int ghostX, ghostY;
+
+    /**
+     * Width of a single block on the board
+     */
+    private final double blockWidth;
+
+    /**
+     * Height of a single block on the board
+     */
+    private final double blockHeight;
+
+    /**
+     * Rectangle marking the keyboard aim position
+     */
+    private final Rectangle aim;
+
+    /**
+     * Rectangle marking the block under the mouse
+     */
+    private final Rectangle hover;
+
+    /**
+     * Group holding the ghost preview blocks, translated as a whole
+     */
+    private final Group ghost = new Group();
+
+    /**
+     * One rectangle per block of the ghost preview, reused whenever the piece changes
+     */
+    private Rectangle[][] ghostBlocks = new Rectangle[0][0];
+
+    /**
+     * The size of the piece currently shown as the ghost
+     */
+    private int ghostSize;
+
+    /**
+     * Current aim position
+     */
+    private int aimX, aimY;
+
+    /**
+     * Whether the mouse is currently over a block of the board
+     */
+    private boolean hovering = false;
+
+    /**
+     * Create a new overlay matching the layout of the given board
+     * @param board the board this overlay is drawn on top of
+     */
+    public BoardOverlay(GameBoard board) {
+        this.board = board;
+        this.blockWidth = board.getMaxWidth() / board.getCols();
+        this.blockHeight = board.getMaxHeight() / board.getRows();
+
+        setMaxSize(board.getMaxWidth(), board.getMaxHeight());
+        setPrefSize(board.getMaxWidth(), board.getMaxHeight());
+
+        // The overlay only draws, clicks and hovers must still reach the blocks underneath
+        setMouseTransparent(true);
+        setPickOnBounds(false);
+
+        // Keep the ghost from drawing past the edges of the board
+        setClip(new Rectangle(board.getMaxWidth(), board.getMaxHeight()));
+
+        aim = new Rectangle(blockWidth, blockHeight, AIM_COLOUR);
+        aim.setStroke(Color.rgb(255, 255, 255, 0.6));
+        aim.setStrokeWidth(2);
+
+        hover = new Rectangle(blockWidth, blockHeight, HOVER_COLOUR);
+        hover.setVisible(false);
+
+        ghost.setOpacity(GHOST_OPACITY);
+        ghost.setVisible(false);
+
+        getChildren().addAll(ghost, hover, aim);
+    }
+
+    /**
+     * Move the aim cursor to the given block. The ghost follows the aim unless the mouse is hovering over the board.
+     * @param x column
+     * @param y row
+     */
+    public void moveAim(int x, int y) {
+        aimX = x;
+        aimY = y;
+        aim.setTranslateX(x * blockWidth);
+        aim.setTranslateY(y * blockHeight);
+        if (!hovering) {
+            moveGhost(x, y);
+        }
+    }
+
+    /**
+     * Show the hover highlight on the given block, moving the ghost preview along with it
+     * @param x column
+     * @param y row
+     */
+    public void showHover(int x, int y) {
+        hovering = true;
+        hover.setTranslateX(x * blockWidth);
+        hover.setTranslateY(y * blockHeight);
+        hover.setVisible(true);
+        moveGhost(x, y);
+    }
+
+    /**
+     * Hide the hover highlight, returning the ghost preview to the aim position
+     */
+    public void hideHover() {
+        hovering = false;
+        hover.setVisible(false);
+        moveGhost(aimX, aimY);
+    }
+
+    /**
+     * Check again whether the ghost fits where it is, after the board has changed
+     */
+    public void refreshGhost() {
+        if (ghostPiece != null) {
+            moveGhost(ghostX, ghostY);
+        }
+    }
+
+    /**
+     * Change the piece previewed by the ghost. Only the ghost rectangles are updated, never the board.
+     * @param piece the piece to preview, or null to hide the ghost
+     */
+    public void setGhostPiece(GamePiece piece) {
+        ghostPiece = piece;
+        if (piece == null) {
+            ghost.setVisible(false);
+            return;
+        }
+
+        int[][] blocks = piece.getBlocks();
+        if (blocks.length != ghostBlocks.length) {
+            buildGhost(blocks.length);
+        }
+
+        Color colour = GameBlock.COLOURS[piece.getValue()];
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks[blockX].length; blockY++) {
+                var rectangle = ghostBlocks[blockX][blockY];
+                rectangle.setFill(colour);
+                rectangle.setVisible(blocks[blockX][blockY] > 0);
+            }
+        }
+        ghost.setVisible(true);
+        moveGhost(ghostX, ghostY);
+    }
+
+    /**
+     * Create the rectangles for a ghost of the given size
+     * @param size width and height of the piece, in blocks
+     */
+    private void buildGhost(int size) {
+        ghostSize = size;
+        ghostBlocks = new Rectangle[size][size];
+        ghost.getChildren().clear();
+        for (var blockX = 0; blockX < size; blockX++) {
+            for (var blockY = 0; blockY < size; blockY++) {
+                var rectangle = new Rectangle(blockWidth, blockHeight);
+                rectangle.setX(blockX * blockWidth);
+                rectangle.setY(blockY * blockHeight);
+                ghostBlocks[blockX][blockY] = rectangle;
+                ghost.getChildren().add(rectangle);
+            }
+        }
+    }
+
+    /**
+     * Translate the ghost so that the middle of the piece sits on the given block
+     * @param x column
+     * @param y row
+     */
+    private void moveGhost(int x, int y) {
+        ghostX = x;
+        ghostY = y;
+        var middle = ghostSize / 2;
+        ghost.setTranslateX((x - middle) * blockWidth);
+        ghost.setTranslateY((y - middle) * blockHeight);
+
+        // Dim the ghost where the piece does not fit on the board as it is shown
+        var fits = ghostPiece != null && board.canPlayPiece(ghostPiece, x, y);
+        ghost.setOpacity(fits ? GHOST_OPACITY : BLOCKED_GHOST_OPACITY);
+    }
+}
@@ -1,14 +1,11 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.BlendMode;
 import javafx.scene.paint.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import javafx.animation.AnimationTimer;
 
 
 /**
@@ -18,19 +15,11 @@ import javafx.animation.AnimationTimer;
  *
  * Displays an empty square (when the value is 0) or a coloured square depending on value.
  *
- * The GameBlock value should be bound to a corresponding block in the Grid model.
+ * The GameBlock value is kept in step with the corresponding block in the Grid model by its GameBoard, which passes on
+ * the changed blocks of the Grid once per frame.
  */
 public class GameBlock extends Canvas {
 
-    /**
-     * Used to determine whether a block is currently hovered over or not
-     */
-    private boolean hovered = false;
-
-    /**
-     * An AnimationTimer used for fading out a block
-     */
-    private AnimationTimer fadeOutTimer;
     private static final Logger logger = LogManager.getLogger(GameBlock.class);
 
     /**
@@ -73,7 +62,12 @@ public class GameBlock extends Canvas {
     /**
      * The value of this block (0 = empty, otherwise specifies the colour to render as)
      */
-    private final IntegerProperty value = new SimpleIntegerProperty(0);
+    private int value = 0;
+
+    /**
+     * Whether the indicator circle is drawn on top of this block
+     */
+    private boolean indicator = false;
 
     /**
      * Create a new single Game Block
@@ -97,21 +91,19 @@ public class GameBlock extends Canvas {
         //Do an initial paint
         paint();
 
-        //When the value property is updated, call the internal updateValue method
-        value.addListener(this::updateValue);
-
         // Add mouse entered and exited event handlers, for when the mouse hovers over a block
         setOnMouseEntered(event -> gameBoard.blockEntered(event, this));
         setOnMouseExited(event -> gameBoard.blockExited(event, this));
     }
 
     /**
-     * When the value of this block is updated,
-     * @param observable what was updated
-     * @param oldValue the old value
+     * Update the value of this block, repainting it only if the value actually changed. Must be called on the JavaFX
+     * thread.
      * @param newValue the new value
      */
-    private void updateValue(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+    public void setValue(int newValue) {
+        if (value == newValue) return;
+        value = newValue;
         paint();
     }
 
@@ -119,101 +111,73 @@ public class GameBlock extends Canvas {
      * Handle painting of the block canvas
      */
     public void paint() {
-        // Check if the block is an empty tile
-        if(value.get() == 0) {
-            // Check if the block is currently hovered over
-            if (hovered){
-                // Darkens the colour of the empty block to indicate that it's hovered over
-                paintHighlighted(COLOURS[value.get()]);
-            }
-            else{
-                // If the block isn't hovered over than just paint the block empty;
-                paintEmpty();
-            }
-        } else {
-            //If the block is not empty, paint with the colour represented by the value
-            if (hovered) {
-                // Like before darken the colour of the coloured block to indicate that it's hovered over
-                paintHighlighted(COLOURS[value.get()]);
-            } else {
-                // If not just paint it its normal colour
-                paintColor(COLOURS[value.get()]);
-            }
+        paintValue(getGraphicsContext2D(), 0, 0, width, height, value);
+
+        if (indicator) {
+            paintIndicator();
         }
     }
 
     /**
-     * Paint this canvas with the given colour, with highlighting for hovered blocks.
-     * @param colour the colour to paint
+     * Paint a block with a value: an empty tile when the value is 0, otherwise the colour the value represents
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param value the value of the block
      */
-    private void paintHighlighted(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        // Clear the canvas
-        gc.clearRect(0, 0, width, height);
-
-        if (value.get() == 0) {
-            // Darken the transparent black color for highlighting empty blocks
-            Color darkerEmptyColor = Color.rgb(0, 0, 0, 0.5);
-            gc.setFill(darkerEmptyColor);
-            gc.fillRect(0, 0, width, height);
+    static void paintValue(GraphicsContext gc, double left, double top, double width, double height, int value) {
+        // Check if the block is an empty tile
+        if (value == 0) {
+            paintEmpty(gc, left, top, width, height);
         } else {
-            // Darken the original colour for highlighting
-            Color darkerColor = colour instanceof Color ? darkenColor((Color) colour) : (Color) colour;
-            gc.setFill(darkerColor);
-            gc.fillRect(0, 0, width, height);
+            //If the block is not empty, paint with the colour represented by the value
+            paintColor(gc, left, top, width, height, COLOURS[value]);
         }
     }
 
     /**
-     * Darken a color by reducing its RGB values.
-     * @param color the color to darken
-     * @return the darkened color
-     */
-    private Color darkenColor(Color color) {
-        // Reduce each RGB value by a fixed amount to darken the color
-        double r = Math.max(0, color.getRed() - 0.2);
-        double g = Math.max(0, color.getGreen() - 0.2);
-        double b = Math.max(0, color.getBlue() - 0.2);
-        return Color.color(r, g, b);
-    }
-
-
-    /**
-     * Paint this canvas empty
+     * Paint a block empty
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
      */
-    private void paintEmpty() {
-        var gc = getGraphicsContext2D();
-
-        // Clear canvas
-        gc.clearRect(0, 0, width, height);
+    static void paintEmpty(GraphicsContext gc, double left, double top, double width, double height) {
+        // Clear the block
+        gc.clearRect(left, top, width, height);
 
-        // Draw subtle white border
+        // Draw subtle white border, kept inside the block so it never reaches a neighbour on a shared canvas
         gc.setStroke(Color.rgb(255, 255, 255, 0.5)); // White with low opacity
-        gc.setLineWidth(2.0); // Set border width
-        gc.strokeRect(0, 0, width, height);
+        gc.setLineWidth(1.0); // Set border width
+        gc.strokeRect(left + 0.5, top + 0.5, width - 1, height - 1);
 
         // Fill with transparent black
         gc.setFill(Color.rgb(100, 100, 100, 0.3)); // Transparent black with a lighter edge
-        gc.fillRect(0, 0, width, height);
+        gc.fillRect(left, top, width, height);
     }
 
     /**
-     * Paint this canvas with the given colour
+     * Paint a block with the given colour
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
      * @param colour the colour to paint
      */
-    private void paintColor(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        // Clear canvas
-        gc.clearRect(0, 0, width, height);
+    static void paintColor(GraphicsContext gc, double left, double top, double width, double height, Paint colour) {
+        // Clear the block
+        gc.clearRect(left, top, width, height);
 
         // Paint the original colour
         gc.setFill(colour);
-        gc.fillRect(0, 0, width, height);
+        gc.fillRect(left, top, width, height);
 
         // Create a gradient fill with a slightly darker shade
-        LinearGradient gradient = new LinearGradient(0, 0, width, height, false, CycleMethod.NO_CYCLE,
+        LinearGradient gradient = new LinearGradient(left, top, left + width, top + height, false, CycleMethod.NO_CYCLE,
                 new Stop(0.0, Color.rgb(0, 0, 0, 0)), new Stop(0.3, Color.rgb(0, 0, 0, 0.1)),
                 new Stop(1.0, Color.rgb(0, 0, 0, 0.3)));
 
@@ -222,7 +186,7 @@ public class GameBlock extends Canvas {
 
         // Fill the gradient on top of the original colour
         gc.setFill(gradient);
-        gc.fillRect(0, 0, width, height);
+        gc.fillRect(left, top, width, height);
 
         // Reset the blend mode to normal
         gc.setGlobalBlendMode(BlendMode.SRC_OVER);
@@ -249,139 +213,109 @@ public class GameBlock extends Canvas {
      * @return value determining colour
      */
     public int getValue() {
-        return this.value.get();
+        return this.value;
     }
 
     /**
-     * Set the color of this block.
-     * @param color the color to set
+     * Set whether this block shows the indicator circle. The indicator is part of the block, so it survives repaints.
+     * @param indicator true to show the indicator
      */
-    public void setColor(Color color) {
-        // Call paintColor method with the specified color
-        paintColor(color);
+    public void setIndicator(boolean indicator) {
+        if (this.indicator == indicator) return;
+        this.indicator = indicator;
+        paint();
     }
 
     /**
-     * Sets the aim position's colour
-     * @param aimColor the colour to set the aim position
+     * Paint a white circle as indicator on top of the block
      */
-    public void setAimColor(Color aimColor){
-        paintColorEmpty(aimColor);
-    }
+    private void paintIndicator() {
+        var gc = getGraphicsContext2D();
 
-    /**
-     * Reset the colour of an empty tile, after the aim position moves off this tile to a different tile, and this tile hasn't had a block placed on it
-     */
-    public void setEmptyTileColor(){
-        paintEmpty();
+        // Draw a smaller transparent white circle as the indicator
+        double circleSize = Math.min(width, height) * 0.5; // Size of the circle relative to block size
+        double circleX = (width - circleSize) / 2; // X position of the circle
+        double circleY = (height - circleSize) / 2; // Y position of the circle
+        double circleAlpha = 0.8; // Transparency of the circle
+
+        gc.setFill(Color.rgb(255, 255, 255, circleAlpha));
+        gc.fillOval(circleX, circleY, circleSize, circleSize);
     }
 
     /**
-     * Paint this canvas with the given colour for an aim tile
-     * @param colour the colour to paint
+     * Paint one frame of the fade out effect, a grey tile becoming transparent
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    private void paintColorEmpty(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0, 0, width, height);
-
-        //Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0, 0, width, height);
+    void paintFade(double progress) {
+        paintFade(getGraphicsContext2D(), 0, 0, width, height, progress);
     }
 
     /**
-     * Bind the value of this block to another property. Used to link the visual block to a corresponding block in the Grid.
-     * @param input property to bind the value to
+     * Paint one frame of the flash effect, a white wash over the block fading back to its colour
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    public void bind(ObservableValue<? extends Number> input) {
-        value.bind(input);
+    void paintFlash(double progress) {
+        paint();
+        paintFlash(getGraphicsContext2D(), 0, 0, width, height, progress);
     }
 
     /**
-     * Get the color of this block.
-     * @return the color of the block
+     * Paint one frame of the explode effect, a bright core bursting outwards and fading away
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    public Color getColor() {
-        // Get the color based on the value property
-        int index = value.get();
-        if (index == 0) {
-            // Return transparent black if index is 0
-            return Color.rgb(100, 100, 100, 0.3);
-        } else {
-            // Otherwise, return the actual color
-            return COLOURS[index];
-        }
+    void paintExplode(double progress) {
+        paintExplode(getGraphicsContext2D(), 0, 0, width, height, progress);
     }
 
     /**
-     * Paint this canvas with a white circle as indicator
+     * Paint one frame of the fade out effect on a block
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    public void paintIndicator() {
-        var gc = getGraphicsContext2D();
-
-        // Clear the canvas
-        gc.clearRect(0, 0, width, height);
-
-        paint();
-
-        // Draw a smaller transparent white circle as the indicator
-        double circleSize = Math.min(width, height) * 0.5; // Size of the circle relative to block size
-        double circleX = (width - circleSize) / 2; // X position of the circle
-        double circleY = (height - circleSize) / 2; // Y position of the circle
-        double circleAlpha = 0.8; // Transparency of the circle
-
-        gc.setFill(Color.rgb(255, 255, 255, circleAlpha));
-        gc.fillOval(circleX, circleY, circleSize, circleSize);
+    static void paintFade(GraphicsContext gc, double left, double top, double width, double height, double progress) {
+        paintColor(gc, left, top, width, height, Color.rgb(100, 100, 100, 1.0 - progress));
     }
 
     /**
-     * Set whether this block is currently being hovered over.
-     * @param hovered true if hovered, false otherwise
+     * Paint one frame of the white wash of the flash effect, over a block already painted
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    public void setHovered(boolean hovered) {
-        // Only update the hovered state if the block does not belong to PieceBoard
-        // This is because the PieceBoards display the next piece and the next piece in advance, hence we don't want the user to be able to hover over these blocks
-        if (!(gameBoard instanceof PieceBoard)) {
-            this.hovered = hovered;
-            paint();
-        }
+    static void paintFlash(GraphicsContext gc, double left, double top, double width, double height, double progress) {
+        gc.setFill(Color.rgb(255, 255, 255, 0.8 * (1.0 - progress)));
+        gc.fillRect(left, top, width, height);
     }
 
     /**
-     * Start fading out the block
+     * Paint one frame of the explode effect on a block. The burst grows past the edges of the block, so it is clipped
+     * to them, as a neighbour on a shared canvas would not be repainted over it.
+     * @param gc where to paint
+     * @param left left edge of the block
+     * @param top top edge of the block
+     * @param width width of the block
+     * @param height height of the block
+     * @param progress how far through the effect we are, from 0 to 1
      */
-    public void fadeOut() {
-        if (fadeOutTimer == null) {
-            fadeOutTimer = new AnimationTimer() {
-                private static final double FADE_DURATION = 1000000000.0; // Duration in nanoseconds
-                private long startTime = -1;
-
-                @Override
-                public void handle(long now) {
-                    if (startTime < 0) {
-                        startTime = now;
-                    }
-                    double elapsed = now - startTime;
-                    if (elapsed >= FADE_DURATION) {
-                        // Fade-out complete, stop the timer
-                        stop();
-                        // Clear the block by painting it as empty
-                        paintEmpty();
-                        // Reset start time for future use
-                        startTime = -1;
-                        logger.info("Block faded out: " + x + ", " + y);
-                    } else {
-                        // Calculate the opacity based on elapsed time
-                        double opacity = 1.0 - (elapsed / FADE_DURATION);
-                        // Fill the block with a semi-transparent color
-                        paintColor(Color.rgb(100, 100, 100, opacity));
-                    }
-                }
-            };
-            fadeOutTimer.start();
-        }
+    static void paintExplode(GraphicsContext gc, double left, double top, double width, double height,
+                             double progress) {
+        paintEmpty(gc, left, top, width, height);
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(left, top, width, height);
+        gc.clip();
+        var size = Math.min(width, height) * (0.3 + progress);
+        gc.setFill(Color.rgb(255, (int) (255 * (1.0 - progress)), 0, 1.0 - progress));
+        gc.fillOval(left + (width - size) / 2, top + (height - size) / 2, size, size);
+        gc.restore();
     }
 
     @Override
@@ -389,7 +323,7 @@ public class GameBlock extends Canvas {
         return "GameBlock{" +
                 "x=" + x +
                 ", y=" + y +
-                ", value=" + value.get() +
+                ", value=" + value +
                 '}';
     }
 }
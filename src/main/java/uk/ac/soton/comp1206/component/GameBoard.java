@@ -1,26 +1,32 @@
 package uk.ac.soton.comp1206.component;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.diagnostics.FrameRendered;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
-import uk.ac.soton.comp1206.event.GameListener;
-import javafx.animation.AnimationTimer;
+import uk.ac.soton.comp1206.game.GridSnapshot;
+import java.util.BitSet;
 import java.util.Set;
 
 /**
  * A GameBoard is a visual component to represent the visual GameBoard.
- * It extends a GridPane to hold a grid of GameBlocks.
+ * It extends a GridPane to hold a grid of GameBlocks. Boards with more than MAX_BLOCK_NODES blocks are instead drawn on
+ * a single BoardCanvas, so the size of the scene graph doesn't grow with the board.
  *
- * The GameBoard can hold an internal grid of its own, for example, for displaying an upcoming block. It also is
- * linked to an external grid, for the main game board.
+ * The GameBoard can hold an internal grid of its own, for example, for displaying an upcoming block. The main game
+ * board instead follows the snapshots the game publishes with each frame, and never reads the game's live grid, which
+ * the logic thread changes.
  *
  * The GameBoard is only a visual representation and should not contain game logic or model logic in it, which should
  * take place in the Grid.
  */
-public class GameBoard extends GridPane implements GameListener {
+public class GameBoard extends GridPane {
 
     private static final Logger logger = LogManager.getLogger(GameBoard.class);
 
@@ -45,10 +51,15 @@ public class GameBoard extends GridPane implements GameListener {
     private final double height;
 
     /**
-     * The grid this GameBoard represents
+     * The grid this GameBoard represents, or null for a board following snapshots
      */
     final Grid grid;
 
+    /**
+     * The latest snapshot shown, for a board following snapshots
+     */
+    private GridSnapshot shownGrid;
+
     /**
      * The blocks inside the grid
      */
@@ -59,19 +70,67 @@ public class GameBoard extends GridPane implements GameListener {
      */
     private BlockClickedListener blockClickedListener;
 
+    /**
+     * The overlay drawn on top of this board for hover feedback, if any
+     */
+    private BoardOverlay overlay;
+
+    /**
+     * Drives all block effects on this board from a single pulse callback
+     */
+    private BlockAnimator animator;
+
+    /**
+     * The most blocks a board holds as GameBlock nodes. Every node adds to the layout, CSS and picking work of each
+     * pulse whether it changes or not, so larger boards, such as big marathon boards, are drawn on one canvas.
+     */
+    static final int MAX_BLOCK_NODES = 32 * 32;
+
+    /**
+     * The canvas every block is drawn on, for boards too large for a node per block, or null
+     */
+    private BoardCanvas canvas;
+
+    /**
+     * The block the mouse is over on a canvas board, as an index, or -1
+     */
+    private int hoveredIndex = -1;
+
+    /**
+     * The most blocks repainted in a single frame. Anything beyond this is carried over to the next frame, so a large
+     * change can never stall a frame.
+     */
+    private static final int MAX_REPAINTS_PER_FRAME = 1024;
+
+    /**
+     * Changed blocks collected from the grid which have not yet been repainted
+     */
+    private final BitSet pendingChanges = new BitSet();
+
+    /**
+     * Runs once per frame while the grid has changes waiting, applying them all in one go
+     */
+    private final AnimationTimer refresher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            refresh();
+        }
+    };
 
     /**
-     * Create a new GameBoard, based off a given grid, with a visual width and height.
-     * @param grid linked grid
+     * Create a new GameBoard following snapshots of a grid, starting from the given one, with a visual width and
+     * height. Later snapshots are shown with showGrid.
+     * @param snapshot the first snapshot to show
      * @param width the visual width
      * @param height the visual height
      */
-    public GameBoard(Grid grid, double width, double height) {
-        this.cols = grid.getCols();
-        this.rows = grid.getRows();
+    public GameBoard(GridSnapshot snapshot, double width, double height) {
+        this.cols = snapshot.getCols();
+        this.rows = snapshot.getRows();
         this.width = width;
         this.height = height;
-        this.grid = grid;
+        this.grid = null;
+        this.shownGrid = snapshot;
 
         //Build the GameBoard
         build();
@@ -101,12 +160,36 @@ public class GameBoard extends GridPane implements GameListener {
      * Get a specific block from the GameBoard, specified by its row and column
      * @param x column
      * @param y row
-     * @return game block at the given column and row
+     * @return game block at the given column and row, or null on a board drawn on a single canvas
      */
     public GameBlock getBlock(int x, int y) {
         return blocks[x][y];
     }
 
+    /**
+     * Get the number of columns in this board
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows in this board
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Set the overlay which shows hover feedback for this board. Boards without an overlay show no hover feedback.
+     * @param overlay the overlay drawn on top of this board
+     */
+    public void setOverlay(BoardOverlay overlay) {
+        this.overlay = overlay;
+    }
+
     /**
      * Build the GameBoard by creating a block at every x and y column and row
      */
@@ -119,12 +202,194 @@ public class GameBoard extends GridPane implements GameListener {
         setGridLinesVisible(true);
 
         blocks = new GameBlock[cols][rows];
+        animator = new BlockAnimator(this);
+
+        if (cols * rows > MAX_BLOCK_NODES) {
+            buildCanvas();
+        } else {
+            for(var y = 0; y < rows; y++) {
+                for (var x = 0; x < cols; x++) {
+                    createBlock(x,y);
+                }
+            }
+        }
+
+        //Collect changes from the grid once per frame, rather than repainting on every single change
+        if (grid != null) {
+            grid.setOnGridChanged(this::scheduleRefresh);
+            scheduleRefresh();
+        }
+    }
 
-        for(var y = 0; y < rows; y++) {
+    /**
+     * Draw every block on a single canvas, with the mouse handled for the whole board at once
+     */
+    private void buildCanvas() {
+        canvas = new BoardCanvas(cols, rows, width, height);
+        add(canvas, 0, 0);
+        for (var y = 0; y < rows; y++) {
             for (var x = 0; x < cols; x++) {
-                createBlock(x,y);
+                canvas.setValue(x, y, valueAt(x, y));
             }
         }
+
+        canvas.setOnMouseMoved(event -> {
+            var x = canvas.columnAt(event.getX());
+            var y = canvas.rowAt(event.getY());
+            var index = x < 0 || y < 0 ? -1 : y * cols + x;
+            if (index == hoveredIndex) return;
+            hoveredIndex = index;
+            if (overlay == null) return;
+            if (index < 0) {
+                overlay.hideHover();
+            } else {
+                overlay.showHover(x, y);
+            }
+        });
+        canvas.setOnMouseExited(event -> {
+            hoveredIndex = -1;
+            if (overlay != null) {
+                overlay.hideHover();
+            }
+        });
+        canvas.setOnMouseClicked(event -> {
+            var x = canvas.columnAt(event.getX());
+            var y = canvas.rowAt(event.getY());
+            if (x >= 0 && y >= 0) {
+                blockClicked(x, y);
+            }
+        });
+    }
+
+    /**
+     * Show a newer snapshot of the grid. Only the blocks that differ from the last snapshot shown are repainted, up to
+     * the per-frame limit, with the rest carried over to the following frames. Must be called on the JavaFX thread.
+     * @param snapshot the snapshot to show, of a grid the same size as the last
+     */
+    public void showGrid(GridSnapshot snapshot) {
+        if (snapshot == shownGrid) return;
+        GridSnapshot.diff(shownGrid, snapshot, (index, value) -> pendingChanges.set(index));
+        shownGrid = snapshot;
+        refresh();
+    }
+
+    /**
+     * Check whether a piece fits on the board as it is shown, with its middle at the given x,y
+     * @param piece the piece
+     * @param x column
+     * @param y row
+     * @return whether the piece fits
+     */
+    public boolean canPlayPiece(GamePiece piece, int x, int y) {
+        return grid != null ? grid.canPlayPiece(piece, x, y) : shownGrid.canPlayPiece(piece, x, y);
+    }
+
+    /**
+     * Get the value to show for a block, from the board's own grid or the last snapshot shown
+     * @param x column
+     * @param y row
+     * @return the value
+     */
+    private int valueAt(int x, int y) {
+        return grid != null ? grid.get(x, y) : shownGrid.get(x, y);
+    }
+
+    /**
+     * Make sure the refresher runs on the next frame. Safe to call from any thread.
+     */
+    private void scheduleRefresh() {
+        if (Platform.isFxApplicationThread()) {
+            refresher.start();
+        } else {
+            Platform.runLater(refresher::start);
+        }
+    }
+
+    /**
+     * Apply the changes collected from the grid to the blocks, up to the per-frame limit
+     */
+    private void refresh() {
+        var rendered = new FrameRendered();
+        rendered.begin();
+        if (grid != null) {
+            grid.drainChanges(pendingChanges);
+        }
+
+        var repainted = 0;
+        var index = pendingChanges.nextSetBit(0);
+        while (index >= 0 && repainted < MAX_REPAINTS_PER_FRAME) {
+            var x = index % cols;
+            var y = index / cols;
+            setValue(x, y, valueAt(x, y));
+            pendingChanges.clear(index);
+            repainted++;
+            index = pendingChanges.nextSetBit(index + 1);
+        }
+
+        if (pendingChanges.isEmpty()) {
+            refresher.stop();
+        } else {
+            refresher.start();
+        }
+        rendered.finish(repainted, pendingChanges.cardinality());
+    }
+
+    /**
+     * Get the value shown for a block
+     * @param x column
+     * @param y row
+     * @return the value
+     */
+    int getValue(int x, int y) {
+        return canvas != null ? canvas.getValue(x, y) : blocks[x][y].getValue();
+    }
+
+    /**
+     * Show a new value for a block, repainting it if it changed
+     * @param x column
+     * @param y row
+     * @param value the value
+     */
+    private void setValue(int x, int y, int value) {
+        if (canvas != null) {
+            canvas.setValue(x, y, value);
+        } else {
+            blocks[x][y].setValue(value);
+        }
+    }
+
+    /**
+     * Paint a block with its value, as it is without an effect
+     * @param x column
+     * @param y row
+     */
+    void paintBlock(int x, int y) {
+        if (canvas != null) {
+            canvas.paint(x, y);
+        } else {
+            blocks[x][y].paint();
+        }
+    }
+
+    /**
+     * Paint one frame of an effect on a block
+     * @param x column
+     * @param y row
+     * @param effect the effect
+     * @param progress how far through the effect we are, from 0 to 1
+     */
+    void paintEffect(int x, int y, BlockAnimator.Effect effect, double progress) {
+        if (canvas != null) {
+            canvas.paintEffect(x, y, effect, progress);
+            return;
+        }
+        var block = blocks[x][y];
+        switch (effect) {
+            case FADE -> block.paintFade(progress);
+            case FLASH -> block.paintFlash(progress);
+            case EXPLODE -> block.paintExplode(progress);
+            default -> block.paint();
+        }
     }
 
     /**
@@ -145,11 +410,11 @@ public class GameBoard extends GridPane implements GameListener {
         //Add to our block directory
         blocks[x][y] = block;
 
-        //Link the GameBlock component to the corresponding value in the Grid
-        block.bind(grid.getGridProperty(x,y));
+        //Start the GameBlock component from the corresponding value in the Grid
+        block.setValue(valueAt(x,y));
 
         //Add a mouse click handler to the block to trigger GameBoard blockClicked method
-        block.setOnMouseClicked((e) -> blockClicked(e, block));
+        block.setOnMouseClicked((e) -> blockClicked(block.getX(), block.getY()));
 
         return block;
     }
@@ -164,14 +429,14 @@ public class GameBoard extends GridPane implements GameListener {
 
     /**
      * Triggered when a block is clicked. Call the attached listener.
-     * @param event mouse event
-     * @param block block clicked on
+     * @param x column of the block clicked on
+     * @param y row of the block clicked on
      */
-    private void blockClicked(MouseEvent event, GameBlock block) {
-        logger.info("Block clicked: {}", block);
+    private void blockClicked(int x, int y) {
+        logger.info("Block clicked: {},{}", x, y);
 
         if(blockClickedListener != null) {
-            blockClickedListener.blockClicked(block);
+            blockClickedListener.blockClicked(x, y);
         }
     }
 
@@ -181,7 +446,9 @@ public class GameBoard extends GridPane implements GameListener {
      * @param block block entered
      */
     public void blockEntered(MouseEvent event, GameBlock block) {
-        block.setHovered(true);
+        if (overlay != null) {
+            overlay.showHover(block.getX(), block.getY());
+        }
     }
 
     /**
@@ -190,11 +457,9 @@ public class GameBoard extends GridPane implements GameListener {
      * @param block block exited
      */
     public void blockExited(MouseEvent event, GameBlock block) {
-        block.setHovered(false);
-    }
-
-    public void onGameUpdate(){
-
+        if (overlay != null) {
+            overlay.hideHover();
+        }
     }
 
     /**
@@ -202,13 +467,21 @@ public class GameBoard extends GridPane implements GameListener {
      * @param coordinates the coordinates of the blocks to fade out
      */
     public void fadeOut(Set<GameBlockCoordinate> coordinates) {
-        // Iterate over the coordinates and trigger fade-out animation for each block
-        coordinates.forEach(coordinate -> {
-            GameBlock block = blocks[coordinate.getX()][coordinate.getY()];
-            if (block != null) {
-                block.fadeOut(); // Trigger fade-out animation
-            }
-        });
+        playEffect(coordinates, BlockAnimator.Effect.FADE);
+    }
+
+    /**
+     * Play an effect on the blocks corresponding to the given coordinates. All effects on the board share one
+     * animation timer, however many blocks are involved.
+     * @param coordinates the coordinates of the blocks to animate
+     * @param effect the effect to play
+     */
+    public void playEffect(Set<GameBlockCoordinate> coordinates, BlockAnimator.Effect effect) {
+        //Bring the blocks up to date first, so effects start from the current state of the grid
+        refresh();
+        for (GameBlockCoordinate coordinate : coordinates) {
+            animator.play(coordinate.getX(), coordinate.getY(), effect);
+        }
     }
 
 }
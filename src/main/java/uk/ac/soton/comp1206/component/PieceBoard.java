@@ -1,6 +1,7 @@
 package uk.ac.soton.comp1206.component;
 
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.PieceSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -16,22 +17,34 @@ public class PieceBoard extends GameBoard{
     /**
      * x - coordinate of indicator position
      */
-    private int indicatorX = 1;
+    private int indicatorX;
 
     /**
      * y - coordinate of indicator position
      */
-    private int indicatorY = 1;
+    private int indicatorY;
 
     private static final Logger logger = LogManager.getLogger(GameBlock.class);
 
     /**
-     * Constructs a PieceBoard with the specified width and height.
+     * Constructs a PieceBoard with the specified width and height, big enough for the pieces of the default piece set.
      * @param width the width of the PieceBoard
      * @param height the height of the PieceBoard
      */
     public PieceBoard(double width, double height){
-        super(3, 3, width, height); // Create a 3*3 grid
+        this(PieceSet.getDefault().getSize(), width, height);
+    }
+
+    /**
+     * Constructs a PieceBoard with the specified number of blocks across, width and height.
+     * @param size the number of columns and rows, which should be the size of the largest piece shown
+     * @param width the width of the PieceBoard
+     * @param height the height of the PieceBoard
+     */
+    public PieceBoard(int size, double width, double height){
+        super(size, size, width, height); // Create a size*size grid
+        indicatorX = size / 2;
+        indicatorY = size / 2;
     }
 
     /**
@@ -69,8 +82,6 @@ public class PieceBoard extends GameBoard{
 
         // Set indicator position and paint indicator
         setIndicator(middleX, middleY);
-        // Colour the indicator
-        paintIndicator();
     }
 
     /**
@@ -79,19 +90,11 @@ public class PieceBoard extends GameBoard{
      * @param y the y-coordinate of the indicator position
      */
     public void setIndicator(int x, int y){
+        // Move the indicator off the previous block, then onto the new one
+        super.getBlock(indicatorX, indicatorY).setIndicator(false);
         this.indicatorX = x;
         this.indicatorY = y;
-    }
-
-    /**
-     * Paints the indicator on the middle square.
-     */
-    private void paintIndicator() {
-        // Gets middle block, specified by the indicator x and y positions
-        var block = (GameBlock) super.getBlock(indicatorX, indicatorY);
-        if (block != null) {
-            block.paintIndicator();
-        }
+        super.getBlock(indicatorX, indicatorY).setIndicator(true);
     }
 
     /**
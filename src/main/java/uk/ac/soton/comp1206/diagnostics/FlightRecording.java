@@ -0,0 +1,45 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts a continuous flight recording when the game is launched with the tetrecs.jfr system property set to the file
+ * to write it to, for example -Dtetrecs.jfr=tetrecs.jfr.
+ *
+ * The recording uses the JDK's low overhead default settings plus the game's own events, keeps the last
+ * tetrecs.jfr.minutes minutes (30 by default) and is written out when the game exits. The same events are also
+ * recorded by a recording started with -XX:StartFlightRecording.
+ */
+public class FlightRecording {
+
+    private static final Logger logger = LogManager.getLogger(FlightRecording.class);
+
+    /**
+     * Start the recording, if one was asked for
+     */
+    public static void startIfRequested() {
+        var file = System.getProperty("tetrecs.jfr");
+        if (file == null || file.isBlank()) return;
+
+        try {
+            var recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("TetrECS");
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(Long.getLong("tetrecs.jfr.minutes", 30)));
+            recording.setDestination(Paths.get(file));
+            recording.setDumpOnExit(true);
+            recording.start();
+            logger.info("Flight recording to {}", file);
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.error("Unable to start flight recording: {}", e.getMessage());
+        }
+    }
+}
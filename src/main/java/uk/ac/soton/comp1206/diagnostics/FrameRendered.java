@@ -0,0 +1,41 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering a game board repainting the blocks that changed, which happens at most once a frame
+ */
+@Name("uk.ac.soton.comp1206.FrameRendered")
+@Label("Frame Rendered")
+@Category({"TetrECS", "Display"})
+@Description("A game board repainted its changed blocks")
+public class FrameRendered extends jdk.jfr.Event {
+
+    /**
+     * Number of blocks repainted
+     */
+    @Label("Blocks Repainted")
+    private int repainted;
+
+    /**
+     * Number of changed blocks left for the next frame
+     */
+    @Label("Blocks Left")
+    private int left;
+
+    /**
+     * Finish the event once the blocks are repainted, committing it if it is enabled
+     * @param repainted number of blocks repainted
+     * @param left number of changed blocks left for the next frame
+     */
+    public void finish(int repainted, int left) {
+        end();
+        if (!shouldCommit()) return;
+        this.repainted = repainted;
+        this.left = left;
+        commit();
+    }
+}
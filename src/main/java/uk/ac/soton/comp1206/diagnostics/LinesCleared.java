@@ -0,0 +1,57 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for lines being cleared after a piece is played
+ */
+@Name("uk.ac.soton.comp1206.LinesCleared")
+@Label("Lines Cleared")
+@Category({"TetrECS", "Game"})
+@Description("Full rows and columns were cleared")
+public class LinesCleared extends jdk.jfr.Event {
+
+    /**
+     * Number of rows and columns cleared
+     */
+    @Label("Lines")
+    private int lines;
+
+    /**
+     * Number of blocks cleared
+     */
+    @Label("Blocks")
+    private int blocks;
+
+    /**
+     * The multiplier the points were scored with
+     */
+    @Label("Multiplier")
+    private int multiplier;
+
+    /**
+     * The points scored
+     */
+    @Label("Points")
+    private int points;
+
+    /**
+     * Record lines being cleared, if the event is enabled
+     * @param lines number of lines cleared
+     * @param blocks number of blocks cleared
+     * @param multiplier the multiplier the points were scored with
+     * @param points the points scored
+     */
+    public static void record(int lines, int blocks, int multiplier, int points) {
+        var event = new LinesCleared();
+        if (!event.isEnabled()) return;
+        event.lines = lines;
+        event.blocks = blocks;
+        event.multiplier = multiplier;
+        event.points = points;
+        event.commit();
+    }
+}
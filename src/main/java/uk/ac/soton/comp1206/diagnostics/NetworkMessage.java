@@ -0,0 +1,69 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flight recorder event for a message sent to or received from the game server
+ */
+@Name("uk.ac.soton.comp1206.NetworkMessage")
+@Label("Network Message")
+@Category({"TetrECS", "Network"})
+@Description("A WebSocket message was sent or received")
+public class NetworkMessage extends jdk.jfr.Event {
+
+    /**
+     * Whether the message was sent or received
+     */
+    @Label("Direction")
+    private String direction;
+
+    /**
+     * The command, the first word of the message
+     */
+    @Label("Command")
+    private String command;
+
+    /**
+     * The size of the message
+     */
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    private int size;
+
+    /**
+     * Record a message sent to the server, if the event is enabled
+     * @param message the message
+     */
+    public static void sent(String message) {
+        record("out", message);
+    }
+
+    /**
+     * Record a message received from the server, if the event is enabled
+     * @param message the message
+     */
+    public static void received(String message) {
+        record("in", message);
+    }
+
+    /**
+     * Record a message, if the event is enabled
+     * @param direction in or out
+     * @param message the message
+     */
+    private static void record(String direction, String message) {
+        var event = new NetworkMessage();
+        if (!event.isEnabled()) return;
+        var space = message.indexOf(' ');
+        event.direction = direction;
+        event.command = space < 0 ? message : message.substring(0, space);
+        event.size = message.getBytes(StandardCharsets.UTF_8).length;
+        event.commit();
+    }
+}
@@ -0,0 +1,54 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering a piece being played, from placing its blocks to the end of the turn
+ */
+@Name("uk.ac.soton.comp1206.PiecePlaced")
+@Label("Piece Placed")
+@Category({"TetrECS", "Game"})
+@Description("A piece was played on the board")
+public class PiecePlaced extends jdk.jfr.Event {
+
+    /**
+     * The name of the piece
+     */
+    @Label("Piece")
+    private final String piece;
+
+    /**
+     * The rotation of the piece, from 0 to 3
+     */
+    @Label("Rotation")
+    private final int rotation;
+
+    /**
+     * The column the middle of the piece was played at
+     */
+    @Label("X")
+    private final int x;
+
+    /**
+     * The row the middle of the piece was played at
+     */
+    @Label("Y")
+    private final int y;
+
+    /**
+     * Create the event for a piece about to be played. Call begin, then commit once the turn is over.
+     * @param piece the name of the piece
+     * @param rotation the rotation of the piece
+     * @param x the column it is played at
+     * @param y the row it is played at
+     */
+    public PiecePlaced(String piece, int rotation, int x, int y) {
+        this.piece = piece;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+    }
+}
@@ -0,0 +1,30 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering a scene being cleaned up, built and shown
+ */
+@Name("uk.ac.soton.comp1206.SceneLoaded")
+@Label("Scene Loaded")
+@Category({"TetrECS", "Display"})
+@Description("A scene was built and shown in the game window")
+public class SceneLoaded extends jdk.jfr.Event {
+
+    /**
+     * The class name of the scene
+     */
+    @Label("Scene")
+    private final String scene;
+
+    /**
+     * Create the event for a scene about to be loaded. Call begin, then commit once it is shown.
+     * @param scene the class name of the scene
+     */
+    public SceneLoaded(String scene) {
+        this.scene = scene;
+    }
+}
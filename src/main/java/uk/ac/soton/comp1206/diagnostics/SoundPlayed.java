@@ -0,0 +1,30 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering a sound being loaded and started
+ */
+@Name("uk.ac.soton.comp1206.SoundPlayed")
+@Label("Sound Played")
+@Category({"TetrECS", "Audio"})
+@Description("A sound or music file was loaded and started")
+public class SoundPlayed extends jdk.jfr.Event {
+
+    /**
+     * The resource path of the sound
+     */
+    @Label("File")
+    private final String file;
+
+    /**
+     * Create the event for a sound about to be played. Call begin, then commit once it has started.
+     * @param file the resource path of the sound
+     */
+    public SoundPlayed(String file) {
+        this.file = file;
+    }
+}
@@ -0,0 +1,43 @@
+package uk.ac.soton.comp1206.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for the turn timer running out
+ */
+@Name("uk.ac.soton.comp1206.TimerExpired")
+@Label("Timer Expired")
+@Category({"TetrECS", "Game"})
+@Description("The turn timer ran out and a life was lost")
+public class TimerExpired extends jdk.jfr.Event {
+
+    /**
+     * The length of the turn which ran out
+     */
+    @Label("Turn Length")
+    @Timespan(Timespan.MILLISECONDS)
+    private long turnLength;
+
+    /**
+     * Lives left after losing one
+     */
+    @Label("Lives Left")
+    private int livesLeft;
+
+    /**
+     * Record the timer running out, if the event is enabled
+     * @param turnLength the length of the turn, in milliseconds
+     * @param livesLeft lives left after losing one
+     */
+    public static void record(int turnLength, int livesLeft) {
+        var event = new TimerExpired();
+        if (!event.isEnabled()) return;
+        event.turnLength = turnLength;
+        event.livesLeft = livesLeft;
+        event.commit();
+    }
+}
@@ -0,0 +1,8 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * Marks an event that only matters as the latest of its kind. When several are posted before a subscriber gets to
+ * them, the subscriber is only called with the newest one.
+ */
+public interface CoalescedEvent {
+}
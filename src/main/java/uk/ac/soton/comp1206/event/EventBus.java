@@ -0,0 +1,226 @@
+package uk.ac.soton.comp1206.event;
+
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * The EventBus passes events from the game to anything interested in them, in place of listener fields.
+ *
+ * Subscribers choose the thread they are called on: the JavaFX thread for anything touching the display, a background
+ * thread for slow work such as audio, or directly on the thread that posted the event. Posting never waits for FX or
+ * background subscribers.
+ *
+ * The owner of a subscription is only held weakly, so a scene that is no longer shown can be garbage collected without
+ * unsubscribing. For this to work the handler must not hold on to the owner itself: it is given the owner as its first
+ * argument, so an unbound method reference such as ChallengeScene::onLinesCleared is the usual handler.
+ *
+ * Events implementing CoalescedEvent are merged: if a subscriber has not yet been called with the last one, a newer one
+ * replaces it, so a slow subscriber only ever sees the latest.
+ */
+public class EventBus {
+
+    private static final Logger logger = LogManager.getLogger(EventBus.class);
+
+    /**
+     * The thread a subscriber is called on
+     */
+    public enum Delivery {
+        /**
+         * On the JavaFX application thread
+         */
+        FX,
+
+        /**
+         * On the shared background event thread, in the order events were posted
+         */
+        BACKGROUND,
+
+        /**
+         * On the thread that posted the event, before post returns
+         */
+        DIRECT
+    }
+
+    /**
+     * The thread background subscribers are called on, shared by every bus
+     */
+    private static final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Event delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs tasks on the JavaFX thread. When JavaFX is not running, such as in the command line tools, there is no FX
+     * thread to wait for, so tasks run straight away.
+     */
+    private static final Executor fx = task -> {
+        try {
+            Platform.runLater(task);
+        } catch (IllegalStateException e) {
+            task.run();
+        }
+    };
+
+    /**
+     * The subscriptions for each event type
+     */
+    private final Map<Class<?>, List<Subscription<?, ?>>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * A single subscriber to one event type
+     * @param <O> the type of the owner
+     * @param <E> the type of the event
+     */
+    private static class Subscription<O, E> {
+
+        /**
+         * The owner, which is allowed to be garbage collected
+         */
+        private final WeakReference<O> owner;
+
+        /**
+         * The thread the handler is called on
+         */
+        private final Delivery delivery;
+
+        /**
+         * The handler, called with the owner and the event
+         */
+        private final BiConsumer<? super O, ? super E> handler;
+
+        /**
+         * The latest coalesced event waiting to be delivered, or null if none is waiting
+         */
+        private final AtomicReference<E> waiting = new AtomicReference<>();
+
+        Subscription(O owner, Delivery delivery, BiConsumer<? super O, ? super E> handler) {
+            this.owner = new WeakReference<>(owner);
+            this.delivery = delivery;
+            this.handler = handler;
+        }
+
+        /**
+         * Whether the owner has been garbage collected
+         * @return true if the subscription can be dropped
+         */
+        boolean isDead() {
+            return owner.get() == null;
+        }
+
+        /**
+         * Call the handler with an event, if the owner is still around
+         * @param event the event
+         */
+        void deliver(E event) {
+            var current = owner.get();
+            if (current == null) return;
+            try {
+                handler.accept(current, event);
+            } catch (RuntimeException e) {
+                logger.error("Subscriber to {} failed", event.getClass().getSimpleName(), e);
+            }
+        }
+
+        /**
+         * Deliver the coalesced event waiting, if it has not already been delivered
+         */
+        void deliverWaiting() {
+            var event = waiting.getAndSet(null);
+            if (event != null) {
+                deliver(event);
+            }
+        }
+    }
+
+    /**
+     * Subscribe to an event type
+     * @param type the class of the events to receive
+     * @param owner the object the subscription belongs to, held weakly
+     * @param delivery the thread to call the handler on
+     * @param handler called with the owner and each event
+     * @param <O> the type of the owner
+     * @param <E> the type of the event
+     */
+    public <O, E> void subscribe(Class<E> type, O owner, Delivery delivery, BiConsumer<? super O, ? super E> handler) {
+        subscriptions.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>())
+            .add(new Subscription<>(owner, delivery, handler));
+    }
+
+    /**
+     * Remove every subscription belonging to an owner
+     * @param owner the owner to unsubscribe
+     */
+    public void unsubscribe(Object owner) {
+        for (var list : subscriptions.values()) {
+            list.removeIf(subscription -> subscription.owner.get() == owner || subscription.isDead());
+        }
+    }
+
+    /**
+     * Check whether anything is subscribed to an event type, so events nobody wants need not be created
+     * @param type the class of the events
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers(Class<?> type) {
+        var list = subscriptions.get(type);
+        return list != null && !list.isEmpty();
+    }
+
+    /**
+     * Post an event to every subscriber of its class
+     * @param event the event
+     */
+    public void post(Object event) {
+        var list = subscriptions.get(event.getClass());
+        if (list == null) return;
+
+        var coalesced = event instanceof CoalescedEvent;
+        for (var subscription : list) {
+            if (subscription.isDead()) {
+                // The owner has gone, so this subscription can never be delivered again
+                list.remove(subscription);
+                continue;
+            }
+            dispatch(subscription, event, coalesced);
+        }
+    }
+
+    /**
+     * Hand an event to a subscription on its chosen thread
+     * @param subscription the subscription
+     * @param event the event
+     * @param coalesced whether the event replaces an undelivered earlier one
+     * @param <E> the type of the event
+     */
+    @SuppressWarnings("unchecked")
+    private <E> void dispatch(Subscription<?, E> subscription, Object event, boolean coalesced) {
+        var typed = (E) event;
+        if (subscription.delivery == Delivery.DIRECT) {
+            subscription.deliver(typed);
+            return;
+        }
+
+        Runnable task;
+        if (coalesced) {
+            // Only schedule a delivery if one is not already waiting, which will pick up this event instead
+            if (subscription.waiting.getAndSet(typed) != null) return;
+            task = subscription::deliverWaiting;
+        } else {
+            task = () -> subscription.deliver(typed);
+        }
+        (subscription.delivery == Delivery.BACKGROUND ? background : fx).execute(task);
+    }
+}
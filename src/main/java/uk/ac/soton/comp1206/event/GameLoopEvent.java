@@ -0,0 +1,47 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * Posted whenever the turn timer starts again, with when the new turn started and how long it lasts. Only the latest
+ * is delivered.
+ */
+public class GameLoopEvent implements CoalescedEvent {
+
+    /**
+     * When the current turn started, from System.nanoTime
+     */
+    private final long turnStarted;
+
+    /**
+     * The length of the current turn, in milliseconds
+     */
+    private final int timerDelay;
+
+    /**
+     * Create a new game loop event
+     * @param turnStarted when the current turn started, from System.nanoTime, which is earlier than now for a resumed
+     * turn
+     * @param timerDelay the length of the current turn, in milliseconds
+     */
+    public GameLoopEvent(long turnStarted, int timerDelay) {
+        this.turnStarted = turnStarted;
+        this.timerDelay = timerDelay;
+    }
+
+    /**
+     * Get the length of the current turn
+     * @return turn length in milliseconds
+     */
+    public int getTimerDelay() {
+        return timerDelay;
+    }
+
+    /**
+     * Get the time left on the current turn at the given moment
+     * @param now the time, from System.nanoTime
+     * @return milliseconds left, never below zero
+     */
+    public int getTimerRemaining(long now) {
+        var elapsed = (now - turnStarted) / 1_000_000;
+        return (int) Math.max(0, timerDelay - elapsed);
+    }
+}
@@ -0,0 +1,7 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * Posted once when the game ends.
+ */
+public class GameOverEvent {
+}
@@ -0,0 +1,13 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Grid Changed listener is used to tell a view that a Grid has cells waiting to be redrawn. It is only called when
+ * the Grid goes from having no pending changes to having some, so a burst of changes results in a single call.
+ */
+public interface GridChangedListener {
+
+    /**
+     * Handle the grid having new pending changes. May be called from any thread.
+     */
+    void onGridChanged();
+}
@@ -0,0 +1,32 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+
+import java.util.Set;
+
+/**
+ * Posted when lines are cleared in the game.
+ */
+public class LinesClearedEvent {
+
+    /**
+     * The coordinates of the blocks that were cleared
+     */
+    private final Set<GameBlockCoordinate> coordinates;
+
+    /**
+     * Create a new lines cleared event
+     * @param coordinates the coordinates of the blocks that were cleared
+     */
+    public LinesClearedEvent(Set<GameBlockCoordinate> coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Get the blocks that were cleared
+     * @return the coordinates of the cleared blocks
+     */
+    public Set<GameBlockCoordinate> getCoordinates() {
+        return coordinates;
+    }
+}
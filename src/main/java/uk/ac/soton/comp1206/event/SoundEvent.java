@@ -0,0 +1,32 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * Posted when the game wants a sound effect played. Each sound is a single shared constant, so posting one never
+ * allocates.
+ */
+public enum SoundEvent {
+    /**
+     * A piece was placed
+     */
+    PLACE,
+
+    /**
+     * The current piece was rotated
+     */
+    ROTATE,
+
+    /**
+     * The current and following pieces were swapped
+     */
+    SWAP,
+
+    /**
+     * A life was lost
+     */
+    LOSE_LIFE,
+
+    /**
+     * Lines were cleared
+     */
+    CLEAR
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A FrameRing hands frames from the logic thread to the display without locks. It is a fixed size ring buffer with
+ * exactly one thread adding frames and exactly one thread taking them.
+ *
+ * Each side only ever writes its own position and reads the other's, so neither side waits for the other. A full ring
+ * turns new frames away instead of blocking the logic thread; since every frame holds the whole state, the producer
+ * just offers its latest frame again later.
+ */
+final class FrameRing {
+
+    /**
+     * The slots holding frames
+     */
+    private final AtomicReferenceArray<GameFrame> slots;
+
+    /**
+     * Mask turning a position into a slot index
+     */
+    private final int mask;
+
+    /**
+     * The position of the next frame to take, only written by the consumer
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The position of the next frame to add, only written by the producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Create a ring
+     * @param capacity number of frames held, which must be a power of two
+     */
+    FrameRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, not " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add a frame. Only called by the producer.
+     * @param frame the frame to add
+     * @return false if the ring was full and the frame was not added
+     */
+    boolean offer(GameFrame frame) {
+        var position = tail.get();
+        if (position - head.get() > mask) {
+            return false;
+        }
+        slots.lazySet((int) position & mask, frame);
+        // Publishing the new tail after the slot makes the frame visible to the consumer
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Take every frame waiting and return the newest, since the display only ever needs the latest. Only called by the
+     * consumer.
+     * @return the newest frame, or null if none was waiting
+     */
+    GameFrame pollLatest() {
+        var position = head.get();
+        var end = tail.get();
+        if (position == end) {
+            return null;
+        }
+        GameFrame latest = null;
+        for (; position < end; position++) {
+            var index = (int) position & mask;
+            latest = slots.get(index);
+            slots.lazySet(index, null);
+        }
+        head.lazySet(end);
+        return latest;
+    }
+}
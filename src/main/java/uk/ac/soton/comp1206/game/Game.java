@@ -6,58 +6,100 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
-import uk.ac.soton.comp1206.event.GameListener;
-import uk.ac.soton.comp1206.event.NextPieceListener;
-import uk.ac.soton.comp1206.event.LineClearedListener;
-import uk.ac.soton.comp1206.event.GameLoopListener;
-import uk.ac.soton.comp1206.media.Multimedia;
-import uk.ac.soton.comp1206.scene.ChallengeScene;
+import uk.ac.soton.comp1206.diagnostics.LinesCleared;
+import uk.ac.soton.comp1206.diagnostics.PiecePlaced;
+import uk.ac.soton.comp1206.diagnostics.TimerExpired;
+import uk.ac.soton.comp1206.event.EventBus;
+import uk.ac.soton.comp1206.event.GameLoopEvent;
+import uk.ac.soton.comp1206.event.GameOverEvent;
+import uk.ac.soton.comp1206.event.LinesClearedEvent;
+import uk.ac.soton.comp1206.event.SoundEvent;
 
 import java.util.List;
 import java.util.Set;
-import java.util.Random;
 import java.util.HashSet;
 import java.util.ArrayList;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
  * and to handle actions made by the player should take place inside this class.
+ *
+ * Once started, the game runs on its own logic thread, which is the only thread to change it. The display hands player
+ * actions over with submit, and the logic thread runs them in order along with the turn timer. After every batch of
+ * actions the logic thread publishes a GameFrame, an unchangeable copy of the state, through a lock-free ring which the
+ * display reads once per frame with pollFrame. The score, level, lives and multiplier properties are the display's
+ * copies, only ever set from pollFrame on the JavaFX thread.
+ *
+ * A game that is never started has no logic thread, and its methods can be called directly from a single thread, as
+ * the command line tools do.
  */
 public class Game {
 
     /**
-     * List of listeners to notify when the game state updates
+     * The bus the game posts its events on, for the display, audio and anything else interested
      */
-    private List<GameListener> listeners = new ArrayList<>();
+    private final EventBus events = new EventBus();
+
+    private static final Logger logger = LogManager.getLogger(Game.class);
 
     /**
-     * List of listeners to notify when the next piece updates
+     * Number of frames the ring to the display can hold
      */
-    private List<NextPieceListener> nextPieceListeners = new ArrayList<>();
+    private static final int FRAME_CAPACITY = 64;
 
     /**
-     * List of LineClearedListeners to notify when lines are cleared.
+     * How long to wait before offering a frame again when the ring was full, in nanoseconds
      */
-    private List<LineClearedListener> lineClearedListeners = new ArrayList<>();
+    private static final long PUBLISH_RETRY = TimeUnit.MILLISECONDS.toNanos(5);
 
     /**
-     * Listener for game loop events
+     * Player actions waiting for the logic thread
      */
-    private GameLoopListener gameLoopListener;
-    private static final Logger logger = LogManager.getLogger(Game.class);
+    private final BlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+
+    /**
+     * The thread running the game, or null if it has not been started
+     */
+    private Thread logicThread;
+
+    /**
+     * Whether the logic thread should keep running
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Completed once the logic thread has finished, after everything it ran, such as the last save, has been asked for
+     */
+    private final CompletableFuture<Void> logicFinished = new CompletableFuture<>();
+
+    /**
+     * Frames on their way from the logic thread to the display
+     */
+    private final FrameRing frames = new FrameRing(FRAME_CAPACITY);
+
+    /**
+     * Whether the latest frame could not be published because the ring was full
+     */
+    private boolean publishPending = false;
+
+    /**
+     * The latest frame taken by the display
+     */
+    private GameFrame shownFrame;
 
     /**
-     * Executor service for scheduling tasks
+     * When the current turn started, from System.nanoTime
      */
-    private ScheduledExecutorService executorService;
+    private long turnStarted;
 
     /**
-     * The delay for the game timer
+     * The length of the current turn in milliseconds, or 0 before the timer first starts
      */
-    private int timerDelay;
+    private int turnLength = 0;
 
     /**
      * The next game piece to be played
@@ -70,39 +112,104 @@ public class Game {
     private GamePiece followingPiece;
 
     /**
-     * Multimedia object for game sounds and music
+     * Random number generator, whose state is saved with the game
      */
-    private Multimedia multimedia;
-
-    /**
-     * Random number generator
-     */
-    private Random random = new Random();
+    private final SeedableRandom random = new SeedableRandom();
 
     /**
      * The score of the game
      */
-    private IntegerProperty score = new SimpleIntegerProperty(0);
+    private int score = 0;
 
     /**
      * The level of the game
      */
-    private IntegerProperty level = new SimpleIntegerProperty(0);
+    private int level = 0;
 
     /**
      * The number of lives of the game
      */
-    private IntegerProperty lives = new SimpleIntegerProperty(3);
+    private int lives = 3;
 
     /**
      * The multiplier of the game
      */
-    private IntegerProperty multiplier = new SimpleIntegerProperty(1);
+    private int multiplier = 1;
+
+    /**
+     * The score shown by the display
+     */
+    private final IntegerProperty shownScore = new SimpleIntegerProperty(0);
+
+    /**
+     * The level shown by the display
+     */
+    private final IntegerProperty shownLevel = new SimpleIntegerProperty(0);
+
+    /**
+     * The number of lives shown by the display
+     */
+    private final IntegerProperty shownLives = new SimpleIntegerProperty(3);
+
+    /**
+     * The multiplier shown by the display
+     */
+    private final IntegerProperty shownMultiplier = new SimpleIntegerProperty(1);
+
+    /**
+     * What to do when neither the current nor the following piece can be played anywhere
+     */
+    private final GameMode.DeadBoardPolicy deadBoardPolicy;
+
+    /**
+     * Whether the game has ended
+     */
+    private volatile boolean over = false;
+
+    /**
+     * Whether moves can be undone and redone
+     */
+    private boolean undoEnabled = false;
+
+    /**
+     * The state after every turn so far, for undo and redo
+     */
+    private final List<GameState> history = new ArrayList<>();
+
+    /**
+     * The position in the history of the state currently shown
+     */
+    private int historyPosition = -1;
+
+    /**
+     * The mode being played, or null if the game was created without one
+     */
+    private GameMode mode;
+
+    /**
+     * Where the game is saved after every turn, or null if it is not saved
+     */
+    private SaveStore saveStore;
+
+    /**
+     * The record of every action, kept for games of a mode started from the beginning, or null
+     */
+    private GameJournal journal;
 
     /**
-     * Listener for next piece events
+     * The journal as text, written once the game is over so any thread can read it
      */
-    private NextPieceListener nextPieceListener;
+    private volatile String finishedJournal;
+
+    /**
+     * Where a row is recorded for every piece played, or null if the game keeps no telemetry
+     */
+    private TelemetryRecorder.Session telemetry;
+
+    /**
+     * The lines and blocks cleared by the last piece played
+     */
+    private int clearedLines, clearedBlocks;
 
     /**
      * Number of rows
@@ -125,80 +232,389 @@ public class Game {
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
+        this(cols, rows, GameMode.DeadBoardPolicy.LOSE_LIFE);
+    }
+
+    /**
+     * Create a new game for the given mode, using the board size, pieces and dead board policy of that mode.
+     * @param mode the mode to play
+     */
+    public Game(GameMode mode) {
+        this(mode.getCols(), mode.getRows(), mode.getDeadBoardPolicy(), mode.getPieceSet());
+        this.mode = mode;
+        setUndoEnabled(mode.allowsUndo());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns and dead board policy.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param deadBoardPolicy what to do when no move is left
+     */
+    public Game(int cols, int rows, GameMode.DeadBoardPolicy deadBoardPolicy) {
+        this(cols, rows, deadBoardPolicy, PieceSet.getDefault());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns, dead board policy and pieces.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param deadBoardPolicy what to do when no move is left
+     * @param pieceSet the pieces to play
+     */
+    public Game(int cols, int rows, GameMode.DeadBoardPolicy deadBoardPolicy, PieceSet pieceSet) {
         this.cols = cols;
         this.rows = rows;
+        this.deadBoardPolicy = deadBoardPolicy;
 
         // Create a new grid model to represent the game state
-        this.grid = new Grid(cols,rows);
+        this.grid = new Grid(cols,rows,pieceSet);
+    }
+
+    /**
+     * Start the game on its logic thread
+     */
+    public void start() {
+        startLogic(() -> {
+            logger.info("Starting game");
+            startJournal();
+            deal();
+            startTimer(); // Starts the turn timer
+            endTurn();
+        });
+    }
 
-        // Creates new multimedia instance to play audio files, and background music
-        multimedia = new Multimedia();
+    /**
+     * Start the game without its logic thread, for tools that play it move by move from their own thread. The turn
+     * timer never runs, so call timerExpired to run it out.
+     */
+    public void startHeadless() {
+        if (logicThread != null) {
+            throw new IllegalStateException("Game has already been started");
+        }
+        startJournal();
+        deal();
+    }
 
+    /**
+     * Start recording the game's actions, from the state the pieces will be dealt from. Only games of a mode have a
+     * journal, since it is replayed with the mode's board and pieces.
+     */
+    private void startJournal() {
+        if (mode != null) {
+            journal = new GameJournal(mode, cols, rows, grid.getPieceSet(), random.getState());
+        }
     }
 
     /**
-     * Start the game
+     * Deal the first current and following pieces
      */
-    public void start() {
-        logger.info("Starting game");
+    protected void deal() {
         initialiseGame();
         nextPiece(); // Initialise the current piece
         followingPiece = spawnPiece(); // Initialise the following piece
-        startTimer(); // Starts game loop timer
     }
 
     /**
-     * Start the timer with the initial delay.
+     * Check whether a saved game can be carried on by this game, which must be of the same mode, board size and
+     * pieces
+     * @param save the saved game
+     * @return true if resume will accept the save
      */
-    private void startTimer() {
-        timerDelay = getTimerDelay();
-        logger.info("Timer is now " + ((double) getTimerDelay() / 1000) + " seconds");
-        executorService = Executors.newSingleThreadScheduledExecutor();
-        executorService.scheduleAtFixedRate(this::gameLoop, timerDelay, timerDelay, TimeUnit.MILLISECONDS);
+    public boolean canResume(SavedGame save) {
+        var state = save.getState();
+        var pieceSet = grid.getPieceSet();
+        return save.getMode() == mode
+            && save.getPieceSet().equals(pieceSet.getName())
+            && state.getGrid().getCols() == cols && state.getGrid().getRows() == rows
+            && state.getCurrentPiece() >= 0 && state.getCurrentPiece() < pieceSet.getCount()
+            && state.getFollowingPiece() >= 0 && state.getFollowingPiece() < pieceSet.getCount();
     }
 
     /**
-     * Reset the timer with the updated delay.
+     * Start the game on its logic thread from a saved game instead of from the beginning. A resumed game keeps no
+     * journal, since the save doesn't say how the game got there.
+     * @param save the saved game, which must pass canResume
      */
-    public void resetTimer() {
-        executorService.shutdown();
-        startTimer();
+    public void resume(SavedGame save) {
+        if (!canResume(save)) {
+            throw new IllegalArgumentException("Saved game does not match this game");
+        }
+        startLogic(() -> {
+            logger.info("Resuming saved game");
+            applyState(save.getState());
+            random.setState(save.getRandomState());
+            startTimer(Math.max(1, Math.min(save.getTimerRemaining(), getTimerDelay())));
+            recordState();
+        });
+    }
+
+    /**
+     * Start the logic thread, with the given command run first
+     * @param first the command setting up the game
+     */
+    private void startLogic(Runnable first) {
+        if (logicThread != null) {
+            throw new IllegalStateException("Game has already been started");
+        }
+        running = true;
+        commands.add(first);
+        logicThread = new Thread(this::runLogic, "Game logic");
+        logicThread.setDaemon(true);
+        logicThread.start();
+    }
+
+    /**
+     * Hand an action over to the logic thread, to be run after any actions already waiting. Does nothing once the
+     * game has stopped.
+     * @param command the action
+     * @return a future completed once the action has run
+     */
+    public CompletableFuture<Void> submit(Runnable command) {
+        var done = new CompletableFuture<Void>();
+        if (!running) {
+            done.complete(null);
+            return done;
+        }
+        commands.add(() -> {
+            try {
+                command.run();
+                done.complete(null);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                throw e;
+            }
+        });
+        return done;
+    }
+
+    /**
+     * The loop run by the logic thread. It waits for an action or for the turn timer to run out, whichever comes
+     * first, and publishes a frame after each batch of actions, until the game ends or is stopped.
+     */
+    private void runLogic() {
+        while (running) {
+            Runnable command;
+            try {
+                command = commands.poll(waitTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (command != null) {
+                // Run everything already waiting before publishing, so a burst of input costs a single frame
+                while (command != null && running) {
+                    runCommand(command);
+                    command = commands.poll();
+                }
+            } else if (!over && turnLength > 0 && getTimerRemaining() <= 0) {
+                timerExpired();
+            }
+
+            publish();
+            if (over) {
+                running = false;
+            }
+        }
+        try {
+            finishTelemetry();
+        } finally {
+            logger.info("Game logic finished");
+            logicFinished.complete(null);
+        }
+    }
+
+    /**
+     * Run a single action, logging it if it fails so the logic thread carries on
+     * @param command the action
+     */
+    private void runCommand(Runnable command) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            logger.error("Game action failed", e);
+        }
+    }
+
+    /**
+     * Work out how long the logic thread can wait for an action
+     * @return nanoseconds until the timer runs out or a frame needs offering again
+     */
+    private long waitTime() {
+        var wait = Long.MAX_VALUE;
+        if (!over && turnLength > 0) {
+            wait = Math.max(0, turnStarted + TimeUnit.MILLISECONDS.toNanos(turnLength) - System.nanoTime());
+        }
+        if (publishPending) {
+            wait = Math.min(wait, PUBLISH_RETRY);
+        }
+        return wait;
     }
 
     /**
-     * Game loop method called by the timer.
-     * Decrements the timer, loses a life, and discards the current piece when the timer reaches zero.
+     * Offer the display a frame of the current state. If the ring is full the frame is dropped and a new one offered
+     * shortly, as each frame replaces everything before it. A game whose pieces have run out, as a puzzle's do, has no
+     * following piece for its last turn.
      */
-    private void gameLoop() {
-        timerDelay = getTimerDelay();
+    private void publish() {
+        if (currentPiece == null) return;
+        publishPending = !frames.offer(new GameFrame(captureState(), over));
+    }
 
-        if (timerDelay <= 0) {
-            logger.info("Timer reached zero. Losing a life and discarding current piece.");
-            loseLife();
-            currentPiece = followingPiece;
-            followingPiece = spawnPiece();
-            resetTimer();
+    /**
+     * Take the latest frame published by the logic thread and update the score, level, lives and multiplier
+     * properties from it. Called by the display once per frame, always from the same thread.
+     * @return the latest frame, or null if none has been published yet
+     */
+    public GameFrame pollFrame() {
+        var frame = frames.pollLatest();
+        if (frame != null) {
+            shownFrame = frame;
+            var state = frame.getState();
+            shownScore.set(state.getScore());
+            shownLevel.set(state.getLevel());
+            shownLives.set(state.getLives());
+            shownMultiplier.set(state.getMultiplier());
         }
+        return shownFrame;
+    }
+
+    /**
+     * Start the turn timer with the full delay for the current level
+     */
+    private void startTimer() {
+        startTimer(getTimerDelay());
+    }
+
+    /**
+     * Start the turn timer with part of the turn already gone
+     * @param remaining the time left on the turn, in milliseconds
+     */
+    private void startTimer(int remaining) {
+        turnLength = getTimerDelay();
+        turnStarted = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(turnLength - remaining);
+        logger.info("Timer is now " + ((double) turnLength / 1000) + " seconds");
 
-        // Invoke the GameLoopListener to update the UI timer
-        if (gameLoopListener != null) {
-            gameLoopListener.onGameLoop();
+        // Tell anything showing the timer
+        events.post(new GameLoopEvent(turnStarted, turnLength));
+    }
+
+    /**
+     * Reset the timer with the updated delay.
+     */
+    public void resetTimer() {
+        if (!over) {
+            startTimer();
         }
     }
 
     /**
-     * Lose a life, by subtracting one from the lives property
+     * Get the time left on the current turn
+     * @return milliseconds left, never below zero
+     */
+    public int getTimerRemaining() {
+        var elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - turnStarted);
+        return (int) Math.max(0, turnLength - elapsed);
+    }
+
+    /**
+     * Lose a life, by subtracting one from the lives property. The game ends once the lives drop below zero.
      */
     public void loseLife() {
-        int remainingLives = lives.get();
         // Reduce number of lives if the remaining lives is greater than or equal to 0
-        if (remainingLives >= 0) {
+        if (lives >= 0) {
             // Reduce the number of lives by one
-            lives.set(remainingLives - 1);
-            multimedia.playLoseLifeSound();
+            lives--;
+            events.post(SoundEvent.LOSE_LIFE);
+        }
+
+        if (lives < 0) {
+            gameOver();
         }
     }
 
+    /**
+     * Handle the timer running out: lose a life and discard the current piece
+     */
+    public void timerExpired() {
+        if (over) return;
+        logger.info("Timer has reached zero, lose a life, and current piece has been discarded");
+        TimerExpired.record(turnLength, lives - 1);
+        if (journal != null) journal.recordTimerExpired();
+        discardCurrentPiece();
+        checkDeadBoard();
+        endTurn();
+    }
+
+    /**
+     * Lose a life, reset the multiplier and replace the current piece with the following one
+     */
+    private void discardCurrentPiece() {
+        loseLife();
+        if (over) return;
+
+        // Reset multiplier back to 1
+        multiplier = 1;
+
+        // Discard the current piece and replace it with the following piece
+        nextPiece();
+
+        // Reset the timer after a piece is discarded
+        resetTimer();
+    }
+
+    /**
+     * Check whether there is still a move left, that is whether the current or the following piece fits anywhere in any
+     * rotation. This only reads the placement counts kept by the grid, so it is cheap enough to run after every move.
+     * @return true if neither piece can be played
+     */
+    public boolean isDeadBoard() {
+        return !grid.canPlayAnywhere(currentPiece) && !grid.canPlayAnywhere(followingPiece);
+    }
+
+    /**
+     * Apply the dead board policy while no move is left, so hopeless positions don't have to wait for the timer
+     */
+    private void checkDeadBoard() {
+        while (!over && deadBoardPolicy != GameMode.DeadBoardPolicy.IGNORE && isDeadBoard()) {
+            logger.info("No legal move for {} or {}", currentPiece, followingPiece);
+            if (deadBoardPolicy == GameMode.DeadBoardPolicy.GAME_OVER) {
+                gameOver();
+            } else {
+                discardCurrentPiece();
+            }
+        }
+    }
+
+    /**
+     * End the game, stopping the timer and posting a game over event
+     */
+    protected void gameOver() {
+        if (over) return;
+        over = true;
+        logger.info("Game over");
+        if (journal != null) {
+            finishedJournal = journal.encode();
+        }
+        finishTelemetry();
+
+        // A finished game can't be resumed
+        if (saveStore != null) {
+            saveStore.deleteAsync();
+        }
+        // Publish the final state first, so it is there for anything handling the game over
+        publish();
+        events.post(new GameOverEvent());
+    }
+
+    /**
+     * Whether the game has ended
+     * @return true if the game is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+
     /**
      * Replaces the current piece with a new piece, and generates next piece in advance
      * @return The next piece to be played
@@ -211,11 +627,6 @@ public class Game {
         followingPiece = spawnPiece();
 
         logger.info("The next piece is: {}",currentPiece);
-
-        // Notify next piece listener when a new piece is generated, passing both current and following pieces
-        if (nextPieceListener != null) {
-            nextPieceListener.onNextPiece(currentPiece, followingPiece);
-        }
         return currentPiece;
     }
 
@@ -225,93 +636,125 @@ public class Game {
      * @return the random piece generated to be played
      */
     public GamePiece spawnPiece(){
-        // Maximum number of pieces obtained
-        var maxPieces = GamePiece.PIECES;
-        // Generates random number, based on the maxPieces number
-        var randomPiece = random.nextInt(maxPieces);
+        var pieceSet = grid.getPieceSet();
+        // Generates random number, following the spawn weights of the piece set
+        var randomPiece = pieceSet.pick(random);
         logger.info("Picking random piece: {}",randomPiece);
         // Creates random piece based on the random value generated
-        var piece = GamePiece.createPiece(randomPiece);
+        var piece = GamePiece.createPiece(pieceSet, randomPiece);
         return piece;
     }
 
     /**
      * Handles actions that need to take place after a piece is played.
-     * This includes clearing lines, and updating the multiplier and score
+     * This includes clearing lines, and updating the multiplier and score.
+     *
+     * Only the rows and columns the piece was placed in can have become full, so only those are checked, using the
+     * fill counters kept by the grid. The cost does not depend on the size of the board.
+     * @param piece the piece that was played
+     * @param placeX the x position the middle of the piece was played at
+     * @param placeY the y position the middle of the piece was played at
      */
-    public void afterPiece() {
-        Set<GameBlockCoordinate> coordinateSet = new HashSet<>(); // Set to store coordinates of cleared blocks
+    public void afterPiece(GamePiece piece, int placeX, int placeY) {
+        // Set to store coordinates of cleared blocks, only made once a full line is found so most turns allocate nothing
+        Set<GameBlockCoordinate> coordinateSet = null;
         var lineCounter = 0; // Counter for number of lines cleared
-        var clearedBlocksCounter = 0; // Counter for number of blocks cleared
 
-        // Clear columns
-        for (var x= 0; x < grid.getCols(); x++) {
-            ArrayList<GameBlockCoordinate> columnArrayList = new ArrayList<>(); // List to store coordinates of blocks in a column
-            for (var y = 0; y < grid.getRows(); y++) {
-                columnArrayList.add(new GameBlockCoordinate(x, y)); // Add coordinates to the list
-            }
-            if (allOnes(columnArrayList)) { // Check if all blocks in the column are filled
-                coordinateSet.addAll(columnArrayList); // Add coordinates to the set
+        int[][] blocks = piece.getBlocks();
+        int topX = placeX - blocks.length / 2;
+        int topY = placeY - blocks.length / 2;
+
+        // Clear columns touched by the piece
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            var x = topX + blockX;
+            if (touchesColumn(blocks, blockX) && grid.isColumnFull(x)) {
+                if (coordinateSet == null) coordinateSet = new HashSet<>();
+                for (var y = 0; y < grid.getRows(); y++) {
+                    coordinateSet.add(new GameBlockCoordinate(x, y));
+                }
                 lineCounter++;
             }
         }
 
-        // Clear rows
-        for (var y = 0; y < grid.getRows(); y++) {
-            ArrayList<GameBlockCoordinate> rowArrayList = new ArrayList<>(); // List to store coordinates of blocks in a row
-            for (var x = 0; x < grid.getCols(); x++) {
-                rowArrayList.add(new GameBlockCoordinate(x, y)); // Add coordinates to the list
-            }
-            if (allOnes(rowArrayList)) { // Check if all blocks in the row are filled
-                coordinateSet.addAll(rowArrayList); // Add coordinates to the set
+        // Clear rows touched by the piece
+        for (var blockY = 0; blockY < blocks.length; blockY++) {
+            var y = topY + blockY;
+            if (touchesRow(blocks, blockY) && grid.isRowFull(y)) {
+                if (coordinateSet == null) coordinateSet = new HashSet<>();
+                for (var x = 0; x < grid.getCols(); x++) {
+                    coordinateSet.add(new GameBlockCoordinate(x, y));
+                }
                 lineCounter++;
             }
         }
 
-        // Clear cells
-        for (GameBlockCoordinate gameBlockCoordinate : coordinateSet) {
-            logger.info("Clearing block at coordinates {},{}", gameBlockCoordinate.getX(), gameBlockCoordinate.getY());
-            grid.set(gameBlockCoordinate.getX(), gameBlockCoordinate.getY(), 0); // Clear block in the grid
-            multimedia.playClearLineSound();
-            clearedBlocksCounter++;
+        var clearedBlocksCounter = 0;
+        if (coordinateSet != null) {
+            // Clear cells
+            for (GameBlockCoordinate gameBlockCoordinate : coordinateSet) {
+                grid.set(gameBlockCoordinate.getX(), gameBlockCoordinate.getY(), 0); // Clear block in the grid
+            }
+            clearedBlocksCounter = coordinateSet.size();
+
+            logger.info("Cleared {} lines, {} blocks", lineCounter, clearedBlocksCounter);
+            events.post(SoundEvent.CLEAR);
+
+            // Notify subscribers about lines cleared
+            events.post(new LinesClearedEvent(coordinateSet));
         }
 
-        // Notify listeners about lines cleared
-        notifyLineClearedListeners(coordinateSet);
+        clearedLines = lineCounter;
+        clearedBlocks = clearedBlocksCounter;
 
         // Update score based on number of lines cleared and blocks cleared
+        var scoreBefore = score;
         score(lineCounter, clearedBlocksCounter);
+        if (lineCounter > 0) {
+            LinesCleared.record(lineCounter, clearedBlocksCounter, multiplier, score - scoreBefore);
+        }
 
         // Check if lines were cleared to update the multiplier
         if(lineCounter > 0) {
-            multiplier.set(multiplier.get() + 1);
+            multiplier++;
             logger.info("Multiplier increased by 1");
         }
         else{
-            multiplier.set(1); // Reset multiplier if lines were cleared in the turn
+            multiplier = 1; // Reset multiplier if lines were cleared in the turn
             logger.info("Multiplier set back to 1");
         }
 
         // Check if the level needs to be increased based on the score
 
-        if((score.get() / 1000) != level.get()){
-            level.set(level.get() + 1);
+        if((score / 1000) != level){
+            level++;
         }
 
     }
 
     /**
-     * Checks if all the grid values in a particular line are 1s (so they are coloured blocks)
-     * @param lineArrayList arrayList that contains the GameBlockCoordinates for a particular line
-     * @return boolean value determining whether a line should be cleared, false if it shouldn't and true if it should
+     * Check whether a piece has any block in the given column of its shape
+     * @param blocks the piece shape
+     * @param blockX the column within the shape
+     * @return true if the column holds a block
      */
-    public boolean allOnes(ArrayList<GameBlockCoordinate> lineArrayList) {
-        for (GameBlockCoordinate gameBlockCoordinate : lineArrayList) {
-            if (grid.get(gameBlockCoordinate.getX(), gameBlockCoordinate.getY()) < 1) {
-                return false;
-            }
+    private static boolean touchesColumn(int[][] blocks, int blockX) {
+        for (var blockY = 0; blockY < blocks.length; blockY++) {
+            if (blocks[blockX][blockY] > 0) return true;
         }
-        return true;
+        return false;
+    }
+
+    /**
+     * Check whether a piece has any block in the given row of its shape
+     * @param blocks the piece shape
+     * @param blockY the row within the shape
+     * @return true if the row holds a block
+     */
+    private static boolean touchesRow(int[][] blocks, int blockY) {
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            if (blocks[blockX][blockY] > 0) return true;
+        }
+        return false;
     }
 
     /**
@@ -329,23 +772,182 @@ public class Game {
      */
     public void blockClicked(GameBlock gameBlock) {
         //Get the position of this block
-        int x = gameBlock.getX();
-        int y = gameBlock.getY();
-
-        if(grid.canPlayPiece(currentPiece,x,y)){
-            //Can play the piece
-            grid.playPiece(currentPiece,x,y);
-            multimedia.playPlacePieceSound(); // Play sound for placing piece
-            ChallengeScene.setTimerDuration(getTimerDelay());
-            afterPiece();
-            nextPiece();
-            resetTimer(); // Reset the timer with the updated delay
-        }
-        else{
+        playPiece(gameBlock.getX(), gameBlock.getY());
+    }
+
+    /**
+     * Play the current piece with its middle at the given position, if it fits
+     * @param x column
+     * @param y row
+     * @return true if the piece was played
+     */
+    public boolean playPiece(int x, int y) {
+        if(over || !grid.canPlayPiece(currentPiece,x,y)){
             //Can't play the piece
+            return false;
+        }
+
+        //Can play the piece
+        var piece = currentPiece;
+        if (journal != null) journal.recordPlay(piece.getRotation(), x, y);
+        var placed = new PiecePlaced(piece.toString(), piece.getRotation(), x, y);
+        placed.begin();
+        var scoreBefore = score;
+        var multiplierBefore = multiplier;
+        var remaining = getTimerRemaining();
+        grid.playPiece(piece,x,y);
+        events.post(SoundEvent.PLACE); // Play sound for placing piece
+        afterPiece(piece, x, y);
+        if (telemetry != null) {
+            telemetry.record(piece.toString(), piece.getRotation(), x, y, clearedLines, clearedBlocks,
+                multiplierBefore, score - scoreBefore, remaining, Math.max(0, turnLength - remaining));
+        }
+        nextPiece();
+        resetTimer(); // Reset the timer with the updated delay
+        checkDeadBoard();
+        endTurn();
+        placed.commit();
+        return true;
+    }
+
+    /**
+     * Allow or forbid undoing and redoing moves. The history is kept from the next turn onwards.
+     * @param undoEnabled true to allow undo and redo
+     */
+    public void setUndoEnabled(boolean undoEnabled) {
+        this.undoEnabled = undoEnabled;
+    }
+
+    /**
+     * Seed the piece generator, so the game deals the same pieces as any other game given the same seed. Call before
+     * the game is started.
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        random.setState(seed);
+    }
+
+    /**
+     * Record a row of telemetry for every piece played from now on, finished once the game ends or its logic thread
+     * stops
+     * @param recorder where to record it, or null to keep none
+     */
+    public void setTelemetry(TelemetryRecorder recorder) {
+        telemetry = recorder == null ? null : recorder.startGame(mode, cols, rows);
+    }
+
+    /**
+     * Write out the telemetry not yet written, at the end of the game
+     */
+    private void finishTelemetry() {
+        if (telemetry != null) {
+            telemetry.finish();
         }
     }
 
+    /**
+     * Get the record of the game's actions, to send with its score so the score can be checked by replaying it
+     * @return the journal as text, or null until the game is over, or if it has none because it was resumed from a save
+     * or created without a mode
+     */
+    public String getJournal() {
+        return finishedJournal;
+    }
+
+    /**
+     * Capture the current state of the game
+     * @return the game state
+     */
+    public GameState captureState() {
+        return new GameState(grid.snapshot(), score, level, lives, multiplier, currentPiece, followingPiece);
+    }
+
+    /**
+     * Put the game back to an earlier state. The grid is restored as a single batch of changes, the pieces are shown
+     * again and the timer restarts.
+     * @param state the state to restore
+     */
+    public void restoreState(GameState state) {
+        applyState(state);
+        resetTimer();
+    }
+
+    /**
+     * Put the grid, counters and pieces back to a saved state and show the pieces again
+     * @param state the state to apply
+     */
+    private void applyState(GameState state) {
+        grid.restore(state.getGrid());
+        score = state.getScore();
+        level = state.getLevel();
+        lives = state.getLives();
+        multiplier = state.getMultiplier();
+
+        var pieceSet = grid.getPieceSet();
+        currentPiece = GamePiece.createPiece(pieceSet, state.getCurrentPiece(), state.getCurrentRotation());
+        followingPiece = GamePiece.createPiece(pieceSet, state.getFollowingPiece(), state.getFollowingRotation());
+    }
+
+    /**
+     * Go back to the state before the last turn
+     * @return true if a turn was undone
+     */
+    public boolean undo() {
+        if (!undoEnabled || over || historyPosition <= 0) return false;
+        historyPosition--;
+        logger.info("Undoing to turn {}", historyPosition);
+        if (journal != null) journal.recordUndo();
+        restoreState(history.get(historyPosition));
+        return true;
+    }
+
+    /**
+     * Go forward to the state after the last undone turn
+     * @return true if a turn was redone
+     */
+    public boolean redo() {
+        if (!undoEnabled || over || historyPosition >= history.size() - 1) return false;
+        historyPosition++;
+        logger.info("Redoing to turn {}", historyPosition);
+        if (journal != null) journal.recordRedo();
+        restoreState(history.get(historyPosition));
+        return true;
+    }
+
+    /**
+     * Save the game after every turn from now on
+     * @param saveStore where to save the game, or null to stop saving
+     */
+    public void setSaveStore(SaveStore saveStore) {
+        this.saveStore = saveStore;
+    }
+
+    /**
+     * Save the game in the background, with the time left on the turn, if it has a save store and is still running
+     */
+    public void save() {
+        if (saveStore == null || mode == null || over) return;
+        saveStore.saveAsync(new SavedGame(mode, grid.getPieceSet().getName(), captureState(), random.getState(), getTimerRemaining()));
+    }
+
+    /**
+     * Finish a turn, adding it to the undo history and saving the game
+     */
+    private void endTurn() {
+        recordState();
+        save();
+    }
+
+    /**
+     * Add the current state to the history, dropping any undone turns after it
+     */
+    private void recordState() {
+        if (!undoEnabled || over) return;
+        history.subList(historyPosition + 1, history.size()).clear();
+        history.add(captureState());
+        historyPosition++;
+    }
+
     /**
      * Get the grid model inside this game representing the game state of the board
      * @return game grid model
@@ -355,7 +957,7 @@ public class Game {
     }
 
     /**
-     * Get the piece that will appear after the current piece
+     * Get the piece that will appear after the current piece. Only for use on the logic thread.
      * @return the following piece
      */
     public GamePiece getFollowingPiece() {
@@ -363,74 +965,90 @@ public class Game {
     }
 
     /**
-     * Access the score property
+     * Get the score, as seen by the logic thread
      * @return the current score
      */
-    public IntegerProperty scoreProperty() {
+    public int getScore() {
         return score;
     }
 
     /**
-     * Access the level property
+     * Get the level, as seen by the logic thread
      * @return the current level
      */
-    public IntegerProperty levelProperty() {
+    public int getLevel() {
         return level;
     }
 
     /**
-     * Access the lives property
+     * Get the number of lives, as seen by the logic thread
      * @return the current number of lives
      */
-    public IntegerProperty livesProperty() {
+    public int getLives() {
         return lives;
     }
 
     /**
-     * Access the multiplier property
+     * Get the multiplier, as seen by the logic thread
      * @return the current multiplier
      */
-    public IntegerProperty multiplierProperty() {
+    public int getMultiplier() {
         return multiplier;
     }
 
     /**
-     * Calculates the score based on the number of lines cleared and the number of cleared
-     * blocks, and updates the current score accordingly
-     * @param numberOfLines the number of lines cleared in the turn
-     * @param numberOfClearedBlocks the number of blocks cleared in the turn
+     * Access the score property shown by the display, which follows the frames taken by pollFrame
+     * @return the score shown
      */
-    public void score(int numberOfLines, int numberOfClearedBlocks){
-        // Calculate the score based on the formula
-        int newScore = numberOfLines * numberOfClearedBlocks * 10 * multiplier.get();
+    public IntegerProperty scoreProperty() {
+        return shownScore;
+    }
 
-        // Add the calculated score to the current score
-        score.set(score.get() + newScore);
+    /**
+     * Access the level property shown by the display, which follows the frames taken by pollFrame
+     * @return the level shown
+     */
+    public IntegerProperty levelProperty() {
+        return shownLevel;
     }
 
     /**
-     * Adds a GameListener to the list of listeners
-     * @param listener the GameListener to be added
+     * Access the lives property shown by the display, which follows the frames taken by pollFrame
+     * @return the number of lives shown
      */
-    public void addListener(GameListener listener) {
-        listeners.add(listener);
+    public IntegerProperty livesProperty() {
+        return shownLives;
     }
 
     /**
-     * Notifies all registered listeners that a game update has occurred
+     * Access the multiplier property shown by the display, which follows the frames taken by pollFrame
+     * @return the multiplier shown
      */
-    private void notifyListeners() {
-        for (GameListener listener : listeners) {
-            listener.onGameUpdate();
-        }
+    public IntegerProperty multiplierProperty() {
+        return shownMultiplier;
     }
 
     /**
-     * Set the next piece listener.
-     * @param listener the next piece listener to set
+     * Calculates the score based on the number of lines cleared and the number of cleared
+     * blocks, and updates the current score accordingly
+     * @param numberOfLines the number of lines cleared in the turn
+     * @param numberOfClearedBlocks the number of blocks cleared in the turn
      */
-    public void setNextPieceListener(NextPieceListener listener) {
-        this.nextPieceListener = listener;
+    public void score(int numberOfLines, int numberOfClearedBlocks){
+        // Calculate the score based on the formula
+        int newScore = numberOfLines * numberOfClearedBlocks * 10 * multiplier;
+
+        // Add the calculated score to the current score
+        score += newScore;
+    }
+
+    /**
+     * Get the bus the game posts its events on. Subscribe to it for lines cleared, game over, sound and game loop
+     * events.
+     * @return the event bus
+     */
+    public EventBus getEventBus() {
+        return events;
     }
 
     /**
@@ -440,8 +1058,7 @@ public class Game {
         if (currentPiece != null) {
             logger.info("Rotating next piece clockwise");
             currentPiece.rotate();
-            multimedia.playRotatePieceSound(); // Play sound for rotating piece
-            notifyListeners(); // Notify listeners about the change
+            events.post(SoundEvent.ROTATE); // Play sound for rotating piece
         }
     }
 
@@ -452,8 +1069,7 @@ public class Game {
         if (currentPiece != null) {
             logger.info("Rotating next piece anti - clockwise");
             currentPiece.rotate(rotations);
-            multimedia.playRotatePieceSound(); // Play sound for rotating piece
-            notifyListeners(); // Notify listeners about the change
+            events.post(SoundEvent.ROTATE); // Play sound for rotating piece
         }
     }
 
@@ -465,41 +1081,19 @@ public class Game {
         currentPiece = followingPiece;
         logger.info("Swapping next piece and next piece in advance");
         followingPiece = temp;
+        if (journal != null) journal.recordSwap();
 
-        multimedia.playSwapPieceSound(); // Play sound for swapping piece
-
-        // Notify next piece listener when the pieces are swapped, passing both current and following pieces
-        if (nextPieceListener != null) {
-            nextPieceListener.onNextPiece(currentPiece, followingPiece);
-        }
+        events.post(SoundEvent.SWAP); // Play sound for swapping piece
     }
 
     /**
-     * Retrieve the next piece to be played
+     * Retrieve the next piece to be played. Only for use on the logic thread.
      * @return the GamePiece to be played next
      */
     public GamePiece getCurrentPiece(){
         return currentPiece;
     }
 
-    /**
-     * Add a LineClearedListener to the game.
-     * @param listener the listener to add
-     */
-    public void addLineClearedListener(LineClearedListener listener) {
-        lineClearedListeners.add(listener);
-    }
-
-    /**
-     * Notify all LineClearedListeners that lines have been cleared.
-     * @param coordinates the coordinates of the blocks that were cleared
-     */
-    private void notifyLineClearedListeners(Set<GameBlockCoordinate> coordinates) {
-        for (LineClearedListener listener : lineClearedListeners) {
-            listener.onLinesCleared(coordinates);
-        }
-    }
-
     /**
      * Gets the timer delay based on the current level.
      * The delay decreases as the level increases.
@@ -508,19 +1102,26 @@ public class Game {
      */
     public int getTimerDelay() {
         // Calculate the delay based on the current level
-        int delay = Math.max(2500, 12000 - (500 * level.get()));
+        int delay = Math.max(2500, 12000 - (500 * level));
 
         return delay;
     }
 
     /**
-     * Stop the game and clean up resources.
+     * Stop the game and clean up resources. The logic thread finishes once any action it is running is done.
+     * @return a future completed once the logic thread has finished, so nothing it does, such as saving the turn it was
+     * in, can come after what waits for it. Already completed if the game has no logic thread.
      */
-    public void stop() {
-        // Reset the score, level, lives, and multiplier
-        score.set(0);
-        level.set(0);
-        lives.set(3);
-        multiplier.set(1);
+    public CompletableFuture<Void> stop() {
+        running = false;
+        commands.add(() -> { }); // Wake the logic thread so it sees it should stop
+
+        // Reset the score, level, lives, and multiplier shown
+        shownScore.set(0);
+        shownLevel.set(0);
+        shownLives.set(3);
+        shownMultiplier.set(1);
+
+        return logicThread == null ? CompletableFuture.completedFuture(null) : logicFinished;
     }
 }
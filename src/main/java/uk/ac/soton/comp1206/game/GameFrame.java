@@ -0,0 +1,47 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameFrame is what the logic thread publishes to the display after handling input or the timer: the state of the
+ * game and whether it has ended. The turn timer is shown from GameLoopEvents instead, as it only changes when a turn
+ * starts.
+ *
+ * Frames are never changed once published, so the display can read them without any locking.
+ */
+public final class GameFrame {
+
+    /**
+     * The state of the game
+     */
+    private final GameState state;
+
+    /**
+     * Whether the game has ended
+     */
+    private final boolean over;
+
+    /**
+     * Create a new frame
+     * @param state the state of the game
+     * @param over whether the game has ended
+     */
+    GameFrame(GameState state, boolean over) {
+        this.state = state;
+        this.over = over;
+    }
+
+    /**
+     * Get the state of the game
+     * @return game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Whether the game has ended
+     * @return true if the game is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+}
@@ -0,0 +1,295 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A GameJournal is a record of everything a player did in a game, compact enough to send with a high score so the
+ * score can be checked by playing the game again. A game deals its pieces from its seed alone and the timer only
+ * matters by when it runs out, so the mode, the seed and the actions in order are the whole game: every piece played,
+ * with its rotation and position, every swap, every time the timer ran out, and every undo and redo.
+ *
+ * Each action is a single varint, 0 to 3 for the actions without a position and 4 + cell * 4 + rotation for a piece
+ * played, so every move on the challenge board takes one byte. The journal is sent as unpadded URL-safe Base64, which
+ * has no colons or spaces to get in the way of the server's messages.
+ *
+ * A journal is recorded by the game's logic thread, and only read once the game is over.
+ */
+public final class GameJournal {
+
+    /**
+     * The version of the format, written first
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The actions without a position
+     */
+    private static final int SWAP = 0, TIMER = 1, UNDO = 2, REDO = 3;
+
+    /**
+     * The first value of a piece played
+     */
+    private static final int PLAY = 4;
+
+    /**
+     * The bytes of the header: version, mode, columns, rows, piece set checksum and seed
+     */
+    private static final int HEADER = 4 + Long.BYTES * 2;
+
+    /**
+     * The mode played
+     */
+    private final GameMode mode;
+
+    /**
+     * The size of the board
+     */
+    private final int cols, rows;
+
+    /**
+     * The checksum of the piece set played
+     */
+    private final long checksum;
+
+    /**
+     * The state of the piece generator when the game started
+     */
+    private final long seed;
+
+    /**
+     * The actions so far, as varints
+     */
+    private byte[] actions;
+
+    /**
+     * The number of bytes of actions used
+     */
+    private int length;
+
+    /**
+     * Start a journal of a game
+     * @param mode the mode played
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSet the pieces played
+     * @param seed the state of the piece generator before the first piece is dealt
+     */
+    public GameJournal(GameMode mode, int cols, int rows, PieceSet pieceSet, long seed) {
+        this(mode, cols, rows, pieceSet.getChecksum(), seed, new byte[64], 0);
+    }
+
+    /**
+     * Create a journal from its parts
+     * @param mode the mode played
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param checksum the checksum of the piece set played
+     * @param seed the state of the piece generator before the first piece is dealt
+     * @param actions the actions, as varints
+     * @param length the bytes of actions used
+     */
+    private GameJournal(GameMode mode, int cols, int rows, long checksum, long seed, byte[] actions, int length) {
+        if (cols < 1 || cols > Grid.MAX_SIZE || rows < 1 || rows > Grid.MAX_SIZE) {
+            throw new IllegalArgumentException("Journal board size " + cols + "x" + rows + " is out of range");
+        }
+        this.mode = mode;
+        this.cols = cols;
+        this.rows = rows;
+        this.checksum = checksum;
+        this.seed = seed;
+        this.actions = actions;
+        this.length = length;
+    }
+
+    /**
+     * Record a piece played
+     * @param rotation the rotation it was played in
+     * @param x column of its middle
+     * @param y row of its middle
+     */
+    public void recordPlay(int rotation, int x, int y) {
+        append(PLAY + (y * cols + x) * PieceSet.ROTATIONS + rotation);
+    }
+
+    /**
+     * Record the current and following pieces being swapped
+     */
+    public void recordSwap() {
+        append(SWAP);
+    }
+
+    /**
+     * Record the timer running out
+     */
+    public void recordTimerExpired() {
+        append(TIMER);
+    }
+
+    /**
+     * Record a turn undone
+     */
+    public void recordUndo() {
+        append(UNDO);
+    }
+
+    /**
+     * Record a turn redone
+     */
+    public void recordRedo() {
+        append(REDO);
+    }
+
+    /**
+     * Add an action
+     * @param value the action
+     */
+    private void append(int value) {
+        if (length + 5 > actions.length) {
+            actions = Arrays.copyOf(actions, actions.length * 2);
+        }
+        while ((value & ~0x7F) != 0) {
+            actions[length++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        actions[length++] = (byte) value;
+    }
+
+    /**
+     * Get the mode played
+     * @return the mode
+     */
+    public GameMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the state of the piece generator when the game started
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Write the journal as text
+     * @return the journal in unpadded URL-safe Base64
+     */
+    public String encode() {
+        var bytes = new byte[HEADER + length];
+        bytes[0] = (byte) VERSION;
+        bytes[1] = (byte) mode.ordinal();
+        bytes[2] = (byte) (cols - 1);
+        bytes[3] = (byte) (rows - 1);
+        putLong(bytes, 4, checksum);
+        putLong(bytes, 4 + Long.BYTES, seed);
+        System.arraycopy(actions, 0, bytes, HEADER, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Read a journal written by encode
+     * @param text the journal as text
+     * @return the journal
+     * @throws IllegalArgumentException if the text is not a journal this version can read
+     */
+    public static GameJournal decode(String text) {
+        var bytes = Base64.getUrlDecoder().decode(text);
+        if (bytes.length < HEADER || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " journal");
+        }
+        var modes = GameMode.values();
+        var mode = bytes[1] & 0xFF;
+        if (mode >= modes.length) {
+            throw new IllegalArgumentException("Journal has an unknown mode " + mode);
+        }
+        return new GameJournal(modes[mode], (bytes[2] & 0xFF) + 1, (bytes[3] & 0xFF) + 1, getLong(bytes, 4),
+            getLong(bytes, 4 + Long.BYTES), Arrays.copyOfRange(bytes, HEADER, bytes.length), bytes.length - HEADER);
+    }
+
+    /**
+     * Play the game again from the start, on the calling thread, making every action in the journal
+     * @return the game once the last action is made, which is stopped
+     * @throws IllegalArgumentException if the journal doesn't match this build's board or pieces for its mode, or
+     * makes an action the game wouldn't have allowed
+     */
+    public Game replay() {
+        if (mode.getCols() != cols || mode.getRows() != rows) {
+            throw new IllegalArgumentException("Journal is for a " + cols + "x" + rows + " board, not "
+                + mode.getCols() + "x" + mode.getRows());
+        }
+        if (mode.getPieceSet().getChecksum() != checksum) {
+            throw new IllegalArgumentException("Journal is for other pieces than " + mode.getPieceSet().getName());
+        }
+
+        var game = new Game(mode);
+        game.setSeed(seed);
+        game.startHeadless();
+        var position = 0;
+        var action = 0;
+        while (position < length) {
+            // Read the next varint
+            var value = 0;
+            var shift = 0;
+            byte next;
+            do {
+                if (position >= length || shift > 28) {
+                    throw new IllegalArgumentException("Journal action " + action + " is cut short");
+                }
+                next = actions[position++];
+                value |= (next & 0x7F) << shift;
+                shift += 7;
+            } while (next < 0);
+
+            if (game.isOver()) {
+                throw new IllegalArgumentException("Journal carries on after the game ended, at action " + action);
+            }
+            switch (value) {
+                case SWAP -> game.swapCurrentPiece();
+                case TIMER -> game.timerExpired();
+                case UNDO, REDO -> {
+                    if (!(value == UNDO ? game.undo() : game.redo())) {
+                        throw new IllegalArgumentException("Journal action " + action + " can't be undone or redone");
+                    }
+                }
+                default -> {
+                    var cell = (value - PLAY) / PieceSet.ROTATIONS;
+                    var piece = game.getCurrentPiece();
+                    piece.rotate((value - PLAY) % PieceSet.ROTATIONS - piece.getRotation());
+                    if (cell >= cols * rows || !game.playPiece(cell % cols, cell / cols)) {
+                        throw new IllegalArgumentException("Journal action " + action + " plays a piece that doesn't fit");
+                    }
+                }
+            }
+            action++;
+        }
+        game.stop();
+        return game;
+    }
+
+    /**
+     * Write a long, most significant byte first
+     * @param bytes where to write
+     * @param offset the first byte
+     * @param value the long
+     */
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (var i = 0; i < Long.BYTES; i++) {
+            bytes[offset + i] = (byte) (value >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+        }
+    }
+
+    /**
+     * Read a long written by putLong
+     * @param bytes where to read
+     * @param offset the first byte
+     * @return the long
+     */
+    private static long getLong(byte[] bytes, int offset) {
+        var value = 0L;
+        for (var i = 0; i < Long.BYTES; i++) {
+            value = value << Byte.SIZE | bytes[offset + i] & 0xFF;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,141 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The different ways a game can be played. Each mode decides the size of the board, the pieces played and what happens
+ * when neither the current piece nor the following piece can be played anywhere.
+ */
+public enum GameMode {
+
+    /**
+     * The standard single player challenge on a 5x5 board
+     */
+    CHALLENGE(5, 5, DeadBoardPolicy.LOSE_LIFE, false),
+
+    /**
+     * Training on the standard board, where every move can be undone and redone
+     */
+    PRACTICE(5, 5, DeadBoardPolicy.LOSE_LIFE, true),
+
+    /**
+     * A long game on a large board, meant for big displays. The size can be changed with the tetrecs.marathon.size
+     * system property, for example -Dtetrecs.marathon.size=64x48, up to the largest grid size.
+     */
+    MARATHON(16, 16, DeadBoardPolicy.LOSE_LIFE, false);
+
+    /**
+     * What a game does when no move is left on the board
+     */
+    public enum DeadBoardPolicy {
+        /**
+         * Keep going and let the timer run out as usual
+         */
+        IGNORE,
+
+        /**
+         * Lose a life and discard the current piece straight away, as if the timer had run out
+         */
+        LOSE_LIFE,
+
+        /**
+         * End the game straight away
+         */
+        GAME_OVER
+    }
+
+    /**
+     * The system property used to change the size of the marathon board
+     */
+    private static final String MARATHON_SIZE_PROPERTY = "tetrecs.marathon.size";
+
+    /**
+     * Default board size for this mode
+     */
+    private final int cols, rows;
+
+    /**
+     * Default dead board policy for this mode
+     */
+    private final DeadBoardPolicy deadBoardPolicy;
+
+    /**
+     * Whether moves can be undone in this mode
+     */
+    private final boolean undo;
+
+    GameMode(int cols, int rows, DeadBoardPolicy deadBoardPolicy, boolean undo) {
+        this.cols = cols;
+        this.rows = rows;
+        this.deadBoardPolicy = deadBoardPolicy;
+        this.undo = undo;
+    }
+
+    /**
+     * Whether moves can be undone and redone in this mode
+     * @return true if undo is allowed
+     */
+    public boolean allowsUndo() {
+        return undo;
+    }
+
+    /**
+     * Get what this mode does when no move is left. Can be changed per mode with a system property named after the
+     * mode, for example -Dtetrecs.challenge.deadboard=GAME_OVER.
+     * @return the dead board policy
+     */
+    public DeadBoardPolicy getDeadBoardPolicy() {
+        var property = System.getProperty("tetrecs." + name().toLowerCase() + ".deadboard");
+        if (property == null) return deadBoardPolicy;
+
+        try {
+            return DeadBoardPolicy.valueOf(property.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return deadBoardPolicy;
+        }
+    }
+
+    /**
+     * Get the pieces played in this mode. Can be changed per mode with a system property named after the mode, for
+     * example -Dtetrecs.marathon.pieces=hexomino, otherwise the default piece set is used.
+     * @return the piece set
+     */
+    public PieceSet getPieceSet() {
+        var property = System.getProperty("tetrecs." + name().toLowerCase() + ".pieces");
+        if (property == null) return PieceSet.getDefault();
+        return PieceSet.get(property.trim());
+    }
+
+    /**
+     * Get the number of columns of the board in this mode
+     * @return number of columns
+     */
+    public int getCols() {
+        return this == MARATHON ? configuredSize(0, cols) : cols;
+    }
+
+    /**
+     * Get the number of rows of the board in this mode
+     * @return number of rows
+     */
+    public int getRows() {
+        return this == MARATHON ? configuredSize(1, rows) : rows;
+    }
+
+    /**
+     * Read one dimension of the configured marathon size, falling back to the default if it is missing or invalid
+     * @param part 0 for the columns, 1 for the rows
+     * @param fallback the default size
+     * @return the configured size
+     */
+    private static int configuredSize(int part, int fallback) {
+        var property = System.getProperty(MARATHON_SIZE_PROPERTY);
+        if (property == null) return fallback;
+
+        var parts = property.toLowerCase().split("x");
+        try {
+            var size = Integer.parseInt(parts[parts.length == 2 ? part : 0].trim());
+            return Math.max(1, Math.min(Grid.MAX_SIZE, size));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameState is an unchangeable record of everything needed to put a Game back to an earlier point: the grid, the
+ * score, level, lives and multiplier, and the current and following pieces.
+ *
+ * The grid is held as a GridSnapshot, which shares everything that did not change with the states around it, so
+ * keeping a long history of states is cheap.
+ */
+public final class GameState {
+
+    /**
+     * The blocks of the grid
+     */
+    private final GridSnapshot grid;
+
+    /**
+     * The score, level, lives and multiplier
+     */
+    private final int score, level, lives, multiplier;
+
+    /**
+     * The piece number and rotation of the current piece
+     */
+    private final int currentPiece, currentRotation;
+
+    /**
+     * The piece number and rotation of the following piece
+     */
+    private final int followingPiece, followingRotation;
+
+    /**
+     * Create a new game state
+     * @param grid the blocks of the grid
+     * @param score the score
+     * @param level the level
+     * @param lives the number of lives
+     * @param multiplier the multiplier
+     * @param currentPiece the current piece
+     * @param followingPiece the following piece, or null if the pieces have run out
+     */
+    GameState(GridSnapshot grid, int score, int level, int lives, int multiplier, GamePiece currentPiece, GamePiece followingPiece) {
+        this(grid, score, level, lives, multiplier, currentPiece.getPiece(), currentPiece.getRotation(),
+            followingPiece == null ? -1 : followingPiece.getPiece(),
+            followingPiece == null ? 0 : followingPiece.getRotation());
+    }
+
+    /**
+     * Create a new game state from piece numbers and rotations
+     * @param grid the blocks of the grid
+     * @param score the score
+     * @param level the level
+     * @param lives the number of lives
+     * @param multiplier the multiplier
+     * @param currentPiece the piece number of the current piece
+     * @param currentRotation the rotation of the current piece
+     * @param followingPiece the piece number of the following piece
+     * @param followingRotation the rotation of the following piece
+     */
+    GameState(GridSnapshot grid, int score, int level, int lives, int multiplier,
+              int currentPiece, int currentRotation, int followingPiece, int followingRotation) {
+        this.grid = grid;
+        this.score = score;
+        this.level = level;
+        this.lives = lives;
+        this.multiplier = multiplier;
+        this.currentPiece = currentPiece;
+        this.currentRotation = currentRotation;
+        this.followingPiece = followingPiece;
+        this.followingRotation = followingRotation;
+    }
+
+    /**
+     * Get the blocks of the grid
+     * @return grid snapshot
+     */
+    public GridSnapshot getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the score
+     * @return score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the level
+     * @return level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the number of lives
+     * @return lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Get the multiplier
+     * @return multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Get the piece number of the current piece
+     * @return piece number
+     */
+    public int getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * Get the rotation of the current piece
+     * @return rotation, from 0 to 3
+     */
+    public int getCurrentRotation() {
+        return currentRotation;
+    }
+
+    /**
+     * Get the piece number of the following piece
+     * @return piece number, or -1 if the pieces have run out
+     */
+    public int getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * Get the rotation of the following piece
+     * @return rotation, from 0 to 3
+     */
+    public int getFollowingRotation() {
+        return followingRotation;
+    }
+}
@@ -1,17 +1,17 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.event.GridChangedListener;
+
+import java.util.BitSet;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * Every change to a value is recorded in a set of dirty cells. Instead of each change being pushed to the display as it
+ * happens, the display is told once that changes are pending and collects all of them together with drainChanges.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
@@ -19,6 +19,11 @@ import uk.ac.soton.comp1206.component.GameBlock;
  */
 public class Grid {
 
+    /**
+     * The largest number of columns or rows a grid can have
+     */
+    public static final int MAX_SIZE = 256;
+
     /**
      * The number of columns in this grid
      */
@@ -30,40 +35,90 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The values of the grid, stored row by row at index y * cols + x
+     */
+    private final int[] grid;
+
+    /**
+     * The cells which have changed since the display last collected them
+     */
+    private final BitSet dirty = new BitSet();
+
+    /**
+     * The cells which have changed since the last snapshot was taken
+     */
+    private final BitSet unsnapshotted = new BitSet();
+
+    /**
+     * The last snapshot taken, which the next one is built from
      */
-    private final SimpleIntegerProperty[][] grid;
+    private GridSnapshot lastSnapshot;
+
+    /**
+     * The listener to tell when changes become pending
+     */
+    private GridChangedListener changedListener;
+
+    /**
+     * The number of filled blocks in each row
+     */
+    private final int[] rowFill;
+
+    /**
+     * The number of filled blocks in each column
+     */
+    private final int[] colFill;
+
+    /**
+     * The legal positions of every piece and rotation, kept up to date as blocks are filled and emptied
+     */
+    private final PlacementMasks placements;
 
     private static final Logger logger = LogManager.getLogger(Grid.class);
 
     /**
-     * Create a new Grid with the specified number of columns and rows and initialise them
+     * The pieces that can be played on this grid
+     */
+    private final PieceSet pieceSet;
+
+    /**
+     * Create a new Grid with the specified number of columns and rows and initialise them, for the default piece set
      * @param cols number of columns
      * @param rows number of rows
      */
     public Grid(int cols, int rows) {
+        this(cols, rows, PieceSet.getDefault());
+    }
+
+    /**
+     * Create a new Grid with the specified number of columns and rows and initialise them
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSet the pieces that can be played on this grid
+     */
+    public Grid(int cols, int rows, PieceSet pieceSet) {
+        if (cols < 1 || rows < 1 || cols > MAX_SIZE || rows > MAX_SIZE) {
+            throw new IllegalArgumentException("Grid must be between 1x1 and " + MAX_SIZE + "x" + MAX_SIZE + ", not " + cols + "x" + rows);
+        }
         this.cols = cols;
         this.rows = rows;
+        this.pieceSet = pieceSet;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
+        //Create the grid itself, every block starts empty
+        grid = new int[cols * rows];
+        rowFill = new int[rows];
+        colFill = new int[cols];
 
-        //Add a SimpleIntegerProperty to every block in the grid
-        for(var y = 0; y < rows; y++) {
-            for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
-        }
+        placements = new PlacementMasks(this, pieceSet);
+        lastSnapshot = GridSnapshot.empty(cols, rows);
     }
 
     /**
-     * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
-     * @param x column
-     * @param y row
-     * @return the IntegerProperty at the given x and y in this grid
+     * Set the listener to tell when this grid has changes waiting to be collected
+     * @param listener the listener, usually the GameBoard displaying this grid
      */
-    public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+    public void setOnGridChanged(GridChangedListener listener) {
+        this.changedListener = listener;
     }
 
     /**
@@ -73,7 +128,79 @@ public class Grid {
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        var index = y * cols + x;
+        boolean firstChange;
+
+        synchronized (this) {
+            var previous = grid[index];
+            if (previous == value) return;
+            grid[index] = value;
+
+            //Keep the line counters up to date when a block becomes filled or empty
+            if (previous == 0) {
+                rowFill[y]++;
+                colFill[x]++;
+                placements.cellChanged(x, y, true);
+            } else if (value == 0) {
+                rowFill[y]--;
+                colFill[x]--;
+                placements.cellChanged(x, y, false);
+            }
+
+            firstChange = dirty.isEmpty();
+            dirty.set(index);
+            unsnapshotted.set(index);
+        }
+
+        // Only the first change of a batch needs to wake up the display
+        if (firstChange && changedListener != null) {
+            changedListener.onGridChanged();
+        }
+    }
+
+    /**
+     * Move every cell changed since the last call into the given set, leaving this grid with no pending changes. The
+     * index of a cell is y * cols + x.
+     * @param changes the set to add the changed cells to
+     */
+    public synchronized void drainChanges(BitSet changes) {
+        changes.or(dirty);
+        dirty.clear();
+    }
+
+    /**
+     * Take a snapshot of the values of the grid. Only the cells changed since the previous snapshot are copied, the
+     * rest is shared with it.
+     * @return the snapshot
+     */
+    public synchronized GridSnapshot snapshot() {
+        lastSnapshot = lastSnapshot.with(this, unsnapshotted);
+        unsnapshotted.clear();
+        return lastSnapshot;
+    }
+
+    /**
+     * Put the grid back to the values in a snapshot. Only the cells that differ are set, and they are collected by the
+     * display together as one batch of changes.
+     * @param target the snapshot to restore, which must be of a grid the same size as this one
+     */
+    public void restore(GridSnapshot target) {
+        GridSnapshot.diff(snapshot(), target, (index, value) -> set(index % cols, index / cols, value));
+
+        synchronized (this) {
+            // The grid now matches the target, so the next snapshot can share all of it
+            lastSnapshot = target;
+            unsnapshotted.clear();
+        }
+    }
+
+    /**
+     * Get the value at a cell index, y * cols + x, without a bounds check
+     * @param index cell index
+     * @return the value
+     */
+    int getAt(int index) {
+        return grid[index];
     }
 
     /**
@@ -83,13 +210,31 @@ public class Grid {
      * @return the value
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
             //No such index
             return -1;
         }
+        return grid[y * cols + x];
+    }
+
+    /**
+     * Check whether every block in a row is filled. Answered from a counter kept up to date by set, without looking
+     * at the row itself.
+     * @param y row
+     * @return true if the row is full
+     */
+    public boolean isRowFull(int y) {
+        return rowFill[y] == cols;
+    }
+
+    /**
+     * Check whether every block in a column is filled. Answered from a counter kept up to date by set, without looking
+     * at the column itself.
+     * @param x column
+     * @return true if the column is full
+     */
+    public boolean isColumnFull(int x) {
+        return colFill[x] == rows;
     }
 
     /**
@@ -109,7 +254,15 @@ public class Grid {
     }
 
     /**
-     * Check whether a piece can be played in the grid at the given x,y
+     * Get the pieces that can be played on this grid
+     * @return piece set
+     */
+    public PieceSet getPieceSet() {
+        return pieceSet;
+    }
+
+    /**
+     * Check whether a piece can be played in the grid at the given x,y. The piece must come from this grid's piece set.
      *
      * @param gamePiece the piece to play
      * @param placeX placement X
@@ -117,28 +270,46 @@ public class Grid {
      * @return whether the piece can be played or not
      */
     public boolean canPlayPiece(GamePiece gamePiece, int placeX, int placeY) {
-        logger.info("Checking if we can play the piece {} at {},{}", gamePiece,placeX,placeY);
-
-        int topX = placeX - 1;
-        int topY = placeY - 1;
-
-        int [][]blocks = gamePiece.getBlocks();
-
-        for(var blockX = 0; blockX < blocks.length; blockX++) {
-            for (var blockY = 0; blockY < blocks.length; blockY++) {
-                //blockX and a blockY coordinate inside the blocks 3*3 array
-                var blockValue = blocks[blockX][blockY];
-                if(blockValue > 0){
-                    //Check if we can place this block on our grid
-                    var gridValue = get(topX + blockX, topY + blockY);
-                    if(gridValue != 0) {
-                        logger.info("Unable to place piece, conflict at {},{}", placeX + blockX, placeY + blockY);
-                        return false;
-                    }
-                }
-            }
+        return canPlayPiece(gamePiece.getPiece(), gamePiece.getRotation(), placeX, placeY);
+    }
+
+    /**
+     * Check whether a piece number in a given rotation can be played in the grid at the given x,y. This is a single
+     * lookup in the placement masks, so it is cheap enough to ask for every block on every frame.
+     *
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @param placeX placement X
+     * @param placeY placement Y
+     * @return whether the piece can be played or not
+     */
+    public boolean canPlayPiece(int piece, int rotation, int placeX, int placeY) {
+        if (placeX < 0 || placeX >= cols || placeY < 0 || placeY >= rows) {
+            return false;
         }
-        return true;
+        return placements.isLegal(piece, rotation, placeX, placeY);
+    }
+
+    /**
+     * Count the positions where a piece number in a given rotation can be played
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @return the number of legal positions
+     */
+    public int countPlacements(int piece, int rotation) {
+        return placements.countLegal(piece, rotation);
+    }
+
+    /**
+     * Check whether a piece can be played anywhere in the grid, in any of its rotations
+     * @param gamePiece the piece to check
+     * @return true if there is at least one legal position
+     */
+    public boolean canPlayAnywhere(GamePiece gamePiece) {
+        for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+            if (placements.countLegal(gamePiece.getPiece(), rotation) > 0) return true;
+        }
+        return false;
     }
 
     /**
@@ -150,22 +321,15 @@ public class Grid {
      */
     public void playPiece(GamePiece gamePiece, int placeX, int placeY){
         logger.info("Playing the piece {} at {},{}",gamePiece,placeX,placeY);
-        int topX = placeX - 1;
-        int topY = placeY - 1;
-
-        int value = gamePiece.getValue();
-        int [][]blocks = gamePiece.getBlocks();
         // Return if we can't play the piece
         if(!canPlayPiece(gamePiece,placeX,placeY)) return;
 
-        for(var blockX = 0; blockX < blocks.length; blockX++) {
-            for (var blockY = 0; blockY < blocks.length; blockY++) {
-                //blockX and a blockY coordinate inside the blocks 3*3 array
-                var blockValue = blocks[blockX][blockY];
-                if(blockValue > 0){
-                    set(topX + blockX, topY + blockY, value);
-                }
-            }
+        int value = gamePiece.getValue();
+        var shape = PieceSet.shapeIndex(gamePiece.getPiece(), gamePiece.getRotation());
+        int[] offsetX = pieceSet.getOffsetX(shape);
+        int[] offsetY = pieceSet.getOffsetY(shape);
+        for (var block = 0; block < offsetX.length; block++) {
+            set(placeX + offsetX[block], placeY + offsetY[block], value);
         }
     }
 }
@@ -0,0 +1,371 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.BitSet;
+
+/**
+ * A GridSnapshot is an unchangeable copy of the values of a Grid at one moment.
+ *
+ * The values are packed four bits to a block, sixteen blocks to a word, and the words are held in a tree where every
+ * node has sixteen children. Taking a new snapshot copies only the path to the words that changed since the previous
+ * one and shares everything else, so a snapshot after a single move costs a few small nodes whatever the size of the
+ * board. A subtree where every block is empty is stored as null.
+ *
+ * Snapshots can only hold block values from 0 to 15, which covers every piece colour.
+ */
+public final class GridSnapshot {
+
+    /**
+     * Bits used to store the value of a single block
+     */
+    private static final int CELL_BITS = 4;
+
+    /**
+     * Number of blocks packed into a word
+     */
+    private static final int CELLS_PER_WORD = 64 / CELL_BITS;
+
+    /**
+     * Number of children of every node, as a power of two
+     */
+    private static final int FANOUT_BITS = 4;
+
+    /**
+     * Number of children of every node
+     */
+    private static final int FANOUT = 1 << FANOUT_BITS;
+
+    /**
+     * Receives the blocks that differ between two snapshots
+     */
+    public interface CellVisitor {
+        /**
+         * Called for every block that differs
+         * @param index block index, y * cols + x
+         * @param value the value of the block in the target snapshot
+         */
+        void visit(int index, int value);
+    }
+
+    /**
+     * Size of the grid this snapshot was taken from
+     */
+    private final int cols, rows;
+
+    /**
+     * Number of levels in the tree. Nodes on level 1 hold words, nodes above hold other nodes.
+     */
+    private final int depth;
+
+    /**
+     * The top node of the tree, or null if every block is empty
+     */
+    private final Object root;
+
+    /**
+     * Create a snapshot around an existing tree
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param depth number of levels in the tree
+     * @param root the top node
+     */
+    private GridSnapshot(int cols, int rows, int depth, Object root) {
+        this.cols = cols;
+        this.rows = rows;
+        this.depth = depth;
+        this.root = root;
+    }
+
+    /**
+     * Create a snapshot of an empty grid
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the empty snapshot
+     */
+    public static GridSnapshot empty(int cols, int rows) {
+        var words = wordCount(cols, rows);
+        var depth = 1;
+        for (var capacity = FANOUT; capacity < words; capacity *= FANOUT) {
+            depth++;
+        }
+        return new GridSnapshot(cols, rows, depth, null);
+    }
+
+    /**
+     * Get the number of columns of the grid this snapshot was taken from
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of the grid this snapshot was taken from
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the value of a block in this snapshot
+     * @param x column
+     * @param y row
+     * @return the value, or -1 if the position is outside the grid
+     */
+    public int get(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            return -1;
+        }
+        var index = y * cols + x;
+        var word = index / CELLS_PER_WORD;
+
+        var node = root;
+        for (var level = depth; level > 1; level--) {
+            if (node == null) return 0;
+            node = ((Object[]) node)[(word >>> (FANOUT_BITS * (level - 1))) & (FANOUT - 1)];
+        }
+        if (node == null) return 0;
+        var packed = ((long[]) node)[word & (FANOUT - 1)];
+        return (int) (packed >>> (CELL_BITS * (index % CELLS_PER_WORD))) & ((1 << CELL_BITS) - 1);
+    }
+
+    /**
+     * Check whether a piece would fit in this snapshot with its middle at the given x,y. Each block of the piece is
+     * looked up in turn, which is cheap enough for the display to ask once per move of the aim. The game itself asks
+     * its Grid, which keeps placement masks.
+     * @param gamePiece the piece
+     * @param placeX placement X
+     * @param placeY placement Y
+     * @return whether the piece fits
+     */
+    public boolean canPlayPiece(GamePiece gamePiece, int placeX, int placeY) {
+        if (placeX < 0 || placeX >= cols || placeY < 0 || placeY >= rows) {
+            return false;
+        }
+        var pieceSet = gamePiece.getSet();
+        var shape = PieceSet.shapeIndex(gamePiece.getPiece(), gamePiece.getRotation());
+        int[] offsetX = pieceSet.getOffsetX(shape);
+        int[] offsetY = pieceSet.getOffsetY(shape);
+        for (var block = 0; block < offsetX.length; block++) {
+            // Blocks outside the grid read as -1, so they don't fit either
+            if (get(placeX + offsetX[block], placeY + offsetY[block]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Make a new snapshot from this one, taking the values of the given blocks from the grid. Every node not covering
+     * a changed block is shared with this snapshot. The grid must not change while this runs.
+     * @param grid the grid to read from
+     * @param changed the indexes of the blocks which may have changed since this snapshot
+     * @return the new snapshot
+     */
+    GridSnapshot with(Grid grid, BitSet changed) {
+        if (changed.isEmpty()) return this;
+
+        var words = new BitSet();
+        for (var index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1)) {
+            words.set(index / CELLS_PER_WORD);
+        }
+        return new GridSnapshot(cols, rows, depth, update(root, depth, 0, words, grid));
+    }
+
+    /**
+     * Copy a node with the changed words below it read again from the grid
+     * @param node the node to copy, or null if it is empty
+     * @param level the level of the node
+     * @param firstWord the index of the first word below the node
+     * @param words the words which have changed
+     * @param grid the grid to read from
+     * @return the new node, or null if everything below it is empty
+     */
+    private Object update(Object node, int level, int firstWord, BitSet words, Grid grid) {
+        if (level == 1) {
+            long[] packed = node == null ? new long[FANOUT] : ((long[]) node).clone();
+            var empty = true;
+            for (var child = 0; child < FANOUT; child++) {
+                if (words.get(firstWord + child)) {
+                    packed[child] = pack(grid, firstWord + child);
+                }
+                empty &= packed[child] == 0;
+            }
+            return empty ? null : packed;
+        }
+
+        var span = 1 << (FANOUT_BITS * (level - 1));
+        Object[] children = node == null ? new Object[FANOUT] : ((Object[]) node).clone();
+        var empty = true;
+        for (var child = 0; child < FANOUT; child++) {
+            var start = firstWord + child * span;
+            var next = words.nextSetBit(start);
+            // Only go down into children which hold a changed word
+            if (next >= 0 && next < start + span) {
+                children[child] = update(children[child], level - 1, start, words, grid);
+            }
+            empty &= children[child] == null;
+        }
+        return empty ? null : children;
+    }
+
+    /**
+     * Pack the values of the blocks in one word
+     * @param grid the grid to read from
+     * @param word the word index
+     * @return the packed values
+     */
+    private long pack(Grid grid, int word) {
+        var packed = 0L;
+        var first = word * CELLS_PER_WORD;
+        var last = Math.min(first + CELLS_PER_WORD, cols * rows);
+        for (var index = first; index < last; index++) {
+            var value = grid.getAt(index);
+            if (value < 0 || value >= 1 << CELL_BITS) {
+                throw new IllegalStateException("Block value " + value + " cannot be stored in a snapshot");
+            }
+            packed |= (long) value << (CELL_BITS * (index - first));
+        }
+        return packed;
+    }
+
+    /**
+     * Get the number of packed words needed for a grid, each holding sixteen blocks
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return number of words
+     */
+    static int wordCount(int cols, int rows) {
+        return (cols * rows + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    /**
+     * Copy the packed words of this snapshot into an array, in block order. Block y * cols + x is held in bits
+     * 4 * (index % 16) of word index / 16.
+     * @return the packed words
+     */
+    long[] toWords() {
+        var words = new long[wordCount(cols, rows)];
+        collect(root, depth, 0, words);
+        return words;
+    }
+
+    /**
+     * Copy the words below a node into an array
+     * @param node the node, or null if it is empty
+     * @param level the level of the node
+     * @param firstWord the index of the first word below the node
+     * @param words the array to fill
+     */
+    private static void collect(Object node, int level, int firstWord, long[] words) {
+        if (node == null) return;
+        if (level == 1) {
+            var packed = (long[]) node;
+            System.arraycopy(packed, 0, words, firstWord, Math.min(FANOUT, words.length - firstWord));
+            return;
+        }
+        var span = 1 << (FANOUT_BITS * (level - 1));
+        var children = (Object[]) node;
+        for (var child = 0; child < FANOUT && firstWord + child * span < words.length; child++) {
+            collect(children[child], level - 1, firstWord + child * span, words);
+        }
+    }
+
+    /**
+     * Build a snapshot from packed words in the layout produced by toWords
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param words the packed words
+     * @return the snapshot
+     */
+    static GridSnapshot fromWords(int cols, int rows, long[] words) {
+        var empty = empty(cols, rows);
+        if (words.length != wordCount(cols, rows)) {
+            throw new IllegalArgumentException("Expected " + wordCount(cols, rows) + " words, not " + words.length);
+        }
+        var spare = words.length * CELLS_PER_WORD - cols * rows;
+        if (spare > 0 && words[words.length - 1] >>> (CELL_BITS * (CELLS_PER_WORD - spare)) != 0) {
+            throw new IllegalArgumentException("Blocks set past the end of the grid");
+        }
+        return new GridSnapshot(cols, rows, empty.depth, build(empty.depth, 0, words));
+    }
+
+    /**
+     * Build the node covering the words from the given index
+     * @param level the level of the node
+     * @param firstWord the index of the first word below the node
+     * @param words the packed words
+     * @return the node, or null if every block below it is empty
+     */
+    private static Object build(int level, int firstWord, long[] words) {
+        if (firstWord >= words.length) return null;
+        if (level == 1) {
+            var packed = new long[FANOUT];
+            var empty = true;
+            for (var child = 0; child < FANOUT && firstWord + child < words.length; child++) {
+                packed[child] = words[firstWord + child];
+                empty &= packed[child] == 0;
+            }
+            return empty ? null : packed;
+        }
+        var span = 1 << (FANOUT_BITS * (level - 1));
+        var children = new Object[FANOUT];
+        var empty = true;
+        for (var child = 0; child < FANOUT; child++) {
+            children[child] = build(level - 1, firstWord + child * span, words);
+            empty &= children[child] == null;
+        }
+        return empty ? null : children;
+    }
+
+    /**
+     * Visit every block whose value differs between two snapshots of the same grid. Nodes the two snapshots share
+     * are skipped without being looked at, so the cost follows the number of changes, not the size of the grid.
+     * @param from the snapshot to compare from
+     * @param to the snapshot to compare to
+     * @param visitor called with the index and target value of every differing block
+     */
+    public static void diff(GridSnapshot from, GridSnapshot to, CellVisitor visitor) {
+        if (from.cols != to.cols || from.rows != to.rows) {
+            throw new IllegalArgumentException("Snapshots are of different grid sizes");
+        }
+        diff(from.root, to.root, from.depth, 0, visitor);
+    }
+
+    /**
+     * Compare two nodes on the same level
+     * @param from the node to compare from
+     * @param to the node to compare to
+     * @param level the level of both nodes
+     * @param firstWord the index of the first word below the nodes
+     * @param visitor called for every differing block
+     */
+    private static void diff(Object from, Object to, int level, int firstWord, CellVisitor visitor) {
+        if (from == to) return;
+
+        if (level == 1) {
+            var fromWords = (long[]) from;
+            var toWords = (long[]) to;
+            for (var child = 0; child < FANOUT; child++) {
+                var oldWord = fromWords == null ? 0 : fromWords[child];
+                var newWord = toWords == null ? 0 : toWords[child];
+                var changedBits = oldWord ^ newWord;
+                while (changedBits != 0) {
+                    var cell = Long.numberOfTrailingZeros(changedBits) / CELL_BITS;
+                    var value = (int) (newWord >>> (CELL_BITS * cell)) & ((1 << CELL_BITS) - 1);
+                    visitor.visit((firstWord + child) * CELLS_PER_WORD + cell, value);
+                    // Skip the rest of this block's bits
+                    changedBits &= ~(((1L << CELL_BITS) - 1) << (CELL_BITS * cell));
+                }
+            }
+            return;
+        }
+
+        var span = 1 << (FANOUT_BITS * (level - 1));
+        var fromChildren = (Object[]) from;
+        var toChildren = (Object[]) to;
+        for (var child = 0; child < FANOUT; child++) {
+            var fromChild = fromChildren == null ? null : fromChildren[child];
+            var toChild = toChildren == null ? null : toChildren[child];
+            diff(fromChild, toChild, level - 1, firstWord + child * span, visitor);
+        }
+    }
+}
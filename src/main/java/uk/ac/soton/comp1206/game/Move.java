@@ -0,0 +1,106 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A move for the current and following pieces: whether to swap them first, the rotation to play the piece in and where
+ * to play it. Moves are chosen for hints, by the tablebase or the placement heuristic, and by agents.
+ */
+public final class Move {
+
+    /**
+     * Whether to swap the current and following pieces first
+     */
+    private final boolean swap;
+
+    /**
+     * The rotation to play the piece in
+     */
+    private final int rotation;
+
+    /**
+     * The column to play the middle of the piece in
+     */
+    private final int x;
+
+    /**
+     * The row to play the middle of the piece in
+     */
+    private final int y;
+
+    /**
+     * The lines cleared by the move, and by the best move after it when both pieces were looked at, or -1 if not known
+     */
+    private final int lines;
+
+    /**
+     * Create a move without saying what it clears
+     * @param swap whether to swap the current and following pieces first
+     * @param rotation the rotation to play the piece in
+     * @param x the column to play the middle of the piece in
+     * @param y the row to play the middle of the piece in
+     */
+    public Move(boolean swap, int rotation, int x, int y) {
+        this(swap, rotation, x, y, -1);
+    }
+
+    /**
+     * Create a move
+     * @param swap whether to swap the current and following pieces first
+     * @param rotation the rotation to play the piece in
+     * @param x the column to play the middle of the piece in
+     * @param y the row to play the middle of the piece in
+     * @param lines the lines cleared
+     */
+    public Move(boolean swap, int rotation, int x, int y, int lines) {
+        this.swap = swap;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+        this.lines = lines;
+    }
+
+    /**
+     * Whether to swap the current and following pieces before playing
+     * @return true to swap first
+     */
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * Get the rotation to play the piece in
+     * @return rotation, from 0 to 3
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the column to play the middle of the piece in
+     * @return column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the row to play the middle of the piece in
+     * @return row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the lines the move clears, counting the best move after it when both pieces were looked at
+     * @return lines cleared, or -1 if not known
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return (swap ? "swap, " : "") + "rotation " + rotation + " at " + x + "," + y
+            + (lines >= 0 ? " for " + lines + " lines" : "");
+    }
+}
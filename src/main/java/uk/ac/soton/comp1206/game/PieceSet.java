@@ -0,0 +1,445 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A PieceSet is a collection of pieces loaded from a definition file in the /pieces/ resources.
+ *
+ * Each piece is a square of up to 8x8 blocks with a colour and a spawn weight. When the set is loaded every piece is
+ * compiled into its four rotations, each held as a packed bitmask, a block grid and a list of block offsets from the
+ * middle of the piece. Nothing is worked out again during a game, so rotating a piece or checking where it fits costs
+ * the same whatever the size of the pieces.
+ *
+ * Pieces and rotations are numbered together as shapes, at piece * 4 + rotation.
+ */
+public class PieceSet {
+
+    private static final Logger logger = LogManager.getLogger(PieceSet.class);
+
+    /**
+     * Number of rotations of each piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * The widest piece a set can hold, so that a shape fits in the 64 bits of its mask
+     */
+    public static final int MAX_PIECE_SIZE = 8;
+
+    /**
+     * The name of the set used when none is chosen
+     */
+    public static final String STANDARD = "standard";
+
+    /**
+     * Sets that have already been loaded, by name
+     */
+    private static final Map<String, PieceSet> loaded = new HashMap<>();
+
+    /**
+     * The name of this set
+     */
+    private final String name;
+
+    /**
+     * The name of each piece
+     */
+    private final String[] names;
+
+    /**
+     * The colour value of each piece
+     */
+    private final int[] values;
+
+    /**
+     * The running total of the spawn weights, so cumulative[i] is the sum of the weights of pieces 0 to i
+     */
+    private final int[] cumulative;
+
+    /**
+     * The largest width and height of any piece in the set
+     */
+    private final int size;
+
+    /**
+     * The blocks of each shape as a bitmask, with bit blockX * size + blockY set for every block
+     */
+    private final long[] masks;
+
+    /**
+     * The block grid of each shape, filled with the value of the piece. Shared by every GamePiece, so never changed.
+     */
+    private final int[][][] blocks;
+
+    /**
+     * The column offsets of the blocks of each shape from the middle of the piece
+     */
+    private final int[][] offsetX;
+
+    /**
+     * The row offsets of the blocks of each shape from the middle of the piece
+     */
+    private final int[][] offsetY;
+
+    /**
+     * For each shape, the first rotation of the same piece with exactly the same blocks
+     */
+    private final int[] distinct;
+
+    /**
+     * Get the set chosen with the tetrecs.pieces system property, or the standard set
+     * @return the default piece set
+     */
+    public static PieceSet getDefault() {
+        return get(System.getProperty("tetrecs.pieces", STANDARD));
+    }
+
+    /**
+     * Get a piece set by name, loading it from /pieces/name.txt the first time it is asked for
+     * @param name the name of the set
+     * @return the piece set
+     */
+    public static synchronized PieceSet get(String name) {
+        var set = loaded.get(name);
+        if (set == null) {
+            set = load(name);
+            loaded.put(name, set);
+        }
+        return set;
+    }
+
+    /**
+     * Load and compile a piece set definition
+     * @param name the name of the set
+     * @return the compiled set
+     */
+    private static PieceSet load(String name) {
+        var resource = PieceSet.class.getResourceAsStream("/pieces/" + name + ".txt");
+        if (resource == null) {
+            throw new IllegalArgumentException("No such piece set: " + name);
+        }
+
+        var names = new ArrayList<String>();
+        var values = new ArrayList<Integer>();
+        var weights = new ArrayList<Integer>();
+        var shapes = new ArrayList<boolean[][]>();
+
+        try (var reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            String line;
+            var lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                // Header: piece <name> <colour> <weight>, where the name may contain spaces
+                var parts = line.split("\\s+");
+                if (!parts[0].equals("piece") || parts.length < 4) {
+                    throw new IllegalArgumentException(name + ":" + lineNumber + ": expected a piece header, found " + line);
+                }
+                var pieceName = String.join(" ", List.of(parts).subList(1, parts.length - 2));
+                int value, weight;
+                try {
+                    value = Integer.parseInt(parts[parts.length - 2]);
+                    weight = Integer.parseInt(parts[parts.length - 1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(name + ":" + lineNumber + ": bad colour or weight in " + line);
+                }
+                if (value < 1 || value > 15 || weight < 1) {
+                    throw new IllegalArgumentException(name + ":" + lineNumber + ": colour must be 1 to 15 and weight at least 1");
+                }
+
+                // Shape: one row per line, as many rows as the first row is wide
+                boolean[][] shape = null;
+                var rows = 0;
+                while (shape == null || rows < shape.length) {
+                    var row = reader.readLine();
+                    lineNumber++;
+                    if (row == null) {
+                        throw new IllegalArgumentException(name + ":" + lineNumber + ": shape of " + pieceName + " is cut short");
+                    }
+                    row = row.strip();
+                    if (shape == null) {
+                        if (row.isEmpty() || row.length() > MAX_PIECE_SIZE) {
+                            throw new IllegalArgumentException(name + ":" + lineNumber + ": " + pieceName + " must be 1 to " + MAX_PIECE_SIZE + " blocks wide");
+                        }
+                        shape = new boolean[row.length()][row.length()];
+                    }
+                    if (row.length() != shape.length) {
+                        throw new IllegalArgumentException(name + ":" + lineNumber + ": shape of " + pieceName + " is not square");
+                    }
+                    for (var x = 0; x < row.length(); x++) {
+                        shape[x][rows] = row.charAt(x) == '#';
+                    }
+                    rows++;
+                }
+
+                names.add(pieceName);
+                values.add(value);
+                weights.add(weight);
+                shapes.add(shape);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read piece set " + name, e);
+        }
+
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("Piece set " + name + " has no pieces");
+        }
+
+        logger.info("Loaded piece set {} with {} pieces", name, names.size());
+        return new PieceSet(name, names, values, weights, shapes);
+    }
+
+    /**
+     * Compile the pieces of a set into their rotations
+     * @param name name of the set
+     * @param names name of each piece
+     * @param values colour of each piece
+     * @param weights spawn weight of each piece
+     * @param shapes block makeup of each piece, indexed [x][y]
+     */
+    private PieceSet(String name, List<String> names, List<Integer> values, List<Integer> weights, List<boolean[][]> shapes) {
+        this.name = name;
+        var count = names.size();
+        this.names = names.toArray(new String[0]);
+        this.values = new int[count];
+        this.cumulative = new int[count];
+
+        var largest = 0;
+        var total = 0;
+        for (var piece = 0; piece < count; piece++) {
+            this.values[piece] = values.get(piece);
+            total += weights.get(piece);
+            cumulative[piece] = total;
+            largest = Math.max(largest, shapes.get(piece).length);
+        }
+        this.size = largest;
+
+        var shapeCount = count * ROTATIONS;
+        masks = new long[shapeCount];
+        blocks = new int[shapeCount][][];
+        offsetX = new int[shapeCount][];
+        offsetY = new int[shapeCount][];
+        distinct = new int[shapeCount];
+
+        for (var piece = 0; piece < count; piece++) {
+            boolean[][] shape = shapes.get(piece);
+            var pieceSize = shape.length;
+            var middle = pieceSize / 2;
+
+            for (var rotation = 0; rotation < ROTATIONS; rotation++) {
+                var index = shapeIndex(piece, rotation);
+                var grid = new int[pieceSize][pieceSize];
+                var mask = 0L;
+                var blockCount = 0;
+                for (var x = 0; x < pieceSize; x++) {
+                    for (var y = 0; y < pieceSize; y++) {
+                        if (shape[x][y]) {
+                            grid[x][y] = this.values[piece];
+                            mask |= 1L << (x * size + y);
+                            blockCount++;
+                        }
+                    }
+                }
+
+                blocks[index] = grid;
+                masks[index] = mask;
+                offsetX[index] = new int[blockCount];
+                offsetY[index] = new int[blockCount];
+                var next = 0;
+                for (var x = 0; x < pieceSize; x++) {
+                    for (var y = 0; y < pieceSize; y++) {
+                        if (shape[x][y]) {
+                            offsetX[index][next] = x - middle;
+                            offsetY[index][next] = y - middle;
+                            next++;
+                        }
+                    }
+                }
+
+                // Rotations that land on the same blocks share their placement masks
+                distinct[index] = index;
+                for (var earlier = 0; earlier < rotation; earlier++) {
+                    if (masks[shapeIndex(piece, earlier)] == mask) {
+                        distinct[index] = shapeIndex(piece, earlier);
+                        break;
+                    }
+                }
+
+                // Rotate clockwise for the next pass
+                var rotated = new boolean[pieceSize][pieceSize];
+                for (var x = 0; x < pieceSize; x++) {
+                    for (var y = 0; y < pieceSize; y++) {
+                        rotated[pieceSize - 1 - y][x] = shape[x][y];
+                    }
+                }
+                shape = rotated;
+            }
+        }
+    }
+
+    /**
+     * Get the index of the shape of a piece in a given rotation
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @return shape index
+     */
+    public static int shapeIndex(int piece, int rotation) {
+        return piece * ROTATIONS + rotation;
+    }
+
+    /**
+     * Get the name of this set
+     * @return set name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of pieces in this set
+     * @return number of pieces
+     */
+    public int getCount() {
+        return names.length;
+    }
+
+    /**
+     * Get the width and height of the largest piece in this set
+     * @return largest piece size, in blocks
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the name of a piece
+     * @param piece piece number
+     * @return piece name
+     */
+    public String getName(int piece) {
+        return names[piece];
+    }
+
+    /**
+     * Get the colour value of a piece
+     * @param piece piece number
+     * @return piece value
+     */
+    public int getValue(int piece) {
+        return values[piece];
+    }
+
+    /**
+     * Get the block grid of a piece in a given rotation. The array is shared and must not be changed.
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @return the blocks of the piece, indexed [x][y]
+     */
+    public int[][] getBlocks(int piece, int rotation) {
+        return blocks[shapeIndex(piece, rotation)];
+    }
+
+    /**
+     * Get the blocks of a piece in a given rotation as a bitmask, with bit blockX * getSize() + blockY set for every
+     * block
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @return the shape mask
+     */
+    public long getMask(int piece, int rotation) {
+        return masks[shapeIndex(piece, rotation)];
+    }
+
+    /**
+     * Get the column offsets of the blocks of a shape from the middle of the piece. The array is shared and must not be
+     * changed.
+     * @param shape shape index
+     * @return column offsets
+     */
+    int[] getOffsetX(int shape) {
+        return offsetX[shape];
+    }
+
+    /**
+     * Get the row offsets of the blocks of a shape from the middle of the piece. The array is shared and must not be
+     * changed.
+     * @param shape shape index
+     * @return row offsets
+     */
+    int[] getOffsetY(int shape) {
+        return offsetY[shape];
+    }
+
+    /**
+     * Get the first shape of the same piece which covers exactly the same blocks as the given one
+     * @param shape shape index
+     * @return the index of the matching shape, which may be the shape itself
+     */
+    int getDistinctShape(int shape) {
+        return distinct[shape];
+    }
+
+    /**
+     * Work out a value that changes if any piece in the set does, to tell which set a file was generated for
+     * @return the checksum
+     */
+    public long getChecksum() {
+        var checksum = (long) size;
+        for (var piece = 0; piece < getCount(); piece++) {
+            for (var rotation = 0; rotation < ROTATIONS; rotation++) {
+                checksum = checksum * 31 + getMask(piece, rotation);
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Pick a random piece number, following the spawn weights of the set
+     * @param random the random number generator to use
+     * @return piece number
+     */
+    public int pick(Random random) {
+        return pick(random.nextInt(getTotalWeight()));
+    }
+
+    /**
+     * Get the sum of the spawn weights of every piece
+     * @return total weight
+     */
+    public int getTotalWeight() {
+        return cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * Pick the piece a roll falls on, where each piece covers as many rolls as its spawn weight
+     * @param roll a number from 0 to getTotalWeight() - 1
+     * @return piece number
+     */
+    public int pick(int roll) {
+        // Find the first piece whose running total is above the roll
+        int low = 0, high = cumulative.length - 1;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (cumulative[mid] > roll) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,182 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * PlacementMasks holds, for every piece and rotation, the set of positions in a Grid where that piece can be played.
+ *
+ * Each set is a bitmask over the blocks of the grid, with the position of the middle of the piece as the index. The masks
+ * are worked out once when the grid is created and then kept up to date one block at a time as blocks are filled or
+ * emptied, so asking whether a piece fits is a single bit lookup. A count of legal positions is kept for every mask, so
+ * asking whether a piece fits anywhere at all is just as cheap.
+ *
+ * Rotations of a piece which cover the same blocks, such as every rotation of the Plus, share one mask.
+ *
+ * Only the Grid should change the masks, through cellChanged.
+ */
+class PlacementMasks {
+
+    /**
+     * The grid these masks describe
+     */
+    private final Grid grid;
+
+    /**
+     * The set of pieces that can be played on the grid
+     */
+    private final PieceSet set;
+
+    /**
+     * Size of the grid
+     */
+    private final int cols, rows;
+
+    /**
+     * The shapes which have their own mask. A rotation covering the same blocks as an earlier one shares its mask.
+     */
+    private final int[] shapes;
+
+    /**
+     * The legal positions of each shape, as bits indexed by y * cols + x. Rotations sharing a mask share the array.
+     */
+    private final long[][] legal;
+
+    /**
+     * The number of legal positions of each shape
+     */
+    private final int[] legalCount;
+
+    /**
+     * Work out the masks for every shape from the current contents of the grid
+     * @param grid the grid to describe
+     * @param set the pieces that can be played on the grid
+     */
+    PlacementMasks(Grid grid, PieceSet set) {
+        this.grid = grid;
+        this.set = set;
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+
+        var shapeCount = set.getCount() * PieceSet.ROTATIONS;
+        var words = (cols * rows + 63) / 64;
+        legal = new long[shapeCount][];
+        legalCount = new int[shapeCount];
+
+        var distinctCount = 0;
+        for (var shape = 0; shape < shapeCount; shape++) {
+            if (set.getDistinctShape(shape) == shape) distinctCount++;
+        }
+        shapes = new int[distinctCount];
+
+        var next = 0;
+        for (var shape = 0; shape < shapeCount; shape++) {
+            var distinct = set.getDistinctShape(shape);
+            if (distinct != shape) {
+                // Point at the earlier rotation's mask, its count is read through the same index
+                legal[shape] = legal[distinct];
+                continue;
+            }
+            shapes[next++] = shape;
+            legal[shape] = new long[words];
+            for (var y = 0; y < rows; y++) {
+                for (var x = 0; x < cols; x++) {
+                    if (fits(shape, x, y)) {
+                        mark(shape, y * cols + x);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a piece can be played with its middle at the given position
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @param x column, which must be inside the grid
+     * @param y row, which must be inside the grid
+     * @return true if the piece fits
+     */
+    boolean isLegal(int piece, int rotation, int x, int y) {
+        var index = y * cols + x;
+        return (legal[PieceSet.shapeIndex(piece, rotation)][index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Count the positions a piece can be played at
+     * @param piece piece number
+     * @param rotation rotation, from 0 to 3
+     * @return number of legal positions
+     */
+    int countLegal(int piece, int rotation) {
+        return legalCount[set.getDistinctShape(PieceSet.shapeIndex(piece, rotation))];
+    }
+
+    /**
+     * Update the masks after a block in the grid was filled or emptied. Only positions whose piece would cover the
+     * changed block are looked at, and each distinct shape is looked at once.
+     * @param x column of the changed block
+     * @param y row of the changed block
+     * @param filled true if the block is now filled, false if it is now empty
+     */
+    void cellChanged(int x, int y, boolean filled) {
+        for (int shape : shapes) {
+            int[] offsetX = set.getOffsetX(shape);
+            int[] offsetY = set.getOffsetY(shape);
+            for (var block = 0; block < offsetX.length; block++) {
+                // The position that would put this block of the shape on the changed block
+                var middleX = x - offsetX[block];
+                var middleY = y - offsetY[block];
+                if (middleX < 0 || middleX >= cols || middleY < 0 || middleY >= rows) continue;
+
+                var index = middleY * cols + middleX;
+                if (filled) {
+                    unmark(shape, index);
+                } else if (fits(shape, middleX, middleY)) {
+                    mark(shape, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check every block of a shape against the grid
+     * @param shape shape index
+     * @param x column of the middle of the piece
+     * @param y row of the middle of the piece
+     * @return true if every block of the shape lands on an empty block inside the grid
+     */
+    private boolean fits(int shape, int x, int y) {
+        int[] offsetX = set.getOffsetX(shape);
+        int[] offsetY = set.getOffsetY(shape);
+        for (var block = 0; block < offsetX.length; block++) {
+            if (grid.get(x + offsetX[block], y + offsetY[block]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Mark a position as legal for a shape, keeping the count in step
+     * @param shape shape index
+     * @param index position index
+     */
+    private void mark(int shape, int index) {
+        var bit = 1L << index;
+        long[] words = legal[shape];
+        if ((words[index >>> 6] & bit) == 0) {
+            words[index >>> 6] |= bit;
+            legalCount[shape]++;
+        }
+    }
+
+    /**
+     * Mark a position as not legal for a shape, keeping the count in step
+     * @param shape shape index
+     * @param index position index
+     */
+    private void unmark(int shape, int index) {
+        var bit = 1L << index;
+        long[] words = legal[shape];
+        if ((words[index >>> 6] & bit) != 0) {
+            words[index >>> 6] &= ~bit;
+            legalCount[shape]--;
+        }
+    }
+}
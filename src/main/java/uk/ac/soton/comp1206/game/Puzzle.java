@@ -0,0 +1,168 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A Puzzle is a board with some blocks already filled and a fixed run of pieces, which must be played in order, without
+ * swapping, so that the board is empty once the last one is down and not before. Every puzzle shipped has exactly one
+ * solution, checked by PuzzleSolver when it was generated, and that solution is kept with it for hints.
+ *
+ * The board is held as bits, bit y * cols + x for the block at x, y, so it can be at most 64 blocks in all.
+ */
+public final class Puzzle {
+
+    /**
+     * The colour value the filled blocks of a puzzle are shown in
+     */
+    public static final int BLOCK_VALUE = 15;
+
+    /**
+     * The most blocks a puzzle board can have
+     */
+    public static final int MAX_CELLS = Long.SIZE;
+
+    /**
+     * Search tree sizes at which each grade of difficulty starts, from grade 2 up
+     */
+    private static final long[] GRADES = {100, 1_000, 10_000, 100_000};
+
+    /**
+     * The size of the board
+     */
+    private final int cols, rows;
+
+    /**
+     * The filled blocks of the board
+     */
+    private final long board;
+
+    /**
+     * The pieces, in the order they are dealt
+     */
+    private final int[] pieces;
+
+    /**
+     * The only way to clear the board, one move for each piece
+     */
+    private final Move[] solution;
+
+    /**
+     * The number of placements tried by the exhaustive search of the puzzle
+     */
+    private final long searched;
+
+    /**
+     * Create a puzzle
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param board the filled blocks, bit y * cols + x for the block at x, y
+     * @param pieces the pieces, in order
+     * @param solution the move for each piece that clears the board
+     * @param searched the number of placements tried by the exhaustive search
+     */
+    public Puzzle(int cols, int rows, long board, int[] pieces, Move[] solution, long searched) {
+        if (cols < 1 || rows < 1 || cols * rows > MAX_CELLS) {
+            throw new IllegalArgumentException("Puzzle board must have at most " + MAX_CELLS + " blocks, not " + cols + "x" + rows);
+        }
+        if (solution.length != pieces.length) {
+            throw new IllegalArgumentException("Puzzle needs one move for each of its " + pieces.length + " pieces");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.board = board;
+        this.pieces = pieces.clone();
+        this.solution = solution.clone();
+        this.searched = searched;
+    }
+
+    /**
+     * Get the number of columns
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the filled blocks of the board
+     * @return bit y * cols + x set for every filled block
+     */
+    public long getBoard() {
+        return board;
+    }
+
+    /**
+     * Check whether a block starts filled
+     * @param x column
+     * @param y row
+     * @return true if filled
+     */
+    public boolean isFilled(int x, int y) {
+        return (board >>> (y * cols + x) & 1) != 0;
+    }
+
+    /**
+     * Get the number of moves the puzzle is solved in, one for every piece
+     * @return moves
+     */
+    public int getMoves() {
+        return pieces.length;
+    }
+
+    /**
+     * Get one of the pieces
+     * @param move the move the piece is played on, from 0
+     * @return the piece number
+     */
+    public int getPiece(int move) {
+        return pieces[move];
+    }
+
+    /**
+     * Get the move of the solution for one of the pieces
+     * @param move the move, from 0
+     * @return the rotation and position the piece is played at
+     */
+    public Move getSolution(int move) {
+        return solution[move];
+    }
+
+    /**
+     * Get the size of the exhaustive search of the puzzle, which is how difficulty is graded: the more placements
+     * lead somewhere, the more a player has to try
+     * @return the number of placements tried
+     */
+    public long getSearched() {
+        return searched;
+    }
+
+    /**
+     * Get the grade of difficulty, from the size of the search
+     * @return 1 for the easiest to 5 for the hardest
+     */
+    public int getGrade() {
+        var grade = 1;
+        for (var start : GRADES) {
+            if (searched >= start) grade++;
+        }
+        return grade;
+    }
+
+    /**
+     * Fill in the blocks of this puzzle on an empty grid of its size
+     * @param grid the grid
+     */
+    public void fill(Grid grid) {
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                if (isFilled(x, y)) grid.set(x, y, BLOCK_VALUE);
+            }
+        }
+    }
+}
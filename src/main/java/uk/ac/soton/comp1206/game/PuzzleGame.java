@@ -0,0 +1,160 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A game of one puzzle: the board starts with the puzzle's blocks, and the pieces are the puzzle's, dealt in order.
+ * Pieces can't be swapped, since the order is the puzzle, and there is no timer. The game ends as soon as the board
+ * is empty, which solves the puzzle, or once the last piece is down without emptying it, or when the current piece
+ * can't go anywhere.
+ */
+public class PuzzleGame extends Game {
+
+    private static final Logger logger = LogManager.getLogger(PuzzleGame.class);
+
+    /**
+     * The puzzle being played
+     */
+    private final Puzzle puzzle;
+
+    /**
+     * The number of pieces dealt so far
+     */
+    private int dealt = 0;
+
+    /**
+     * The number of pieces played so far
+     */
+    private int played = 0;
+
+    /**
+     * Whether every piece so far has been played as the solution plays it
+     */
+    private boolean onSolution = true;
+
+    /**
+     * Whether the board has been emptied
+     */
+    private volatile boolean solved = false;
+
+    /**
+     * Create a game of a puzzle
+     * @param puzzle the puzzle
+     * @param pieceSet the pieces the puzzle is played with
+     */
+    public PuzzleGame(Puzzle puzzle, PieceSet pieceSet) {
+        super(puzzle.getCols(), puzzle.getRows(), GameMode.DeadBoardPolicy.GAME_OVER, pieceSet);
+        this.puzzle = puzzle;
+        puzzle.fill(grid);
+    }
+
+    /**
+     * Deal the first two pieces of the puzzle, with none thrown away
+     */
+    @Override
+    protected void deal() {
+        nextPiece();
+        nextPiece();
+    }
+
+    /**
+     * Deal the next piece of the puzzle
+     * @return the piece, or null once every piece has been dealt
+     */
+    @Override
+    public GamePiece spawnPiece() {
+        if (dealt >= puzzle.getMoves()) return null;
+        return GamePiece.createPiece(grid.getPieceSet(), puzzle.getPiece(dealt++));
+    }
+
+    /**
+     * Pieces can't be swapped in a puzzle, since their order is part of it
+     */
+    @Override
+    public void swapCurrentPiece() {
+    }
+
+    /**
+     * Check whether the current piece fits anywhere, as only it can be played
+     * @return true if it can't be played
+     */
+    @Override
+    public boolean isDeadBoard() {
+        return getCurrentPiece() == null || !grid.canPlayAnywhere(getCurrentPiece());
+    }
+
+    /**
+     * Puzzles have no timer
+     * @return 0, which never runs out
+     */
+    @Override
+    public int getTimerDelay() {
+        return 0;
+    }
+
+    /**
+     * Clear lines and score as usual, then end the game if the board is empty or the pieces have run out
+     * @param piece the piece that was played
+     * @param placeX the x position the middle of the piece was played at
+     * @param placeY the y position the middle of the piece was played at
+     */
+    @Override
+    public void afterPiece(GamePiece piece, int placeX, int placeY) {
+        var solution = puzzle.getSolution(played);
+        var set = piece.getSet();
+        onSolution &= placeX == solution.getX() && placeY == solution.getY()
+            && set.getDistinctShape(PieceSet.shapeIndex(piece.getPiece(), piece.getRotation()))
+            == set.getDistinctShape(PieceSet.shapeIndex(piece.getPiece(), solution.getRotation()));
+        played++;
+
+        super.afterPiece(piece, placeX, placeY);
+
+        if (isEmpty()) {
+            logger.info("Puzzle solved in {} moves", played);
+            solved = true;
+            gameOver();
+        } else if (played == puzzle.getMoves()) {
+            logger.info("Puzzle not solved, the pieces have run out");
+            gameOver();
+        }
+    }
+
+    /**
+     * Check whether every block of the board is empty
+     * @return true if empty
+     */
+    private boolean isEmpty() {
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                if (grid.get(x, y) != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the move of the solution for the current piece. Only for use on the logic thread.
+     * @return the move, or null if a piece has already been played somewhere else, since the solution is the only one
+     */
+    public Move getHint() {
+        if (!onSolution || played >= puzzle.getMoves()) return null;
+        return puzzle.getSolution(played);
+    }
+
+    /**
+     * Get the puzzle being played
+     * @return the puzzle
+     */
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    /**
+     * Whether the board has been emptied
+     * @return true once the puzzle is solved
+     */
+    public boolean isSolved() {
+        return solved;
+    }
+}
@@ -0,0 +1,240 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PuzzlePack is a run of puzzles for one piece set and board size, easiest first, as written by the
+ * PuzzleGenerator tool and shipped as a resource. Every puzzle was solved when the pack was generated, so loading a
+ * pack only reads it.
+ *
+ * The format is small, around fifteen bytes a puzzle: a header of the magic number, version, piece set name and
+ * checksum, board size and count, then for each puzzle the filled blocks, one bit each, the number of moves, and for
+ * each move the piece and the rotation and block of its solution packed in a byte, then the size of its search.
+ */
+public class PuzzlePack {
+
+    private static final Logger logger = LogManager.getLogger(PuzzlePack.class);
+
+    /**
+     * Marks a puzzle pack: PZL1
+     */
+    private static final int MAGIC = 0x505A4C31;
+
+    /**
+     * The layout of the file, changed whenever the layout changes
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The longest run of pieces a puzzle can have
+     */
+    public static final int MAX_MOVES = 255;
+
+    /**
+     * The default pack, once it has been looked for
+     */
+    private static PuzzlePack defaultPack;
+
+    /**
+     * Whether the default pack has been looked for
+     */
+    private static boolean defaultLoaded;
+
+    /**
+     * The pieces the puzzles are played with
+     */
+    private final PieceSet pieceSet;
+
+    /**
+     * The size of every board in the pack
+     */
+    private final int cols, rows;
+
+    /**
+     * The puzzles, easiest first
+     */
+    private final List<Puzzle> puzzles;
+
+    /**
+     * Create a pack
+     * @param pieceSet the pieces the puzzles are played with
+     * @param cols number of columns of every board
+     * @param rows number of rows of every board
+     * @param puzzles the puzzles, in the order they are played
+     */
+    public PuzzlePack(PieceSet pieceSet, int cols, int rows, List<Puzzle> puzzles) {
+        this.pieceSet = pieceSet;
+        this.cols = cols;
+        this.rows = rows;
+        this.puzzles = List.copyOf(puzzles);
+    }
+
+    /**
+     * Get the pack for the default piece set, from the /puzzles/{set}.pack resource. Only looked for once.
+     * @return the pack, or null if there isn't one for the default piece set
+     */
+    public static synchronized PuzzlePack getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            var set = PieceSet.getDefault();
+            var resource = getResourceName(set);
+            try (var input = PuzzlePack.class.getResourceAsStream(resource)) {
+                if (input == null) {
+                    logger.info("No puzzle pack at {}", resource);
+                } else {
+                    defaultPack = read(input, set);
+                    logger.info("Loaded {} puzzles from {}", defaultPack.size(), resource);
+                }
+            } catch (IOException e) {
+                logger.error("Unable to load puzzle pack {}: {}", resource, e.getMessage());
+            }
+        }
+        return defaultPack;
+    }
+
+    /**
+     * Get the resource the pack for a piece set is shipped as
+     * @param set the piece set
+     * @return the resource name
+     */
+    public static String getResourceName(PieceSet set) {
+        return "/puzzles/" + set.getName() + ".pack";
+    }
+
+    /**
+     * Read a pack
+     * @param input where to read it from, which is left open
+     * @param set the piece set it must have been generated for
+     * @return the pack
+     * @throws IOException if it can't be read, or isn't a pack for the piece set
+     */
+    public static PuzzlePack read(InputStream input, PieceSet set) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not a puzzle pack");
+        }
+        if (!data.readUTF().equals(set.getName()) || data.readLong() != set.getChecksum()) {
+            throw new IOException("Generated for a different piece set");
+        }
+        var cols = data.readUnsignedByte();
+        var rows = data.readUnsignedByte();
+        var count = data.readInt();
+        if (cols * rows > Puzzle.MAX_CELLS || count < 0) {
+            throw new IOException("Puzzle pack is damaged");
+        }
+
+        var cells = cols * rows;
+        var puzzles = new ArrayList<Puzzle>(count);
+        for (var i = 0; i < count; i++) {
+            var board = 0L;
+            for (var bit = 0; bit < cells; bit += 8) {
+                board |= (long) data.readUnsignedByte() << bit;
+            }
+            var moves = data.readUnsignedByte();
+            var pieces = new int[moves];
+            var solution = new Move[moves];
+            for (var move = 0; move < moves; move++) {
+                pieces[move] = data.readUnsignedByte();
+                var placement = data.readUnsignedByte();
+                var cell = placement & 63;
+                if (pieces[move] >= set.getCount() || cell >= cells) {
+                    throw new IOException("Puzzle pack is damaged");
+                }
+                solution[move] = new Move(false, placement >>> 6, cell % cols, cell / cols);
+            }
+            puzzles.add(new Puzzle(cols, rows, board, pieces, solution, data.readInt()));
+        }
+        return new PuzzlePack(set, cols, rows, puzzles);
+    }
+
+    /**
+     * Write the pack
+     * @param output where to write it, which is left open
+     * @throws IOException if it can't be written
+     */
+    public void write(OutputStream output) throws IOException {
+        var data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(pieceSet.getName());
+        data.writeLong(pieceSet.getChecksum());
+        data.writeByte(cols);
+        data.writeByte(rows);
+        data.writeInt(puzzles.size());
+
+        var cells = cols * rows;
+        for (var puzzle : puzzles) {
+            for (var bit = 0; bit < cells; bit += 8) {
+                data.writeByte((int) (puzzle.getBoard() >>> bit));
+            }
+            data.writeByte(puzzle.getMoves());
+            for (var move = 0; move < puzzle.getMoves(); move++) {
+                var solution = puzzle.getSolution(move);
+                data.writeByte(puzzle.getPiece(move));
+                data.writeByte(solution.getRotation() << 6 | solution.getY() * cols + solution.getX());
+            }
+            data.writeInt((int) Math.min(puzzle.getSearched(), Integer.MAX_VALUE));
+        }
+        data.flush();
+    }
+
+    /**
+     * Get the pieces the puzzles are played with
+     * @return the piece set
+     */
+    public PieceSet getPieceSet() {
+        return pieceSet;
+    }
+
+    /**
+     * Get the number of columns of every board
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows of every board
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of puzzles
+     * @return puzzles
+     */
+    public int size() {
+        return puzzles.size();
+    }
+
+    /**
+     * Get a puzzle
+     * @param index the puzzle, from 0 for the easiest
+     * @return the puzzle
+     */
+    public Puzzle get(int index) {
+        return puzzles.get(index);
+    }
+
+    /**
+     * Get every puzzle
+     * @return the puzzles, easiest first, which can't be changed
+     */
+    public List<Puzzle> getPuzzles() {
+        return puzzles;
+    }
+}
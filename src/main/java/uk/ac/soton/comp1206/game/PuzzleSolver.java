@@ -0,0 +1,292 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+
+/**
+ * Solves puzzles by trying every placement of every piece, in every rotation, in order, with lines cleared as the
+ * game clears them. It counts the ways to clear the board, to tell whether a puzzle can be solved and whether its
+ * solution is the only one, and how many placements it had to try, which is how puzzles are graded.
+ *
+ * The board is cleared as soon as it is empty, even with pieces left over, since that is when a PuzzleGame ends and
+ * counts the puzzle solved. Such a way is found with fewer moves than pieces, and the pieces after it aren't tried.
+ *
+ * Two placements covering the same blocks count as one, however the piece was turned to get there, since the
+ * player can't tell them apart. The search is exhaustive, so a solver is meant for generating puzzles ahead of time,
+ * not for the game itself. One solver can be used by many threads at once.
+ */
+public class PuzzleSolver {
+
+    /**
+     * The size of the boards solved
+     */
+    private final int cols, rows;
+
+    /**
+     * The mask of every row, then every column
+     */
+    private final long[] lines;
+
+    /**
+     * For each piece, the blocks covered by every distinct placement on an empty board
+     */
+    private final long[][] masks;
+
+    /**
+     * For each piece, the move making each placement
+     */
+    private final Move[][] moves;
+
+    /**
+     * The outcome of a search
+     */
+    public static class Solution {
+
+        /**
+         * The number of ways found to clear the board, up to the limit searched for
+         */
+        private final int count;
+
+        /**
+         * The first way found, or null if there is none
+         */
+        private final Move[] moves;
+
+        /**
+         * The number of placements tried
+         */
+        private final long searched;
+
+        /**
+         * Record the outcome of a search
+         * @param count the ways found
+         * @param moves the first way found, or null
+         * @param searched the placements tried
+         */
+        private Solution(int count, Move[] moves, long searched) {
+            this.count = count;
+            this.moves = moves;
+            this.searched = searched;
+        }
+
+        /**
+         * Get the number of ways found to clear the board, which stops at the limit searched for
+         * @return ways found
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the first way found to clear the board
+         * @return a move for each piece played until the board was empty, which may be fewer than the pieces, or null
+         * if the board can't be cleared
+         */
+        public Move[] getMoves() {
+            return moves == null ? null : moves.clone();
+        }
+
+        /**
+         * Get the number of placements tried. Only the whole tree when the search wasn't stopped at its limit.
+         * @return placements tried
+         */
+        public long getSearched() {
+            return searched;
+        }
+    }
+
+    /**
+     * Work out every placement of a piece set on a board size
+     * @param pieceSet the pieces
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public PuzzleSolver(PieceSet pieceSet, int cols, int rows) {
+        if (cols * rows > Puzzle.MAX_CELLS) {
+            throw new IllegalArgumentException("Puzzle board must have at most " + Puzzle.MAX_CELLS + " blocks");
+        }
+        this.cols = cols;
+        this.rows = rows;
+
+        lines = new long[rows + cols];
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                lines[y] |= 1L << (y * cols + x);
+                lines[rows + x] |= 1L << (y * cols + x);
+            }
+        }
+
+        var pieces = pieceSet.getCount();
+        masks = new long[pieces][];
+        moves = new Move[pieces][];
+        for (var piece = 0; piece < pieces; piece++) {
+            var pieceMasks = new ArrayList<Long>();
+            var pieceMoves = new ArrayList<Move>();
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var shape = PieceSet.shapeIndex(piece, rotation);
+                int[] offsetX = pieceSet.getOffsetX(shape);
+                int[] offsetY = pieceSet.getOffsetY(shape);
+                for (var y = 0; y < rows; y++) {
+                    for (var x = 0; x < cols; x++) {
+                        var mask = 0L;
+                        for (var block = 0; block < offsetX.length && mask != -1; block++) {
+                            var blockX = x + offsetX[block];
+                            var blockY = y + offsetY[block];
+                            mask = blockX < 0 || blockX >= cols || blockY < 0 || blockY >= rows ? -1
+                                : mask | 1L << (blockY * cols + blockX);
+                        }
+                        if (mask == -1 || pieceMasks.contains(mask)) continue;
+                        pieceMasks.add(mask);
+                        pieceMoves.add(new Move(false, rotation, x, y));
+                    }
+                }
+            }
+            masks[piece] = pieceMasks.stream().mapToLong(Long::longValue).toArray();
+            moves[piece] = pieceMoves.toArray(new Move[0]);
+        }
+    }
+
+    /**
+     * Search for the ways to clear a board
+     * @param board the filled blocks, bit y * cols + x for the block at x, y, with no full lines
+     * @param pieces the pieces, played in order
+     * @param limit the most ways to look for; 2 is enough to tell a unique solution
+     * @return the outcome
+     */
+    public Solution solve(long board, int[] pieces, int limit) {
+        var search = new Search(pieces, limit);
+        search.run(board, 0);
+        return new Solution(search.count, search.found, search.searched);
+    }
+
+    /**
+     * Find which blocks are cleared by the lines full on a board
+     * @param board the board
+     * @return the blocks of every full line
+     */
+    private long clearedBy(long board) {
+        var cleared = 0L;
+        for (var line : lines) {
+            if ((board & line) == line) cleared |= line;
+        }
+        return cleared;
+    }
+
+    /**
+     * Check whether a board has any full line, which a puzzle can't start with since the game never clears it
+     * @param board the board
+     * @return true if a row or column is full
+     */
+    public boolean hasFullLine(long board) {
+        return clearedBy(board) != 0;
+    }
+
+    /**
+     * Get the number of distinct placements of a piece on an empty board
+     * @param piece the piece number
+     * @return placements
+     */
+    public int countPlacements(int piece) {
+        return masks[piece].length;
+    }
+
+    /**
+     * Get the blocks covered by one placement of a piece
+     * @param piece the piece number
+     * @param placement the placement, from 0 to countPlacements(piece) - 1
+     * @return the blocks, bit y * cols + x for the block at x, y
+     */
+    public long getPlacement(int piece, int placement) {
+        return masks[piece][placement];
+    }
+
+    /**
+     * Get the size of the boards solved
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the size of the boards solved
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * The state of one search, so searches on different threads share nothing but the placements
+     */
+    private class Search {
+
+        /**
+         * The pieces, in order
+         */
+        private final int[] pieces;
+
+        /**
+         * The most ways to look for
+         */
+        private final int limit;
+
+        /**
+         * The placement chosen for each piece so far
+         */
+        private final int[] path;
+
+        /**
+         * The ways found so far
+         */
+        private int count;
+
+        /**
+         * The first way found
+         */
+        private Move[] found;
+
+        /**
+         * The placements tried so far
+         */
+        private long searched;
+
+        /**
+         * Start a search
+         * @param pieces the pieces
+         * @param limit the most ways to look for
+         */
+        private Search(int[] pieces, int limit) {
+            this.pieces = pieces;
+            this.limit = limit;
+            path = new int[pieces.length];
+        }
+
+        /**
+         * Try every placement of one piece, and of the pieces after it on every board it leaves
+         * @param board the board
+         * @param depth the piece to place
+         */
+        private void run(long board, int depth) {
+            if (board == 0 || depth == pieces.length) {
+                // An empty board ends the puzzle, whatever pieces are left
+                if (board == 0 && count++ == 0) {
+                    found = new Move[depth];
+                    for (var i = 0; i < depth; i++) {
+                        found[i] = moves[pieces[i]][path[i]];
+                    }
+                }
+                return;
+            }
+
+            long[] pieceMasks = masks[pieces[depth]];
+            for (var placement = 0; placement < pieceMasks.length && count < limit; placement++) {
+                var mask = pieceMasks[placement];
+                if ((board & mask) != 0) continue;
+                searched++;
+                path[depth] = placement;
+                var played = board | mask;
+                run(played & ~clearedBy(played), depth + 1);
+            }
+        }
+    }
+}
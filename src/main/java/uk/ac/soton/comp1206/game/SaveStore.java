@@ -0,0 +1,163 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SaveStore keeps the saved game on disk, so a game in progress survives the window closing or the machine losing
+ * power.
+ *
+ * Saves are encoded on the calling thread, which is cheap, and written on a background thread through a FileChannel.
+ * Each save goes to a temporary file which is flushed to disk and then moved over the old save, so a power cut part
+ * way through leaves the previous save in place. Writes happen in the order they were asked for.
+ */
+public class SaveStore {
+
+    private static final Logger logger = LogManager.getLogger(SaveStore.class);
+
+    /**
+     * The store used by the game, in ~/.tetrecs/save.bin unless changed with the tetrecs.save system property
+     */
+    private static SaveStore defaultStore;
+
+    /**
+     * The file holding the save
+     */
+    private final Path path;
+
+    /**
+     * The thread writing saves, one at a time
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Save writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The last write asked for, which later writes and deletes queue behind
+     */
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    /**
+     * Create a store for the given file
+     * @param path the file to keep the save in
+     */
+    public SaveStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Get the store used by the game
+     * @return the default store
+     */
+    public static synchronized SaveStore getDefault() {
+        if (defaultStore == null) {
+            var property = System.getProperty("tetrecs.save");
+            var path = property != null ? Paths.get(property) : Paths.get(System.getProperty("user.home"), ".tetrecs", "save.bin");
+            defaultStore = new SaveStore(path);
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Write a save in the background, replacing any earlier one
+     * @param save the game to save
+     * @return a future completed once the save is on disk
+     */
+    public synchronized CompletableFuture<Void> saveAsync(SavedGame save) {
+        var buffer = save.encode();
+        pending = pending.thenRunAsync(() -> write(buffer), writer);
+        return pending;
+    }
+
+    /**
+     * Remove the save in the background, once any writes before it have finished
+     * @return a future completed once the save is gone
+     */
+    public synchronized CompletableFuture<Void> deleteAsync() {
+        pending = pending.thenRunAsync(() -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.error("Unable to delete saved game: {}", e.getMessage());
+            }
+        }, writer);
+        return pending;
+    }
+
+    /**
+     * Wait for every write asked for so far to finish
+     * @param timeoutMillis the longest to wait, in milliseconds
+     */
+    public void flush(long timeoutMillis) {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = pending;
+        }
+        try {
+            last.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.error("Saved game was not written in time: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Read the save, if there is one
+     * @return the saved game, or null if there is no save or it cannot be read
+     */
+    public SavedGame load() {
+        var started = System.nanoTime();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the whole file is in
+            }
+            var save = SavedGame.decode(buffer.flip());
+            logger.info("Loaded saved game in {}us", (System.nanoTime() - started) / 1000);
+            return save;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Unable to load saved game: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write an encoded save to a temporary file and move it over the old save
+     * @param buffer the encoded save
+     */
+    private void write(ByteBuffer buffer) {
+        var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Unable to write saved game: {}", e.getMessage());
+        }
+    }
+}
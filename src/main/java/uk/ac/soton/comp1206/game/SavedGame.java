@@ -0,0 +1,235 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A SavedGame is everything needed to carry on a game after the program has been closed: the mode and piece set, the
+ * game state, the state of the random number generator and the time left on the turn.
+ *
+ * It is stored in a small versioned binary format, with every value big-endian:
+ * <pre>
+ *   int    magic "TECS"
+ *   short  format version
+ *   string mode name, piece set name (short length then UTF-8 bytes)
+ *   short  columns, rows
+ *   int    score, level, lives, multiplier
+ *   short  current piece, byte current rotation
+ *   short  following piece, byte following rotation
+ *   long   random state
+ *   int    milliseconds left on the turn
+ *   long[] the grid, sixteen blocks of four bits to a word
+ *   int    CRC32 of everything above
+ * </pre>
+ */
+public final class SavedGame {
+
+    /**
+     * Marks the start of a save, the letters TECS
+     */
+    private static final int MAGIC = 0x54454353;
+
+    /**
+     * The version of the format written
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The mode being played
+     */
+    private final GameMode mode;
+
+    /**
+     * The name of the piece set being played
+     */
+    private final String pieceSet;
+
+    /**
+     * The state of the game
+     */
+    private final GameState state;
+
+    /**
+     * The state of the random number generator
+     */
+    private final long randomState;
+
+    /**
+     * The time left on the turn, in milliseconds
+     */
+    private final int timerRemaining;
+
+    /**
+     * Create a saved game
+     * @param mode the mode being played
+     * @param pieceSet the name of the piece set being played
+     * @param state the state of the game
+     * @param randomState the state of the random number generator
+     * @param timerRemaining the time left on the turn, in milliseconds
+     */
+    public SavedGame(GameMode mode, String pieceSet, GameState state, long randomState, int timerRemaining) {
+        this.mode = mode;
+        this.pieceSet = pieceSet;
+        this.state = state;
+        this.randomState = randomState;
+        this.timerRemaining = timerRemaining;
+    }
+
+    /**
+     * Get the mode being played
+     * @return game mode
+     */
+    public GameMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the name of the piece set being played
+     * @return piece set name
+     */
+    public String getPieceSet() {
+        return pieceSet;
+    }
+
+    /**
+     * Get the state of the game
+     * @return game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Get the state of the random number generator
+     * @return random state
+     */
+    public long getRandomState() {
+        return randomState;
+    }
+
+    /**
+     * Get the time left on the turn
+     * @return milliseconds left
+     */
+    public int getTimerRemaining() {
+        return timerRemaining;
+    }
+
+    /**
+     * Write this save in the binary format
+     * @return a buffer holding the save, ready to be read
+     */
+    public ByteBuffer encode() {
+        var grid = state.getGrid();
+        long[] words = grid.toWords();
+        byte[] modeName = mode.name().getBytes(StandardCharsets.UTF_8);
+        byte[] setName = pieceSet.getBytes(StandardCharsets.UTF_8);
+
+        var buffer = ByteBuffer.allocate(4 + 2 + 2 + modeName.length + 2 + setName.length + 4 + 16 + 6 + 8 + 4
+            + words.length * 8 + 4);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        putString(buffer, modeName);
+        putString(buffer, setName);
+        buffer.putShort((short) grid.getCols());
+        buffer.putShort((short) grid.getRows());
+        buffer.putInt(state.getScore());
+        buffer.putInt(state.getLevel());
+        buffer.putInt(state.getLives());
+        buffer.putInt(state.getMultiplier());
+        buffer.putShort((short) state.getCurrentPiece());
+        buffer.put((byte) state.getCurrentRotation());
+        buffer.putShort((short) state.getFollowingPiece());
+        buffer.put((byte) state.getFollowingRotation());
+        buffer.putLong(randomState);
+        buffer.putInt(timerRemaining);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+
+        var crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Read a save in the binary format
+     * @param buffer the buffer holding the save
+     * @return the saved game
+     * @throws IllegalArgumentException if the save is damaged or of an unknown version
+     */
+    public static SavedGame decode(ByteBuffer buffer) {
+        try {
+            var start = buffer.position();
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a saved game");
+            }
+            var version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown save version " + version);
+            }
+
+            var mode = GameMode.valueOf(getString(buffer));
+            var pieceSet = getString(buffer);
+            var cols = buffer.getShort() & 0xFFFF;
+            var rows = buffer.getShort() & 0xFFFF;
+            if (cols < 1 || rows < 1 || cols > Grid.MAX_SIZE || rows > Grid.MAX_SIZE) {
+                throw new IllegalArgumentException("Bad grid size " + cols + "x" + rows);
+            }
+            var score = buffer.getInt();
+            var level = buffer.getInt();
+            var lives = buffer.getInt();
+            var multiplier = buffer.getInt();
+            var currentPiece = buffer.getShort();
+            var currentRotation = buffer.get();
+            var followingPiece = buffer.getShort();
+            var followingRotation = buffer.get();
+            var randomState = buffer.getLong();
+            var timerRemaining = buffer.getInt();
+
+            var words = new long[GridSnapshot.wordCount(cols, rows)];
+            for (var word = 0; word < words.length; word++) {
+                words[word] = buffer.getLong();
+            }
+
+            // Check the CRC over everything read so far
+            var end = buffer.position();
+            var crc = new CRC32();
+            crc.update(buffer.duplicate().position(start).limit(end));
+            if (buffer.getInt() != (int) crc.getValue()) {
+                throw new IllegalArgumentException("Saved game is damaged");
+            }
+
+            var state = new GameState(GridSnapshot.fromWords(cols, rows, words), score, level, lives, multiplier,
+                currentPiece, Math.floorMod(currentRotation, PieceSet.ROTATIONS),
+                followingPiece, Math.floorMod(followingRotation, PieceSet.ROTATIONS));
+            return new SavedGame(mode, pieceSet, state, randomState, timerRemaining);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Saved game is cut short");
+        }
+    }
+
+    /**
+     * Write a string as its length followed by its bytes
+     * @param buffer the buffer to write to
+     * @param bytes the UTF-8 bytes of the string
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read a string written by putString
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Random;
+
+/**
+ * A random number generator whose whole state is a single long that can be read and set again, so a saved game picks
+ * the same pieces after it is resumed.
+ *
+ * It uses the SplitMix64 generator in place of the one in java.util.Random, and can be used anywhere a Random is
+ * expected. Unlike java.util.Random it is not safe to share between threads.
+ */
+public class SeedableRandom extends Random {
+
+    /**
+     * The amount the state is advanced by on every draw
+     */
+    public static final long STEP = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The generator state, advanced by a fixed step on every draw
+     */
+    private long state;
+
+    /**
+     * Create a generator with a seed taken from the clock
+     */
+    public SeedableRandom() {
+        super();
+    }
+
+    /**
+     * Create a generator with the given seed
+     * @param seed the starting state
+     */
+    public SeedableRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Set the state of the generator
+     * @param seed the new state
+     */
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        state = seed;
+    }
+
+    /**
+     * Get the state of the generator, which can be passed to setState to carry on from the same point
+     * @return the current state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Carry on from a state returned by getState
+     * @param state the state to restore
+     */
+    public void setState(long state) {
+        setSeed(state);
+    }
+
+    /**
+     * Generate the next random bits, which every other method of Random is built on
+     * @param bits number of random bits wanted
+     * @return the random bits
+     */
+    @Override
+    protected int next(int bits) {
+        return bits(state += STEP, bits);
+    }
+
+    /**
+     * Work out the random bits drawn at a state, for code that keeps the state itself, such as a simulation storing
+     * games off the heap. Adding STEP to the state and calling this draws the same bits as next.
+     * @param state the state after it has been advanced by STEP
+     * @param bits number of random bits wanted
+     * @return the random bits
+     */
+    public static int bits(long state, int bits) {
+        var z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (z >>> (64 - bits));
+    }
+}
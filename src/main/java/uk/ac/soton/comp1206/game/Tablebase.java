@@ -0,0 +1,667 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A Tablebase holds the best move for every board a 5x5 game can be left in, for every piece. It is worked out ahead
+ * of time by generate, using every core, and read from a memory-mapped file, so a lookup is a handful of table reads
+ * with no search at all.
+ *
+ * Only which blocks are filled matters to a move, so a board is held as 25 bits, bit y * 5 + x for the block at x, y.
+ * Boards with a full row or column never last, since the line is cleared straight away, so they are left out. Boards
+ * that are rotations or reflections of each other share one entry, under the smallest of their eight forms, which
+ * cuts the table to an eighth. Reflecting a board reflects the pieces played on it, so reflections are only used when
+ * the mirror image of every piece is also in the set; otherwise only the four rotations are. Turning a board only
+ * turns the pieces on it if they turn about their middle block, which even-sized shapes don't, so sets with those
+ * share no entries at all.
+ *
+ * Each entry is two bytes: the most lines the piece can clear on the board and where to play it to do so. Among moves
+ * clearing as many lines, the one leaving fewest blocks is kept. The best play of the current and following pieces
+ * together, either way round, comes from a lookup for every place the first can go.
+ *
+ * The file holds a header, a bitmap of which boards have an entry, the number of entries before every 64 boards, and
+ * the entries, one per board and piece.
+ */
+public class Tablebase {
+
+    private static final Logger logger = LogManager.getLogger(Tablebase.class);
+
+    /**
+     * The width and height of the boards the tablebase covers
+     */
+    public static final int SIZE = 5;
+
+    /**
+     * Blocks on a board
+     */
+    private static final int CELLS = SIZE * SIZE;
+
+    /**
+     * Every board, filled or not
+     */
+    private static final int BOARDS = 1 << CELLS;
+
+    /**
+     * Marks a tablebase file: TBL5
+     */
+    private static final int MAGIC = 0x54424C35;
+
+    /**
+     * The layout of the file, changed whenever the layout changes
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Bytes before the bitmap: magic, version, pieces, symmetries, entries and the piece set checksum
+     */
+    private static final int HEADER = 32;
+
+    /**
+     * The entry for a piece that can't be played anywhere
+     */
+    private static final short NO_MOVE = -1;
+
+    /**
+     * The mask of each row
+     */
+    private static final int[] ROWS = new int[SIZE];
+
+    /**
+     * The mask of each column
+     */
+    private static final int[] COLUMNS = new int[SIZE];
+
+    /**
+     * Where each block goes under each of the eight symmetries: four rotations, then the mirror image followed by
+     * each of the four rotations
+     */
+    private static final int[][] CELL_MAP = new int[8][CELLS];
+
+    /**
+     * The symmetry undoing each symmetry
+     */
+    private static final int[] INVERSE = new int[8];
+
+    /**
+     * Each symmetry applied to every pattern of every row, so a board is transformed five lookups at a time
+     */
+    private static final int[][][] ROW_MAP = new int[8][SIZE][1 << SIZE];
+
+    static {
+        for (var i = 0; i < SIZE; i++) {
+            ROWS[i] = ((1 << SIZE) - 1) << (i * SIZE);
+            for (var j = 0; j < SIZE; j++) {
+                COLUMNS[i] |= 1 << (j * SIZE + i);
+            }
+        }
+
+        for (var symmetry = 0; symmetry < 8; symmetry++) {
+            for (var x = 0; x < SIZE; x++) {
+                for (var y = 0; y < SIZE; y++) {
+                    // Mirror first for the last four, then turn clockwise the same way pieces rotate
+                    int mapX = symmetry >= 4 ? SIZE - 1 - x : x, mapY = y;
+                    for (var turn = 0; turn < symmetry % 4; turn++) {
+                        var turned = SIZE - 1 - mapY;
+                        mapY = mapX;
+                        mapX = turned;
+                    }
+                    CELL_MAP[symmetry][y * SIZE + x] = mapY * SIZE + mapX;
+                }
+            }
+            for (var row = 0; row < SIZE; row++) {
+                for (var bits = 0; bits < 1 << SIZE; bits++) {
+                    var mapped = 0;
+                    for (var x = 0; x < SIZE; x++) {
+                        if ((bits & (1 << x)) != 0) mapped |= 1 << CELL_MAP[symmetry][row * SIZE + x];
+                    }
+                    ROW_MAP[symmetry][row][bits] = mapped;
+                }
+            }
+        }
+
+        for (var symmetry = 0; symmetry < 8; symmetry++) {
+            for (var other = 0; other < 8; other++) {
+                var undoes = true;
+                for (var cell = 0; cell < CELLS && undoes; cell++) {
+                    undoes = CELL_MAP[other][CELL_MAP[symmetry][cell]] == cell;
+                }
+                if (undoes) INVERSE[symmetry] = other;
+            }
+        }
+    }
+
+    /**
+     * The default tablebase, once it has been looked for
+     */
+    private static Tablebase defaultTablebase;
+
+    /**
+     * Whether the default tablebase has been looked for
+     */
+    private static boolean defaultLoaded;
+
+    /**
+     * The pieces the tablebase is for
+     */
+    private final PieceSet set;
+
+    /**
+     * The number of symmetries boards share entries under: 8, 4, or 1 when pieces don't turn about their middle
+     */
+    private final int symmetries;
+
+    /**
+     * The mirror image of each piece, or -1 for pieces whose mirror image is not in the set
+     */
+    private final int[] mirror;
+
+    /**
+     * The blocks each shape covers with its middle on each block, or 0 where it would go off the board
+     */
+    private final int[][] placements;
+
+    /**
+     * The file, or null while it is being generated
+     */
+    private ByteBuffer data;
+
+    /**
+     * Where in the file the bitmap of boards, counts of entries and the entries start
+     */
+    private int bitmapOffset, rankOffset, entryOffset;
+
+    /**
+     * Work out the placements and symmetries of a piece set
+     * @param set the piece set
+     */
+    private Tablebase(PieceSet set) {
+        this.set = set;
+        var pieces = set.getCount();
+        placements = new int[pieces * PieceSet.ROTATIONS][CELLS];
+        for (var shape = 0; shape < placements.length; shape++) {
+            int[] offsetX = set.getOffsetX(shape);
+            int[] offsetY = set.getOffsetY(shape);
+            for (var cell = 0; cell < CELLS; cell++) {
+                var mask = 0;
+                for (var block = 0; block < offsetX.length; block++) {
+                    var x = cell % SIZE + offsetX[block];
+                    var y = cell / SIZE + offsetY[block];
+                    if (x < 0 || x >= SIZE || y < 0 || y >= SIZE) {
+                        mask = 0;
+                        break;
+                    }
+                    mask |= 1 << (y * SIZE + x);
+                }
+                placements[shape][cell] = mask;
+            }
+        }
+
+        mirror = new int[pieces];
+        var turns = true;
+        var closed = true;
+        for (var piece = 0; piece < pieces; piece++) {
+            turns &= turnsAboutMiddle(piece);
+            mirror[piece] = findMirror(piece);
+            closed &= mirror[piece] >= 0;
+        }
+        // Without rotations every symmetry would move the middle of some piece, so boards each get their own entry
+        symmetries = !turns ? 1 : closed ? 8 : 4;
+        if (symmetries == 1) {
+            logger.info("Pieces of {} don't turn about their middle block, so boards don't share entries", set.getName());
+        }
+    }
+
+    /**
+     * Check whether turning each rotation of a piece a quarter turn clockwise about its middle block gives another of
+     * its rotations. Pieces a whole number of blocks wide turn about their middle block, but an even-sized shape, such
+     * as those of the hexomino set, turns about a point between blocks, so turning the board would move its middle.
+     * @param piece the piece
+     * @return whether the piece turns about its middle block
+     */
+    private boolean turnsAboutMiddle(int piece) {
+        for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+            int[] offsetX = set.getOffsetX(PieceSet.shapeIndex(piece, rotation));
+            int[] offsetY = set.getOffsetY(PieceSet.shapeIndex(piece, rotation));
+            var turnedX = new int[offsetX.length];
+            var turnedY = new int[offsetY.length];
+            for (var block = 0; block < offsetX.length; block++) {
+                turnedX[block] = -offsetY[block];
+                turnedY[block] = offsetX[block];
+            }
+            if (!hasShape(piece, turnedX, turnedY)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the piece which, in some rotation, covers the mirror image of a piece's blocks
+     * @param piece the piece
+     * @return the mirror piece, or -1 if it is not in the set
+     */
+    private int findMirror(int piece) {
+        int[] offsetX = set.getOffsetX(PieceSet.shapeIndex(piece, 0));
+        int[] offsetY = set.getOffsetY(PieceSet.shapeIndex(piece, 0));
+        var mirroredX = new int[offsetX.length];
+        for (var block = 0; block < offsetX.length; block++) {
+            mirroredX[block] = -offsetX[block];
+        }
+        for (var other = 0; other < set.getCount(); other++) {
+            if (hasShape(other, mirroredX, offsetY)) return other;
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether some rotation of a piece covers exactly the given blocks
+     * @param piece the piece
+     * @param blockX column offsets of the blocks from the middle
+     * @param blockY row offsets of the blocks from the middle
+     * @return whether a rotation covers them
+     */
+    private boolean hasShape(int piece, int[] blockX, int[] blockY) {
+        for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+            int[] otherX = set.getOffsetX(PieceSet.shapeIndex(piece, rotation));
+            int[] otherY = set.getOffsetY(PieceSet.shapeIndex(piece, rotation));
+            if (otherX.length != blockX.length) continue;
+            var matches = true;
+            for (var block = 0; block < blockX.length && matches; block++) {
+                var found = false;
+                for (var candidate = 0; candidate < otherX.length && !found; candidate++) {
+                    found = otherX[candidate] == blockX[block] && otherY[candidate] == blockY[block];
+                }
+                matches = found;
+            }
+            if (matches) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the tablebase for the default piece set, from the file named by the tetrecs.tablebase system property or
+     * .tetrecs/tablebase-{set}.bin in the user's home directory. Only looked for once.
+     * @return the tablebase, or null if there isn't one for the default piece set
+     */
+    public static synchronized Tablebase getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            var set = PieceSet.getDefault();
+            var path = getDefaultPath(set);
+            if (Files.exists(path)) {
+                try {
+                    defaultTablebase = open(path, set);
+                    logger.info("Loaded tablebase {}", path);
+                } catch (IOException e) {
+                    logger.error("Unable to load tablebase {}: {}", path, e.getMessage());
+                }
+            } else {
+                logger.info("No tablebase at {}", path);
+            }
+        }
+        return defaultTablebase;
+    }
+
+    /**
+     * Get where the tablebase for a piece set is kept, unless the tetrecs.tablebase system property says otherwise
+     * @param set the piece set
+     * @return the path of the file
+     */
+    public static Path getDefaultPath(PieceSet set) {
+        var property = System.getProperty("tetrecs.tablebase");
+        return property != null ? Paths.get(property)
+            : Paths.get(System.getProperty("user.home"), ".tetrecs", "tablebase-" + set.getName() + ".bin");
+    }
+
+    /**
+     * Map a tablebase file into memory
+     * @param file the file
+     * @param set the piece set it must have been generated for
+     * @return the tablebase
+     * @throws IOException if the file can't be read, or isn't a tablebase for the piece set
+     */
+    public static Tablebase open(Path file, PieceSet set) throws IOException {
+        var tablebase = new Tablebase(set);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < HEADER || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not a tablebase");
+            }
+            if (data.getInt(8) != set.getCount() || data.getInt(12) != tablebase.symmetries
+                || data.getLong(24) != set.getChecksum()) {
+                throw new IOException("Generated for a different piece set");
+            }
+            tablebase.attach(data);
+            if (channel.size() < tablebase.entryOffset + (long) data.getInt(16) * set.getCount() * 2) {
+                throw new IOException("Tablebase is cut short");
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * Work out the tablebase for a piece set and write it to a file, using every core
+     * @param set the piece set
+     * @param file the file to write
+     * @param progress told the percentage done as the entries are worked out
+     * @throws IOException if the file can't be written
+     */
+    public static void generate(PieceSet set, Path file, IntConsumer progress) throws IOException {
+        var tablebase = new Tablebase(set);
+        var words = BOARDS / 64;
+
+        // Find every board which can be left after a move and is the smallest of its symmetric forms
+        var bitmap = new long[words];
+        IntStream.range(0, words).parallel().forEach(word -> {
+            var bits = 0L;
+            for (var bit = 0; bit < 64; bit++) {
+                var board = word * 64 + bit;
+                if (clearedBy(board) == 0 && tablebase.canonical(board) == board) bits |= 1L << bit;
+            }
+            bitmap[word] = bits;
+        });
+        var entries = 0;
+        for (var bits : bitmap) {
+            entries += Long.bitCount(bits);
+        }
+        logger.info("{} boards to work out for {} pieces, under {} symmetries", entries, set.getCount(),
+            tablebase.symmetries);
+
+        var pieces = set.getCount();
+        var parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var size = HEADER + words * 8L + words * 4L + (long) entries * pieces * 2;
+            var data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(8, pieces);
+            data.putInt(12, tablebase.symmetries);
+            data.putInt(16, entries);
+            data.putLong(24, set.getChecksum());
+            tablebase.attach(data);
+
+            var rank = 0;
+            for (var word = 0; word < words; word++) {
+                data.putLong(tablebase.bitmapOffset + word * 8, bitmap[word]);
+                data.putInt(tablebase.rankOffset + word * 4, rank);
+                rank += Long.bitCount(bitmap[word]);
+            }
+
+            // Each run of 64 boards writes its own entries, so the runs can be worked out in any order at once
+            var done = new AtomicInteger();
+            IntStream.range(0, words).parallel().forEach(word -> {
+                var bits = bitmap[word];
+                var entry = data.getInt(tablebase.rankOffset + word * 4);
+                while (bits != 0) {
+                    var board = word * 64 + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    for (var piece = 0; piece < pieces; piece++) {
+                        data.putShort(tablebase.entryOffset + (entry * pieces + piece) * 2,
+                            tablebase.solve(board, piece));
+                    }
+                    entry++;
+                }
+                var finished = done.incrementAndGet();
+                if (finished % (words / 100) == 0) progress.accept(finished * 100 / words);
+            });
+            data.force();
+            progress.accept(100);
+        }
+    }
+
+    /**
+     * Start reading entries from a file
+     * @param data the file
+     */
+    private void attach(ByteBuffer data) {
+        this.data = data;
+        bitmapOffset = HEADER;
+        rankOffset = bitmapOffset + BOARDS / 64 * 8;
+        entryOffset = rankOffset + BOARDS / 64 * 4;
+    }
+
+    /**
+     * Check whether the tablebase can be used for a grid
+     * @param grid the grid
+     * @return true if the grid is 5x5 and uses the same pieces
+     */
+    public boolean covers(Grid grid) {
+        return grid.getCols() == SIZE && grid.getRows() == SIZE && grid.getPieceSet() == set;
+    }
+
+    /**
+     * Get the pieces the tablebase was generated for
+     * @return the piece set
+     */
+    public PieceSet getPieceSet() {
+        return set;
+    }
+
+    /**
+     * Get which blocks of a grid are filled, as the tablebase holds boards
+     * @param grid a 5x5 grid
+     * @return the board
+     */
+    public static int board(Grid grid) {
+        var board = 0;
+        for (var y = 0; y < SIZE; y++) {
+            for (var x = 0; x < SIZE; x++) {
+                if (grid.get(x, y) != 0) board |= 1 << (y * SIZE + x);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Find the most lines a piece can clear on a board
+     * @param board the board, which must have no full lines
+     * @param piece the piece number
+     * @return the lines, or -1 if the piece can't be played anywhere
+     */
+    public int bestLines(int board, int piece) {
+        var entry = entry(board, piece, symmetry(board));
+        return entry == NO_MOVE ? -1 : entry >>> 7;
+    }
+
+    /**
+     * Find the move clearing the most lines with a piece, one lookup in the table
+     * @param board the board, which must have no full lines
+     * @param piece the piece number
+     * @return the move, or null if the piece can't be played anywhere
+     */
+    public Move best(int board, int piece) {
+        var symmetry = symmetry(board);
+        var entry = entry(board, piece, symmetry);
+        if (entry == NO_MOVE) return null;
+
+        // The entry is a move on the canonical board, so turn its blocks back onto this one and find the rotation
+        var canonicalPiece = symmetry >= 4 ? mirror[piece] : piece;
+        var cell = entry & 31;
+        var blocks = placements[PieceSet.shapeIndex(canonicalPiece, (entry >>> 5) & 3)][cell];
+        var inverse = INVERSE[symmetry];
+        var middle = CELL_MAP[inverse][cell];
+        var covered = transform(blocks, inverse);
+        for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+            if (placements[PieceSet.shapeIndex(piece, rotation)][middle] == covered) {
+                return new Move(false, rotation, middle % SIZE, middle / SIZE, entry >>> 7);
+            }
+        }
+        throw new IllegalStateException("Tablebase move does not match the piece");
+    }
+
+    /**
+     * Find the best way to play the current and following pieces of a game: the move clearing the most lines over
+     * both pieces, playing either first. Moves that leave the second piece nowhere to go come last.
+     * @param grid the game's grid, which the tablebase must cover
+     * @param current the current piece
+     * @param following the following piece
+     * @return the first move to make, or null if neither piece can be played
+     */
+    public Move best(Grid grid, GamePiece current, GamePiece following) {
+        return best(board(grid), current.getPiece(), following.getPiece());
+    }
+
+    /**
+     * Find the best way to play the current and following pieces on a board: the move clearing the most lines over
+     * both pieces, playing either first. Moves that leave the second piece nowhere to go come last.
+     * @param board the board, which must have no full lines
+     * @param current the current piece number
+     * @param following the following piece number
+     * @return the first move to make, or null if neither piece can be played
+     */
+    public Move best(int board, int current, int following) {
+        Move best = null;
+        var bestValue = Integer.MIN_VALUE;
+        for (var swap = 0; swap < 2; swap++) {
+            var first = swap == 0 ? current : following;
+            var second = swap == 0 ? following : current;
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var shape = PieceSet.shapeIndex(first, rotation);
+                if (set.getDistinctShape(shape) != shape) continue;
+                for (var cell = 0; cell < CELLS; cell++) {
+                    var blocks = placements[shape][cell];
+                    if (blocks == 0 || (board & blocks) != 0) continue;
+
+                    var filled = board | blocks;
+                    var cleared = clearedBy(filled);
+                    var lines = countLines(filled);
+                    var after = bestLines(filled & ~cleared, second);
+                    // Leaving the second piece stuck costs more than any number of lines
+                    var value = after < 0 ? lines - 100 : lines + after;
+                    if (value > bestValue) {
+                        bestValue = value;
+                        best = new Move(swap == 1, rotation, cell % SIZE, cell / SIZE, lines + Math.max(after, 0));
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Work out the best entry for a piece on a board by trying every move
+     * @param board the board
+     * @param piece the piece number
+     * @return the entry
+     */
+    private short solve(int board, int piece) {
+        var best = NO_MOVE;
+        int bestLines = -1, bestLeft = Integer.MAX_VALUE;
+        for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+            var shape = PieceSet.shapeIndex(piece, rotation);
+            if (set.getDistinctShape(shape) != shape) continue;
+            for (var cell = 0; cell < CELLS; cell++) {
+                var blocks = placements[shape][cell];
+                if (blocks == 0 || (board & blocks) != 0) continue;
+
+                var filled = board | blocks;
+                var lines = countLines(filled);
+                var left = Integer.bitCount(filled & ~clearedBy(filled));
+                if (lines > bestLines || (lines == bestLines && left < bestLeft)) {
+                    bestLines = lines;
+                    bestLeft = left;
+                    best = (short) (lines << 7 | rotation << 5 | cell);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Read the entry for a board and piece
+     * @param board the board
+     * @param piece the piece number
+     * @param symmetry the symmetry taking the board to its canonical form
+     * @return the entry, which is NO_MOVE if the piece can't be played
+     */
+    private int entry(int board, int piece, int symmetry) {
+        var canonical = transform(board, symmetry);
+        var word = canonical >>> 6;
+        var bits = data.getLong(bitmapOffset + word * 8);
+        var bit = 1L << (canonical & 63);
+        if ((bits & bit) == 0) {
+            throw new IllegalArgumentException("Board has a full line");
+        }
+        var entry = data.getInt(rankOffset + word * 4) + Long.bitCount(bits & (bit - 1));
+        var canonicalPiece = symmetry >= 4 ? mirror[piece] : piece;
+        return data.getShort(entryOffset + (entry * set.getCount() + canonicalPiece) * 2);
+    }
+
+    /**
+     * Find the symmetry taking a board to the smallest of its forms
+     * @param board the board
+     * @return the symmetry
+     */
+    private int symmetry(int board) {
+        int best = board, symmetry = 0;
+        for (var candidate = 1; candidate < symmetries; candidate++) {
+            var transformed = transform(board, candidate);
+            if (transformed < best) {
+                best = transformed;
+                symmetry = candidate;
+            }
+        }
+        return symmetry;
+    }
+
+    /**
+     * Find the smallest form of a board
+     * @param board the board
+     * @return the canonical board
+     */
+    private int canonical(int board) {
+        return transform(board, symmetry(board));
+    }
+
+    /**
+     * Apply a symmetry to a board
+     * @param board the board
+     * @param symmetry the symmetry
+     * @return the transformed board
+     */
+    private static int transform(int board, int symmetry) {
+        int[][] rows = ROW_MAP[symmetry];
+        return rows[0][board & 31] | rows[1][(board >>> 5) & 31] | rows[2][(board >>> 10) & 31]
+            | rows[3][(board >>> 15) & 31] | rows[4][(board >>> 20) & 31];
+    }
+
+    /**
+     * Find the blocks in the full rows and columns of a board
+     * @param board the board
+     * @return the blocks that would be cleared
+     */
+    private static int clearedBy(int board) {
+        var cleared = 0;
+        for (var i = 0; i < SIZE; i++) {
+            if ((board & ROWS[i]) == ROWS[i]) cleared |= ROWS[i];
+            if ((board & COLUMNS[i]) == COLUMNS[i]) cleared |= COLUMNS[i];
+        }
+        return cleared;
+    }
+
+    /**
+     * Count the full rows and columns of a board
+     * @param board the board
+     * @return the lines that would be cleared
+     */
+    private static int countLines(int board) {
+        var lines = 0;
+        for (var i = 0; i < SIZE; i++) {
+            if ((board & ROWS[i]) == ROWS[i]) lines++;
+            if ((board & COLUMNS[i]) == COLUMNS[i]) lines++;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,244 @@
+package uk.ac.soton.comp1206.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a file written by TelemetryRecorder. The file is mapped into memory rather than read, and only the columns a
+ * query asks for are decoded, so scanning a term's files costs little more than reading the columns needed.
+ *
+ * A block cut short by the game stopping part way through a write ends the file, and everything before it is read.
+ */
+public class TelemetryReader {
+
+    /**
+     * The file, mapped
+     */
+    private final MappedByteBuffer data;
+
+    /**
+     * Map a telemetry file
+     * @param file the file
+     * @throws IOException if it can't be read, or isn't a telemetry file this version can read
+     */
+    public TelemetryReader(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Telemetry file is too large to map");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < Integer.BYTES * 2 || data.getInt(0) != TelemetryRecorder.MAGIC
+            || data.getInt(Integer.BYTES) != TelemetryRecorder.VERSION) {
+            throw new IOException("Not a version " + TelemetryRecorder.VERSION + " telemetry file");
+        }
+    }
+
+    /**
+     * Get the size of the file
+     * @return bytes
+     */
+    public int getSize() {
+        return data.limit();
+    }
+
+    /**
+     * Visit every whole block in the file, in the order they were written
+     * @param visitor called with each block, which is only valid during the call
+     */
+    public void forEachBlock(Consumer<Block> visitor) {
+        var offset = Integer.BYTES * 2;
+        while (offset + Integer.BYTES <= data.limit()) {
+            var size = data.getInt(offset);
+            if (size <= 0 || offset + Integer.BYTES + (long) size > data.limit()) break;
+            visitor.accept(new Block(data.slice(offset + Integer.BYTES, size)));
+            offset += Integer.BYTES + size;
+        }
+    }
+
+    /**
+     * One block of rows, all from the same game
+     */
+    public static class Block {
+
+        /**
+         * The block's bytes
+         */
+        private final ByteBuffer data;
+
+        /**
+         * When the game started, in milliseconds since the epoch
+         */
+        private final long started;
+
+        /**
+         * The mode written for the game
+         */
+        private final int mode;
+
+        /**
+         * The size of the game's board
+         */
+        private final int cols, rows;
+
+        /**
+         * The number of rows in the block
+         */
+        private final int count;
+
+        /**
+         * When the first row was recorded, in milliseconds since the epoch
+         */
+        private final long firstTime;
+
+        /**
+         * The names of the pieces, indexed by the piece column
+         */
+        private final List<String> pieceNames = new ArrayList<>();
+
+        /**
+         * Where each column's bytes start
+         */
+        private final int[] columnStart = new int[TelemetryRecorder.COLUMNS];
+
+        /**
+         * The length of each column's bytes
+         */
+        private final int[] columnLength = new int[TelemetryRecorder.COLUMNS];
+
+        /**
+         * Read the header of a block and find its columns
+         * @param data the block's bytes
+         */
+        private Block(ByteBuffer data) {
+            this.data = data;
+            started = data.getLong();
+            mode = data.get() & 0xFF;
+            cols = data.getShort() & 0xFFFF;
+            rows = data.getShort() & 0xFFFF;
+            count = data.getInt();
+            firstTime = data.getLong();
+            var names = data.get() & 0xFF;
+            for (var i = 0; i < names; i++) {
+                var name = new byte[data.get() & 0xFF];
+                data.get(name);
+                pieceNames.add(new String(name, StandardCharsets.UTF_8));
+            }
+            for (var column = 0; column < TelemetryRecorder.COLUMNS; column++) {
+                columnLength[column] = data.getInt();
+                columnStart[column] = data.position();
+                data.position(data.position() + columnLength[column]);
+            }
+        }
+
+        /**
+         * Get when the game started
+         * @return milliseconds since the epoch
+         */
+        public long getStarted() {
+            return started;
+        }
+
+        /**
+         * Get the mode the game was played in
+         * @return the mode, or null if it had none or this build doesn't know it
+         */
+        public GameMode getMode() {
+            return mode < GameMode.values().length ? GameMode.values()[mode] : null;
+        }
+
+        /**
+         * Get the number of columns of the game's board
+         * @return columns
+         */
+        public int getCols() {
+            return cols;
+        }
+
+        /**
+         * Get the number of rows of the game's board
+         * @return rows
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Get the number of pieces played in this block
+         * @return rows of telemetry
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the names of the pieces, which the piece column indexes
+         * @return the names
+         */
+        public List<String> getPieceNames() {
+            return pieceNames;
+        }
+
+        /**
+         * Decode when every piece was played
+         * @return milliseconds since the epoch for each row
+         */
+        public long[] getTimes() {
+            var times = new long[count];
+            var position = columnStart[TelemetryRecorder.TIME];
+            var time = firstTime;
+            for (var row = 0; row < count; row++) {
+                var value = 0L;
+                var shift = 0;
+                byte next;
+                do {
+                    next = data.get(position++);
+                    value |= (long) (next & 0x7F) << shift;
+                    shift += 7;
+                } while (next < 0);
+                time += value;
+                times[row] = time;
+            }
+            return times;
+        }
+
+        /**
+         * Decode one of the int columns
+         * @param column the column, one of the column constants of TelemetryRecorder other than TIME
+         * @return the value for each row, which for the piece column is an index into the piece names
+         */
+        public int[] getColumn(int column) {
+            if (column == TelemetryRecorder.TIME) {
+                throw new IllegalArgumentException("Times are read with getTimes");
+            }
+            var values = new int[count];
+            var position = columnStart[column];
+            if (column == TelemetryRecorder.PIECE || column == TelemetryRecorder.ROTATION) {
+                for (var row = 0; row < count; row++) {
+                    values[row] = data.get(position + row) & 0xFF;
+                }
+                return values;
+            }
+            for (var row = 0; row < count; row++) {
+                var value = 0;
+                var shift = 0;
+                byte next;
+                do {
+                    next = data.get(position++);
+                    value |= (next & 0x7F) << shift;
+                    shift += 7;
+                } while (next < 0);
+                values[row] = value;
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TelemetryRecorder keeps a row for every piece played, in a compact columnar file that TelemetryReader can scan
+ * without parsing logs.
+ *
+ * Rows are gathered a game at a time into columns on the game's logic thread, which only stores a few ints. Once a
+ * game has BLOCK_ROWS rows, or ends, they are encoded into a block and written on a background thread, appended to the
+ * file in the order they were finished.
+ *
+ * The file starts with MAGIC and VERSION, then holds blocks, each starting with its length so a reader can skip it or
+ * stop at one cut short by a crash. A block is the start time, mode and board size of its game, the number of rows,
+ * the time of its first row, and the names of the pieces it uses, each row's piece being an index into them. Then
+ * come the columns, in the order of the column constants, each with its length in bytes so a query can skip the
+ * columns it doesn't need. The times are the milliseconds since the row before, and every column but the piece and
+ * rotation bytes is a varint, so most rows take about a dozen bytes.
+ */
+public class TelemetryRecorder {
+
+    private static final Logger logger = LogManager.getLogger(TelemetryRecorder.class);
+
+    /**
+     * The first int of a telemetry file
+     */
+    public static final int MAGIC = 0x54454C31;
+
+    /**
+     * The version of the format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The most rows in a block
+     */
+    public static final int BLOCK_ROWS = 1024;
+
+    /**
+     * The columns of a block, in order: when the piece was played, which piece, its rotation, the column and row of
+     * its middle, the lines and blocks it cleared, the multiplier it scored at, the score it gained, the time left on
+     * the turn and the time taken over it
+     */
+    public static final int TIME = 0, PIECE = 1, ROTATION = 2, X = 3, Y = 4, LINES = 5, BLOCKS = 6, MULTIPLIER = 7,
+        SCORE = 8, REMAINING = 9, ELAPSED = 10;
+
+    /**
+     * The number of columns
+     */
+    public static final int COLUMNS = 11;
+
+    /**
+     * The mode written for a game played without one
+     */
+    public static final int NO_MODE = 0xFF;
+
+    /**
+     * The recorder used by the game, made the first time it is asked for
+     */
+    private static TelemetryRecorder defaultRecorder;
+
+    /**
+     * Whether the default recorder has been looked for
+     */
+    private static boolean defaultChecked;
+
+    /**
+     * The file rows are appended to
+     */
+    private final Path path;
+
+    /**
+     * The thread writing blocks, one at a time
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Telemetry writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The last write asked for, which later writes queue behind
+     */
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    /**
+     * The open file, or null until the first block is written
+     */
+    private FileChannel channel;
+
+    /**
+     * Create a recorder appending to the given file
+     * @param path the file
+     */
+    public TelemetryRecorder(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Get the recorder used by the game. Telemetry is only kept when the tetrecs.telemetry system property names a
+     * directory, where each run of the game writes a file of its own.
+     * @return the default recorder, or null if telemetry is off
+     */
+    public static synchronized TelemetryRecorder getDefault() {
+        if (!defaultChecked) {
+            defaultChecked = true;
+            var property = System.getProperty("tetrecs.telemetry");
+            if (property != null && !property.isBlank()) {
+                var name = "telemetry-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-"
+                    + ProcessHandle.current().pid() + ".tel";
+                defaultRecorder = new TelemetryRecorder(Paths.get(property).resolve(name));
+                logger.info("Recording telemetry to {}", defaultRecorder.path);
+            }
+        }
+        return defaultRecorder;
+    }
+
+    /**
+     * Get the file rows are appended to
+     * @return the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Start gathering the rows of a game
+     * @param mode the mode played, or null
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the game's rows, to be recorded from a single thread
+     */
+    public Session startGame(GameMode mode, int cols, int rows) {
+        return new Session(mode, cols, rows);
+    }
+
+    /**
+     * Wait for every block asked for so far to be written
+     * @param timeoutMillis the longest to wait, in milliseconds
+     */
+    public void flush(long timeoutMillis) {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = pending;
+        }
+        try {
+            last.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.error("Telemetry was not written in time: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write a block in the background, after any asked for before it
+     * @param block the encoded block
+     */
+    private synchronized void writeAsync(ByteBuffer block) {
+        pending = pending.thenRunAsync(() -> write(block), writer);
+    }
+
+    /**
+     * Append a block to the file, opening it and writing the header first if need be
+     * @param block the encoded block
+     */
+    private void write(ByteBuffer block) {
+        try {
+            if (channel == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+                if (channel.size() == 0) {
+                    var header = ByteBuffer.allocate(Integer.BYTES * 2).putInt(MAGIC).putInt(VERSION).flip();
+                    while (header.hasRemaining()) {
+                        channel.write(header);
+                    }
+                }
+            }
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write telemetry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The rows of one game, kept in columns until there are enough for a block
+     */
+    public class Session {
+
+        /**
+         * The mode written for the game
+         */
+        private final int mode;
+
+        /**
+         * The size of the board
+         */
+        private final int cols, rows;
+
+        /**
+         * When the game started, in milliseconds since the epoch
+         */
+        private final long started = System.currentTimeMillis();
+
+        /**
+         * When each row was recorded, in milliseconds since the epoch
+         */
+        private final long[] times = new long[BLOCK_ROWS];
+
+        /**
+         * The name of each row's piece
+         */
+        private final String[] pieces = new String[BLOCK_ROWS];
+
+        /**
+         * The other columns, by column number, with PIECE and TIME unused
+         */
+        private final int[][] values = new int[COLUMNS][BLOCK_ROWS];
+
+        /**
+         * The rows gathered since the last block
+         */
+        private int count;
+
+        /**
+         * Start gathering the rows of a game
+         * @param mode the mode played, or null
+         * @param cols number of columns
+         * @param rows number of rows
+         */
+        private Session(GameMode mode, int cols, int rows) {
+            this.mode = mode == null ? NO_MODE : mode.ordinal();
+            this.cols = cols;
+            this.rows = rows;
+        }
+
+        /**
+         * Record a piece played
+         * @param piece the name of the piece
+         * @param rotation its rotation
+         * @param x column of its middle
+         * @param y row of its middle
+         * @param lines lines it cleared
+         * @param blocks blocks it cleared
+         * @param multiplier the multiplier it scored at
+         * @param score the score it gained
+         * @param remaining milliseconds left on the turn when it was played
+         * @param elapsed milliseconds taken over the turn
+         */
+        public void record(String piece, int rotation, int x, int y, int lines, int blocks, int multiplier, int score,
+                           int remaining, int elapsed) {
+            times[count] = System.currentTimeMillis();
+            pieces[count] = piece;
+            values[ROTATION][count] = rotation;
+            values[X][count] = x;
+            values[Y][count] = y;
+            values[LINES][count] = lines;
+            values[BLOCKS][count] = blocks;
+            values[MULTIPLIER][count] = multiplier;
+            values[SCORE][count] = score;
+            values[REMAINING][count] = remaining;
+            values[ELAPSED][count] = elapsed;
+            if (++count == BLOCK_ROWS) {
+                finishBlock();
+            }
+        }
+
+        /**
+         * Write out any rows not yet written, at the end of the game
+         */
+        public void finish() {
+            if (count > 0) {
+                finishBlock();
+            }
+        }
+
+        /**
+         * Encode the rows gathered into a block, hand it to the writer and start the next
+         */
+        private void finishBlock() {
+            var dictionary = new ArrayList<String>();
+            var columns = new byte[COLUMNS][];
+            var pieceColumn = new byte[count];
+            for (var row = 0; row < count; row++) {
+                var index = dictionary.indexOf(pieces[row]);
+                if (index < 0) {
+                    index = dictionary.size();
+                    dictionary.add(pieces[row]);
+                }
+                pieceColumn[row] = (byte) index;
+            }
+            columns[PIECE] = pieceColumn;
+
+            var timeColumn = new VarintWriter(count);
+            for (var row = 0; row < count; row++) {
+                // The clock can be set back, which would be a negative gap
+                timeColumn.write(row == 0 ? 0 : Math.max(0, times[row] - times[row - 1]));
+            }
+            columns[TIME] = timeColumn.toArray();
+
+            var rotationColumn = new byte[count];
+            for (var row = 0; row < count; row++) {
+                rotationColumn[row] = (byte) values[ROTATION][row];
+            }
+            columns[ROTATION] = rotationColumn;
+
+            for (var column = X; column < COLUMNS; column++) {
+                var varints = new VarintWriter(count);
+                for (var row = 0; row < count; row++) {
+                    varints.write(values[column][row]);
+                }
+                columns[column] = varints.toArray();
+            }
+
+            var block = encode(dictionary, columns);
+            count = 0;
+            writeAsync(block);
+        }
+
+        /**
+         * Lay out a block
+         * @param dictionary the names of the pieces in the block
+         * @param columns the encoded columns
+         * @return the block, ready to write
+         */
+        private ByteBuffer encode(List<String> dictionary, byte[][] columns) {
+            var names = new byte[dictionary.size()][];
+            var size = Long.BYTES * 2 + 1 + Short.BYTES * 2 + Integer.BYTES + 1;
+            for (var i = 0; i < names.length; i++) {
+                names[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+                size += 1 + names[i].length;
+            }
+            for (var column : columns) {
+                size += Integer.BYTES + column.length;
+            }
+
+            var block = ByteBuffer.allocate(Integer.BYTES + size);
+            block.putInt(size);
+            block.putLong(started).put((byte) mode).putShort((short) cols).putShort((short) rows);
+            block.putInt(count).putLong(times[0]);
+            block.put((byte) names.length);
+            for (var name : names) {
+                block.put((byte) name.length).put(name);
+            }
+            for (var column : columns) {
+                block.putInt(column.length).put(column);
+            }
+            return block.flip();
+        }
+    }
+
+    /**
+     * Gathers varints into a growing array
+     */
+    private static class VarintWriter {
+
+        /**
+         * The bytes so far
+         */
+        private byte[] bytes;
+
+        /**
+         * The bytes used
+         */
+        private int length;
+
+        /**
+         * Start with room for about one byte per value
+         * @param values the number of values expected
+         */
+        VarintWriter(int values) {
+            bytes = new byte[values + 16];
+        }
+
+        /**
+         * Add a value, which must not be negative
+         * @param value the value
+         */
+        void write(long value) {
+            if (length + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        /**
+         * Get the bytes written
+         * @return a copy of them
+         */
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package uk.ac.soton.comp1206.input;
+
+import javafx.scene.input.KeyCode;
+
+/**
+ * The actions a player can take from the keyboard in a game
+ */
+public enum InputAction {
+    MOVE_UP,
+    MOVE_DOWN,
+    MOVE_LEFT,
+    MOVE_RIGHT,
+    ROTATE,
+    ROTATE_BACK,
+    SWAP,
+    DROP,
+    UNDO,
+    REDO,
+    HINT,
+    EXIT;
+
+    /**
+     * Whether this action moves the aim, and so repeats while its key is held
+     * @return true for the four aim movements
+     */
+    public boolean isMovement() {
+        return this == MOVE_UP || this == MOVE_DOWN || this == MOVE_LEFT || this == MOVE_RIGHT;
+    }
+
+    /**
+     * Get the action bound to a key
+     * @param code the key
+     * @return the action, or null if the key does nothing
+     */
+    public static InputAction forKey(KeyCode code) {
+        return switch (code) {
+            // Move aim (arrow keys or WASD)
+            case UP, W -> MOVE_UP;
+            case DOWN, S -> MOVE_DOWN;
+            case LEFT, A -> MOVE_LEFT;
+            case RIGHT, D -> MOVE_RIGHT;
+            // Rotate next piece clockwise (E, C, or CLOSE_BRACKET key)
+            case E, C, CLOSE_BRACKET -> ROTATE;
+            // Rotate next piece counterclockwise (Q, Z, or OPEN_BRACKET key)
+            case Q, Z, OPEN_BRACKET -> ROTATE_BACK;
+            // Swap current piece (R or SPACE key)
+            case R, SPACE -> SWAP;
+            // Drop the piece (ENTER or X key)
+            case ENTER, X -> DROP;
+            // Undo and redo the last turn, in practice mode (U and Y keys)
+            case U -> UNDO;
+            case Y -> REDO;
+            // Show the best move, when there is a tablebase for the board (H key)
+            case H -> HINT;
+            // Exit challenge (ESCAPE key)
+            case ESCAPE -> EXIT;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,356 @@
+package uk.ac.soton.comp1206.input;
+
+import javafx.beans.value.ChangeListener;
+import javafx.event.EventHandler;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Window;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The InputHandler turns key presses into game actions once per frame.
+ *
+ * Key events are only timestamped and buffered as they arrive. Each frame, update takes everything buffered in the
+ * order it happened and hands the actions to the target. The operating system's own key repeat is ignored: a key
+ * held down gives one action, and aim movement then repeats at a fixed speed of its own. Movement repeats once the
+ * key has been held for the delayed auto shift (DAS), then every auto repeat rate (ARR) interval after that. Repeats
+ * are worked out from the timestamps rather than counted in frames, so the aim moves at the same speed whatever the
+ * frame rate or a dropped frame. Keys held when the window loses focus are released there and then, as their releases
+ * go to another window and never arrive.
+ *
+ * The DAS and ARR can be set in milliseconds with the tetrecs.das and tetrecs.arr system properties. An ARR of 0 moves
+ * the aim straight to the edge of the board, however large the board is.
+ *
+ * The time from each key press to the first frame which can show its result is recorded in a histogram. A jump to the
+ * edge counts as a single result, however many steps it took.
+ */
+public class InputHandler {
+
+    private static final Logger logger = LogManager.getLogger(InputHandler.class);
+
+    /**
+     * The most repeats given for a single held key in one frame
+     */
+    private static final int MAX_REPEATS_PER_FRAME = 64;
+
+    /**
+     * Receives the actions taken by the player
+     */
+    public interface Target {
+        /**
+         * Carry out an action
+         * @param action the action
+         * @return a future completed once the result can be shown, or null if it already has been
+         */
+        CompletableFuture<?> perform(InputAction action);
+
+        /**
+         * Move the aim one step, as a movement action does
+         * @param movement a movement action
+         * @return true if the aim moved, false if it was already at the edge of the board
+         */
+        boolean move(InputAction movement);
+    }
+
+    /**
+     * A key event waiting for the next frame
+     */
+    private static class TimedInput {
+
+        /**
+         * When the key event arrived, from System.nanoTime
+         */
+        final long timestamp;
+
+        /**
+         * The action bound to the key
+         */
+        final InputAction action;
+
+        /**
+         * True for a press, false for a release
+         */
+        final boolean pressed;
+
+        TimedInput(long timestamp, InputAction action, boolean pressed) {
+            this.timestamp = timestamp;
+            this.action = action;
+            this.pressed = pressed;
+        }
+    }
+
+    /**
+     * An action whose result has not been shown yet
+     */
+    private static class Pending {
+
+        /**
+         * When the key behind it was pressed, from System.nanoTime
+         */
+        final long timestamp;
+
+        /**
+         * Completed once the result can be shown, or null if it already can
+         */
+        final CompletableFuture<?> done;
+
+        Pending(long timestamp, CompletableFuture<?> done) {
+            this.timestamp = timestamp;
+            this.done = done;
+        }
+    }
+
+    /**
+     * Where actions are sent
+     */
+    private final Target target;
+
+    /**
+     * How long a movement key is held before it repeats, in nanoseconds
+     */
+    private final long delayedAutoShift;
+
+    /**
+     * The time between repeats of a held movement key, in nanoseconds
+     */
+    private final long autoRepeatRate;
+
+    /**
+     * Key events waiting for the next frame
+     */
+    private final ArrayDeque<TimedInput> buffer = new ArrayDeque<>();
+
+    /**
+     * The actions whose keys are held down
+     */
+    private final EnumSet<InputAction> held = EnumSet.noneOf(InputAction.class);
+
+    /**
+     * When the next repeat is due for every movement key held down, from System.nanoTime
+     */
+    private final Map<InputAction, Long> nextRepeat = new EnumMap<>(InputAction.class);
+
+    /**
+     * Actions whose results have not been shown yet
+     */
+    private final List<Pending> pending = new ArrayList<>();
+
+    /**
+     * Time from key press to the first frame showing the result
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * The scene the handler is listening to, or null if it is detached
+     */
+    private Scene scene;
+
+    /**
+     * The window of the scene, whose focus is watched, or null if it is detached or the scene has no window
+     */
+    private Window window;
+
+    /**
+     * Releases every key when the window loses focus
+     */
+    private final ChangeListener<Boolean> onFocus = (observable, wasFocused, focused) -> {
+        if (!focused) releaseAll();
+    };
+
+    /**
+     * Handles key presses
+     */
+    private final EventHandler<KeyEvent> onPressed = event -> receive(event, true);
+
+    /**
+     * Handles key releases
+     */
+    private final EventHandler<KeyEvent> onReleased = event -> receive(event, false);
+
+    /**
+     * Create an input handler using the DAS and ARR from the system properties
+     * @param target where to send actions
+     */
+    public InputHandler(Target target) {
+        this(target, Long.getLong("tetrecs.das", 170), Long.getLong("tetrecs.arr", 50));
+    }
+
+    /**
+     * Create an input handler
+     * @param target where to send actions
+     * @param delayedAutoShiftMillis how long a movement key is held before it repeats, in milliseconds
+     * @param autoRepeatRateMillis the time between repeats, in milliseconds
+     */
+    public InputHandler(Target target, long delayedAutoShiftMillis, long autoRepeatRateMillis) {
+        this.target = target;
+        this.delayedAutoShift = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayedAutoShiftMillis));
+        this.autoRepeatRate = TimeUnit.MILLISECONDS.toNanos(Math.max(0, autoRepeatRateMillis));
+    }
+
+    /**
+     * Start listening to the keys pressed in a scene
+     * @param scene the scene
+     */
+    public void attach(Scene scene) {
+        detach();
+        this.scene = scene;
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, onPressed);
+        scene.addEventHandler(KeyEvent.KEY_RELEASED, onReleased);
+        window = scene.getWindow();
+        if (window != null) {
+            window.focusedProperty().addListener(onFocus);
+        }
+    }
+
+    /**
+     * Stop listening and forget any keys buffered or held
+     */
+    public void detach() {
+        if (scene != null) {
+            scene.removeEventHandler(KeyEvent.KEY_PRESSED, onPressed);
+            scene.removeEventHandler(KeyEvent.KEY_RELEASED, onReleased);
+            scene = null;
+        }
+        if (window != null) {
+            window.focusedProperty().removeListener(onFocus);
+            window = null;
+        }
+        buffer.clear();
+        held.clear();
+        nextRepeat.clear();
+        pending.clear();
+    }
+
+    /**
+     * Timestamp a key event and keep it for the next frame
+     * @param event the key event
+     * @param pressed true for a press, false for a release
+     */
+    private void receive(KeyEvent event, boolean pressed) {
+        var action = InputAction.forKey(event.getCode());
+        if (action != null) {
+            buffer.add(new TimedInput(System.nanoTime(), action, pressed));
+        }
+    }
+
+    /**
+     * Release every key held down or pressed since the last frame, as of now. The releases are buffered like any other,
+     * so repeats due before now still happen, and a key pressed again afterwards counts as a new press.
+     */
+    private void releaseAll() {
+        var down = EnumSet.copyOf(held);
+        for (var input : buffer) {
+            if (input.pressed) down.add(input.action);
+        }
+        var now = System.nanoTime();
+        for (var action : down) {
+            buffer.add(new TimedInput(now, action, false));
+        }
+    }
+
+    /**
+     * Handle everything that happened since the last frame: buffered key events and repeats of held movement keys, in
+     * the order they happened. Called once per frame, before the frame is drawn.
+     * @param now the time of the frame, from System.nanoTime
+     */
+    public void update(long now) {
+        TimedInput input;
+        while ((input = buffer.poll()) != null) {
+            repeatUntil(input.timestamp);
+            if (!input.pressed) {
+                held.remove(input.action);
+                nextRepeat.remove(input.action);
+            } else if (held.add(input.action)) {
+                // A key already held is the operating system repeating it, which is ignored
+                if (input.action.isMovement()) {
+                    nextRepeat.put(input.action, input.timestamp + delayedAutoShift);
+                }
+                perform(input.action, input.timestamp);
+            }
+        }
+        repeatUntil(now);
+
+        recordLatency(now);
+    }
+
+    /**
+     * Repeat every held movement key whose repeats are due up to the given time
+     * @param time the time to repeat up to, from System.nanoTime
+     */
+    private void repeatUntil(long time) {
+        for (var entry : nextRepeat.entrySet()) {
+            long due = entry.getValue();
+            if (due > time) continue;
+
+            if (autoRepeatRate == 0) {
+                // Move all the way to the edge at once, then stay there until the key is released
+                while (target.move(entry.getKey())) {
+                    // The aim can't move further than the size of the board, so this ends
+                }
+                pending.add(new Pending(due, null));
+                entry.setValue(Long.MAX_VALUE);
+                continue;
+            }
+
+            var repeats = 0;
+            while (due <= time && repeats < MAX_REPEATS_PER_FRAME) {
+                perform(entry.getKey(), due);
+                due += autoRepeatRate;
+                repeats++;
+            }
+            if (due <= time) {
+                // Too far behind to catch up, so carry on from now instead of saving repeats up
+                due = time + autoRepeatRate;
+            }
+            entry.setValue(due);
+        }
+    }
+
+    /**
+     * Send an action to the target and remember when it was asked for
+     * @param action the action
+     * @param timestamp when it was asked for, from System.nanoTime
+     */
+    private void perform(InputAction action, long timestamp) {
+        pending.add(new Pending(timestamp, target.perform(action)));
+    }
+
+    /**
+     * Record the latency of every action whose result this frame can show
+     * @param now the time of the frame, from System.nanoTime
+     */
+    private void recordLatency(long now) {
+        pending.removeIf(waiting -> {
+            if (waiting.done != null && !waiting.done.isDone()) return false;
+            latency.record(now - waiting.timestamp);
+            return true;
+        });
+    }
+
+    /**
+     * Get the time from key press to the first frame showing the result
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Log the latency recorded so far
+     */
+    public void logLatency() {
+        if (latency.getCount() > 0) {
+            logger.info("Input latency: {}", latency);
+        }
+    }
+}
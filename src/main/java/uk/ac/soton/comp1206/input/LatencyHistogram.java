@@ -0,0 +1,102 @@
+package uk.ac.soton.comp1206.input;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A LatencyHistogram counts how long things took in fixed buckets, so recording a value never allocates and
+ * percentiles can be read at any time.
+ *
+ * Buckets are a quarter of a millisecond wide up to 250ms. Anything longer goes in a final overflow bucket.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Width of a bucket, in nanoseconds
+     */
+    private static final long BUCKET_WIDTH = TimeUnit.MICROSECONDS.toNanos(250);
+
+    /**
+     * Number of buckets before the overflow bucket
+     */
+    private static final int BUCKETS = 1000;
+
+    /**
+     * The count in every bucket, with the overflow bucket last
+     */
+    private final long[] counts = new long[BUCKETS + 1];
+
+    /**
+     * Number of values recorded
+     */
+    private long count;
+
+    /**
+     * The longest value recorded, in nanoseconds
+     */
+    private long max;
+
+    /**
+     * Record a value
+     * @param nanos the time taken, in nanoseconds
+     */
+    public void record(long nanos) {
+        var bucket = (int) Math.min(Math.max(0, nanos) / BUCKET_WIDTH, BUCKETS);
+        counts[bucket]++;
+        count++;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Get the number of values recorded
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the longest value recorded
+     * @return the maximum, in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get a percentile of the values recorded, to the width of a bucket
+     * @param percentile the percentile, from 0 to 100
+     * @return the upper edge of the bucket holding the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        var target = (long) Math.ceil(count * percentile / 100.0);
+        var seen = 0L;
+        for (var bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= Math.max(1, target)) {
+                return Math.min((bucket + 1) * BUCKET_WIDTH, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forget every value recorded
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * Describe the values recorded
+     * @return the count, median, 99th percentile and maximum in milliseconds
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.2fms p99=%.2fms max=%.2fms", count,
+            getPercentile(50) / 1e6, getPercentile(99) / 1e6, max / 1e6);
+    }
+}
@@ -0,0 +1,381 @@
+package uk.ac.soton.comp1206.media;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.media.Media;
+import javafx.scene.text.Font;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The AssetManager loads the game's images, fonts, sounds and music once, on a pool of background threads, while the
+ * splash is showing, and hands out the same decoded objects to every scene that asks for them.
+ *
+ * Fonts are loaded first, as the stylesheet needs their families registered before the first scene is styled, and
+ * the splash image next, so the splash can show while the rest load.
+ *
+ * Asking for an asset before it has finished loading waits for it, and asking for one that isn't in the preload list
+ * loads it then, so a scene never has to know whether preloading has finished. A missing resource is logged once and
+ * comes back as null.
+ *
+ * Once everything is loaded, the stylesheet is applied to an off-screen scene on the JavaFX thread, so it is parsed and
+ * its background images are loaded before the first scene using them is shown. JavaFX only keeps a parsed stylesheet
+ * while a scene using it is reachable, so the off-screen scene is kept until the next scene shown has been styled.
+ */
+public class AssetManager {
+
+    private static final Logger logger = LogManager.getLogger(AssetManager.class);
+
+    /**
+     * The stylesheet every scene uses
+     */
+    public static final String STYLESHEET = "/style/game.css";
+
+    /**
+     * The font every scene uses
+     */
+    public static final String FONT = "/style/Orbitron-Regular.ttf";
+
+    /**
+     * The images preloaded, the splash first
+     */
+    private static final List<String> IMAGES = List.of("/images/ECSGames.png", "/images/TetrECS.png",
+        "/images/Instructions.png");
+
+    /**
+     * The fonts preloaded
+     */
+    private static final List<String> FONTS = List.of(FONT, "/style/Orbitron-Bold.ttf", "/style/Orbitron-ExtraBold.ttf");
+
+    /**
+     * The sounds and music preloaded
+     */
+    private static final List<String> MEDIA = List.of("/music/menu.mp3", "/sounds/place.wav", "/sounds/rotate.wav",
+        "/sounds/lifelose.wav", "/sounds/clear.wav");
+
+    /**
+     * The style classes whose background images are loaded by the stylesheet
+     */
+    private static final List<String> STYLE_CLASSES = List.of("menu-background", "challenge-background");
+
+    /**
+     * The size fonts are first loaded at
+     */
+    private static final double LOAD_SIZE = 32;
+
+    /**
+     * The manager used by the game
+     */
+    private static AssetManager defaultManager;
+
+    /**
+     * The threads loading assets
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Every asset asked for, by resource path, loaded or still loading
+     */
+    private final Map<String, CompletableFuture<Object>> assets = new ConcurrentHashMap<>();
+
+    /**
+     * The fonts handed out, by resource path and size
+     */
+    private final Map<String, Font> fonts = new ConcurrentHashMap<>();
+
+    /**
+     * The share of the preload list loaded so far, updated on the JavaFX thread
+     */
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(0);
+
+    /**
+     * Whether preload has been asked for
+     */
+    private boolean preloading;
+
+    /**
+     * The address of the stylesheet, looked up once
+     */
+    private final String stylesheet;
+
+    /**
+     * The off-screen scene the stylesheet was applied to, kept until a scene on show has been styled, or null
+     */
+    private Scene warmScene;
+
+    /**
+     * Create a manager with a pool of loading threads, one per core and at least two
+     */
+    public AssetManager() {
+        var threads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            var thread = new Thread(runnable, "Asset loader " + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        stylesheet = getClass().getResource(STYLESHEET).toExternalForm();
+    }
+
+    /**
+     * Get the manager used by the game
+     * @return the default manager
+     */
+    public static synchronized AssetManager getDefault() {
+        if (defaultManager == null) {
+            defaultManager = new AssetManager();
+        }
+        return defaultManager;
+    }
+
+    /**
+     * Start loading every asset the game uses in the background, the fonts and then the splash image first. Does
+     * nothing if already started. Progress is reported on progressProperty.
+     * @return a future completed once everything is loaded and the stylesheet has been applied
+     */
+    public synchronized CompletableFuture<Void> preload() {
+        if (preloading) {
+            return CompletableFuture.completedFuture(null);
+        }
+        preloading = true;
+
+        var started = System.nanoTime();
+        var total = IMAGES.size() + FONTS.size() + MEDIA.size();
+        var done = new AtomicInteger();
+        var loads = new CompletableFuture<?>[total];
+        var next = 0;
+        for (var path : FONTS) {
+            loads[next++] = load(path, AssetManager::loadFont);
+        }
+        for (var path : IMAGES) {
+            loads[next++] = load(path, AssetManager::loadImage);
+        }
+        for (var path : MEDIA) {
+            loads[next++] = load(path, AssetManager::loadMedia);
+        }
+        for (var load : loads) {
+            load.whenComplete((asset, error) -> {
+                var count = done.incrementAndGet();
+                Platform.runLater(() -> progress.set((double) count / total));
+            });
+        }
+
+        var styled = new CompletableFuture<Void>();
+        CompletableFuture.allOf(loads).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            applyStylesheet();
+            logger.info("Loaded {} assets in {}ms", total, (System.nanoTime() - started) / 1_000_000);
+            styled.complete(null);
+        }));
+        return styled;
+    }
+
+    /**
+     * Wait for every font to be loaded, so their families can be used by the stylesheet
+     */
+    public void awaitFonts() {
+        for (var path : FONTS) {
+            get(path, AssetManager::loadFont);
+        }
+    }
+
+    /**
+     * Get the share of the preload list loaded so far. Only for use on the JavaFX thread.
+     * @return from 0 to 1
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * Get a decoded image
+     * @param path the resource path
+     * @return the image, shared with everything else asking for it, or null if there is no such resource
+     */
+    public Image getImage(String path) {
+        return (Image) get(path, AssetManager::loadImage);
+    }
+
+    /**
+     * Get a sound or piece of music
+     * @param path the resource path
+     * @return the media, shared with everything else asking for it, or null if there is no such resource
+     */
+    public Media getMedia(String path) {
+        return (Media) get(path, AssetManager::loadMedia);
+    }
+
+    /**
+     * Get a font at a size
+     * @param path the resource path of the font file
+     * @param size the size in points
+     * @return the font, shared with everything else asking for it at that size, or the default font if there is no
+     * such resource
+     */
+    public Font getFont(String path, double size) {
+        return fonts.computeIfAbsent(path + "@" + size, key -> {
+            var loaded = (Font) get(path, AssetManager::loadFont);
+            return loaded == null ? Font.font(size) : Font.font(loaded.getFamily(), size);
+        });
+    }
+
+    /**
+     * Get the address of the stylesheet every scene uses
+     * @return the stylesheet, for adding to a scene or node
+     */
+    public String getStylesheet() {
+        return stylesheet;
+    }
+
+    /**
+     * Style a scene that has just been shown, then let go of the off-screen scene, as the stylesheet and its images are
+     * now held by a scene in use. Does nothing until the stylesheet has been applied off-screen, or once it has been
+     * let go. Must be called on the JavaFX thread.
+     * @param scene the scene shown
+     */
+    public void sceneShown(Scene scene) {
+        if (warmScene == null) return;
+        scene.getRoot().applyCss();
+        warmScene = null;
+        logger.info("Released the off-screen stylesheet scene");
+    }
+
+    /**
+     * Get an asset, waiting for it if it is still loading, or loading it on the calling thread if it wasn't asked for
+     * before
+     * @param path the resource path
+     * @param loader loads it
+     * @return the asset, or null if there is no such resource
+     */
+    private Object get(String path, Loader loader) {
+        var load = assets.get(path);
+        if (load == null) {
+            var loaded = new CompletableFuture<Object>();
+            load = assets.putIfAbsent(path, loaded);
+            if (load == null) {
+                try {
+                    loaded.complete(loadOrNull(path, loader));
+                } catch (Error e) {
+                    // Anyone else waiting for it would otherwise wait forever
+                    loaded.completeExceptionally(e);
+                    throw e;
+                }
+                load = loaded;
+            }
+        }
+        return load.join();
+    }
+
+    /**
+     * Start loading an asset on the pool, unless it is already loading
+     * @param path the resource path
+     * @param loader loads it
+     * @return the load
+     */
+    private CompletableFuture<Object> load(String path, Loader loader) {
+        return assets.computeIfAbsent(path, key -> CompletableFuture.supplyAsync(() -> loadOrNull(path, loader), pool));
+    }
+
+    /**
+     * Load an asset, logging it if it can't be
+     * @param path the resource path
+     * @param loader loads it
+     * @return the asset, or null if it can't be loaded
+     */
+    private Object loadOrNull(String path, Loader loader) {
+        var resource = AssetManager.class.getResource(path);
+        if (resource == null) {
+            logger.warn("Missing resource {}", path);
+            return null;
+        }
+        try {
+            return loader.load(resource);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to load {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decode an image in full
+     * @param resource the image
+     * @return the image
+     */
+    private static Object loadImage(URL resource) {
+        var image = new Image(resource.toExternalForm(), false);
+        if (image.isError()) {
+            throw new IllegalStateException(image.getException().getMessage());
+        }
+        return image;
+    }
+
+    /**
+     * Register a font with JavaFX, so the stylesheet can use its family too. It is read as a stream, as the font loader
+     * can't cope with spaces in URLs.
+     * @param resource the font file
+     * @return the font
+     * @throws IOException if it can't be read
+     */
+    private static Object loadFont(URL resource) throws IOException {
+        Font font;
+        try (var input = resource.openStream()) {
+            font = Font.loadFont(input, LOAD_SIZE);
+        }
+        if (font == null) {
+            throw new IllegalStateException("Not a font");
+        }
+        return font;
+    }
+
+    /**
+     * Open a sound or piece of music
+     * @param resource the media
+     * @return the media
+     */
+    private static Object loadMedia(URL resource) {
+        return new Media(resource.toExternalForm());
+    }
+
+    /**
+     * Apply the stylesheet to an off-screen scene with every style class that loads an image, so JavaFX parses it and
+     * caches the images. The scene is kept until sceneShown is next called. Must be called on the JavaFX thread.
+     */
+    private void applyStylesheet() {
+        var root = new Pane();
+        for (var styleClass : STYLE_CLASSES) {
+            var pane = new StackPane();
+            pane.getStyleClass().add(styleClass);
+            root.getChildren().add(pane);
+        }
+        warmScene = new Scene(root);
+        warmScene.getStylesheets().add(stylesheet);
+        root.applyCss();
+    }
+
+    /**
+     * Loads one kind of asset
+     */
+    private interface Loader {
+
+        /**
+         * Load an asset
+         * @param resource the resource
+         * @return the asset
+         * @throws IOException if it can't be read
+         */
+        Object load(URL resource) throws IOException;
+    }
+}
@@ -1,8 +1,13 @@
 package uk.ac.soton.comp1206.media;
 import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
 import javafx.scene.media.MediaPlayer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import uk.ac.soton.comp1206.diagnostics.SoundPlayed;
+import uk.ac.soton.comp1206.event.SoundEvent;
 import uk.ac.soton.comp1206.scene.MenuScene;
 
 /**
@@ -22,6 +27,12 @@ public class Multimedia {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
 
+    /**
+     * Files the platform has already failed to play. JavaFX leaks the file handle and sockets behind every player it
+     * fails to create, so these aren't retried.
+     */
+    private static final Set<String> unplayable = ConcurrentHashMap.newKeySet();
+
     /**
      * Constructs a new Multimedia object.
      * Initializes audioPlayer and musicPlayer with null.
@@ -33,35 +44,76 @@ public class Multimedia {
     }
 
     /**
-     * Plays an audio file
+     * Plays an audio file. A file the platform can't play, such as when its codecs aren't installed, is logged once and
+     * skipped from then on.
      * @param filePath the path to the audio file to be played
      */
-    public void playAudio(String filePath) {
-        Media audioMedia = new Media(getClass().getResource(filePath).toExternalForm());
+    public synchronized void playAudio(String filePath) {
+        var played = new SoundPlayed(filePath);
+        played.begin();
+        Media audioMedia = AssetManager.getDefault().getMedia(filePath);
+        if (audioMedia == null || unplayable.contains(filePath)) return;
         // Dispose of the previous audio player if it exists
         if (audioPlayer != null) {
             audioPlayer.stop();
             audioPlayer.dispose();
         }
-        audioPlayer = new MediaPlayer(audioMedia);
+        audioPlayer = createPlayer(audioMedia, filePath);
+        if (audioPlayer == null) return;
         audioPlayer.play();
+        played.commit();
     }
 
     /**
-     * Plays background music
+     * Plays background music. Music the platform can't play is logged once and skipped from then on.
      * @param filePath the path to the music file to be played
      */
     public void playBackgroundMusic(String filePath) {
-        Media musicMedia = new Media(getClass().getResource(filePath).toExternalForm());
+        var played = new SoundPlayed(filePath);
+        played.begin();
+        Media musicMedia = AssetManager.getDefault().getMedia(filePath);
+        if (musicMedia == null || unplayable.contains(filePath)) return;
         // Dispose of the previous music player if it exists
         if (musicPlayer != null) {
             musicPlayer.stop();
             musicPlayer.dispose();
         }
-        musicPlayer = new MediaPlayer(musicMedia);
+        musicPlayer = createPlayer(musicMedia, filePath);
+        if (musicPlayer == null) return;
         musicPlayer.setCycleCount(MediaPlayer.INDEFINITE); // Loop music indefinitely
         logger.info("Playing background music");
         musicPlayer.play();
+        played.commit();
+    }
+
+    /**
+     * Create a player for some media
+     * @param media the media
+     * @param filePath the path it was loaded from, for the log
+     * @return the player, or null if the platform can't play it
+     */
+    private static MediaPlayer createPlayer(Media media, String filePath) {
+        try {
+            return new MediaPlayer(media);
+        } catch (MediaException e) {
+            logger.error("Unable to play {}: {}", filePath, e.getMessage());
+            unplayable.add(filePath);
+            return null;
+        }
+    }
+
+    /**
+     * Plays the sound for a sound event posted by the game.
+     * @param sound the sound to play
+     */
+    public void playSound(SoundEvent sound) {
+        switch (sound) {
+            case PLACE -> playPlacePieceSound();
+            case ROTATE -> playRotatePieceSound();
+            case SWAP -> playSwapPieceSound();
+            case LOSE_LIFE -> playLoseLifeSound();
+            case CLEAR -> playClearLineSound();
+        }
     }
 
     /**
@@ -112,5 +164,21 @@ public class Multimedia {
             musicPlayer.stop();
         }
     }
-}
 
+    /**
+     * Stop playing and release both players, along with the native resources behind them. Sounds are played from the
+     * background, so this is synchronised with playing them.
+     */
+    public synchronized void dispose() {
+        if (audioPlayer != null) {
+            audioPlayer.stop();
+            audioPlayer.dispose();
+            audioPlayer = null;
+        }
+        if (musicPlayer != null) {
+            musicPlayer.stop();
+            musicPlayer.dispose();
+            musicPlayer = null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.neovisionaries.ws.client.*;
 import javafx.scene.control.Alert;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.diagnostics.NetworkMessage;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 
 import java.util.ArrayList;
@@ -18,6 +19,17 @@ public class Communicator {
 
     private static final Logger logger = LogManager.getLogger(Communicator.class);
 
+    /**
+     * The server used when the tetrecs.server system property is not set
+     */
+    private static final String DEFAULT_SERVER = "ws://ofb-labs.soton.ac.uk:9700";
+
+    /**
+     * Longest to wait for the server to answer a close frame, in milliseconds. The socket library parks a timer thread
+     * for this long whenever the server answers first, so it's kept well under the library's default of 10 seconds.
+     */
+    private static final long CLOSE_DELAY = 1000;
+
     /**
      * Attached communication listeners listening to messages on this Communicator. Each will be sent any messages.
      */
@@ -82,12 +94,21 @@ public class Communicator {
         }
     }
 
+    /**
+     * Get the server the game talks to, from the tetrecs.server system property
+     * @return the web socket address of the server
+     */
+    public static String getServer() {
+        return System.getProperty("tetrecs.server", DEFAULT_SERVER);
+    }
+
     /** Send a message to the server
      *
      * @param message Message to send
      */
     public void send(String message) {
         logger.info("Sending message: " + message);
+        NetworkMessage.sent(message);
 
         ws.sendText(message);
     }
@@ -107,6 +128,16 @@ public class Communicator {
         this.handlers.clear();
     }
 
+    /**
+     * Disconnect from the server and drop every listener. Nothing can be sent afterwards.
+     */
+    public void close() {
+        clearListeners();
+        if (ws != null) {
+            ws.disconnect(WebSocketCloseCode.NORMAL, null, CLOSE_DELAY);
+        }
+    }
+
     /** Receive a message from the server. Relay to any attached listeners
      *
      * @param websocket the socket
@@ -114,6 +145,7 @@ public class Communicator {
      */
     private void receive(WebSocket websocket, String message) {
         logger.info("Received: " + message);
+        NetworkMessage.received(message);
 
         for(CommunicationsListener handler : handlers) {
             handler.receiveCommunication(message);
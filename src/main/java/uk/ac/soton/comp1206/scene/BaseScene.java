@@ -2,11 +2,17 @@ package uk.ac.soton.comp1206.scene;
 
 import javafx.scene.Scene;
 import javafx.scene.paint.Color;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 /**
  * A Base Scene used in the game. Handles common functionality between all scenes.
+ *
+ * A scene is built once, either as it is shown or ahead of time off-screen by prepare. A scene that can be shown again
+ * says so with isReusable, and the window then keeps it once it is left and calls reset before showing it again,
+ * rather than building it again. Anything that should only happen while a scene is showing, such as music and
+ * animations, belongs in initialise, and is stopped in cleanup.
  */
 public abstract class BaseScene {
 
@@ -15,6 +21,11 @@ public abstract class BaseScene {
     protected GamePane root;
     protected Scene scene;
 
+    /**
+     * Whether the scene has been built and its JavaFX scene made
+     */
+    private boolean prepared;
+
     /**
      * Create a new scene, passing in the GameWindow the scene will be displayed in
      * @param gameWindow the game window
@@ -33,6 +44,42 @@ public abstract class BaseScene {
      */
     public abstract void build();
 
+    /**
+     * Stop anything the scene started, such as timelines, threads, sockets and media. Called when the window moves
+     * on to another scene. Does nothing unless a scene overrides it.
+     */
+    public void cleanup() {
+    }
+
+    /**
+     * Build the scene and make its JavaFX scene, with its styles applied and laid out, unless that has already been
+     * done. Safe to call before the scene is shown, so the window can build the next scene off-screen.
+     */
+    public void prepare() {
+        if (prepared) return;
+        prepared = true;
+        build();
+        setScene();
+        root.applyCss();
+        root.layout();
+    }
+
+    /**
+     * Whether the window can keep this scene once it is left and show it again. Only scenes whose contents don't
+     * depend on a game say yes.
+     * @return true if the scene can be shown again after reset
+     */
+    public boolean isReusable() {
+        return false;
+    }
+
+    /**
+     * Put the scene back as it was when built, before it is shown again. Called after cleanup ran when it was last
+     * left. Does nothing unless a scene overrides it.
+     */
+    public void reset() {
+    }
+
     /**
      * Create a new JavaFX scene using the root contained within this scene
      * @return JavaFX scene
@@ -40,7 +87,7 @@ public abstract class BaseScene {
     public Scene setScene() {
         var previous = gameWindow.getScene();
         Scene scene = new Scene(root, previous.getWidth(), previous.getHeight(), Color.BLACK);
-        scene.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm());
+        scene.getStylesheets().add(AssetManager.getDefault().getStylesheet());
         this.scene = scene;
         return scene;
     }
@@ -1,19 +1,36 @@
 package uk.ac.soton.comp1206.scene;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.GameBlock;
+import uk.ac.soton.comp1206.ai.ArenaKernel;
+import uk.ac.soton.comp1206.ai.GameArena;
+import uk.ac.soton.comp1206.component.BlockAnimator;
+import uk.ac.soton.comp1206.component.BoardOverlay;
 import uk.ac.soton.comp1206.component.GameBoard;
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
-import uk.ac.soton.comp1206.event.NextPieceListener;
-import uk.ac.soton.comp1206.event.LineClearedListener;
-import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.EventBus;
+import uk.ac.soton.comp1206.event.GameLoopEvent;
+import uk.ac.soton.comp1206.event.GameOverEvent;
+import uk.ac.soton.comp1206.event.LinesClearedEvent;
+import uk.ac.soton.comp1206.event.SoundEvent;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameMode;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameState;
+import uk.ac.soton.comp1206.game.GridSnapshot;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.SaveStore;
+import uk.ac.soton.comp1206.game.SavedGame;
+import uk.ac.soton.comp1206.game.Tablebase;
+import uk.ac.soton.comp1206.game.TelemetryRecorder;
+import uk.ac.soton.comp1206.input.InputAction;
+import uk.ac.soton.comp1206.input.InputHandler;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.media.Multimedia;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import javafx.scene.control.Label;
@@ -24,16 +41,14 @@ import javafx.geometry.Pos;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Set;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.scene.shape.Rectangle;
-import javafx.util.Duration;
 
 /**
  * The Single Player challenge scene. Holds the UI for the single player challenge mode in the game.
  */
-public class ChallengeScene extends BaseScene implements NextPieceListener, LineClearedListener, GameLoopListener {
+public class ChallengeScene extends BaseScene {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
 
@@ -62,6 +77,11 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
      */
     private GameBoard board;
 
+    /**
+     * Overlay drawn above the game board holding the aim cursor, hover highlight and piece preview
+     */
+    private BoardOverlay overlay;
+
     /**
      * Current x coordinate of the aim position
      */
@@ -73,45 +93,80 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
     private int aimY;
 
     /**
-     * Previous x coordinate of the aim position
+     * Used to display the TimerBar as rectangle at the bottom of this scene
+     */
+    private Rectangle timerBar;
+
+    /**
+     * Runs every frame, taking the latest state published by the game and updating the pieces and timer display
      */
-    private int previousAimX;
+    private AnimationTimer timerAnimation;
 
     /**
-     * Previous y coordinate of the aim position
+     * The turn the timer bar is showing, from the latest game loop event, or null before the first turn starts
      */
-    private int previousAimY;
+    private GameLoopEvent turn;
 
     /**
-     * Used to display the TimerBar as rectangle at the bottom of this scene
+     * Turns key presses into actions once per frame
      */
-    private Rectangle timerBar;
+    private InputHandler input;
 
     /**
-     * Timeline object responsible for animating the timer display
+     * The state whose pieces are being shown, or null before the first frame
      */
-    private Timeline timerAnimation;
+    private GameState shownState;
 
     /**
-     * Timer duration in milliseconds
+     * The mode being played, which decides the size of the board
      */
-    private static int timerDuration;
+    private final GameMode mode;
+
+    /**
+     * A saved game to carry on from instead of starting a new one, or null
+     */
+    private SavedGame savedGame;
 
     /**
      * Initialize the high score
      */
     private int highScore = 0;
 
+    /**
+     * Chooses hints on boards the tablebase doesn't cover, made on the logic thread the first time it is needed
+     */
+    private ArenaKernel hintKernel;
+
     /**
      * Create a new Single Player challenge scene
      * @param gameWindow the Game Window
      */
     public ChallengeScene(GameWindow gameWindow) {
+        this(gameWindow, GameMode.CHALLENGE);
+    }
+
+    /**
+     * Create a new Single Player scene for the given game mode
+     * @param gameWindow the Game Window
+     * @param mode the mode to play
+     */
+    public ChallengeScene(GameWindow gameWindow, GameMode mode) {
         super(gameWindow);
-        logger.info("Creating Challenge Scene");
+        logger.info("Creating Challenge Scene for {}", mode);
+        this.mode = mode;
         multimedia = new Multimedia();
     }
 
+    /**
+     * Create a new Single Player scene which carries on from a saved game
+     * @param gameWindow the Game Window
+     * @param savedGame the game to carry on
+     */
+    public ChallengeScene(GameWindow gameWindow, SavedGame savedGame) {
+        this(gameWindow, savedGame.getMode());
+        this.savedGame = savedGame;
+    }
+
     /**
      * Build the Challenge window
      */
@@ -122,7 +177,7 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         setupGame();
 
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
-        root.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm()); // Link the CSS file
+        root.getStylesheets().add(AssetManager.getDefault().getStylesheet()); // Link the CSS file
 
         var challengePane = new StackPane();
         challengePane.setMaxWidth(gameWindow.getWidth());
@@ -133,12 +188,16 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         var mainPane = new BorderPane();
         challengePane.getChildren().add(mainPane);
 
-        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
+        var grid = game.getGrid();
+        board = new GameBoard(GridSnapshot.empty(grid.getCols(), grid.getRows()),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
         board.getStyleClass().add("gameBox"); // Add a custom style class for the game board
-        mainPane.setCenter(board);
 
-        // Register the GameBoard instance as a listener
-        game.addListener(board);
+        // Stack the overlay above the board, so the aim and hover can move without repainting any blocks
+        overlay = new BoardOverlay(board);
+        board.setOverlay(overlay);
+        var boardStack = new StackPane(board, overlay);
+        boardStack.setMaxSize(board.getMaxWidth(), board.getMaxHeight());
+        mainPane.setCenter(boardStack);
 
         // Create a VBox to hold the labels
         VBox labelsBox = new VBox();
@@ -172,18 +231,17 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         topPane.setLeft(scoreLabel);
         topPane.setRight(livesLabel);
 
-        // Add the labels and the game board to the mainPane
+        // Add the labels to the mainPane
         mainPane.setTop(topPane);
-        mainPane.setCenter(board);
 
         logger.info("Adding, score, and lives labels to the Challenge Scene");
 
         // Create a new PieceBoard instance for the next piece
-        this.currentPieceBoard = new PieceBoard(100, 100);
+        this.currentPieceBoard = new PieceBoard(game.getGrid().getPieceSet().getSize(), 100, 100);
         currentPieceBoard.getStyleClass().add("gameBox");
 
         // Create a new PieceBoard instance for following piece
-        this.followingPieceBoard = new PieceBoard(75, 75);
+        this.followingPieceBoard = new PieceBoard(game.getGrid().getPieceSet().getSize(), 75, 75);
         followingPieceBoard.getStyleClass().add("gameBox");
 
         // Create a VBox to hold the incoming title, next piece board, and following piece board
@@ -193,11 +251,11 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
 
         // Call getHighScore() to retrieve the high score label
         Label highScoreLabel = getHighScore();
-        highScoreLabel.getStyleClass().add("hiscore");
-        highScoreLabel.setTextFill(Color.ORANGE);
 
-        // Check if highScoreLabel is not null before adding it to the UI
+        // Check if highScoreLabel is not null before styling it and adding it to the UI
         if (highScoreLabel != null) {
+            highScoreLabel.getStyleClass().add("hiscore");
+            highScoreLabel.setTextFill(Color.ORANGE);
             incomingBox.getChildren().add(highScoreLabel);
         }
         // Add the multiplier label to the VBox
@@ -237,7 +295,7 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         // Add event handler to the following piece board for left click
         followingPieceBoard.setOnMouseClicked(event -> {
             if (event.getButton() == MouseButton.PRIMARY) {
-                game.swapCurrentPiece(); // Call swapCurrentPiece method when left click is detected
+                game.submit(game::swapCurrentPiece); // Call swapCurrentPiece method when left click is detected
             }
         });
 
@@ -250,11 +308,15 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         BorderPane.setAlignment(timerBar, Pos.BOTTOM_LEFT);
         mainPane.setBottom(timerBar);
 
-        // Initialize the timer animation
-        timerAnimation = new Timeline();
-        timerAnimation.setCycleCount(Timeline.INDEFINITE); // Repeat indefinitely
-        KeyFrame keyFrame = new KeyFrame(Duration.millis(10), event -> updateTimerBar());
-        timerAnimation.getKeyFrames().add(keyFrame);
+        // Initialize the timer animation, which follows the frames published by the game
+        timerAnimation = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                input.update(now);
+                showFrame();
+                updateTimerBar(now);
+            }
+        };
 
         // Play background music for the game
         multimedia.playBackgroundMusic("/music/game.wav");
@@ -263,11 +325,12 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
 
     /**
      * Handle when a block is clicked
-     * @param gameBlock the Game Block that was clocked
+     * @param x column of the block clicked
+     * @param y row of the block clicked
      */
-    private void blockClicked(GameBlock gameBlock) {
+    private void blockClicked(int x, int y) {
 
-        game.blockClicked(gameBlock);
+        game.submit(() -> game.playPiece(x, y));
     }
 
     /**
@@ -277,9 +340,38 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         logger.info("Starting a new challenge");
 
         //Start new game
-        game = new Game(5, 5);
-        game.setNextPieceListener(this); // Register this scene as a listener for next piece events
-        game.addLineClearedListener(this); // Register this scene as a listener for line cleared events
+        game = createGame();
+        turn = null;
+        // Subscribe to the game's events. The bus only holds this scene weakly, so it never keeps it alive.
+        var events = game.getEventBus();
+        events.subscribe(LinesClearedEvent.class, this, EventBus.Delivery.FX, ChallengeScene::onLinesCleared);
+        events.subscribe(GameOverEvent.class, this, EventBus.Delivery.FX, (scene, event) -> scene.shutdownGame());
+        // Only the latest turn matters to the timer bar, so turns started in a burst are merged into one
+        events.subscribe(GameLoopEvent.class, this, EventBus.Delivery.FX, ChallengeScene::onGameLoop);
+        // Sounds are played in the background so loading them never holds up the game
+        events.subscribe(SoundEvent.class, multimedia, EventBus.Delivery.BACKGROUND, Multimedia::playSound);
+        game.setSaveStore(SaveStore.getDefault()); // Save after every turn, so the game survives a restart
+        game.setTelemetry(TelemetryRecorder.getDefault()); // Kept when the tetrecs.telemetry property is set
+    }
+
+    /**
+     * Create the game to play
+     * @return a new game of the scene's mode
+     */
+    protected Game createGame() {
+        return new Game(mode);
+    }
+
+    /**
+     * Save the game as it stands, including the time left on the turn. Used when the window is closed, so it waits
+     * briefly for the logic thread to take the save.
+     */
+    public void saveGame() {
+        try {
+            game.submit(game::save).get(1, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.error("Unable to save game: {}", e.getMessage());
+        }
     }
 
     /**
@@ -292,230 +384,334 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         aimX = 0;
         aimY = 0;
 
-        // Set the initial timer duration (in milliseconds)
-        timerDuration = 12000;
+        // Set up key event handling. Keys are buffered and handled once per frame by the timer animation.
+        input = new InputHandler(new InputHandler.Target() {
+            @Override
+            public CompletableFuture<?> perform(InputAction action) {
+                return ChallengeScene.this.perform(action);
+            }
 
-        // Start the timer animation
-        timerAnimation.play();
-
-        // Set up key event handling
-        getScene().setOnKeyPressed(event -> {
-            switch (event.getCode()) {
-                // Rotate next piece clockwise (E, C, or CLOSE_BRACKET key)
-                case E, C, CLOSE_BRACKET -> rotateNextPiece();
-                // Rotate next piece counterclockwise (Q, Z, or OPEN_BRACKET key)
-                case Q, Z, OPEN_BRACKET -> rotateNextPiece(3);
-                // Swap current piece (R or SPACE key)
-                case R, SPACE -> game.swapCurrentPiece();
-                // Exit challenge (ESCAPE key)
-                case ESCAPE -> {
-                    logger.info("Leaving challenge scene, as escape key has been pressed");
-                    game.stop(); // Stop the game
-                    multimedia.stopBackgroundMusic();
-                    // Stop the timer animation
-                    timerAnimation.stop();
-                    // Reset the game state to its initial state
-                    setupGame();
-                    gameWindow.loadScene(new MenuScene(gameWindow));
-                }
-                // Move aim left (LEFT or A key)
-                case LEFT, A -> {
-                    moveAimLeft();
-                    logger.info("Moving aim left");
-                }
-                // Move aim right (RIGHT or D key)
-                case RIGHT, D -> {
-                    logger.info("Moving aim right");
-                    moveAimRight();
-                }
-                // Move aim down (DOWN or S key)
-                case DOWN, S -> {
-                    logger.info("Moving aim down");
-                    moveAimDown();
-                }
-                // Move aim up (UP or W key)
-                case UP, W -> {
-                    logger.info("Moving aim up");
-                    moveAimUp();
-                }
-                // Drop the piece (ENTER or X key)
-                case ENTER, X -> {
-                    logger.info("Dropping piece using key enter or x");
-                    dropPiece();
-                }
+            @Override
+            public boolean move(InputAction movement) {
+                return moveAim(movement);
             }
         });
+        input.attach(getScene());
 
-        game.setNextPieceListener(this); // Register this scene as a listener
-        game.start();
-
-        // Manually call onNextPiece after starting the game
-        onNextPiece(null, game.getFollowingPiece());
+        // Start the timer animation
+        timerAnimation.start();
 
-        // Initialize previous aim position
-        previousAimX = aimX;
-        previousAimY = aimY;
+        if (savedGame != null && game.canResume(savedGame)) {
+            game.resume(savedGame);
+        } else {
+            game.start();
+        }
+        savedGame = null;
 
         // Initially update aim position
         updateAimPosition();
 
+        prepareNextScene();
+    }
+
+    /**
+     * Build the scores scene off-screen while the game is played, so it shows in a single frame once the game ends
+     */
+    protected void prepareNextScene() {
+        gameWindow.prepareScores(game, this);
+    }
+
+    /**
+     * Carry out an action taken from the keyboard
+     * @param action the action
+     * @return a future completed once the game has handled the action, or null if it was handled straight away
+     */
+    private CompletableFuture<?> perform(InputAction action) {
+        return switch (action) {
+            case ROTATE -> rotateNextPiece();
+            case ROTATE_BACK -> rotateNextPiece(3);
+            case SWAP -> game.submit(game::swapCurrentPiece);
+            case UNDO -> game.submit(game::undo);
+            case REDO -> game.submit(game::redo);
+            case HINT -> showHint();
+            case DROP -> dropPiece();
+            case MOVE_LEFT, MOVE_RIGHT, MOVE_UP, MOVE_DOWN -> { moveAim(action); yield null; }
+            case EXIT -> { exitGame(); yield null; }
+        };
+    }
+
+    /**
+     * Leave the game for the menu, when escape is pressed
+     */
+    private void exitGame() {
+        logger.info("Leaving challenge scene, as escape key has been pressed");
+        // Stop the game, then remove its save once a turn it was still in can no longer save over the delete.
+        // Leaving on purpose doesn't keep the game.
+        game.stop().thenRun(() -> SaveStore.getDefault().deleteAsync());
+        multimedia.stopBackgroundMusic();
+        // Stop the timer animation and input
+        timerAnimation.stop();
+        stopInput();
+        // Reset the game state to its initial state
+        setupGame();
+        gameWindow.startMenu();
+    }
+
+    /**
+     * Stop the timer animation, input, music and, unless it has ended and its score is still wanted, the game's logic
+     * thread
+     */
+    @Override
+    public void cleanup() {
+        if (timerAnimation != null) {
+            timerAnimation.stop();
+        }
+        stopInput();
+        if (!game.isOver()) {
+            game.stop();
+        }
+        multimedia.dispose();
     }
 
     /**
-     * Handles the event when the next piece is received
+     * Stop taking input, logging how quickly it was shown
+     */
+    private void stopInput() {
+        if (input != null) {
+            input.detach();
+            input.logLatency();
+        }
+    }
+
+    /**
+     * Take the latest frame from the game and show it. The board is brought up to the frame's snapshot of the grid,
+     * so the display never reads the grid the logic thread is changing.
+     */
+    private void showFrame() {
+        var frame = game.pollFrame();
+        if (frame == null) return;
+
+        var state = frame.getState();
+        if (shownState == null || state.getGrid() != shownState.getGrid()) {
+            board.showGrid(state.getGrid());
+            overlay.refreshGhost();
+        }
+        if (shownState == null || state.getCurrentPiece() != shownState.getCurrentPiece()
+            || state.getCurrentRotation() != shownState.getCurrentRotation()
+            || state.getFollowingPiece() != shownState.getFollowingPiece()
+            || state.getFollowingRotation() != shownState.getFollowingRotation()) {
+            showPieces(state);
+        }
+        shownState = state;
+    }
+
+    /**
+     * Show the current and following pieces of a state on the piece boards and as the preview on the board
      *
-     * @param currentPiece the current game piece
-     * @param nextPiece the next game piece
+     * @param state the state holding the pieces
      */
-    public void onNextPiece(GamePiece currentPiece, GamePiece nextPiece){
+    private void showPieces(GameState state){
+        var pieceSet = game.getGrid().getPieceSet();
+        var currentPiece = GamePiece.createPiece(pieceSet, state.getCurrentPiece(), state.getCurrentRotation());
+
         // Display the current piece on the current piece board
-        if (currentPiece != null) {
-            logger.info("Next piece received: {}", currentPiece);
-            currentPieceBoard.displayPiece(currentPiece);
-        } else {
-            logger.warn("Received null current piece");
-        }
+        logger.info("Next piece received: {}", currentPiece);
+        currentPieceBoard.displayPiece(currentPiece);
 
-        // Display the next piece in advance on the following piece board
-        if (nextPiece != null) {
+        // Display the next piece in advance on the following piece board, or nothing once the pieces run out
+        if (state.getFollowingPiece() < 0) {
+            followingPieceBoard.clearGrid();
+        } else {
+            var nextPiece = GamePiece.createPiece(pieceSet, state.getFollowingPiece(), state.getFollowingRotation());
             logger.info("Next piece in advance received: {}", nextPiece);
             followingPieceBoard.displayPiece(nextPiece);
-        } else {
-            logger.warn("Received null next piece");
         }
+
+        // Preview the piece that will be placed
+        overlay.setGhostPiece(currentPiece);
     }
 
     /**
      * Rotate the next piece clockwise when the current piece board is left-clicked, or the appropriate keys are pressed
+     * @return a future completed once the game has rotated the piece
      */
-    private void rotateNextPiece() {
-        game.rotateCurrentPiece();
-        currentPieceBoard.displayPiece(game.getCurrentPiece());
+    private CompletableFuture<Void> rotateNextPiece() {
+        return game.submit(() -> game.rotateCurrentPiece());
     }
 
     /**
      * Rotate the next piece anti - clockwise when the appropriate keys are pressed
+     * @param rotations number of clockwise rotations
+     * @return a future completed once the game has rotated the piece
+     */
+    private CompletableFuture<Void> rotateNextPiece(int rotations) {
+        return game.submit(() -> game.rotateCurrentPiece(rotations));
+    }
+
+    /**
+     * Show a hint for the current and following pieces. The pieces are swapped and turned on the logic thread, then
+     * the aim moves to where the piece should go, leaving the player to drop it.
+     * @return a future completed once the hint is shown
      */
-    private void rotateNextPiece(int rotations) {
-        game.rotateCurrentPiece(rotations);
-        currentPieceBoard.displayPiece(game.getCurrentPiece());
+    private CompletableFuture<?> showHint() {
+        var hint = new Move[1];
+        return game.submit(() -> {
+            if (game.getCurrentPiece() == null || game.isOver()) return;
+            hint[0] = chooseHint();
+            if (hint[0] == null) return;
+            if (hint[0].isSwap()) {
+                game.swapCurrentPiece();
+            }
+            var turns = (hint[0].getRotation() - game.getCurrentPiece().getRotation() + 4) % 4;
+            if (turns > 0) {
+                game.rotateCurrentPiece(turns);
+            }
+        }).thenRunAsync(() -> {
+            if (hint[0] == null) return;
+            logger.info("Hint: {}", hint[0]);
+            aimX = hint[0].getX();
+            aimY = hint[0].getY();
+            updateAimPosition();
+        }, Platform::runLater);
+    }
+
+    /**
+     * Choose the move to hint at, on the logic thread: the best move from the tablebase, or from the placement
+     * heuristic on boards the tablebase doesn't cover
+     * @return the move, or null if no hint can be given on this board
+     */
+    protected Move chooseHint() {
+        var tablebase = Tablebase.getDefault();
+        var grid = game.getGrid();
+        if (tablebase != null && tablebase.covers(grid)) {
+            return tablebase.best(grid, game.getCurrentPiece(), game.getFollowingPiece());
+        }
+        if (grid.getCols() > GameArena.MAX_COLS) return null;
+        if (hintKernel == null) {
+            hintKernel = new ArenaKernel(grid.getPieceSet(), grid.getCols(), grid.getRows());
+        }
+        return hintKernel.best(grid, game.getCurrentPiece(), game.getFollowingPiece(), game.getMultiplier());
+    }
+
+    /**
+     * Move the aim position one step for a movement action
+     * @param movement the movement action
+     * @return true if the aim moved, false if it was already at the edge of the board
+     */
+    private boolean moveAim(InputAction movement) {
+        return switch (movement) {
+            case MOVE_LEFT -> moveAimLeft();
+            case MOVE_RIGHT -> moveAimRight();
+            case MOVE_UP -> moveAimUp();
+            case MOVE_DOWN -> moveAimDown();
+            default -> false;
+        };
     }
 
     /**
      * Method to move the aim position upwards when the appropriate keys are pressed
+     * @return true if the aim moved
      */
-    private void moveAimUp() {
+    private boolean moveAimUp() {
         if (aimY > 0) {
             aimY--;
             updateAimPosition();
+            return true;
         }
+        return false;
     }
 
     /**
      * Method to move the aim position to the left when the appropriate keys are pressed
+     * @return true if the aim moved
      */
-    private void moveAimLeft() {
+    private boolean moveAimLeft() {
         if (aimX > 0) {
             aimX--;
             updateAimPosition();
+            return true;
         }
+        return false;
     }
 
     /**
      * Method to move the aim position to the right when the appropriate keys are pressed
+     * @return true if the aim moved
      */
-    private void moveAimRight() {
+    private boolean moveAimRight() {
         if (aimX < game.getGrid().getCols() - 1) {
             aimX++;
             updateAimPosition();
+            return true;
         }
+        return false;
     }
 
     /**
      * Method to move the aim position to downwards when the appropriate keys are pressed
+     * @return true if the aim moved
      */
-    private void moveAimDown() {
+    private boolean moveAimDown() {
         if (aimY < game.getGrid().getRows() - 1) {
             aimY++;
             updateAimPosition();
+            return true;
         }
+        return false;
     }
 
     /**
      * Drops the piece at the current aim position
+     * @return a future completed once the game has handled the drop
      */
-    private void dropPiece() {
-        // Check if the piece can be placed at the current aim position
-        if (game.getGrid().canPlayPiece(game.getCurrentPiece(), aimX, aimY)) {
-            // Place the piece at the current aim position
-            game.getGrid().playPiece(game.getCurrentPiece(), aimX, aimY);
-            multimedia.playPlacePieceSound(); // Play sound for placing piece
-            game.afterPiece();
-            game.nextPiece();
-            game.resetTimer();
-
-            timerDuration = game.getTimerDelay();
-        }
+    private CompletableFuture<Void> dropPiece() {
+        // Place the piece at the current aim position, if it fits
+        var x = aimX;
+        var y = aimY;
+        return game.submit(() -> game.playPiece(x, y));
     }
 
     /**
-     * Update the visual representation of the aim position on the game board
+     * Update the visual representation of the aim position on the game board. Only the overlay moves, the blocks of
+     * the board are never repainted.
      */
     private void updateAimPosition() {
-        // Store the color of the previous aim block
-        Color previousColor = board.getBlock(previousAimX, previousAimY).getColor();
-
-        Color transparentBlack = Color.rgb(100, 100, 100, 0.3); // Transparent black color (RGB: 0, 0, 0), Alpha: 0.5
-
-        // Get the color of the block at the aim position
-        Color currentColor = board.getBlock(aimX, aimY).getColor();
-
-        // Check if the current color is not transparent black
-        if (!currentColor.equals(transparentBlack)) {
-            // Darken the color of the block while retaining its hue
-            Color lighterColor = currentColor.deriveColor(0, 1.0, 0.5, 1.0);
-
-            // Set the new color to the block at the aim position
-            board.getBlock(aimX, aimY).setColor(lighterColor);
-        }
-        else{
-            // Set the color of the aim position to very dark grey
-            Color aimColor = Color.rgb(60, 60, 60); // RGB values for very dark grey
-            board.getBlock(aimX, aimY).setAimColor(aimColor);
-        }
+        overlay.moveAim(aimX, aimY);
+    }
 
-        // If the previous tile the aim position was on was transparent black
-        if (previousColor.equals(transparentBlack)){
-            // Reset the colour of the previous tile to transparent black, as the aim position has moved off it
-            board.getBlock(previousAimX, previousAimY).setEmptyTileColor();
-        }
-        // Otherwise if the previous tile the aim position was on was not transparent black, so it was coloured
-        else{
-            // Reset the colour of the previous tile to that color
-            board.getBlock(previousAimX, previousAimY).setColor(previousColor);
+    /**
+     * Receive notification when lines are cleared in the game.
+     * @param event the lines cleared event, holding the coordinates of the blocks that were cleared
+     */
+    private void onLinesCleared(LinesClearedEvent event) {
+        var coordinates = event.getCoordinates();
+        // Clearing more than a single line at once gets a bigger effect than the usual fade
+        var singleLine = Math.max(board.getCols(), board.getRows());
+        if (coordinates.size() > singleLine) {
+            board.playEffect(coordinates, BlockAnimator.Effect.EXPLODE);
+        } else {
+            board.fadeOut(coordinates);
         }
-
-        // Update previous aim position
-        previousAimX = aimX;
-        previousAimY = aimY;
     }
 
     /**
-     * Receive notification when lines are cleared in the game.
-     * @param coordinates the coordinates of the blocks that were cleared
+     * Receive notification when a turn starts, to time the timer bar from
+     * @param event the game loop event, holding when the turn started and how long it lasts
      */
-    @Override
-    public void onLinesCleared(Set<GameBlockCoordinate> coordinates) {
-        // Pass the cleared blocks to the fadeOut method in the GameBoard class
-        board.fadeOut(coordinates);
+    private void onGameLoop(GameLoopEvent event) {
+        turn = event;
     }
 
     /**
-     * Update the timer bar based on the remaining time.
+     * Update the timer bar based on the remaining time. The game runs the timer itself, so this only draws it.
+     * @param now the time of the frame, from System.nanoTime
      */
-    private void updateTimerBar() {
-        // Get the timer delay from the Game class
-        int timerDelay = game.getTimerDelay();
+    private void updateTimerBar(long now) {
+        // Get the length of the turn and the time left on it
+        if (turn == null) return;
+        int timerDelay = turn.getTimerDelay();
+        if (timerDelay <= 0) return;
+        int timerDuration = turn.getTimerRemaining(now);
 
         // Calculate the remaining time as a percentage of the initial duration
         double remainingTimePercentage = (double) timerDuration / timerDelay;
@@ -531,50 +727,6 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
         } else {
             timerBar.setFill(Color.GREEN); // Green color for low urgency
         }
-
-        // Decrement the timer duration
-        timerDuration -= 10; // Decrease by 100 milliseconds
-
-        // Check if the timer has reached zero
-        if (timerDuration <= 0) {
-            logger.info("Timer has reached zero, lose a life, and current piece has been discarded");
-            // Lose a life
-            game.loseLife();
-
-            // Reset multiplier back to 1
-            game.multiplierProperty().set(1);
-
-            // Reset the timer duration
-            timerDuration = timerDelay;
-
-            // Discard the current piece and replace it with the following piece
-            game.nextPiece();
-
-            // Reset the timer after a piece is discarded
-            game.resetTimer();
-
-            // End the game if lives are below 0
-            if (game.livesProperty().get() < 0) {
-                shutdownGame();
-            }
-        }
-    }
-
-    /**
-     * Receive notification when the game loop starts.
-     */
-    @Override
-    public void onGameLoop() {
-        // Reset the timer duration when the game loop starts
-        timerDuration = 12000;
-    }
-
-    /**
-     * Update the timer duration.
-     * @param newTimerDuration the new value of timerDuration
-     */
-    public static void setTimerDuration(int newTimerDuration) {
-        timerDuration = newTimerDuration;
     }
 
     /**
@@ -618,11 +770,21 @@ public class ChallengeScene extends BaseScene implements NextPieceListener, Line
      * Shuts down the game, stopping background music and timer animation, then loads the Scores Scene
      */
     public void shutdownGame(){
-        multimedia.stopBackgroundMusic();
-        // Stop the timer animation
-        timerAnimation.stop();
+        stopPlaying();
         // Load the ScoresScene directly after stopping the game
         gameWindow.scoreScene(game, this);
     }
 
+    /**
+     * Stop the music, timer animation and input once the game has ended
+     */
+    protected void stopPlaying() {
+        // Take the final frame, so the scores scene sees the final score
+        game.pollFrame();
+        multimedia.stopBackgroundMusic();
+        // Stop the timer animation and input
+        timerAnimation.stop();
+        stopInput();
+    }
+
 }
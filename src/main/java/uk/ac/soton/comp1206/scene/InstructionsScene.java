@@ -1,13 +1,13 @@
 package uk.ac.soton.comp1206.scene;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.media.AssetManager;
 import javafx.geometry.Pos;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.Label;
@@ -38,7 +38,7 @@ public class InstructionsScene extends BaseScene{
      */
     public void build(){
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
-        root.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm());
+        root.getStylesheets().add(AssetManager.getDefault().getStylesheet());
 
         var instructionsPane = new StackPane();
         instructionsPane.setMaxWidth(gameWindow.getWidth());
@@ -56,11 +56,11 @@ public class InstructionsScene extends BaseScene{
         Label titleLabel = new Label("Instructions");
         titleLabel.getStyleClass().add("title");
         titleLabel.setTextFill(Color.WHITE); // Set the text color to white
-        titleLabel.setFont(Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"), 5)); // Adjust font size
+        titleLabel.setFont(AssetManager.getDefault().getFont(AssetManager.FONT, 5)); // Adjust font size
 
         // Create text with instructions
         Label instructionsLabel = new Label("TetrECS is a fast-paced gravity-free block placement game, where you must survive by clearing rows through careful placement of the upcoming blocks before the time runs out. Lose all 3 lives and you're destroyed!");
-        instructionsLabel.setFont(Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"), 10));
+        instructionsLabel.setFont(AssetManager.getDefault().getFont(AssetManager.FONT, 10));
         instructionsLabel.setTextFill(Color.WHITE); // Set the text color to white
         instructionsLabel.setWrapText(true); // Enable text wrapping
         instructionsLabel.setMaxWidth(gameWindow.getWidth() * 0.8); // Set the maximum width of the text label to 80% of the screen width
@@ -69,7 +69,7 @@ public class InstructionsScene extends BaseScene{
         vbox.getChildren().addAll(titleLabel, instructionsLabel);
 
         // Add image with game instructions
-        ImageView instructionsImage = new ImageView(new Image(getClass().getResourceAsStream("/images/Instructions.png")));
+        ImageView instructionsImage = new ImageView(AssetManager.getDefault().getImage("/images/Instructions.png"));
         double imageSize = Math.min(gameWindow.getWidth(), gameWindow.getHeight()) * 0.6;
         instructionsImage.setFitWidth(imageSize);
         instructionsImage.setFitHeight(imageSize);
@@ -80,23 +80,24 @@ public class InstructionsScene extends BaseScene{
         Label gamePiecesLabel = new Label("Game Pieces");
         gamePiecesLabel.getStyleClass().add("title");
         gamePiecesLabel.setTextFill(Color.WHITE); // Set the text color to white
-        gamePiecesLabel.setFont(Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"), 5)); // Adjust font size
+        gamePiecesLabel.setFont(AssetManager.getDefault().getFont(AssetManager.FONT, 5)); // Adjust font size
         vbox.getChildren().add(gamePiecesLabel);
 
-        // Create a grid pane to display all 15 pieces
+        // Create a grid pane to display every piece in the set
         GridPane pieceGrid = new GridPane();
         pieceGrid.setAlignment(Pos.CENTER);
         pieceGrid.setHgap(20);
         pieceGrid.setVgap(20);
         vbox.getChildren().add(pieceGrid);
 
-        // Loop through each piece index (from 0 to 14)
-        for (int index = 0; index < 15; index++) {
+        // Loop through each piece index in the piece set
+        PieceSet pieceSet = PieceSet.getDefault();
+        for (int index = 0; index < pieceSet.getCount(); index++) {
             // Create a GamePiece instance for the current index
-            GamePiece gamePiece = GamePiece.createPiece(index);
+            GamePiece gamePiece = GamePiece.createPiece(pieceSet, index);
 
             // Create a PieceBoard instance for the current piece
-            PieceBoard pieceBoard = new PieceBoard(gameWindow.getWidth() * 0.05, gameWindow.getHeight() * 0.05);
+            PieceBoard pieceBoard = new PieceBoard(pieceSet.getSize(), gameWindow.getWidth() * 0.05, gameWindow.getHeight() * 0.05);
 
             // Display the current piece on the piece board
             pieceBoard.displayPiece(gamePiece);
@@ -109,6 +110,15 @@ public class InstructionsScene extends BaseScene{
 
     }
 
+    /**
+     * The instructions are the same every time they are shown, so they are kept
+     * @return true
+     */
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
     /**
      * Initializes the scene by adding a keyboard listener
      */
@@ -118,7 +128,7 @@ public class InstructionsScene extends BaseScene{
         getScene().setOnKeyPressed(event -> {
             if (event.getCode() == KeyCode.ESCAPE) {
                 // Load the menu scene
-                gameWindow.loadScene(new MenuScene(gameWindow));
+                gameWindow.startMenu();
             }
         });
 
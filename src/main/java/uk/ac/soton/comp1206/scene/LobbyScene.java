@@ -11,6 +11,7 @@ import javafx.scene.paint.Color;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.network.Communicator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -78,6 +79,11 @@ public class LobbyScene extends BaseScene{
      * Container for message input components (message field and send buttons).
      */
     private HBox messageBox;
+
+    /**
+     * The timeline asking the server for the channels every few seconds
+     */
+    private javafx.animation.Timeline channelRequestTimer;
     private static final Logger logger = LogManager.getLogger(Game.class);
 
     /**
@@ -87,7 +93,7 @@ public class LobbyScene extends BaseScene{
     public LobbyScene(GameWindow gameWindow){
         super(gameWindow);
         logger.info("Creating Lobby Scene");
-        this.communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
+        this.communicator = new Communicator(Communicator.getServer());
     }
 
     /**
@@ -97,7 +103,7 @@ public class LobbyScene extends BaseScene{
     public void build() {
         logger.info("Building " + this.getClass().getName());
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
-        root.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm()); // Link the CSS file
+        root.getStylesheets().add(AssetManager.getDefault().getStylesheet()); // Link the CSS file
 
         BorderPane mainPane = new BorderPane(); // Use BorderPane as the main layout container
         mainPane.setMaxWidth(gameWindow.getWidth());
@@ -191,20 +197,31 @@ public class LobbyScene extends BaseScene{
         });
     }
 
+    /**
+     * Stop asking for channels and close the lobby's own connection to the server
+     */
+    @Override
+    public void cleanup() {
+        if (channelRequestTimer != null) {
+            channelRequestTimer.stop();
+        }
+        communicator.close();
+    }
+
     /**
      * Starts a repeating timer to request channels every few seconds
      */
     private void startChannelRequestTimer() {
         // Start a repeating timer to request channels every few seconds
         // For example, here it requests channels every 5 seconds
-        javafx.animation.Timeline timeline = new javafx.animation.Timeline(
+        channelRequestTimer = new javafx.animation.Timeline(
                 new javafx.animation.KeyFrame(javafx.util.Duration.seconds(5), e -> {
                     listChannels();
                     channelListContainer.getChildren().clear();
                 })
         );
-        timeline.setCycleCount(javafx.animation.Animation.INDEFINITE);
-        timeline.play();
+        channelRequestTimer.setCycleCount(javafx.animation.Animation.INDEFINITE);
+        channelRequestTimer.play();
     }
 
     /**
@@ -446,7 +463,7 @@ public class LobbyScene extends BaseScene{
     private void quit() {
         communicator.send("QUIT");
         // Load the menu scene, as the user as quit the lobby scene
-        gameWindow.loadScene(new MenuScene(gameWindow));
+        gameWindow.startMenu();
     }
 
     /**
@@ -1,15 +1,18 @@
 package uk.ac.soton.comp1206.scene;
 
 import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GameMode;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.media.Multimedia;
 import javafx.animation.FadeTransition;
 import javafx.util.Duration;
@@ -33,6 +36,26 @@ public class MenuScene extends BaseScene {
      */
     private static boolean fadeTransitionPlayed = false;
 
+    /**
+     * Holds the menu, and the splash while it shows
+     */
+    private StackPane menuPane;
+
+    /**
+     * The black splash the ECSGames image fades out on, shown the first time the menu is
+     */
+    private StackPane blackBackground;
+
+    /**
+     * Fades out the ECSGames image
+     */
+    private FadeTransition fadeOut;
+
+    /**
+     * Rocks the title image from side to side
+     */
+    private RotateTransition rockingAnimation;
+
     /**
      * Create a new menu scene
      * @param gameWindow the Game Window this will be displayed in
@@ -53,9 +76,9 @@ public class MenuScene extends BaseScene {
         logger.info("Building " + this.getClass().getName());
 
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
-        root.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm()); // Link the CSS file
+        root.getStylesheets().add(AssetManager.getDefault().getStylesheet()); // Link the CSS file
 
-        var menuPane = new StackPane();
+        menuPane = new StackPane();
         menuPane.setMaxWidth(gameWindow.getWidth());
         menuPane.setMaxHeight(gameWindow.getHeight());
         menuPane.getStyleClass().add("menu-background");
@@ -65,21 +88,29 @@ public class MenuScene extends BaseScene {
         menuPane.getChildren().add(mainPane);
 
         // Create a black background to transition from
-        var blackBackground = new StackPane();
+        blackBackground = new StackPane();
         blackBackground.setStyle("-fx-background-color: black;");
         blackBackground.setMaxSize(gameWindow.getWidth(), gameWindow.getHeight());
         menuPane.getChildren().add(blackBackground);
 
         // Create an ImageView for the ECSGames image
-        ImageView firstImage = new ImageView(new Image(getClass().getResourceAsStream("/images/ECSGames.png")));
+        ImageView firstImage = new ImageView(AssetManager.getDefault().getImage("/images/ECSGames.png"));
         double imageSize = Math.min(gameWindow.getWidth(), gameWindow.getHeight()) * 0.6;
         firstImage.setFitWidth(imageSize);
         firstImage.setFitHeight(imageSize);
         firstImage.setPreserveRatio(true); // Preserve the aspect ratio
         blackBackground.getChildren().add(firstImage);
 
+        // Show how much of the game has loaded beneath the splash
+        var loading = new ProgressBar();
+        loading.progressProperty().bind(AssetManager.getDefault().progressProperty());
+        loading.setPrefWidth(imageSize);
+        StackPane.setAlignment(loading, Pos.BOTTOM_CENTER);
+        StackPane.setMargin(loading, new Insets(0, 0, gameWindow.getHeight() * 0.1, 0));
+        blackBackground.getChildren().add(loading);
+
         // Create a FadeTransition for the first image (fade out)
-        FadeTransition fadeOut = new FadeTransition(Duration.seconds(3), firstImage);
+        fadeOut = new FadeTransition(Duration.seconds(3), firstImage);
         fadeOut.setFromValue(1.0);
         fadeOut.setToValue(0.0);
         fadeOut.setNode(firstImage); // Apply the transition to the first image
@@ -89,7 +120,7 @@ public class MenuScene extends BaseScene {
         });
 
         /// Create an ImageView for the title image
-        ImageView titleImage = new ImageView(new Image(getClass().getResourceAsStream("/images/TetrECS.png")));
+        ImageView titleImage = new ImageView(AssetManager.getDefault().getImage("/images/TetrECS.png"));
         titleImage.setFitWidth(400); // Set the width of the image
         titleImage.setPreserveRatio(true); // Preserve the aspect ratio
         titleImage.getStyleClass().add("bigtitle"); //Apply the "bigtitle" style class
@@ -99,6 +130,18 @@ public class MenuScene extends BaseScene {
         var playButton = new Button("Play");
         playButton.getStyleClass().add("menuItem");
 
+        var marathonButton = new Button("Marathon");
+        marathonButton.getStyleClass().add("menuItem");
+        marathonButton.setOnAction(this::startMarathon);
+
+        var practiceButton = new Button("Practice");
+        practiceButton.getStyleClass().add("menuItem");
+        practiceButton.setOnAction(this::startPractice);
+
+        var puzzlesButton = new Button("Puzzles");
+        puzzlesButton.getStyleClass().add("menuItem");
+        puzzlesButton.setOnAction(this::startPuzzles);
+
         var howToPlayButton = new Button("How To Play");
         howToPlayButton.getStyleClass().add("menuItem");
         howToPlayButton.setOnAction(this::showInstructions);
@@ -109,31 +152,23 @@ public class MenuScene extends BaseScene {
 
         // Create a VBox to hold the title image and buttons with spacing
         VBox titleBox = new VBox(30); // Spacing between title and buttons
-        titleBox.getChildren().addAll(titleImage, playButton, howToPlayButton, multiplayerButton);
+        titleBox.getChildren().addAll(titleImage, playButton, marathonButton, practiceButton, puzzlesButton, howToPlayButton, multiplayerButton);
         titleBox.setAlignment(Pos.CENTER); // Center align the VBox
 
         mainPane.setCenter(titleBox); // Set the VBox in the center of the BorderPane
 
         // Create rocking animation for title image
-        RotateTransition rockingAnimation = new RotateTransition(Duration.seconds(2), titleImage);
+        rockingAnimation = new RotateTransition(Duration.seconds(2), titleImage);
         rockingAnimation.setFromAngle(-5); // Set the starting angle
         rockingAnimation.setToAngle(5); // Set the ending angle
         rockingAnimation.setCycleCount(RotateTransition.INDEFINITE); // Repeat indefinitely
         rockingAnimation.setAutoReverse(true); // Reverse the animation direction
-        rockingAnimation.play(); // Start the animation
 
         //Bind the button action to the startGame method in the menu
         playButton.setOnAction(this::startGame);
 
-        // Play background music for the menu
-        multimedia.playBackgroundMusic("/music/menu.mp3");
-
-        // Play the fade out transition for the first image only if it hasn't been played before
-        if (!fadeTransitionPlayed) {
-            fadeOut.play();
-            fadeTransitionPlayed = true;
-        } else {
-            // If the fade transition has already been played, remove the black background immediately
+        // If the fade transition has already been played, remove the black background immediately
+        if (fadeTransitionPlayed) {
             menuPane.getChildren().remove(blackBackground);
         }
 
@@ -141,10 +176,21 @@ public class MenuScene extends BaseScene {
     }
 
     /**
-     * Initialise the menu
+     * Initialise the menu, starting its music and animations now it is showing
      */
     @Override
     public void initialise() {
+        rockingAnimation.play(); // Start the animation
+
+        // Play background music for the menu
+        multimedia.playBackgroundMusic("/music/menu.mp3");
+
+        // Play the fade out transition for the first image only if it hasn't been played before
+        if (!fadeTransitionPlayed) {
+            fadeOut.play();
+            fadeTransitionPlayed = true;
+        }
+
         // Add keyboard listener to listen for Escape key press
         root.setOnKeyPressed(event -> {
             if (event.getCode() == KeyCode.ESCAPE) {
@@ -154,6 +200,34 @@ public class MenuScene extends BaseScene {
         });
     }
 
+    /**
+     * Release the menu music and stop the animations
+     */
+    @Override
+    public void cleanup() {
+        multimedia.dispose();
+        rockingAnimation.stop();
+        fadeOut.stop();
+    }
+
+    /**
+     * The menu is the same every time it is shown, so it is kept
+     * @return true
+     */
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * Take away the splash if the menu was left before it faded, and put the title back upright
+     */
+    @Override
+    public void reset() {
+        menuPane.getChildren().remove(blackBackground);
+        rockingAnimation.getNode().setRotate(0);
+    }
+
     /**
      * Handle when the Start Game button is pressed
      * @param event event
@@ -166,11 +240,38 @@ public class MenuScene extends BaseScene {
 
     }
 
+    /**
+     * Handle when the Marathon button is pressed, starting a game on the large marathon board
+     * @param event event
+     */
+    private void startMarathon(ActionEvent event) {
+        multimedia.stopBackgroundMusic();
+        gameWindow.startChallenge(GameMode.MARATHON);
+    }
+
+    /**
+     * Handle when the Practice button is pressed, starting a game where moves can be undone
+     * @param event event
+     */
+    private void startPractice(ActionEvent event) {
+        multimedia.stopBackgroundMusic();
+        gameWindow.startChallenge(GameMode.PRACTICE);
+    }
+
+    /**
+     * Handle when the Puzzles button is pressed, starting the first puzzle of the pack
+     * @param event event
+     */
+    private void startPuzzles(ActionEvent event) {
+        // The music stops with the menu, so it keeps playing if there are no puzzles to go to
+        gameWindow.startPuzzles();
+    }
+
     private void showInstructions(ActionEvent event){
 
         // Stop background music before switching to instructions scene
         multimedia.stopBackgroundMusic();
-        gameWindow.loadScene(new InstructionsScene(gameWindow));
+        gameWindow.startInstructions();
     }
 
     private void showMultiPlayerLobby(ActionEvent event){
@@ -0,0 +1,135 @@
+package uk.ac.soton.comp1206.scene;
+
+import javafx.animation.PauseTransition;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Move;
+import uk.ac.soton.comp1206.game.PuzzleGame;
+import uk.ac.soton.comp1206.game.PuzzlePack;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+/**
+ * The puzzle scene. Plays one puzzle of a pack on the challenge layout, then moves on to the next puzzle once it is
+ * solved, or starts it again if not. Hints show the move of the puzzle's solution.
+ */
+public class PuzzleScene extends ChallengeScene {
+
+    private static final Logger logger = LogManager.getLogger(PuzzleScene.class);
+
+    /**
+     * How long the result is shown before the next puzzle
+     */
+    private static final Duration RESULT_PAUSE = Duration.seconds(2);
+
+    /**
+     * The pack being played
+     */
+    private final PuzzlePack pack;
+
+    /**
+     * The puzzle being played, from 0 for the first in the pack
+     */
+    private final int index;
+
+    /**
+     * Shows which puzzle this is, and then how it went
+     */
+    private Label status;
+
+    /**
+     * Waits before moving on once the puzzle is over
+     */
+    private PauseTransition resultPause;
+
+    /**
+     * Create a new puzzle scene
+     * @param gameWindow the Game Window
+     * @param pack the pack being played
+     * @param index the puzzle to play, from 0
+     */
+    public PuzzleScene(GameWindow gameWindow, PuzzlePack pack, int index) {
+        super(gameWindow);
+        logger.info("Creating Puzzle Scene for puzzle {} of {}", index + 1, pack.size());
+        this.pack = pack;
+        this.index = index;
+    }
+
+    /**
+     * Create a game of the puzzle
+     * @return the game
+     */
+    @Override
+    protected Game createGame() {
+        return new PuzzleGame(pack.get(index), pack.getPieceSet());
+    }
+
+    /**
+     * Build the challenge layout, with the puzzle's number, difficulty and moves above it
+     */
+    @Override
+    public void build() {
+        super.build();
+
+        var puzzle = pack.get(index);
+        status = new Label("Puzzle " + (index + 1) + " of " + pack.size() + "   " + "*".repeat(puzzle.getGrade())
+            + "   Clear the board in " + puzzle.getMoves() + " moves");
+        status.getStyleClass().add("heading");
+        status.setTextFill(Color.WHITE);
+        StackPane.setAlignment(status, Pos.BOTTOM_CENTER);
+        root.getChildren().add(status);
+    }
+
+    /**
+     * Nothing is built ahead, since which puzzle comes next depends on how this one goes
+     */
+    @Override
+    protected void prepareNextScene() {
+    }
+
+    /**
+     * Hint at the move of the puzzle's solution, while the player is still following it
+     * @return the move, or null once a piece has gone elsewhere
+     */
+    @Override
+    protected Move chooseHint() {
+        return ((PuzzleGame) game).getHint();
+    }
+
+    /**
+     * Show how the puzzle went, then go on to the next puzzle if it was solved, or play it again if not
+     */
+    @Override
+    public void shutdownGame() {
+        stopPlaying();
+        var solved = ((PuzzleGame) game).isSolved();
+        status.setText(solved ? "Solved!" : "Not quite, try again");
+
+        resultPause = new PauseTransition(RESULT_PAUSE);
+        resultPause.setOnFinished(event -> {
+            var next = solved ? index + 1 : index;
+            if (next < pack.size()) {
+                gameWindow.loadScene(new PuzzleScene(gameWindow, pack, next));
+            } else {
+                gameWindow.startMenu();
+            }
+        });
+        resultPause.play();
+    }
+
+    /**
+     * Stop the pause before the next puzzle, as well as everything the challenge scene stops
+     */
+    @Override
+    public void cleanup() {
+        if (resultPause != null) {
+            resultPause.stop();
+        }
+        super.cleanup();
+    }
+}
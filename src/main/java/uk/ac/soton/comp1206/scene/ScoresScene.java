@@ -10,12 +10,12 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.util.Duration;
 import javafx.scene.control.TextInputDialog;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.util.Pair;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.network.Communicator;
 import javafx.beans.property.ListProperty;
 import javafx.beans.property.SimpleListProperty;
@@ -94,10 +94,8 @@ public class ScoresScene extends BaseScene{
         localScoresList.scoresProperty().bind(localScores);
         remoteScoresList.scoresProperty().bind(remoteScores);
 
-        // Initialize the Communicator
-        this.communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
-        // Add a listener to receive high scores from the server
-        communicator.addListener(this::receiveOnlineScores);
+        // Share the window's connection to the server rather than opening another
+        this.communicator = gameWindow.getCommunicator();
     }
 
     /**
@@ -106,7 +104,7 @@ public class ScoresScene extends BaseScene{
     public void build(){
         logger.info("Building " + this.getClass().getName());
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
-        root.getStylesheets().add(getClass().getResource("/style/game.css").toExternalForm()); // Link the CSS file
+        root.getStylesheets().add(AssetManager.getDefault().getStylesheet()); // Link the CSS file
 
         BorderPane mainPane = new BorderPane(); // Use BorderPane as the main layout container
         mainPane.setMaxWidth(gameWindow.getWidth());
@@ -118,7 +116,7 @@ public class ScoresScene extends BaseScene{
         titleContainer.setAlignment(Pos.CENTER);
 
         // Create an ImageView for the title image
-        ImageView titleImage = new ImageView(new Image(getClass().getResourceAsStream("/images/TetrECS.png")));
+        ImageView titleImage = new ImageView(AssetManager.getDefault().getImage("/images/TetrECS.png"));
         titleImage.setFitWidth(400); // Set the width of the image
         titleImage.setPreserveRatio(true); // Preserve the aspect ratio
         titleImage.getStyleClass().add("bigtitle"); // Apply the "bigtitle" style class
@@ -167,9 +165,14 @@ public class ScoresScene extends BaseScene{
         // Load scores from file
         loadScores("/Users/arjunsrinivasan/Documents/Programming II/Coursework/coursework/src/main/java/uk/ac/soton/comp1206/scores.txt");
 
-        // Load online scores
-        loadOnlineScores();
+    }
 
+    /**
+     * Get the game whose scores this scene shows
+     * @return the game
+     */
+    public Game getGame() {
+        return game;
     }
 
     /**
@@ -179,6 +182,14 @@ public class ScoresScene extends BaseScene{
      */
     @Override
     public void initialise() {
+        // Load online scores, listening for the reply first. The window clears its listeners as a scene loads, and
+        // this scene may have been built while the game was still being played, so the listener is added here.
+        communicator.addListener(this::receiveOnlineScores);
+        loadOnlineScores();
+
+        // The menu is likely next, so have it ready
+        gameWindow.prepareMenu();
+
         // Set the loaded scores to the ScoresList
         localScoresList.setScores(localScores.get());
 
@@ -361,6 +372,16 @@ public class ScoresScene extends BaseScene{
         });
     }
 
+    /**
+     * Stop the timeline back to the menu, so it can't fire once another scene is showing
+     */
+    @Override
+    public void cleanup() {
+        if (scoreSceneTimeline != null) {
+            scoreSceneTimeline.stop();
+        }
+    }
+
     private void startScoreSceneTimeline() {
         // Start the timeline for the score scene
         scoreSceneTimeline = new Timeline(new KeyFrame(Duration.seconds(15), event -> {
@@ -417,8 +438,9 @@ public class ScoresScene extends BaseScene{
         ObservableList<Pair<String, Integer>> onlineScores = FXCollections.observableArrayList();
 
         for (String score: scores){
+            // Servers may keep more after the score, which is ignored
             String[] parts = score.split(":");
-            if (parts.length == 2){
+            if (parts.length >= 2){
                 String name = parts[0].trim();
                 int scoreValue = Integer.parseInt(parts[1].trim());
                 onlineScores.add(new Pair<>(name, scoreValue));
@@ -463,14 +485,19 @@ public class ScoresScene extends BaseScene{
     }
 
     /**
-     * Submit a new high score to the server.
+     * Submit a new high score to the server. When the game is started with -Dtetrecs.journal=true, the game's journal
+     * follows in a separate JOURNAL command, so a server that keeps journals can check the score by replaying the game.
+     * The HISCORE command itself is left as every server expects it.
      * @param name the name of the player.
      * @param score the score achieved by the player.
      */
     public void submitNewHighScore(String name, int score) {
         // Send the new high score to the server
-        String message = "HISCORE " + name + ":" + score;
-        communicator.send(message);
+        communicator.send("HISCORE " + name + ":" + score);
+        String journal = game.getJournal();
+        if (journal != null && Boolean.getBoolean("tetrecs.journal")) {
+            communicator.send("JOURNAL " + name + ":" + score + ":" + journal);
+        }
     }
 
 
@@ -0,0 +1,165 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the hot paths of the game logic don't allocate: checking and playing pieces, rotating, clearing lines
+ * and scoring. Each path is run in a loop and the bytes allocated by the thread are measured, then compared with a
+ * budget per operation. Paths that should never allocate have a budget of zero.
+ *
+ * Exits with status 1 if any path is over its budget, so it can fail a build. Run it with
+ * mvn -P allocation-check verify, or directly with the game's classpath.
+ */
+public class AllocationCheck {
+
+    /**
+     * Operations run before measuring, so the JIT has compiled and optimised the paths
+     */
+    private static final int WARMUP = 200_000;
+
+    /**
+     * Operations measured
+     */
+    private static final int ITERATIONS = 1_000_000;
+
+    /**
+     * Bytes per operation allowed over the budget, for the odd allocation by the JVM itself during the run
+     */
+    private static final double TOLERANCE = 0.5;
+
+    /**
+     * A path to measure
+     */
+    private static class Case {
+
+        /**
+         * The name of the path
+         */
+        final String name;
+
+        /**
+         * The most bytes one operation may allocate
+         */
+        final long budget;
+
+        /**
+         * Runs one operation
+         */
+        final Runnable operation;
+
+        Case(String name, long budget, Runnable operation) {
+            this.name = name;
+            this.budget = budget;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Run the check
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        ToolSupport.quietLogging();
+
+        var threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean allocations)
+            || !allocations.isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM cannot measure allocation per thread");
+            System.exit(2);
+            return;
+        }
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        var failed = false;
+        for (var check : cases()) {
+            for (var i = 0; i < WARMUP; i++) {
+                check.operation.run();
+            }
+
+            var thread = Thread.currentThread().getId();
+            var before = allocations.getThreadAllocatedBytes(thread);
+            for (var i = 0; i < ITERATIONS; i++) {
+                check.operation.run();
+            }
+            var perOperation = (double) (allocations.getThreadAllocatedBytes(thread) - before) / ITERATIONS;
+
+            var passed = perOperation <= check.budget + TOLERANCE;
+            failed |= !passed;
+            System.out.printf("%-32s %10.2f bytes/op  budget %6d  %s%n", check.name, perOperation, check.budget,
+                passed ? "ok" : "OVER BUDGET");
+        }
+
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Build the paths to measure. Every operation leaves the board as it found it, so it can be run any number of
+     * times.
+     * @return the cases
+     */
+    private static List<Case> cases() {
+        var cases = new ArrayList<Case>();
+
+        var rotating = GamePiece.createPiece(0);
+        cases.add(new Case("GamePiece.rotate", 0, rotating::rotate));
+
+        var checkGrid = new Grid(5, 5);
+        checkGrid.set(2, 2, 1);
+        var checking = GamePiece.createPiece(2);
+        var position = new int[1];
+        cases.add(new Case("Grid.canPlayPiece", 0, () -> {
+            var index = position[0]++ % 25;
+            checkGrid.canPlayPiece(checking, index % 5, index / 5);
+        }));
+
+        var playGrid = new Grid(5, 5);
+        var playing = GamePiece.createPiece(2);
+        cases.add(new Case("Grid.playPiece", 0, () -> {
+            playGrid.playPiece(playing, 2, 2);
+            clear(playGrid);
+        }));
+
+        var quietGame = new Game(5, 5);
+        var quietGrid = quietGame.getGrid();
+        cases.add(new Case("Game.afterPiece without a clear", 0, () -> {
+            quietGrid.playPiece(playing, 2, 2);
+            quietGame.afterPiece(playing, 2, 2);
+            clear(quietGrid);
+        }));
+
+        // A line needs clearing, which builds the set of cleared blocks and the event telling the display about it
+        var clearingGame = new Game(5, 5);
+        var clearingGrid = clearingGame.getGrid();
+        var dot = GamePiece.createPiece(3);
+        cases.add(new Case("Game.afterPiece clearing a line", 1024, () -> {
+            for (var x = 0; x < 5; x++) {
+                if (x != 2) clearingGrid.set(x, 2, 1);
+            }
+            clearingGrid.playPiece(dot, 2, 2);
+            clearingGame.afterPiece(dot, 2, 2);
+        }));
+
+        var scoringGame = new Game(5, 5);
+        cases.add(new Case("Game.score", 0, () -> scoringGame.score(2, 9)));
+
+        return cases;
+    }
+
+    /**
+     * Empty every block of a grid
+     * @param grid the grid
+     */
+    private static void clear(Grid grid) {
+        for (var x = 0; x < grid.getCols(); x++) {
+            for (var y = 0; y < grid.getRows(); y++) {
+                grid.set(x, y, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.ai.ArenaKernel;
+import uk.ac.soton.comp1206.ai.GameArena;
+import uk.ac.soton.comp1206.ai.PlacementWeights;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceSet;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks the ArenaKernel against the game, then runs ever larger populations of games through it, showing the heap
+ * and garbage collection stay the same however many games there are.
+ *
+ * For the check, games are played to the end both in an arena and on a real Game dealt the same pieces. The Game is
+ * played the move the kernel should pick, found the slow way with Grid.canPlayPiece and Grid.playPiece, and every
+ * turn the two must agree on the board, pieces, score, level, lives and multiplier. Exits with status 1 if they don't.
+ *
+ * Populations and turns can be given as arguments, for example 10000,100000,1000000 50.
+ */
+public class ArenaSimulation {
+
+    /**
+     * The most turns a checked game is played for
+     */
+    private static final int CHECKED_TURNS = 5000;
+
+    /**
+     * Run the check and the simulations
+     * @param args the populations, separated by commas, then the turns to play each
+     */
+    public static void main(String[] args) {
+        ToolSupport.quietLogging();
+        var set = PieceSet.getDefault();
+        var populations = args.length > 0 ? args[0].split(",") : new String[] {"10000", "100000", "1000000"};
+        var turns = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        var failures = 0;
+        // Games on the larger board last much longer, so fewer are checked
+        failures += check(set, 5, 5, 200);
+        failures += check(set, 8, 6, 20);
+
+        System.out.printf("%10s %8s %12s %10s %12s %12s %6s %8s%n", "games", "running", "turns/s", "direct MB",
+            "heap before", "heap after", "GCs", "GC ms");
+        for (var population : populations) {
+            simulate(set, Integer.parseInt(population.trim()), turns);
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    /**
+     * Play games in an arena and on real Games, turn by turn, and count the games that differ
+     * @param set the pieces
+     * @param cols columns
+     * @param rows rows
+     * @param games the number of games
+     * @return the number of games that differed
+     */
+    private static int check(PieceSet set, int cols, int rows, int games) {
+        var arena = new GameArena(cols, rows, games);
+        var kernel = new ArenaKernel(set, cols, rows);
+        kernel.startAll(arena, 1);
+
+        var failures = 0;
+        var moves = 0L;
+        for (var index = 0; index < games; index++) {
+            var game = new Game(cols, rows, GameMode.DeadBoardPolicy.LOSE_LIFE, set);
+            game.setSeed(1 + index);
+            game.startHeadless();
+
+            var difference = compare(arena, index, game);
+            for (var turn = 0; difference == null && !game.isOver() && turn < CHECKED_TURNS; turn++) {
+                playBest(game, PlacementWeights.getDefault());
+                kernel.advance(arena, index, index + 1);
+                difference = compare(arena, index, game);
+            }
+            moves += arena.getMoves(index);
+            if (difference != null && failures++ < 5) {
+                System.out.printf("%dx%d game %d after %d moves: %s%n", cols, rows, index, arena.getMoves(index),
+                    difference);
+            }
+        }
+        System.out.printf("%2dx%-2d %d games, %d moves checked against the game  %s%n", cols, rows, games, moves,
+            failures == 0 ? "ok" : "DIFFERENT");
+        return failures;
+    }
+
+    /**
+     * Play the move the kernel would, working it out the slow way. If no move is left, the timer runs out.
+     * @param game the game
+     * @param weights the weights the kernel values moves with
+     */
+    private static void playBest(Game game, PlacementWeights weights) {
+        var grid = game.getGrid();
+        var best = Double.NEGATIVE_INFINITY;
+        var bestSwap = false;
+        int bestRotation = 0, bestX = 0, bestY = 0;
+        for (var swap : new boolean[] {false, true}) {
+            var piece = swap ? game.getFollowingPiece() : game.getCurrentPiece();
+            var set = piece.getSet();
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var repeated = false;
+                for (var earlier = 0; earlier < rotation; earlier++) {
+                    repeated |= set.getMask(piece.getPiece(), earlier) == set.getMask(piece.getPiece(), rotation);
+                }
+                if (repeated) continue;
+
+                var candidate = GamePiece.createPiece(set, piece.getPiece(), rotation);
+                for (var y = 0; y < grid.getRows(); y++) {
+                    for (var x = 0; x < grid.getCols(); x++) {
+                        if (!grid.canPlayPiece(candidate, x, y)) continue;
+                        var value = value(grid, candidate, x, y, game.getMultiplier(), weights);
+                        if (value > best) {
+                            best = value;
+                            bestSwap = swap;
+                            bestRotation = rotation;
+                            bestX = x;
+                            bestY = y;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (best == Double.NEGATIVE_INFINITY) {
+            game.timerExpired();
+            return;
+        }
+        if (bestSwap) game.swapCurrentPiece();
+        game.getCurrentPiece().rotate(bestRotation - game.getCurrentPiece().getRotation());
+        if (!game.playPiece(bestX, bestY)) {
+            throw new IllegalStateException("Move found does not fit");
+        }
+    }
+
+    /**
+     * Value a move with the placement heuristic, as the kernel does
+     * @param grid the grid
+     * @param piece the piece, which must fit
+     * @param placeX column of the middle
+     * @param placeY row of the middle
+     * @param multiplier the game's multiplier
+     * @param weights the weights
+     * @return the value
+     */
+    private static double value(Grid grid, GamePiece piece, int placeX, int placeY, int multiplier,
+                                PlacementWeights weights) {
+        int[][] blocks = piece.getBlocks();
+        var middle = blocks.length / 2;
+        var contact = 0;
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks.length; blockY++) {
+                if (blocks[blockX][blockY] == 0) continue;
+                var x = placeX + blockX - middle;
+                var y = placeY + blockY - middle;
+                for (int[] side : new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}) {
+                    int sideX = x + side[0], sideY = y + side[1];
+                    if (sideX < 0 || sideY < 0 || sideX >= grid.getCols() || sideY >= grid.getRows()
+                        || grid.get(sideX, sideY) != 0) {
+                        contact++;
+                    }
+                }
+            }
+        }
+
+        grid.playPiece(piece, placeX, placeY);
+        var fullRows = new boolean[grid.getRows()];
+        var fullColumns = new boolean[grid.getCols()];
+        var lines = 0;
+        for (var y = 0; y < grid.getRows(); y++) {
+            fullRows[y] = grid.isRowFull(y);
+            if (fullRows[y]) lines++;
+        }
+        for (var x = 0; x < grid.getCols(); x++) {
+            fullColumns[x] = grid.isColumnFull(x);
+            if (fullColumns[x]) lines++;
+        }
+
+        // Holes on the board once the lines are cleared
+        var holes = 0;
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                if (!filledAfter(grid, fullRows, fullColumns, x, y) && filledAfter(grid, fullRows, fullColumns, x - 1, y)
+                    && filledAfter(grid, fullRows, fullColumns, x + 1, y)
+                    && filledAfter(grid, fullRows, fullColumns, x, y - 1)
+                    && filledAfter(grid, fullRows, fullColumns, x, y + 1)) {
+                    holes++;
+                }
+            }
+        }
+
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks.length; blockY++) {
+                if (blocks[blockX][blockY] != 0) grid.set(placeX + blockX - middle, placeY + blockY - middle, 0);
+            }
+        }
+        var kept = lines > 0 ? multiplier : 1 - multiplier;
+        return weights.getLines() * lines + weights.getHoles() * holes + weights.getContact() * contact
+            + weights.getMultiplier() * kept;
+    }
+
+    /**
+     * Check whether a block is filled once full lines are cleared, counting the edges as filled
+     * @param grid the grid
+     * @param fullRows the rows to clear
+     * @param fullColumns the columns to clear
+     * @param x column
+     * @param y row
+     * @return true if filled or off the grid
+     */
+    private static boolean filledAfter(Grid grid, boolean[] fullRows, boolean[] fullColumns, int x, int y) {
+        if (x < 0 || y < 0 || x >= grid.getCols() || y >= grid.getRows()) return true;
+        return grid.get(x, y) != 0 && !fullRows[y] && !fullColumns[x];
+    }
+
+    /**
+     * Compare a game in an arena with a real game
+     * @param arena the arena
+     * @param index the game in the arena
+     * @param game the real game
+     * @return what differs, or null if nothing does
+     */
+    private static String compare(GameArena arena, int index, Game game) {
+        if (arena.isOver(index) != game.isOver()) return "over " + arena.isOver(index) + " / " + game.isOver();
+        if (arena.getScore(index) != game.getScore()) return "score " + arena.getScore(index) + " / " + game.getScore();
+        if (arena.getLevel(index) != game.getLevel()) return "level " + arena.getLevel(index) + " / " + game.getLevel();
+        if (arena.getLives(index) != game.getLives()) return "lives " + arena.getLives(index) + " / " + game.getLives();
+        if (arena.getMultiplier(index) != game.getMultiplier()) {
+            return "multiplier " + arena.getMultiplier(index) + " / " + game.getMultiplier();
+        }
+        if (game.isOver()) return null;
+
+        var current = game.getCurrentPiece();
+        var following = game.getFollowingPiece();
+        if (arena.getCurrentPiece(index) != current.getPiece()
+            || arena.getCurrentRotation(index) != current.getRotation()
+            || arena.getFollowingPiece(index) != following.getPiece()
+            || arena.getFollowingRotation(index) != following.getRotation()) {
+            return "pieces " + arena.getCurrentPiece(index) + "/" + arena.getFollowingPiece(index) + " / "
+                + current.getPiece() + "/" + following.getPiece();
+        }
+        var grid = game.getGrid();
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                if (arena.isFilled(index, x, y) != (grid.get(x, y) != 0)) return "board at " + x + "," + y;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Play a population of standard games for a number of turns, measuring the heap and garbage collection
+     * @param set the pieces
+     * @param population the number of games
+     * @param turns the turns to play
+     */
+    private static void simulate(PieceSet set, int population, int turns) {
+        var arena = new GameArena(GameMode.CHALLENGE.getCols(), GameMode.CHALLENGE.getRows(), population);
+        var kernel = new ArenaKernel(set, arena.getCols(), arena.getRows());
+        kernel.startAll(arena, population);
+        kernel.advanceAll(arena); // Let the JIT compile the kernel
+
+        var heapBefore = heapUsed();
+        long collectionsBefore = collections(), collectionTimeBefore = collectionTime();
+        var began = System.nanoTime();
+        var running = 0;
+        for (var turn = 0; turn < turns; turn++) {
+            running = kernel.advanceAll(arena);
+        }
+        var seconds = (System.nanoTime() - began) / 1e9;
+        long collectionsAfter = collections(), collectionTimeAfter = collectionTime();
+        var heapAfter = heapUsed();
+
+        System.out.printf("%10d %8d %12.0f %10.1f %10.1fMB %10.1fMB %6d %8d%n", population, running,
+            (double) population * turns / seconds, arena.getBytes() / 1e6, heapBefore / 1e6, heapAfter / 1e6,
+            collectionsAfter - collectionsBefore, collectionTimeAfter - collectionTimeBefore);
+    }
+
+    /**
+     * Measure the heap in use once garbage has been collected
+     * @return bytes
+     */
+    private static long heapUsed() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Count the garbage collections so far
+     * @return collections
+     */
+    private static long collections() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(bean -> bean.getCollectionCount()).sum();
+    }
+
+    /**
+     * Add up the time spent collecting garbage so far
+     * @return milliseconds
+     */
+    private static long collectionTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(bean -> bean.getCollectionTime()).sum();
+    }
+}
@@ -0,0 +1,303 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.ai.BatchEvaluation;
+import uk.ac.soton.comp1206.ai.BatchEvaluator;
+import uk.ac.soton.comp1206.ai.BoardBatch;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.SeedableRandom;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the BatchEvaluator against the game itself, then measures how fast it is.
+ *
+ * Random boards have a random piece played on them. Each is evaluated in a batch, and played out on a real Game:
+ * Grid.playPiece and Game.afterPiece give the lines and cleared blocks, and Grid.canPlayPiece, tried at every rotation
+ * and position, gives the fits, holes and isolated blocks of the board left. Both the scalar and vector kernels are
+ * checked. Exits with status 1 on any difference.
+ *
+ * Run with --add-modules jdk.incubator.vector to check and time the vector kernel as well.
+ */
+public class BatchEvaluatorCheck {
+
+    /**
+     * Boards checked at each size
+     */
+    private static final int BOARDS = 4096;
+
+    /**
+     * Batches evaluated when timing
+     */
+    private static final int TIMED_BATCHES = 200;
+
+    /**
+     * Run the check
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        ToolSupport.quietLogging();
+        var set = PieceSet.getDefault();
+        var failures = 0;
+        for (int[] size : new int[][] {{5, 5}, {16, 16}, {32, 9}}) {
+            failures += check(set, size[0], size[1]);
+        }
+        for (int[] size : new int[][] {{5, 5}, {16, 16}}) {
+            time(set, size[0], size[1]);
+        }
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    /**
+     * Check random boards of one size against the game
+     * @param set the pieces
+     * @param cols columns
+     * @param rows rows
+     * @return the number of boards that differed
+     */
+    private static int check(PieceSet set, int cols, int rows) {
+        var random = new SeedableRandom(cols * 31L + rows);
+        var batch = new BoardBatch(cols, rows, BOARDS);
+        var games = new Game[BOARDS];
+        var pieces = new GamePiece[BOARDS];
+        var places = new int[BOARDS][];
+
+        while (batch.size() < BOARDS) {
+            // A board with no full lines, as the game leaves them, filled to a random density
+            var game = new Game(cols, rows, GameMode.DeadBoardPolicy.LOSE_LIFE, set);
+            var grid = game.getGrid();
+            var density = random.nextDouble();
+            for (var y = 0; y < rows; y++) {
+                for (var x = 0; x < cols; x++) {
+                    if (random.nextDouble() < density) grid.set(x, y, 1);
+                }
+            }
+            if (hasFullLine(grid)) continue;
+
+            var piece = GamePiece.createPiece(set, set.pick(random), random.nextInt(PieceSet.ROTATIONS));
+            var x = random.nextInt(cols);
+            var y = random.nextInt(rows);
+            if (!grid.canPlayPiece(piece, x, y)) continue;
+
+            var board = batch.add(grid);
+            batch.place(board, piece, x, y);
+            games[board] = game;
+            pieces[board] = piece;
+            places[board] = new int[] {x, y};
+        }
+
+        var scalar = new BatchEvaluation(BOARDS, set.getCount());
+        new BatchEvaluator(set, cols, rows, false).evaluate(batch, scalar);
+        var vectorEvaluator = new BatchEvaluator(set, cols, rows, true);
+        var vector = new BatchEvaluation(BOARDS, set.getCount());
+        vectorEvaluator.evaluate(batch, vector);
+
+        var failures = 0;
+        for (var board = 0; board < BOARDS; board++) {
+            var expected = playOut(set, games[board], pieces[board], places[board][0], places[board][1]);
+            for (var results : new BatchEvaluation[] {scalar, vector}) {
+                var actual = measure(set, results, board);
+                if (!Arrays.equals(expected, actual)) {
+                    if (failures++ < 5) {
+                        System.out.printf("%dx%d board %d: game %s, evaluator %s%n", cols, rows, board,
+                            Arrays.toString(expected), Arrays.toString(actual));
+                    }
+                }
+            }
+        }
+        System.out.printf("%2dx%-2d %d boards checked against the game (%s)  %s%n", cols, rows, BOARDS,
+            vectorEvaluator.isVectorised() ? "scalar and vector" : "scalar only", failures == 0 ? "ok" : "DIFFERENT");
+        return failures;
+    }
+
+    /**
+     * Play a piece on a real game and measure the result the slow way
+     * @param set the pieces
+     * @param game the game, holding the board before the piece
+     * @param piece the piece
+     * @param placeX column of the middle of the piece
+     * @param placeY row of the middle of the piece
+     * @return lines, cleared blocks, empty, isolated, holes, then the fits of every piece
+     */
+    private static int[] playOut(PieceSet set, Game game, GamePiece piece, int placeX, int placeY) {
+        var grid = game.getGrid();
+        grid.playPiece(piece, placeX, placeY);
+
+        var lines = 0;
+        for (var y = 0; y < grid.getRows(); y++) {
+            if (grid.isRowFull(y)) lines++;
+        }
+        for (var x = 0; x < grid.getCols(); x++) {
+            if (grid.isColumnFull(x)) lines++;
+        }
+        var filledBefore = countFilled(grid);
+        game.afterPiece(piece, placeX, placeY);
+        var cleared = filledBefore - countFilled(grid);
+
+        var covered = new boolean[grid.getCols()][grid.getRows()];
+        var results = new int[5 + set.getCount()];
+        for (var other = 0; other < set.getCount(); other++) {
+            // A placement is a middle and the blocks covered, so rotations covering the same blocks count once
+            Set<List<Object>> placements = new HashSet<>();
+            for (var rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                var candidate = GamePiece.createPiece(set, other, rotation);
+                for (var y = 0; y < grid.getRows(); y++) {
+                    for (var x = 0; x < grid.getCols(); x++) {
+                        if (grid.canPlayPiece(candidate, x, y)) {
+                            placements.add(List.of(x, y, blocksCovered(candidate, x, y, grid, covered)));
+                        }
+                    }
+                }
+            }
+            results[5 + other] = placements.size();
+        }
+
+        var empty = 0;
+        var isolated = 0;
+        var holes = 0;
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                if (grid.get(x, y) != 0) continue;
+                empty++;
+                if (!covered[x][y]) holes++;
+                if (blocked(grid, x - 1, y) && blocked(grid, x + 1, y) && blocked(grid, x, y - 1)
+                    && blocked(grid, x, y + 1)) {
+                    isolated++;
+                }
+            }
+        }
+        results[0] = lines;
+        results[1] = cleared;
+        results[2] = empty;
+        results[3] = isolated;
+        results[4] = holes;
+        return results;
+    }
+
+    /**
+     * Read the evaluator's results for a board in the same order as playOut
+     * @param set the pieces
+     * @param results the evaluation
+     * @param board the board
+     * @return lines, cleared blocks, empty, isolated, holes, then the fits of every piece
+     */
+    private static int[] measure(PieceSet set, BatchEvaluation results, int board) {
+        var measured = new int[5 + set.getCount()];
+        measured[0] = results.getLines(board);
+        measured[1] = results.getClearedBlocks(board);
+        measured[2] = results.getEmpty(board);
+        measured[3] = results.getIsolated(board);
+        measured[4] = results.getHoles(board);
+        for (var piece = 0; piece < set.getCount(); piece++) {
+            measured[5 + piece] = results.getFits(board, piece);
+        }
+        return measured;
+    }
+
+    /**
+     * Time both kernels on batches of one size
+     * @param set the pieces
+     * @param cols columns
+     * @param rows rows
+     */
+    private static void time(PieceSet set, int cols, int rows) {
+        var random = new SeedableRandom(7);
+        var batch = new BoardBatch(cols, rows, BOARDS);
+        while (batch.size() < BOARDS) {
+            var board = batch.add();
+            for (var y = 0; y < rows; y++) {
+                for (var x = 0; x < cols; x++) {
+                    batch.set(board, x, y, random.nextInt(3) == 0);
+                }
+            }
+        }
+        var results = new BatchEvaluation(BOARDS, set.getCount());
+        for (var vector : new boolean[] {false, true}) {
+            var evaluator = new BatchEvaluator(set, cols, rows, vector);
+            if (vector && !evaluator.isVectorised()) continue;
+            for (var i = 0; i < TIMED_BATCHES; i++) {
+                evaluator.evaluate(batch, results);
+            }
+            var began = System.nanoTime();
+            for (var i = 0; i < TIMED_BATCHES; i++) {
+                evaluator.evaluate(batch, results);
+            }
+            var seconds = (System.nanoTime() - began) / 1e9;
+            System.out.printf("%2dx%-2d %-6s %12.0f boards/s%n", cols, rows, vector ? "vector" : "scalar",
+                (double) BOARDS * TIMED_BATCHES / seconds);
+        }
+    }
+
+    /**
+     * Check whether a grid has a full row or column
+     * @param grid the grid
+     * @return true if a line is full
+     */
+    private static boolean hasFullLine(Grid grid) {
+        for (var y = 0; y < grid.getRows(); y++) {
+            if (grid.isRowFull(y)) return true;
+        }
+        for (var x = 0; x < grid.getCols(); x++) {
+            if (grid.isColumnFull(x)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Count the filled blocks of a grid
+     * @param grid the grid
+     * @return filled blocks
+     */
+    private static int countFilled(Grid grid) {
+        var filled = 0;
+        for (var y = 0; y < grid.getRows(); y++) {
+            for (var x = 0; x < grid.getCols(); x++) {
+                if (grid.get(x, y) != 0) filled++;
+            }
+        }
+        return filled;
+    }
+
+    /**
+     * Find the blocks a piece covers, marking them as coverable
+     * @param piece the piece
+     * @param placeX column of the middle
+     * @param placeY row of the middle
+     * @param grid the grid
+     * @param covered marked for every block covered
+     * @return the blocks covered, as y * cols + x
+     */
+    private static Set<Integer> blocksCovered(GamePiece piece, int placeX, int placeY, Grid grid,
+                                              boolean[][] covered) {
+        int[][] blocks = piece.getBlocks();
+        var middle = blocks.length / 2;
+        Set<Integer> cells = new HashSet<>();
+        for (var blockX = 0; blockX < blocks.length; blockX++) {
+            for (var blockY = 0; blockY < blocks.length; blockY++) {
+                if (blocks[blockX][blockY] == 0) continue;
+                var x = placeX + blockX - middle;
+                var y = placeY + blockY - middle;
+                covered[x][y] = true;
+                cells.add(y * grid.getCols() + x);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Check whether a block is filled or off the grid
+     * @param grid the grid
+     * @param x column
+     * @param y row
+     * @return true if nothing can be played there
+     */
+    private static boolean blocked(Grid grid, int x, int y) {
+        return x < 0 || y < 0 || x >= grid.getCols() || y >= grid.getRows() || grid.get(x, y) != 0;
+    }
+}
@@ -0,0 +1,316 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.ai.ArenaKernel;
+import uk.ac.soton.comp1206.ai.GameArena;
+import uk.ac.soton.comp1206.ai.PlacementWeights;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.SeedableRandom;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Evolves the weights of the placement heuristic by playing whole challenge games with them, on every core.
+ *
+ * Each generation, every set of weights in the population plays the same games, dealt from the same seeds, in a
+ * GameArena, and is scored by its mean final score. The seeds change every generation so the weights can't learn one
+ * run of pieces. The best sets carry over unchanged and the rest are bred from the winners of small tournaments, mixed
+ * gene by gene and nudged at random. Weights are kept to unit length, since only their direction changes the moves
+ * chosen.
+ *
+ * After every generation a checkpoint is written to the directory (~/.tetrecs/tuner unless given), along with
+ * best.properties, the best weights of the latest generation in the format of the placement-weights.properties
+ * resource. Run it again with the same directory to carry on from the last checkpoint.
+ *
+ * Arguments: generations, population, games per set of weights and the directory, all optional.
+ */
+public class GeneticTuner {
+
+    /**
+     * Sets of weights carried over unchanged into the next generation
+     */
+    private static final int ELITE = 2;
+
+    /**
+     * Sets of weights drawn for each breeding tournament
+     */
+    private static final int TOURNAMENT = 3;
+
+    /**
+     * Chance of each weight being nudged when breeding
+     */
+    private static final double MUTATION_RATE = 0.3;
+
+    /**
+     * Size of a nudge, relative to weights of unit length
+     */
+    private static final double MUTATION_SIZE = 0.2;
+
+    /**
+     * The most turns a game is played for, so weights that never lose don't run forever
+     */
+    private static final int MAX_TURNS = 2000;
+
+    /**
+     * The seed of the first generation's games and of breeding, when starting afresh
+     */
+    private static final long SEED = 2024;
+
+    /**
+     * Run the tuner
+     * @param args generations, population, games and directory, all optional
+     * @throws IOException if a checkpoint can't be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        ToolSupport.quietLogging();
+        var generations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        var size = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        var games = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        var directory = args.length > 3 ? Paths.get(args[3])
+            : Paths.get(System.getProperty("user.home"), ".tetrecs", "tuner");
+        Files.createDirectories(directory);
+
+        var set = GameMode.CHALLENGE.getPieceSet();
+        var random = new SeedableRandom(SEED);
+        var generation = 0;
+        double[][] population;
+
+        var latest = latestCheckpoint(directory);
+        if (latest != null) {
+            var checkpoint = new Properties();
+            try (Reader reader = Files.newBufferedReader(latest, StandardCharsets.UTF_8)) {
+                checkpoint.load(reader);
+            }
+            generation = Integer.parseInt(checkpoint.getProperty("generation")) + 1;
+            random.setState(Long.parseLong(checkpoint.getProperty("random")));
+            population = new double[Integer.parseInt(checkpoint.getProperty("population"))][];
+            for (var index = 0; index < population.length; index++) {
+                population[index] = parse(checkpoint.getProperty("next." + index));
+            }
+            System.out.printf("Carrying on from %s%n", latest);
+        } else {
+            population = new double[size][];
+            population[0] = normalise(PlacementWeights.getDefault().toArray());
+            for (var index = 1; index < size; index++) {
+                var weights = new double[population[0].length];
+                for (var weight = 0; weight < weights.length; weight++) {
+                    weights[weight] = gaussian(random);
+                }
+                population[index] = normalise(weights);
+            }
+        }
+
+        System.out.printf("Tuning %d sets of weights over %d games each, on %d cores%n", population.length, games,
+            Runtime.getRuntime().availableProcessors());
+        for (var end = generation + generations; generation < end; generation++) {
+            var seed = SEED + (long) generation * games;
+            var began = System.nanoTime();
+            final var evaluated = population;
+            double[] fitness = IntStream.range(0, evaluated.length).parallel()
+                .mapToDouble(index -> play(set, evaluated[index], seed, games))
+                .toArray();
+            var seconds = (System.nanoTime() - began) / 1e9;
+
+            var ranked = IntStream.range(0, evaluated.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer index) -> fitness[index]).reversed())
+                .mapToInt(Integer::intValue).toArray();
+            var best = evaluated[ranked[0]];
+            System.out.printf("Generation %3d  best %8.1f  mean %8.1f  %6.0f games/s  %s%n", generation,
+                fitness[ranked[0]], Arrays.stream(fitness).average().orElse(0), evaluated.length * games / seconds,
+                new PlacementWeights(best));
+
+            population = breed(evaluated, fitness, ranked, random);
+            writeCheckpoint(directory, generation, seed, games, random, evaluated, fitness, population);
+            writeBest(directory, best, generation, fitness[ranked[0]]);
+        }
+    }
+
+    /**
+     * Play a set of games with a set of weights
+     * @param set the pieces
+     * @param weights the weights
+     * @param seed the seed of the first game
+     * @param games the number of games
+     * @return the mean final score
+     */
+    private static double play(PieceSet set, double[] weights, long seed, int games) {
+        var mode = GameMode.CHALLENGE;
+        var arena = new GameArena(mode.getCols(), mode.getRows(), games);
+        var kernel = new ArenaKernel(set, mode.getCols(), mode.getRows(), new PlacementWeights(weights));
+        kernel.startAll(arena, seed);
+        for (var turn = 0; turn < MAX_TURNS && kernel.advance(arena, 0, games) > 0; turn++) {
+            // Every game still running plays a turn
+        }
+        var total = 0L;
+        for (var game = 0; game < games; game++) {
+            total += arena.getScore(game);
+        }
+        return (double) total / games;
+    }
+
+    /**
+     * Breed the next generation
+     * @param population the weights just played
+     * @param fitness their mean scores
+     * @param ranked their indexes, best first
+     * @param random the generator to breed with
+     * @return the next generation
+     */
+    private static double[][] breed(double[][] population, double[] fitness, int[] ranked, SeedableRandom random) {
+        var next = new double[population.length][];
+        for (var index = 0; index < Math.min(ELITE, population.length); index++) {
+            next[index] = population[ranked[index]].clone();
+        }
+        for (var index = Math.min(ELITE, population.length); index < next.length; index++) {
+            var mother = population[tournament(fitness, random)];
+            var father = population[tournament(fitness, random)];
+            var child = new double[mother.length];
+            for (var weight = 0; weight < child.length; weight++) {
+                var mix = random.nextDouble();
+                child[weight] = mix * mother[weight] + (1 - mix) * father[weight];
+                if (random.nextDouble() < MUTATION_RATE) {
+                    child[weight] += gaussian(random) * MUTATION_SIZE;
+                }
+            }
+            next[index] = normalise(child);
+        }
+        return next;
+    }
+
+    /**
+     * Pick the fittest of a few sets of weights drawn at random
+     * @param fitness the mean scores
+     * @param random the generator
+     * @return the index of the winner
+     */
+    private static int tournament(double[] fitness, SeedableRandom random) {
+        var winner = random.nextInt(fitness.length);
+        for (var round = 1; round < TOURNAMENT; round++) {
+            var challenger = random.nextInt(fitness.length);
+            if (fitness[challenger] > fitness[winner]) winner = challenger;
+        }
+        return winner;
+    }
+
+    /**
+     * Draw from a normal distribution. Random.nextGaussian keeps a second draw back between calls, which a checkpoint
+     * can't save, so each draw is worked out from two fresh numbers instead.
+     * @param random the generator
+     * @return a number drawn with mean 0 and standard deviation 1
+     */
+    private static double gaussian(SeedableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Scale weights to unit length
+     * @param weights the weights, changed in place
+     * @return the same array
+     */
+    private static double[] normalise(double[] weights) {
+        var length = Math.sqrt(Arrays.stream(weights).map(weight -> weight * weight).sum());
+        if (length == 0) return weights;
+        for (var index = 0; index < weights.length; index++) {
+            weights[index] /= length;
+        }
+        return weights;
+    }
+
+    /**
+     * Find the last checkpoint written to a directory
+     * @param directory the directory
+     * @return the checkpoint, or null if there is none
+     * @throws IOException if the directory can't be listed
+     */
+    private static Path latestCheckpoint(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("generation-\\d+\\.properties"))
+                .max(Comparator.comparing(file -> file.getFileName().toString()))
+                .orElse(null);
+        }
+    }
+
+    /**
+     * Write a generation's results, and the generation bred from them, to a checkpoint
+     * @param directory where to write it
+     * @param generation the generation
+     * @param seed the seed of its first game
+     * @param games games played by each set of weights
+     * @param random the breeding generator, as it is after breeding
+     * @param population the weights played
+     * @param fitness their mean scores
+     * @param next the generation bred from them
+     * @throws IOException if it can't be written
+     */
+    private static void writeCheckpoint(Path directory, int generation, long seed, int games, SeedableRandom random,
+                                        double[][] population, double[] fitness, double[][] next) throws IOException {
+        var checkpoint = new Properties();
+        checkpoint.setProperty("generation", Integer.toString(generation));
+        checkpoint.setProperty("seed", Long.toString(seed));
+        checkpoint.setProperty("games", Integer.toString(games));
+        checkpoint.setProperty("random", Long.toString(random.getState()));
+        checkpoint.setProperty("population", Integer.toString(next.length));
+        for (var index = 0; index < population.length; index++) {
+            checkpoint.setProperty("played." + index, format(population[index]));
+            checkpoint.setProperty("fitness." + index, Double.toString(fitness[index]));
+        }
+        for (var index = 0; index < next.length; index++) {
+            checkpoint.setProperty("next." + index, format(next[index]));
+        }
+
+        var file = directory.resolve(String.format("generation-%04d.properties", generation));
+        var temporary = directory.resolve(file.getFileName() + ".tmp");
+        try (var writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            checkpoint.store(writer, "Genetic tuner checkpoint");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write the best weights of a generation in the format of the resource
+     * @param directory where to write them
+     * @param weights the weights
+     * @param generation the generation
+     * @param fitness their mean score
+     * @throws IOException if they can't be written
+     */
+    private static void writeBest(Path directory, double[] weights, int generation, double fitness)
+        throws IOException {
+        var temporary = directory.resolve("best.properties.tmp");
+        try (var writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            new PlacementWeights(weights).store(writer,
+                String.format("Best of generation %d, mean score %.1f", generation, fitness));
+        }
+        Files.move(temporary, directory.resolve("best.properties"), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write weights as a list separated by commas
+     * @param weights the weights
+     * @return the list
+     */
+    private static String format(double[] weights) {
+        return String.join(",", Arrays.stream(weights).mapToObj(Double::toString).toArray(String[]::new));
+    }
+
+    /**
+     * Read weights written by format
+     * @param text the list
+     * @return the weights
+     */
+    private static double[] parse(String text) {
+        return Arrays.stream(text.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+}
@@ -0,0 +1,217 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.Puzzle;
+import uk.ac.soton.comp1206.game.PuzzlePack;
+import uk.ac.soton.comp1206.game.PuzzleSolver;
+import uk.ac.soton.comp1206.game.SeedableRandom;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a pack of puzzles for the default piece set on the challenge board, using every core, and writes it as
+ * the resource the game loads (or to the file given). Choose the piece set with -Dtetrecs.pieces.
+ *
+ * Each candidate is built from its own seed: a run of pieces is dealt and put down at random without overlapping,
+ * then rows and columns through their blocks are picked until every block is in one, and the board is those lines
+ * with the pieces' blocks taken out. Playing the pieces back where they were often clears it, but not always, since
+ * lines can clear early and take blocks other lines needed, so every candidate is then searched exhaustively and only
+ * kept if it has exactly one solution, using every piece. A candidate that can be emptied before its last piece is
+ * left out, as the game would count it solved there. Candidates are worked out a batch at a time, in parallel, and
+ * kept in seed order, so the same arguments always give the same pack. Up to an even share of the pack is kept at each
+ * grade, and the pack is written easiest first.
+ *
+ * Arguments: the number of puzzles, the fewest and most moves, and the file, all optional.
+ */
+public class PuzzleGenerator {
+
+    /**
+     * The seed of the first candidate
+     */
+    private static final long SEED = 1206;
+
+    /**
+     * Candidates worked out at once
+     */
+    private static final int BATCH = 4096;
+
+    /**
+     * The most candidates tried before giving up on filling the pack
+     */
+    private static final int MAX_CANDIDATES = 4_000_000;
+
+    /**
+     * Random places tried for each piece before giving up on a candidate
+     */
+    private static final int PLACE_ATTEMPTS = 20;
+
+    /**
+     * Grades of difficulty
+     */
+    private static final int GRADES = 5;
+
+    /**
+     * Generate a pack
+     * @param args the number of puzzles, fewest moves, most moves and file, all optional
+     * @throws IOException if the pack can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        ToolSupport.quietLogging();
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        var fewest = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        var most = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        var set = PieceSet.getDefault();
+        var file = args.length > 3 ? Paths.get(args[3])
+            : Paths.get("src", "main", "resources").resolve(PuzzlePack.getResourceName(set).substring(1));
+        if (fewest < 1 || most < fewest || most > PuzzlePack.MAX_MOVES) {
+            throw new IllegalArgumentException("Moves must be from 1 to " + PuzzlePack.MAX_MOVES);
+        }
+
+        var mode = GameMode.CHALLENGE;
+        var solver = new PuzzleSolver(set, mode.getCols(), mode.getRows());
+        System.out.printf("Generating %d puzzles of %d to %d moves for %s on %d cores%n", count, fewest, most,
+            set.getName(), Runtime.getRuntime().availableProcessors());
+
+        // Keep unique puzzles in seed order, up to an even share of each grade
+        var share = (count + GRADES - 1) / GRADES;
+        var perGrade = new int[GRADES];
+        var seen = new HashSet<String>();
+        var puzzles = new ArrayList<Puzzle>();
+        var candidates = 0;
+        var solvable = 0;
+        var began = System.nanoTime();
+        while (puzzles.size() < count && candidates < MAX_CANDIDATES) {
+            var first = candidates;
+            var batch = IntStream.range(first, first + BATCH).parallel()
+                .mapToObj(i -> candidate(solver, set, fewest, most, SEED + i))
+                .filter(Objects::nonNull).toList();
+            candidates += BATCH;
+            for (var puzzle : batch) {
+                solvable++;
+                var grade = puzzle.getGrade() - 1;
+                if (perGrade[grade] >= share || puzzles.size() >= count) continue;
+                if (!seen.add(key(puzzle))) continue;
+                perGrade[grade]++;
+                puzzles.add(puzzle);
+            }
+        }
+        var seconds = (System.nanoTime() - began) / 1e9;
+        puzzles.sort(Comparator.comparingLong(Puzzle::getSearched));
+
+        var pack = new PuzzlePack(set, mode.getCols(), mode.getRows(), puzzles);
+        var parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (var output = Files.newOutputStream(file)) {
+            pack.write(output);
+        }
+
+        System.out.printf("%d candidates in %.1fs (%.0f/s), %d with a unique solution%n", candidates, seconds,
+            candidates / seconds, solvable);
+        System.out.printf("Kept %d puzzles, by grade %s%n", puzzles.size(), Arrays.toString(perGrade));
+        if (!puzzles.isEmpty()) {
+            System.out.printf("Search sizes from %d to %d placements%n", puzzles.get(0).getSearched(),
+                puzzles.get(puzzles.size() - 1).getSearched());
+        }
+        System.out.printf("Wrote %s, %d bytes%n", file, Files.size(file));
+        checkLoad(file, set, pack);
+    }
+
+    /**
+     * Build one candidate and keep it if it has exactly one solution, and that solution needs every piece
+     * @param solver the solver
+     * @param set the piece set
+     * @param fewest the fewest moves
+     * @param most the most moves
+     * @param seed the seed of the candidate
+     * @return the puzzle, or null if the candidate has no solution, more than one, or can be emptied early
+     */
+    private static Puzzle candidate(PuzzleSolver solver, PieceSet set, int fewest, int most, long seed) {
+        var random = new SeedableRandom(seed);
+        var cols = solver.getCols();
+        var rows = solver.getRows();
+
+        // Put the pieces down at random, without overlapping
+        var pieces = new int[fewest + random.nextInt(most - fewest + 1)];
+        var covered = 0L;
+        for (var i = 0; i < pieces.length; i++) {
+            pieces[i] = set.pick(random);
+            var placed = false;
+            for (var attempt = 0; attempt < PLACE_ATTEMPTS && !placed; attempt++) {
+                var mask = solver.getPlacement(pieces[i], random.nextInt(solver.countPlacements(pieces[i])));
+                if ((covered & mask) == 0) {
+                    covered |= mask;
+                    placed = true;
+                }
+            }
+            if (!placed) return null;
+        }
+
+        // Pick a row or column through every block the pieces cover
+        var lines = 0L;
+        for (var cell = Long.numberOfTrailingZeros(covered); cell < cols * rows; cell++) {
+            if ((covered >>> cell & 1) == 0 || (lines >>> cell & 1) != 0) continue;
+            if (random.nextBoolean()) {
+                for (var x = 0; x < cols; x++) lines |= 1L << (cell / cols * cols + x);
+            } else {
+                for (var y = 0; y < rows; y++) lines |= 1L << (y * cols + cell % cols);
+            }
+        }
+
+        var board = lines & ~covered;
+        if (board == 0 || solver.hasFullLine(board)) return null;
+        var solution = solver.solve(board, pieces, 2);
+        if (solution.getCount() != 1 || solution.getMoves().length != pieces.length) return null;
+        return new Puzzle(cols, rows, board, pieces, solution.getMoves(), solution.getSearched());
+    }
+
+    /**
+     * Identify a puzzle by its board and pieces, to leave out repeats
+     * @param puzzle the puzzle
+     * @return the key
+     */
+    private static String key(Puzzle puzzle) {
+        var key = new StringBuilder(Long.toHexString(puzzle.getBoard()));
+        for (var move = 0; move < puzzle.getMoves(); move++) {
+            key.append(',').append(puzzle.getPiece(move));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Read the pack back, timing it, and check it matches what was written
+     * @param file the pack
+     * @param set the piece set
+     * @param written the pack written
+     * @throws IOException if it can't be read
+     */
+    private static void checkLoad(Path file, PieceSet set, PuzzlePack written) throws IOException {
+        var began = System.nanoTime();
+        PuzzlePack read;
+        try (var input = Files.newInputStream(file)) {
+            read = PuzzlePack.read(input, set);
+        }
+        var micros = (System.nanoTime() - began) / 1e3;
+        for (var i = 0; i < written.size(); i++) {
+            var a = written.get(i);
+            var b = read.get(i);
+            var same = a.getBoard() == b.getBoard() && key(a).equals(key(b)) && a.getSearched() == b.getSearched();
+            for (var move = 0; move < a.getMoves() && same; move++) {
+                same = a.getSolution(move).toString().equals(b.getSolution(move).toString());
+            }
+            if (!same) {
+                throw new IllegalStateException("Puzzle " + i + " reads back differently");
+            }
+        }
+        System.out.printf("Read back %d puzzles in %.0fus%n", read.size(), micros);
+    }
+}
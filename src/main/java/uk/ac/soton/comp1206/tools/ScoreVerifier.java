@@ -0,0 +1,231 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.ai.AgentView;
+import uk.ac.soton.comp1206.ai.HeuristicAgent;
+import uk.ac.soton.comp1206.ai.PlacementWeights;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameJournal;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.network.Communicator;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Checks the high scores on a server by replaying the journal sent with each of them, on every core, and lists every
+ * score that doesn't come out the same. A journal that can't be read, or makes a move the game wouldn't allow, is
+ * flagged too.
+ *
+ * Given a server address, it checks the journals that server has kept. Otherwise it starts a StandInServer, plays games
+ * with the heuristic agent and submits them as the game would, inflating some scores and breaking some journals, then
+ * checks those and says whether exactly the tampered ones were caught. Replaying is timed on its own, so the rate shown
+ * is how many submissions a second one machine can keep up with.
+ *
+ * Arguments: the number of games to submit, and the server address, both optional.
+ */
+public class ScoreVerifier {
+
+    /**
+     * The seed of the first game submitted
+     */
+    private static final long SEED = 1206;
+
+    /**
+     * The most turns a submitted game is played before its timer is left to run out
+     */
+    private static final int MAX_TURNS = 300;
+
+    /**
+     * One game in this many is submitted with its score inflated
+     */
+    private static final int INFLATE_EVERY = 50;
+
+    /**
+     * One game in this many is submitted with a move of its journal changed
+     */
+    private static final int CORRUPT_EVERY = 97;
+
+    /**
+     * How long to wait for the server to send the journals
+     */
+    private static final long TIMEOUT_SECONDS = 60;
+
+    /**
+     * Check the scores on a server
+     * @param args the number of games to submit and the server address, both optional
+     * @throws Exception if the server can't be reached
+     */
+    public static void main(String[] args) throws Exception {
+        ToolSupport.quietLogging();
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        var address = args.length > 1 ? args[1] : null;
+
+        StandInServer server = null;
+        var tampered = 0;
+        if (address == null) {
+            server = new StandInServer(0);
+            address = server.getAddress();
+        }
+        var communicator = new Communicator(address);
+        try {
+            if (server != null) {
+                tampered = submitGames(communicator, count);
+            }
+            var submissions = fetchJournals(communicator);
+            verify(submissions, server == null ? -1 : tampered);
+        } finally {
+            communicator.close();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Play games with the heuristic agent and submit their scores and journals, tampering with some
+     * @param communicator the connection to the server
+     * @param count the number of games
+     * @return the number of submissions tampered with
+     */
+    private static int submitGames(Communicator communicator, int count) {
+        var agent = new HeuristicAgent("heuristic", PlacementWeights.getDefault());
+        var mode = GameMode.CHALLENGE;
+        var began = System.nanoTime();
+        var messages = IntStream.range(0, count).parallel().mapToObj(i -> {
+            var game = new Game(mode);
+            game.setSeed(SEED + i);
+            game.startHeadless();
+            for (var turn = 0; turn < MAX_TURNS && !game.isOver(); turn++) {
+                var move = agent.decide(new AgentView(game.captureState(), mode.getPieceSet(), game.getTimerDelay()));
+                if (move == null || !play(game, move.isSwap(), move.getRotation(), move.getX(), move.getY())) {
+                    game.timerExpired();
+                }
+            }
+            while (!game.isOver()) {
+                game.timerExpired();
+            }
+
+            var score = game.getScore();
+            var journal = game.getJournal();
+            if (i % INFLATE_EVERY == INFLATE_EVERY - 1) {
+                score += 10;
+            } else if (i % CORRUPT_EVERY == CORRUPT_EVERY - 1) {
+                journal = corrupt(journal);
+            }
+            return "Bot" + i + ":" + score + ":" + journal;
+        }).toList();
+        System.out.printf("Played %d games in %.2fs%n", count, (System.nanoTime() - began) / 1e9);
+
+        // Sent as the game sends them with -Dtetrecs.journal=true
+        for (var message : messages) {
+            communicator.send("HISCORE " + message.substring(0, message.lastIndexOf(':')));
+            communicator.send("JOURNAL " + message);
+        }
+        return count / INFLATE_EVERY + (count / CORRUPT_EVERY - count / (INFLATE_EVERY * CORRUPT_EVERY));
+    }
+
+    /**
+     * Make a move in a game
+     * @param game the game
+     * @param swap whether to swap the current and following pieces first
+     * @param rotation the rotation to play the piece in
+     * @param x column of the middle
+     * @param y row of the middle
+     * @return true if the piece was played, false if it doesn't fit
+     */
+    private static boolean play(Game game, boolean swap, int rotation, int x, int y) {
+        if (swap) game.swapCurrentPiece();
+        var piece = game.getCurrentPiece();
+        piece.rotate(rotation - piece.getRotation());
+        return game.playPiece(x, y);
+    }
+
+    /**
+     * Move the first piece played in a journal one column along, as a player editing their journal might
+     * @param journal the journal
+     * @return the changed journal
+     */
+    private static String corrupt(String journal) {
+        var bytes = Base64.getUrlDecoder().decode(journal);
+        // Every move on the challenge board is a byte from 4 up, after the 20 bytes of header
+        for (var i = 20; i < bytes.length; i++) {
+            if (bytes[i] >= 4) {
+                bytes[i] += 4;
+                break;
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Ask the server for every submission it has kept with a journal
+     * @param communicator the connection to the server
+     * @return the submissions, as name:score:journal
+     * @throws Exception if the server doesn't answer in time
+     */
+    private static List<String> fetchJournals(Communicator communicator) throws Exception {
+        var reply = new CompletableFuture<String>();
+        communicator.addListener(message -> {
+            if (message.startsWith("JOURNALS")) {
+                reply.complete(message.substring("JOURNALS".length()).trim());
+            }
+        });
+        communicator.send("JOURNALS");
+        var text = reply.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return text.isEmpty() ? List.of() : List.of(text.split("\n"));
+    }
+
+    /**
+     * Replay every submission in parallel and report the ones that don't check out
+     * @param submissions the submissions, as name:score:journal
+     * @param tampered the number known to have been tampered with, or -1 if not known
+     */
+    private static void verify(List<String> submissions, int tampered) {
+        var began = System.nanoTime();
+        var verdicts = submissions.parallelStream().map(ScoreVerifier::check).toList();
+        var seconds = (System.nanoTime() - began) / 1e9;
+
+        var flagged = new ArrayList<String>();
+        var bytes = 0L;
+        for (var i = 0; i < verdicts.size(); i++) {
+            bytes += submissions.get(i).length();
+            if (verdicts.get(i) != null) {
+                flagged.add(verdicts.get(i));
+            }
+        }
+        for (var line : flagged.subList(0, Math.min(10, flagged.size()))) {
+            System.out.println("  " + line);
+        }
+        if (flagged.size() > 10) {
+            System.out.println("  and " + (flagged.size() - 10) + " more");
+        }
+        System.out.printf("Checked %d scores in %.2fs: %.0f scores/s on %d threads, %.0f characters each%n",
+            submissions.size(), seconds, submissions.size() / seconds, Runtime.getRuntime().availableProcessors(),
+            submissions.isEmpty() ? 0.0 : (double) bytes / submissions.size());
+        System.out.printf("%d flagged%s%n", flagged.size(),
+            tampered < 0 ? "" : ", " + tampered + " tampered with" + (tampered == flagged.size() ? ", all caught" : ""));
+    }
+
+    /**
+     * Replay one submission
+     * @param submission the submission, as name:score:journal
+     * @return why the score doesn't check out, or null if it does
+     */
+    private static String check(String submission) {
+        var parts = submission.split(":");
+        if (parts.length != 3) {
+            return submission + " is not name:score:journal";
+        }
+        try {
+            var claimed = Integer.parseInt(parts[1].trim());
+            var replayed = GameJournal.decode(parts[2]).replay().getScore();
+            return claimed == replayed ? null : parts[0] + " claimed " + claimed + " but the journal scores " + replayed;
+        } catch (IllegalArgumentException e) {
+            return parts[0] + " claimed " + parts[1] + " but " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package uk.ac.soton.comp1206.tools;
+
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import uk.ac.soton.comp1206.game.PuzzlePack;
+import uk.ac.soton.comp1206.scene.ChallengeScene;
+import uk.ac.soton.comp1206.scene.PuzzleScene;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soaks the game window by cycling through its scenes thousands of times: menu, challenge, scores, puzzle and
+ * lobby. Every few cycles the heap (after a collection), the number of threads, open file descriptors and connections
+ * to the server are sampled. Once a warm-up period is over, the growth of each per cycle is worked out by a least
+ * squares fit, and the soak fails if any grows faster than its tolerance. Something left behind by every scene, such
+ * as a timeline, a logic thread or a socket, shows up as steady growth.
+ *
+ * The game talks to a StandInServer started by the soak, and saves to a temporary file. Scores dialogs are closed
+ * as soon as they open.
+ *
+ * It needs JavaFX to start, so run it with a display, or headless with Monocle on the classpath and
+ * -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw (mvn -P soak verify does this). The number
+ * of cycles and warm-up cycles can be given as arguments. Exits with status 1 if anything leaks.
+ */
+public class SoakTest {
+
+    /**
+     * Cycles run when not given
+     */
+    private static final int DEFAULT_CYCLES = 2000;
+
+    /**
+     * Cycles run before growth is measured, while classes load and caches fill, when not given
+     */
+    private static final int DEFAULT_WARMUP = 200;
+
+    /**
+     * Cycles between samples
+     */
+    private static final int SAMPLE_EVERY = 10;
+
+    /**
+     * Longest to wait for the JavaFX thread to run anything, in seconds, before the soak counts it as hung
+     */
+    private static final int FX_TIMEOUT = 30;
+
+    /**
+     * A measurement taken every few cycles, and how fast it may grow
+     */
+    private static class Trend {
+
+        /**
+         * The name of the measurement
+         */
+        final String name;
+
+        /**
+         * The unit it is measured in
+         */
+        final String unit;
+
+        /**
+         * The most it may grow per cycle after the warm-up
+         */
+        final double tolerance;
+
+        /**
+         * The cycle of every sample
+         */
+        final List<Integer> cycles = new ArrayList<>();
+
+        /**
+         * The value of every sample
+         */
+        final List<Long> values = new ArrayList<>();
+
+        Trend(String name, String unit, double tolerance) {
+            this.name = name;
+            this.unit = unit;
+            this.tolerance = tolerance;
+        }
+
+        /**
+         * Record a sample
+         * @param cycle the cycle just finished
+         * @param value the value measured
+         */
+        void add(int cycle, long value) {
+            cycles.add(cycle);
+            values.add(value);
+        }
+
+        /**
+         * Work out the growth per cycle of the samples taken after the warm-up, by a least squares fit
+         * @param warmup the cycles to leave out
+         * @return the growth per cycle, or 0 if there are too few samples
+         */
+        double growth(int warmup) {
+            var count = 0;
+            double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+            for (var i = 0; i < cycles.size(); i++) {
+                if (cycles.get(i) <= warmup) continue;
+                double x = cycles.get(i);
+                double y = values.get(i);
+                count++;
+                sumX += x;
+                sumY += y;
+                sumXY += x * y;
+                sumXX += x * x;
+            }
+            var spread = count * sumXX - sumX * sumX;
+            if (count < 2 || spread == 0) return 0;
+            return (count * sumXY - sumX * sumY) / spread;
+        }
+    }
+
+    /**
+     * Run the soak, exiting with status 1 if anything leaks or the soak fails. It always exits, as the JavaFX thread
+     * would otherwise keep a failed soak running.
+     * @param args the number of cycles and warm-up cycles, both optional
+     */
+    public static void main(String[] args) {
+        ToolSupport.quietLogging();
+        var cycles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CYCLES;
+        var warmup = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WARMUP;
+
+        var passed = false;
+        try {
+            passed = soak(cycles, warmup);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Cycle through the scenes and measure the growth of every trend
+     * @param cycles the number of cycles
+     * @param warmup the number of cycles before growth is measured
+     * @return true if nothing grew faster than its tolerance
+     * @throws Exception if the soak can't start, or the JavaFX thread fails or hangs
+     */
+    private static boolean soak(int cycles, int warmup) throws Exception {
+        // Keep saves away from the player's own, and talk to a server of our own
+        if (System.getProperty("tetrecs.save") == null) {
+            var saves = Files.createTempDirectory("tetrecs-soak");
+            System.setProperty("tetrecs.save", saves.resolve("save.bin").toString());
+        }
+        var server = new StandInServer(0);
+        System.setProperty("tetrecs.server", server.getAddress());
+
+        Platform.setImplicitExit(false);
+        var started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        var stage = new Stage[1];
+        var window = new GameWindow[1];
+        fx(() -> {
+            stage[0] = new Stage();
+            window[0] = new GameWindow(stage[0], 800, 600);
+            stage[0].show();
+        });
+
+        // Against a baseline of 2000 cycles, heap samples scatter by about 4MB, which leaves the fitted growth
+        // uncertain by about 600 bytes a cycle. Everything else stayed flat, so any steady growth there is a leak.
+        var heap = new Trend("heap", "bytes", 4096);
+        var threads = new Trend("threads", "threads", 0.01);
+        var descriptors = new Trend("file descriptors", "descriptors", 0.01);
+        var connections = new Trend("server connections", "connections", 0.01);
+        var trends = List.of(heap, threads, descriptors, connections);
+
+        var began = System.nanoTime();
+        for (var cycle = 1; cycle <= cycles; cycle++) {
+            var gameWindow = window[0];
+            fx(gameWindow::startMenu);
+            settle();
+
+            var challenge = new ChallengeScene[1];
+            fx(() -> {
+                challenge[0] = new ChallengeScene(gameWindow);
+                gameWindow.loadScene(challenge[0]);
+            });
+            settle();
+
+            // Ending the game goes on to the scores, which may ask for a name
+            fx(() -> challenge[0].shutdownGame());
+            settle();
+            fx(() -> closeDialogs(stage[0]));
+            settle();
+
+            // Ending a puzzle waits a moment before starting the next, which the lobby has to cut short
+            var pack = PuzzlePack.getDefault();
+            if (pack != null) {
+                var puzzle = new PuzzleScene[1];
+                fx(() -> {
+                    puzzle[0] = new PuzzleScene(gameWindow, pack, 0);
+                    gameWindow.loadScene(puzzle[0]);
+                });
+                settle();
+                fx(() -> puzzle[0].shutdownGame());
+                settle();
+            }
+
+            fx(gameWindow::startMultiplayerLobby);
+            settle();
+
+            if (cycle % SAMPLE_EVERY == 0) {
+                var heapUsed = usedHeap();
+                var threadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+                var fileDescriptors = openFileDescriptors();
+                var openConnections = server.getOpenConnections();
+                heap.add(cycle, heapUsed);
+                threads.add(cycle, threadCount);
+                descriptors.add(cycle, fileDescriptors);
+                connections.add(cycle, openConnections);
+                System.out.printf("cycle %6d  heap %8.1fMB  threads %4d  fds %5d  connections %4d%n", cycle,
+                    heapUsed / 1e6, threadCount, fileDescriptors, openConnections);
+            }
+        }
+        var seconds = (System.nanoTime() - began) / 1e9;
+
+        System.out.printf("%n%d cycles in %.1fs, growth per cycle after %d warm-up cycles:%n", cycles, seconds,
+            warmup);
+        var failed = false;
+        for (var trend : trends) {
+            if (trend.values.isEmpty() || trend.values.get(0) < 0) {
+                System.out.printf("%-20s not measured%n", trend.name);
+                continue;
+            }
+            var growth = trend.growth(warmup);
+            var passed = growth <= trend.tolerance;
+            failed |= !passed;
+            System.out.printf("%-20s %+12.4f %s/cycle  tolerance %10.4f  %s%n", trend.name, growth, trend.unit,
+                trend.tolerance, passed ? "ok" : "LEAKING");
+        }
+
+        server.close();
+        return !failed;
+    }
+
+    /**
+     * Run something on the JavaFX thread and wait for it to finish
+     * @param task what to run
+     * @throws Exception if it throws, or the JavaFX thread doesn't run it in time
+     */
+    private static void fx(Runnable task) throws Exception {
+        var done = new CountDownLatch(1);
+        var failure = new Throwable[1];
+        Platform.runLater(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure[0] = e;
+            } finally {
+                done.countDown();
+            }
+        });
+        if (!done.await(FX_TIMEOUT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The JavaFX thread has been busy for " + FX_TIMEOUT + "s");
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("Failed on the JavaFX thread", failure[0]);
+        }
+    }
+
+    /**
+     * Wait until the JavaFX thread has run everything a scene change queued, such as initialising the new scene
+     * @throws Exception if the JavaFX thread doesn't catch up in time
+     */
+    private static void settle() throws Exception {
+        fx(() -> { });
+        fx(() -> { });
+    }
+
+    /**
+     * Close every window other than the game's own, such as the dialog asking for a name for a high score
+     * @param stage the game's window
+     */
+    private static void closeDialogs(Stage stage) {
+        for (var window : new ArrayList<>(Window.getWindows())) {
+            if (window != stage) {
+                window.hide();
+            }
+        }
+    }
+
+    /**
+     * Measure the heap in use once everything unreachable has been collected
+     * @return bytes used
+     * @throws InterruptedException if interrupted while letting the collection finish
+     */
+    private static long usedHeap() throws InterruptedException {
+        for (var i = 0; i < 2; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Count the file descriptors the process has open, which includes its sockets
+     * @return the count, or -1 if the operating system can't say
+     */
+    private static long openFileDescriptors() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.UnixOperatingSystemMXBean unix) {
+            return unix.getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,493 @@
+package uk.ac.soton.comp1206.tools;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A stand-in for the TetrECS server, for the tools to run the game against. It speaks just enough of the web socket
+ * protocol for the game's Communicator, and answers the game's commands: high scores, channels, nicknames and chat.
+ * Everything is kept in memory and lost when it stops.
+ *
+ * A high score can be followed by the journal of its game, sent as JOURNAL name:score:journal. The server keeps every
+ * journal sent, and sends them all back for the JOURNALS command, a name:score:journal line each, for ScoreVerifier to
+ * check.
+ *
+ * It only runs inside a tool, such as SoakTest or ScoreVerifier, on a free port given to the game through the
+ * tetrecs.server system property.
+ */
+public class StandInServer implements AutoCloseable {
+
+    /**
+     * Added to the client's key to accept a web socket handshake
+     */
+    private static final String HANDSHAKE_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /**
+     * The number of high scores sent back
+     */
+    private static final int HIGH_SCORES = 10;
+
+    /**
+     * The socket connections arrive on
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Every connection open
+     */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The members of every channel, by channel name
+     */
+    private final Map<String, List<Connection>> channels = new LinkedHashMap<>();
+
+    /**
+     * Every high score submitted, as name and score
+     */
+    private final List<Map.Entry<String, Integer>> scores = new ArrayList<>();
+
+    /**
+     * Every journal submitted, as name:score:journal
+     */
+    private final List<String> journals = new ArrayList<>();
+
+    /**
+     * Start a server on the local machine
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port can't be listened on
+     */
+    public StandInServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        scores.add(Map.entry("Player1", 100));
+        scores.add(Map.entry("Player2", 150));
+        scores.add(Map.entry("Player3", 200));
+
+        var acceptor = new Thread(this::accept, "Stand-in server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Get the address to give the game's Communicator
+     * @return the web socket address of the server
+     */
+    public String getAddress() {
+        return "ws://localhost:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Get the number of connections open, which grows if clients leave sockets behind
+     * @return open connections
+     */
+    public int getOpenConnections() {
+        return connections.size();
+    }
+
+    /**
+     * Stop listening and close every connection
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        for (var connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Accept connections until the server is closed, giving each a thread of its own
+     */
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                var thread = new Thread(connection::run, "Stand-in server connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // The server socket has been closed
+            }
+        }
+    }
+
+    /**
+     * Answer a command from a client
+     * @param connection the client
+     * @param message the command
+     */
+    private synchronized void handle(Connection connection, String message) {
+        var space = message.indexOf(' ');
+        var command = space < 0 ? message : message.substring(0, space);
+        var argument = space < 0 ? "" : message.substring(space + 1);
+
+        switch (command) {
+            case "HISCORES" -> connection.send("HISCORES " + highScores());
+            case "HISCORE" -> {
+                var parts = argument.split(":");
+                try {
+                    var score = Integer.parseInt(parts[1].trim());
+                    scores.add(Map.entry(parts[0], score));
+                    connection.send("NEWSCORE " + parts[0] + ":" + score);
+                } catch (RuntimeException e) {
+                    connection.send("ERROR Invalid score");
+                }
+            }
+            case "JOURNAL" -> {
+                if (argument.split(":").length != 3) {
+                    connection.send("ERROR Invalid journal");
+                    return;
+                }
+                journals.add(argument);
+            }
+            case "JOURNALS" -> connection.send("JOURNALS " + String.join("\n", journals));
+            case "LIST" -> connection.send("CHANNELS " + String.join("\n", channels.keySet()));
+            case "CREATE", "JOIN" -> {
+                if (argument.isEmpty()) {
+                    connection.send("ERROR No channel given");
+                    return;
+                }
+                if (command.equals("JOIN") && !channels.containsKey(argument)) {
+                    connection.send("ERROR No such channel");
+                    return;
+                }
+                part(connection);
+                channels.computeIfAbsent(argument, name -> new ArrayList<>()).add(connection);
+                connection.channel = argument;
+                connection.send("JOIN " + argument);
+            }
+            case "PART" -> {
+                part(connection);
+                connection.send("PARTED");
+            }
+            case "USERS" -> {
+                var names = new ArrayList<String>();
+                for (var member : channels.getOrDefault(connection.channel, List.of())) {
+                    names.add(member.nickname);
+                }
+                connection.send("USERS " + String.join("\n", names));
+            }
+            case "NICK" -> {
+                if (argument.isEmpty()) {
+                    connection.send("NICK " + connection.nickname);
+                    return;
+                }
+                var old = connection.nickname;
+                connection.nickname = argument;
+                for (var member : channels.getOrDefault(connection.channel, List.of(connection))) {
+                    member.send("NICK " + old + ":" + argument);
+                }
+            }
+            case "MSG" -> {
+                for (var member : channels.getOrDefault(connection.channel, List.of())) {
+                    member.send("MSG " + connection.nickname + ":" + argument);
+                }
+            }
+            case "QUIT" -> connection.close();
+            default -> connection.send("ERROR Unknown command " + command);
+        }
+    }
+
+    /**
+     * Take a client out of its channel, removing the channel once it is empty
+     * @param connection the client
+     */
+    private void part(Connection connection) {
+        if (connection.channel == null) return;
+        var members = channels.get(connection.channel);
+        if (members != null) {
+            members.remove(connection);
+            if (members.isEmpty()) {
+                channels.remove(connection.channel);
+            }
+        }
+        connection.channel = null;
+    }
+
+    /**
+     * Describe the best scores, a line each
+     * @return the scores as name:score lines, best first
+     */
+    private String highScores() {
+        var lines = new ArrayList<String>();
+        scores.stream()
+            .sorted(Comparator.comparing(Map.Entry<String, Integer>::getValue).reversed())
+            .limit(HIGH_SCORES)
+            .forEach(score -> lines.add(score.getKey() + ":" + score.getValue()));
+        return String.join("\n", lines);
+    }
+
+    /**
+     * A client connected over a web socket
+     */
+    private class Connection {
+
+        /**
+         * The socket to the client
+         */
+        private final Socket socket;
+
+        /**
+         * The channel the client is in, or null
+         */
+        private String channel;
+
+        /**
+         * The client's nickname
+         */
+        private String nickname;
+
+        /**
+         * Where frames are written
+         */
+        private OutputStream out;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+            this.nickname = "Guest" + socket.getPort();
+        }
+
+        /**
+         * Complete the handshake, then answer messages until the client goes
+         */
+        void run() {
+            try {
+                var in = new BufferedInputStream(socket.getInputStream());
+                out = socket.getOutputStream();
+                handshake(in);
+
+                var message = new ByteArrayOutputStream();
+                while (true) {
+                    var header = readByte(in);
+                    var opcode = header & 0x0F;
+                    var payload = readPayload(in);
+                    switch (opcode) {
+                        case 0x0, 0x1 -> {
+                            message.write(payload);
+                            if ((header & 0x80) != 0) {
+                                handle(this, message.toString(StandardCharsets.UTF_8));
+                                message.reset();
+                            }
+                        }
+                        case 0x8 -> {
+                            write(0x88, payload);
+                            return;
+                        }
+                        case 0x9 -> write(0x8A, payload);
+                        default -> {
+                            // Pongs and anything else are ignored
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // The client has gone
+            } finally {
+                synchronized (StandInServer.this) {
+                    part(this);
+                }
+                close();
+            }
+        }
+
+        /**
+         * Read the client's upgrade request and accept it
+         * @param in the stream from the client
+         * @throws IOException if the request is broken or the client goes
+         */
+        private void handshake(InputStream in) throws IOException {
+            String key = null;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                var colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (key == null) {
+                throw new IOException("Not a web socket request");
+            }
+
+            var response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n";
+            synchronized (this) {
+                out.write(response.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        }
+
+        /**
+         * Read the length, mask and payload of a frame, unmasking the payload
+         * @param in the stream from the client
+         * @return the payload
+         * @throws IOException if the client goes
+         */
+        private byte[] readPayload(InputStream in) throws IOException {
+            var second = readByte(in);
+            long length = second & 0x7F;
+            if (length == 126) {
+                length = (readByte(in) << 8) | readByte(in);
+            } else if (length == 127) {
+                length = 0;
+                for (var i = 0; i < 8; i++) {
+                    length = (length << 8) | readByte(in);
+                }
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Frame too large");
+            }
+
+            var mask = new byte[4];
+            var masked = (second & 0x80) != 0;
+            if (masked) {
+                readFully(in, mask);
+            }
+            var payload = new byte[(int) length];
+            readFully(in, payload);
+            if (masked) {
+                for (var i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+            }
+            return payload;
+        }
+
+        /**
+         * Send a text message to the client
+         * @param message the message
+         */
+        void send(String message) {
+            try {
+                write(0x81, message.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Write a whole frame to the client. Frames from the server are never masked.
+         * @param header the first byte, holding the final flag and opcode
+         * @param payload the payload
+         * @throws IOException if the client has gone
+         */
+        private synchronized void write(int header, byte[] payload) throws IOException {
+            if (out == null) return;
+            var frame = new ByteArrayOutputStream(payload.length + 10);
+            frame.write(header);
+            if (payload.length < 126) {
+                frame.write(payload.length);
+            } else if (payload.length <= 0xFFFF) {
+                frame.write(126);
+                frame.write(payload.length >> 8);
+                frame.write(payload.length);
+            } else {
+                frame.write(127);
+                for (var shift = 56; shift >= 0; shift -= 8) {
+                    frame.write((int) ((long) payload.length >> shift));
+                }
+            }
+            frame.write(payload);
+            out.write(frame.toByteArray());
+            out.flush();
+        }
+
+        /**
+         * Close the socket and forget the connection
+         */
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Work out the accept header for a handshake key
+     * @param key the client's key
+     * @return the accept value
+     */
+    private static String accept(String key) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-1")
+                .digest((key + HANDSHAKE_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Read a line of the handshake, without its line ending
+     * @param in the stream
+     * @return the line
+     * @throws IOException if the stream ends
+     */
+    private static String readLine(InputStream in) throws IOException {
+        var line = new StringBuilder();
+        int next;
+        while ((next = readByte(in)) != '\n') {
+            if (next != '\r') {
+                line.append((char) next);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Read one byte
+     * @param in the stream
+     * @return the byte, from 0 to 255
+     * @throws IOException if the stream ends
+     */
+    private static int readByte(InputStream in) throws IOException {
+        var next = in.read();
+        if (next < 0) {
+            throw new EOFException();
+        }
+        return next;
+    }
+
+    /**
+     * Fill a buffer from a stream
+     * @param in the stream
+     * @param buffer the buffer
+     * @throws IOException if the stream ends first
+     */
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        var read = 0;
+        while (read < buffer.length) {
+            var count = in.read(buffer, read, buffer.length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.game.PieceSet;
+import uk.ac.soton.comp1206.game.Tablebase;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Generates the 5x5 tablebase for the default piece set, using every core, and writes it where the game looks for it
+ * (or to the file given as an argument). Choose the piece set with -Dtetrecs.pieces. Once written, the H key in a 5x5
+ * game shows the best move.
+ */
+public class TablebaseGenerator {
+
+    /**
+     * Generate the tablebase
+     * @param args the file to write, optional
+     * @throws Exception if the file can't be written
+     */
+    public static void main(String[] args) throws Exception {
+        ToolSupport.quietLogging();
+        var set = PieceSet.getDefault();
+        var file = args.length > 0 ? Paths.get(args[0]) : Tablebase.getDefaultPath(set);
+
+        System.out.printf("Generating the tablebase for %s on %d cores%n", set.getName(),
+            Runtime.getRuntime().availableProcessors());
+        var began = System.nanoTime();
+        Tablebase.generate(set, file, percent -> {
+            if (percent % 10 == 0) System.out.printf("%d%%%n", percent);
+        });
+        System.out.printf("Wrote %s, %.1fMB in %.1fs%n", file, Files.size(file) / 1e6,
+            (System.nanoTime() - began) / 1e9);
+    }
+}
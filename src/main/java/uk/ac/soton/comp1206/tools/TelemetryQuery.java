@@ -0,0 +1,276 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.game.TelemetryReader;
+import uk.ac.soton.comp1206.game.TelemetryRecorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Answers questions about the telemetry kept by games run with -Dtetrecs.telemetry, scanning every file given, and
+ * every .tel file in every directory given, in parallel. Files are mapped rather than read, and each query only decodes
+ * the columns it needs.
+ *
+ * Queries:
+ * clears, how often each piece clears a line and how many it clears when it does;
+ * heatmap, the share of pieces played with their middle on each block, for each board size;
+ * decisions, the median and 90th percentile time taken over a turn, overall and for each piece.
+ *
+ * Arguments: the query, then the files and directories to scan.
+ */
+public class TelemetryQuery {
+
+    /**
+     * The width of a bucket of decision times, in milliseconds
+     */
+    private static final int BUCKET_MILLIS = 10;
+
+    /**
+     * The number of buckets of decision times, the last holding every longer time
+     */
+    private static final int BUCKETS = 60_000 / BUCKET_MILLIS + 1;
+
+    /**
+     * Run a query
+     * @param args the query, then the files and directories to scan
+     * @throws IOException if a directory can't be listed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !List.of("clears", "heatmap", "decisions").contains(args[0])) {
+            System.out.println("Usage: TelemetryQuery clears|heatmap|decisions <file or directory>...");
+            return;
+        }
+        var query = args[0];
+        var files = new ArrayList<Path>();
+        for (var i = 1; i < args.length; i++) {
+            var path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    listing.filter(file -> file.toString().endsWith(".tel")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        var began = System.nanoTime();
+        var stats = files.parallelStream().map(file -> scan(file, query)).reduce(new Stats(), Stats::merge);
+        var seconds = (System.nanoTime() - began) / 1e9;
+
+        switch (query) {
+            case "clears" -> printClears(stats);
+            case "heatmap" -> printHeatmaps(stats);
+            default -> printDecisions(stats);
+        }
+        System.out.printf("Scanned %d files, %.1f MB, %d blocks, %d moves in %.2fs (%.1f million moves/s)%n",
+            files.size(), stats.bytes / 1e6, stats.blocks, stats.moves, seconds, stats.moves / seconds / 1e6);
+    }
+
+    /**
+     * Gather what a query needs from one file
+     * @param file the file
+     * @param query the query
+     * @return what was gathered
+     */
+    private static Stats scan(Path file, String query) {
+        TelemetryReader reader;
+        try {
+            reader = new TelemetryReader(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(file + ": " + e.getMessage(), e);
+        }
+
+        var stats = new Stats();
+        stats.bytes = reader.getSize();
+        reader.forEachBlock(block -> {
+            stats.blocks++;
+            stats.moves += block.getCount();
+            var names = block.getPieceNames();
+            int[] pieces = block.getColumn(TelemetryRecorder.PIECE);
+            switch (query) {
+                case "clears" -> {
+                    int[] lines = block.getColumn(TelemetryRecorder.LINES);
+                    for (var row = 0; row < block.getCount(); row++) {
+                        long[] counts = stats.clears.computeIfAbsent(names.get(pieces[row]), name -> new long[3]);
+                        counts[0]++;
+                        if (lines[row] > 0) {
+                            counts[1]++;
+                            counts[2] += lines[row];
+                        }
+                    }
+                }
+                case "heatmap" -> {
+                    int[] xs = block.getColumn(TelemetryRecorder.X);
+                    int[] ys = block.getColumn(TelemetryRecorder.Y);
+                    var cols = block.getCols();
+                    long[] cells = stats.heatmaps.computeIfAbsent(cols + "x" + block.getRows(),
+                        size -> new long[cols * block.getRows()]);
+                    for (var row = 0; row < block.getCount(); row++) {
+                        cells[ys[row] * cols + xs[row]]++;
+                    }
+                }
+                default -> {
+                    int[] elapsed = block.getColumn(TelemetryRecorder.ELAPSED);
+                    for (var row = 0; row < block.getCount(); row++) {
+                        var bucket = Math.min(BUCKETS - 1, elapsed[row] / BUCKET_MILLIS);
+                        stats.decisions.computeIfAbsent(names.get(pieces[row]), name -> new long[BUCKETS])[bucket]++;
+                    }
+                }
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Print how often each piece clears lines
+     * @param stats what was gathered
+     */
+    private static void printClears(Stats stats) {
+        System.out.printf("%-12s %10s %10s %14s%n", "piece", "moves", "clear rate", "lines a clear");
+        for (var entry : stats.clears.entrySet()) {
+            long[] counts = entry.getValue();
+            System.out.printf("%-12s %10d %9.1f%% %14.2f%n", entry.getKey(), counts[0], 100.0 * counts[1] / counts[0],
+                counts[1] == 0 ? 0.0 : (double) counts[2] / counts[1]);
+        }
+    }
+
+    /**
+     * Print where pieces are played, as a percentage of all the pieces played on boards of that size
+     * @param stats what was gathered
+     */
+    private static void printHeatmaps(Stats stats) {
+        for (var entry : stats.heatmaps.entrySet()) {
+            var size = entry.getKey().split("x");
+            var cols = Integer.parseInt(size[0]);
+            long[] cells = entry.getValue();
+            var total = 0L;
+            for (var count : cells) {
+                total += count;
+            }
+            System.out.printf("%s board, %d moves, percent played at each block:%n", entry.getKey(), total);
+            for (var y = 0; y < cells.length / cols; y++) {
+                var line = new StringBuilder();
+                for (var x = 0; x < cols; x++) {
+                    line.append(String.format("%6.1f", 100.0 * cells[y * cols + x] / total));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Print how long turns take, overall and for each piece
+     * @param stats what was gathered
+     */
+    private static void printDecisions(Stats stats) {
+        var all = new long[BUCKETS];
+        System.out.printf("%-12s %10s %11s %11s%n", "piece", "moves", "median ms", "90th ms");
+        for (var entry : stats.decisions.entrySet()) {
+            long[] buckets = entry.getValue();
+            for (var bucket = 0; bucket < BUCKETS; bucket++) {
+                all[bucket] += buckets[bucket];
+            }
+            printDecisions(entry.getKey(), buckets);
+        }
+        printDecisions("all", all);
+    }
+
+    /**
+     * Print the median and 90th percentile of a set of decision times
+     * @param label what the times are of
+     * @param buckets the number of times in each bucket
+     */
+    private static void printDecisions(String label, long[] buckets) {
+        var total = 0L;
+        for (var count : buckets) {
+            total += count;
+        }
+        System.out.printf("%-12s %10d %11d %11d%n", label, total, percentile(buckets, total, 0.5),
+            percentile(buckets, total, 0.9));
+    }
+
+    /**
+     * Find a percentile of a set of decision times, to the width of a bucket
+     * @param buckets the number of times in each bucket
+     * @param total the number of times
+     * @param fraction the fraction of times at or below the percentile
+     * @return the middle of the bucket holding the percentile, in milliseconds
+     */
+    private static long percentile(long[] buckets, long total, double fraction) {
+        var wanted = (long) Math.ceil(total * fraction);
+        var seen = 0L;
+        for (var bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= wanted && seen > 0) {
+                return (long) bucket * BUCKET_MILLIS + BUCKET_MILLIS / 2;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * What has been gathered from the files scanned so far
+     */
+    private static class Stats {
+
+        /**
+         * Bytes, blocks and moves scanned
+         */
+        private long bytes, blocks, moves;
+
+        /**
+         * For each piece, the moves, the moves clearing a line and the lines they cleared
+         */
+        private final Map<String, long[]> clears = new TreeMap<>();
+
+        /**
+         * For each board size, the moves with their middle on each block
+         */
+        private final Map<String, long[]> heatmaps = new TreeMap<>();
+
+        /**
+         * For each piece, the number of turns taking each bucket of time
+         */
+        private final Map<String, long[]> decisions = new TreeMap<>();
+
+        /**
+         * Add up what was gathered from two sets of files
+         * @param other the other set
+         * @return a new set holding both
+         */
+        private Stats merge(Stats other) {
+            var merged = new Stats();
+            merged.bytes = bytes + other.bytes;
+            merged.blocks = blocks + other.blocks;
+            merged.moves = moves + other.moves;
+            for (var stats : List.of(this, other)) {
+                add(merged.clears, stats.clears);
+                add(merged.heatmaps, stats.heatmaps);
+                add(merged.decisions, stats.decisions);
+            }
+            return merged;
+        }
+
+        /**
+         * Add counts into a map of counts
+         * @param into the map added to
+         * @param from the counts added
+         */
+        private static void add(Map<String, long[]> into, Map<String, long[]> from) {
+            for (var entry : from.entrySet()) {
+                long[] counts = into.computeIfAbsent(entry.getKey(), key -> new long[entry.getValue().length]);
+                for (var i = 0; i < counts.length; i++) {
+                    counts[i] += entry.getValue()[i];
+                }
+            }
+        }
+    }
+}
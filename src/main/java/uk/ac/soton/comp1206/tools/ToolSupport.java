@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.tools;
+
+/**
+ * Shared set up for the command line tools, which run the game logic without a window
+ */
+public class ToolSupport {
+
+    /**
+     * Switch the game's logging down to warnings, so a tool running many games isn't slowed down by a line for every
+     * move. Must be called before any logger is created, so tools don't keep a logger of their own.
+     */
+    public static void quietLogging() {
+        if (System.getProperty("log4j.configurationFile") == null) {
+            System.setProperty("log4j.configurationFile", "log4j2-tools.xml");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package uk.ac.soton.comp1206.tools;
+
+import uk.ac.soton.comp1206.ai.Agent;
+import uk.ac.soton.comp1206.ai.AgentView;
+import uk.ac.soton.comp1206.ai.HeuristicAgent;
+import uk.ac.soton.comp1206.ai.PlacementWeights;
+import uk.ac.soton.comp1206.ai.RandomAgent;
+import uk.ac.soton.comp1206.ai.TablebaseAgent;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.Tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Plays agents against each other in challenge games, on every core, and rates them.
+ *
+ * The game has one player and deals pieces from its seed alone, so a match between two agents is each of them playing
+ * a game dealt from the same seed, and the higher score wins. Every agent plays every seed once, and every pair of
+ * agents is then matched on every seed, in a fixed order so the ratings are the same each run. Ratings are Elo,
+ * starting at 1500.
+ *
+ * An agent is given as long as the game's timer would give a player. Returning no move, running over the time or
+ * choosing a move that doesn't fit runs the timer out, losing a life as it would for a player.
+ *
+ * Arguments: games per agent and the most turns a game is played for, both optional.
+ */
+public class Tournament {
+
+    /**
+     * The seed of the first game
+     */
+    private static final long SEED = 1206;
+
+    /**
+     * Rating every agent starts at
+     */
+    private static final double INITIAL_RATING = 1500;
+
+    /**
+     * How far a rating moves on one match
+     */
+    private static final double K = 16;
+
+    /**
+     * Run the tournament
+     * @param args games per agent and the most turns per game, both optional
+     */
+    public static void main(String[] args) {
+        ToolSupport.quietLogging();
+        var games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        var maxTurns = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        var agents = new ArrayList<Agent>();
+        var tuned = new HeuristicAgent("heuristic", PlacementWeights.getDefault());
+        agents.add(tuned);
+        agents.add(new HeuristicAgent("lines only", new PlacementWeights(1, 0, 0, 0)));
+        var tablebase = Tablebase.getDefault();
+        if (tablebase != null) {
+            agents.add(new TablebaseAgent(tablebase, tuned));
+        } else {
+            System.out.println("No tablebase, so the tablebase agent sits out (run TablebaseGenerator first)");
+        }
+        agents.add(new RandomAgent());
+
+        // Play every agent on every seed
+        var count = agents.size();
+        var results = new Result[count * games];
+        var start = System.nanoTime();
+        IntStream.range(0, results.length).parallel()
+            .forEach(i -> results[i] = play(agents.get(i / games), SEED + i % games, maxTurns));
+        var seconds = (System.nanoTime() - start) / 1e9;
+
+        // Rate every pair on every seed, in a fixed order
+        var ratings = new double[count];
+        var wins = new int[count];
+        var draws = new int[count];
+        var losses = new int[count];
+        Arrays.fill(ratings, INITIAL_RATING);
+        for (var game = 0; game < games; game++) {
+            for (var a = 0; a < count; a++) {
+                for (var b = a + 1; b < count; b++) {
+                    var scoreA = results[a * games + game].score;
+                    var scoreB = results[b * games + game].score;
+                    double actual;
+                    if (scoreA > scoreB) {
+                        actual = 1;
+                        wins[a]++;
+                        losses[b]++;
+                    } else if (scoreA < scoreB) {
+                        actual = 0;
+                        losses[a]++;
+                        wins[b]++;
+                    } else {
+                        actual = 0.5;
+                        draws[a]++;
+                        draws[b]++;
+                    }
+                    var expected = 1 / (1 + Math.pow(10, (ratings[b] - ratings[a]) / 400));
+                    ratings[a] += K * (actual - expected);
+                    ratings[b] -= K * (actual - expected);
+                }
+            }
+        }
+
+        System.out.printf("%-12s %8s %12s %14s %10s %12s %9s%n",
+            "agent", "rating", "mean score", "W/D/L", "mean moves", "decision us", "timeouts");
+        var order = IntStream.range(0, count).boxed()
+            .sorted((a, b) -> Double.compare(ratings[b], ratings[a])).toList();
+        var turns = 0L;
+        for (var a : order) {
+            long score = 0, moves = 0, nanos = 0, decisions = 0, timeouts = 0;
+            for (var game = 0; game < games; game++) {
+                var result = results[a * games + game];
+                score += result.score;
+                moves += result.moves;
+                nanos += result.nanos;
+                decisions += result.decisions;
+                timeouts += result.timeouts;
+            }
+            turns += decisions;
+            System.out.printf("%-12s %8.1f %12.1f %14s %10.1f %12.1f %9d%n", agents.get(a).getName(), ratings[a],
+                (double) score / games, wins[a] + "/" + draws[a] + "/" + losses[a], (double) moves / games,
+                decisions == 0 ? 0 : nanos / 1e3 / decisions, timeouts);
+        }
+        System.out.printf("%d games, %d turns in %.2fs: %.1f games/s, %.0f turns/s on %d threads%n", results.length,
+            turns, seconds, results.length / seconds, turns / seconds, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Play one challenge game with an agent
+     * @param agent the agent
+     * @param seed the seed to deal pieces from
+     * @param maxTurns the most turns to play for
+     * @return how the game went
+     */
+    private static Result play(Agent agent, long seed, int maxTurns) {
+        var mode = GameMode.CHALLENGE;
+        var game = new Game(mode);
+        game.setSeed(seed);
+        game.startHeadless();
+
+        var result = new Result();
+        while (!game.isOver() && result.decisions < maxTurns) {
+            var delay = game.getTimerDelay();
+            var view = new AgentView(game.captureState(), mode.getPieceSet(), delay);
+            var started = System.nanoTime();
+            var move = agent.decide(view);
+            var nanos = System.nanoTime() - started;
+            result.nanos += nanos;
+            result.decisions++;
+
+            if (move == null || nanos > delay * 1_000_000L || !play(game, move.isSwap(), move.getRotation(),
+                move.getX(), move.getY())) {
+                result.timeouts++;
+                game.timerExpired();
+            } else {
+                result.moves++;
+            }
+        }
+        result.score = game.getScore();
+        game.stop();
+        return result;
+    }
+
+    /**
+     * Make a move in a game
+     * @param game the game
+     * @param swap whether to swap the current and following pieces first
+     * @param rotation the rotation to play the piece in
+     * @param x column of the middle
+     * @param y row of the middle
+     * @return true if the piece was played, false if it doesn't fit
+     */
+    private static boolean play(Game game, boolean swap, int rotation, int x, int y) {
+        if (swap) game.swapCurrentPiece();
+        var piece = game.getCurrentPiece();
+        piece.rotate(rotation - piece.getRotation());
+        return game.playPiece(x, y);
+    }
+
+    /**
+     * How one game went
+     */
+    private static class Result {
+
+        /**
+         * Final score
+         */
+        private int score;
+
+        /**
+         * Pieces played
+         */
+        private int moves;
+
+        /**
+         * Times the agent was asked for a move
+         */
+        private int decisions;
+
+        /**
+         * Times the timer was run out
+         */
+        private int timeouts;
+
+        /**
+         * Time spent deciding, in nanoseconds
+         */
+        private long nanos;
+    }
+}
@@ -4,15 +4,23 @@ import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
+import uk.ac.soton.comp1206.diagnostics.SceneLoaded;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameMode;
+import uk.ac.soton.comp1206.game.PuzzlePack;
+import uk.ac.soton.comp1206.game.SaveStore;
+import uk.ac.soton.comp1206.media.AssetManager;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 
 /**
  * The GameWindow is the single window for the game where everything takes place. To move between screens in the game,
@@ -35,6 +43,16 @@ public class GameWindow {
 
     private ScoresScene scoresScene; // Field to hold ScoresScene reference
 
+    /**
+     * Scenes left that can be shown again without being built again, by class
+     */
+    private final Map<Class<? extends BaseScene>, BaseScene> cache = new HashMap<>();
+
+    /**
+     * The scene likely to be shown next, built off-screen, or null
+     */
+    private BaseScene prepared;
+
     final Communicator communicator;
 
     /**
@@ -59,29 +77,90 @@ public class GameWindow {
         setupDefaultScene();
 
         //Setup communicator
-        communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
-
-        //Go to menu
-        startMenu();
+        communicator = new Communicator(Communicator.getServer());
+
+        //Carry on a saved game if there is one, otherwise go to menu
+        var savedGame = SaveStore.getDefault().load();
+        if (savedGame != null) {
+            logger.info("Resuming saved game");
+            loadScene(new ChallengeScene(this, savedGame));
+        } else {
+            startMenu();
+        }
     }
 
     /**
-     * Set up the font and any other resources we need
+     * Start loading the fonts, images and sounds in the background, while the splash shows
      */
     private void setupResources() {
         logger.info("Loading resources");
 
-        //We need to load fonts here due to the Font loader bug with spaces in URLs in the CSS files
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Bold.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
+        var assets = AssetManager.getDefault();
+        assets.preload();
+
+        //The stylesheet needs the font families registered before the first scene is styled
+        assets.awaitFonts();
     }
 
     /**
      * Display the main menu
      */
     public void startMenu() {
-        loadScene(new MenuScene(this));
+        loadScene(reuse(MenuScene.class, () -> new MenuScene(this)));
+    }
+
+    /**
+     * Display the instructions
+     */
+    public void startInstructions() {
+        loadScene(reuse(InstructionsScene.class, () -> new InstructionsScene(this)));
+    }
+
+    /**
+     * Build the main menu off-screen, unless one is kept already, so going back to it takes a single frame
+     */
+    public void prepareMenu() {
+        if (!cache.containsKey(MenuScene.class) && !(prepared instanceof MenuScene)) {
+            prepare(new MenuScene(this));
+        }
+    }
+
+    /**
+     * Build the scores scene for a game off-screen while it is played, so it shows in a single frame once it ends
+     * @param game the game being played
+     * @param challengeScene the scene playing it
+     */
+    public void prepareScores(Game game, ChallengeScene challengeScene) {
+        prepare(new ScoresScene(this, game, challengeScene));
+    }
+
+    /**
+     * Build a scene once the current scene has shown its first frame, and keep it to be shown next
+     * @param next the scene
+     */
+    private void prepare(BaseScene next) {
+        prepared = next;
+        Platform.runLater(next::prepare);
+    }
+
+    /**
+     * Find a scene to show: the one built off-screen if it is of the right class, then one kept from before, reset,
+     * and only then a new one
+     * @param type the class of scene
+     * @param create makes a new scene
+     * @param <T> the class of scene
+     * @return the scene
+     */
+    private <T extends BaseScene> T reuse(Class<T> type, Supplier<T> create) {
+        if (type.isInstance(prepared)) {
+            return type.cast(prepared);
+        }
+        var kept = cache.remove(type);
+        if (kept != null) {
+            kept.reset();
+            return type.cast(kept);
+        }
+        return create.get();
     }
 
     /**
@@ -89,13 +168,36 @@ public class GameWindow {
      */
     public void startChallenge() { loadScene(new ChallengeScene(this)); }
 
+    /**
+     * Display a single player game in the given mode
+     * @param mode the mode to play
+     */
+    public void startChallenge(GameMode mode) { loadScene(new ChallengeScene(this, mode)); }
+
+    /**
+     * Display the first puzzle of the puzzle pack for the default piece set, if there is one
+     */
+    public void startPuzzles() {
+        var pack = PuzzlePack.getDefault();
+        if (pack == null || pack.size() == 0) {
+            logger.warn("No puzzles to play");
+            return;
+        }
+        loadScene(new PuzzleScene(this, pack, 0));
+    }
+
     /**
      * Display the scores scene
      * @param game the previous game state
      * @param challengeScene the previous challenge scene instance
      */
     public void scoreScene(Game game, ChallengeScene challengeScene){
-        scoresScene = new ScoresScene(this, game, challengeScene); // Create ScoresScene instance
+        // Use the scene built while the game was played, if it was for this game
+        if (prepared instanceof ScoresScene prebuilt && prebuilt.getGame() == game) {
+            scoresScene = prebuilt;
+        } else {
+            scoresScene = new ScoresScene(this, game, challengeScene); // Create ScoresScene instance
+        }
         loadScene(scoresScene);
     }
 
@@ -118,18 +220,25 @@ public class GameWindow {
     }
 
     /**
-     * Load a given scene which extends BaseScene and switch over.
+     * Load a given scene which extends BaseScene and switch over. A scene already built off-screen or kept from before
+     * is shown as it is, so only a new scene is built here.
      * @param newScene new scene to load
      */
     public void loadScene(BaseScene newScene) {
-        //Cleanup remains of the previous scene
+        var loaded = new SceneLoaded(newScene.getClass().getSimpleName());
+        loaded.begin();
+
+        //Cleanup remains of the previous scene, and drop any scene built for a different next step
         cleanup();
+        prepared = null;
 
-        //Create the new scene and set it up
-        newScene.build();
+        //Create the new scene if need be and set it up
+        newScene.prepare();
         currentScene = newScene;
-        scene = newScene.setScene();
+        scene = newScene.getScene();
         stage.setScene(scene);
+        AssetManager.getDefault().sceneShown(scene);
+        loaded.commit();
 
         //Initialise the scene when ready
         Platform.runLater(() -> currentScene.initialise());
@@ -144,10 +253,27 @@ public class GameWindow {
     }
 
     /**
-     * When switching scenes, perform any cleanup needed, such as removing previous listeners
+     * Save anything that needs to survive the window closing. Waits briefly for the save to reach the disk.
+     */
+    public void shutdown() {
+        if (currentScene instanceof ChallengeScene challengeScene) {
+            challengeScene.saveGame();
+        }
+        SaveStore.getDefault().flush(1000);
+    }
+
+    /**
+     * When switching scenes, perform any cleanup needed, such as removing previous listeners and letting the previous
+     * scene stop anything it started
      */
     public void cleanup() {
         logger.info("Clearing up previous scene");
+        if (currentScene != null) {
+            currentScene.cleanup();
+            if (currentScene.isReusable()) {
+                cache.put(currentScene.getClass(), currentScene);
+            }
+        }
         communicator.clearListeners();
     }
 